@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2023 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -15,10 +15,12 @@ package org.eclipse.mat.inspections;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Stack;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.query.Bytes;
 import org.eclipse.mat.query.Column;
@@ -45,6 +47,8 @@ public class BigDropsQuery implements IQuery, IResultTree
 {
     private final static int ROOT_ID = -1;
     private final static String ROOT_LABEL = Messages.BigDropsQuery_Root;
+    /** Fewer objects are checked on the calling thread */
+    private final static int PARALLEL_THRESHOLD = 100000;
 
     @Argument
     public ISnapshot snapshot;
@@ -65,163 +69,136 @@ public class BigDropsQuery implements IQuery, IResultTree
         return this;
     }
 
+    /**
+     * A big drop is an object whose retained size exceeds its biggest
+     * dominated child by more than the threshold. As the retained sizes only
+     * get smaller down the dominator tree, all the objects are checked with
+     * the retained size and dominator indexes, in parallel, instead of
+     * descending the tree. Each drop is then put below the nearest dominating
+     * drop. The labels are only read when a row is shown.
+     */
     private void buildTree(long threshold, IProgressListener listener) throws SnapshotException
     {
-        /*
-         * The algorithm implies that the children are sorted by their retained
-         * size descending. This is how the data is stored in the index
-         */
-
-        StackEntry entry = new StackEntry(ROOT_ID, snapshot.getSnapshotInfo().getUsedHeapSize(), snapshot
-                        .getImmediateDominatedIds(ROOT_ID), 0);
-        Stack<StackEntry> stack = new Stack<StackEntry>();
-        stack.push(entry);
-
-        rootEntry = new BigDropEntry(ROOT_ID, ROOT_LABEL, snapshot.getSnapshotInfo().getUsedHeapSize(),
-                        entry.children.length, ROOT_ID, ROOT_LABEL, snapshot.getSnapshotInfo().getUsedHeapSize());
-        Stack<BigDropEntry> dropsStack = new Stack<BigDropEntry>();
-        dropsStack.push(rootEntry);
-
-        int iterations = 0;
-        while (stack.size() > 0)
+        long usedHeapSize = snapshot.getSnapshotInfo().getUsedHeapSize();
+        rootEntry = new BigDropEntry(ROOT_ID, ROOT_LABEL, usedHeapSize,
+                        snapshot.getImmediateDominatedIds(ROOT_ID).length, ROOT_ID, ROOT_LABEL, usedHeapSize);
+
+        List<BigDropEntry> drops = findBigDrops(threshold, listener);
+        // the children of each entry are then also sorted
+        drops.sort((a, b) -> {
+            int c = Long.compare(b.objectRetainedSize.getValue(), a.objectRetainedSize.getValue());
+            return c != 0 ? c : Integer.compare(a.objectId, b.objectId);
+        });
+
+        HashMapIntObject<BigDropEntry> id2entry = new HashMapIntObject<BigDropEntry>(drops.size());
+        for (BigDropEntry drop : drops)
+            id2entry.put(drop.objectId, drop);
+
+        for (BigDropEntry drop : drops)
         {
-            /* check for cancellation */
-            iterations++;
-            if ((iterations & 0xfff) == 0)
-            {
-                if (listener.isCanceled()) { throw new IProgressListener.OperationCanceledException(); }
-            }
-            // peek at the arguments
-            entry = stack.peek();
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+            int dominatorId = snapshot.getImmediateDominatorId(drop.objectId);
+            while (dominatorId != ROOT_ID && !id2entry.containsKey(dominatorId))
+                dominatorId = snapshot.getImmediateDominatorId(dominatorId);
+            BigDropEntry parent = dominatorId == ROOT_ID ? rootEntry : id2entry.get(dominatorId);
+            parent.children.add(drop);
+        }
+    }
 
-            if (entry.nextChild == 0) // first time we see the parent
-            {
-                if (entry.children.length == 0) // a leaf node
+    private List<BigDropEntry> findBigDrops(long threshold, IProgressListener listener) throws SnapshotException
+    {
+        final int numberOfObjects = snapshot.getSnapshotInfo().getNumberOfObjects();
+        int availableProcessors = Runtime.getRuntime().availableProcessors();
+        final int chunks = numberOfObjects < PARALLEL_THRESHOLD || availableProcessors <= 1 ? 1
+                        : availableProcessors * 4;
+        listener.beginTask(Messages.BigDropsQuery_Searching, chunks);
+
+        IntStream range = IntStream.range(0, chunks);
+        if (chunks > 1)
+            range = range.parallel();
+        List<List<BigDropEntry>> partials;
+        try
+        {
+            partials = range.mapToObj(chunk -> {
+                int from = (int) ((long) numberOfObjects * chunk / chunks);
+                int to = (int) ((long) numberOfObjects * (chunk + 1) / chunks);
+                List<BigDropEntry> partial = new ArrayList<BigDropEntry>();
+                try
                 {
-                    if (entry.parentSize > threshold)
+                    for (int objectId = from; objectId < to; objectId++)
                     {
-                        // add to result
-                        if (stack.size() > 1) // not a top-level
-                        {
-                            // construct the new entry
-                            IObject obj = snapshot.getObject(entry.parentId);
-                            IObject dominatorObject = getDominator(obj);
-                            BigDropEntry newBigDrop = null;
-                            if (dominatorObject == null) // add to the root
-                            {
-                                newBigDrop = new BigDropEntry(obj.getObjectId(), obj.getDisplayName(), obj
-                                                .getRetainedHeapSize(), entry.children.length, ROOT_ID, ROOT_LABEL,
-                                                rootEntry.objectRetainedSize.getValue());
-                            }
-                            else
-                            {
-                                newBigDrop = new BigDropEntry(obj.getObjectId(), obj.getDisplayName(), obj
-                                                .getRetainedHeapSize(), entry.children.length, dominatorObject
-                                                .getObjectId(), dominatorObject.getDisplayName(), dominatorObject
-                                                .getRetainedHeapSize());
-                            }
-                            BigDropEntry dropParent = dropsStack.peek();
-                            dropParent.children.add(newBigDrop);
-                        }
-
+                        if ((objectId & 0xffff) == 0 && listener.isCanceled())
+                            break;
+                        long retainedSize = snapshot.getRetainedHeapSize(objectId);
+                        if (retainedSize <= threshold)
+                            continue;
+                        // the children are sorted by their retained size descending
+                        int[] children = snapshot.getImmediateDominatedIds(objectId);
+                        long childRetainedSize = children.length > 0 ? snapshot.getRetainedHeapSize(children[0]) : 0;
+                        if (retainedSize - childRetainedSize > threshold)
+                            partial.add(new BigDropEntry(objectId, retainedSize, children.length));
                     }
-                    // the leaf node is processed
-                    stack.pop();
-                    continue;
-
                 }
-                else
-                // there are some children -> check for big drop
+                catch (SnapshotException e)
                 {
-                    long childRetainedSize = snapshot.getRetainedHeapSize(entry.children[entry.nextChild]);
-                    if (entry.parentSize - childRetainedSize > threshold)
-                    {
-                        // add to result
-                        if (stack.size() > 1) // not a top-level
-                        {
-                            // construct the new entry
-                            IObject obj = snapshot.getObject(entry.parentId);
-                            IObject dominatorObject = getDominator(obj);
-                            BigDropEntry newBigDrop = null;
-                            if (dominatorObject == null)
-                            {
-                                newBigDrop = new BigDropEntry(obj.getObjectId(), obj.getDisplayName(), obj
-                                                .getRetainedHeapSize(), entry.children.length, ROOT_ID, ROOT_LABEL,
-                                                rootEntry.objectRetainedSize.getValue());
-                            }
-                            else
-                            {
-                                newBigDrop = new BigDropEntry(obj.getObjectId(), obj.getDisplayName(), obj
-                                                .getRetainedHeapSize(), entry.children.length, dominatorObject
-                                                .getObjectId(), dominatorObject.getDisplayName(), dominatorObject
-                                                .getRetainedHeapSize());
-                            }
-                            BigDropEntry dropParent = dropsStack.peek();
-                            dropParent.children.add(newBigDrop);
-                            dropsStack.push(newBigDrop);
-                        }
-                    }
-                    else
-                    // skip this object
-                    {
-                        stack.pop();
-                        stack.push(new StackEntry(entry.children[entry.nextChild], childRetainedSize, snapshot
-                                        .getImmediateDominatedIds(entry.children[entry.nextChild]), 0));
-                        continue;
-                    }
+                    throw new IllegalStateException(e);
                 }
-            }
+                synchronized (listener)
+                {
+                    listener.worked(1);
+                }
+                return partial;
+            }).collect(Collectors.toList());
+        }
+        catch (IllegalStateException e)
+        {
+            if (e.getCause() instanceof SnapshotException)
+                throw (SnapshotException) e.getCause();
+            throw e;
+        }
 
-            /*
-             * at this point there should be printed parent with some children
-             */
-            if (entry.nextChild < entry.children.length)
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+        listener.done();
+
+        List<BigDropEntry> drops = new ArrayList<BigDropEntry>();
+        for (List<BigDropEntry> partial : partials)
+            drops.addAll(partial);
+        return drops;
+    }
+
+    /**
+     * Read the labels and the dominator of an entry found from the indexes.
+     */
+    private void resolve(BigDropEntry entry)
+    {
+        synchronized (entry)
+        {
+            if (entry.objectLabel != null)
+                return;
+            try
             {
-                long childRetainedSize = snapshot.getRetainedHeapSize(entry.children[entry.nextChild]);
-                if (childRetainedSize > threshold)
+                IObject obj = snapshot.getObject(entry.objectId);
+                IObject dominatorObject = getDominator(obj);
+                if (dominatorObject == null) // add to the root
                 {
-                    // one of the children is big enough to get attention
-
-                    stack.push(new StackEntry(entry.children[entry.nextChild], childRetainedSize, snapshot
-                                    .getImmediateDominatedIds(entry.children[entry.nextChild]), 0));
-                    entry.nextChild++;
+                    entry.dominatorId = ROOT_ID;
+                    entry.dominatorLabel = ROOT_LABEL;
+                    entry.dominatorRetainedSize = rootEntry.objectRetainedSize;
                 }
                 else
                 {
-                    // pop this parent - it's processed
-                    stack.pop();
-                    if (entry.parentId == dropsStack.peek().objectId)
-                    {
-                        dropsStack.pop();
-                    }
+                    entry.dominatorId = dominatorObject.getObjectId();
+                    entry.dominatorLabel = dominatorObject.getDisplayName();
+                    entry.dominatorRetainedSize = new Bytes(dominatorObject.getRetainedHeapSize());
                 }
+                entry.objectLabel = obj.getDisplayName();
             }
-            else
-            // pop this parent - it's processed
+            catch (SnapshotException e)
             {
-                stack.pop();
-                if (entry.parentId == dropsStack.peek().objectId)
-                {
-                    dropsStack.pop();
-                }
+                throw new RuntimeException(e);
             }
-
-        }
-    }
-
-    private static class StackEntry
-    {
-        int parentId;
-        int[] children;
-        int nextChild;
-        long parentSize;
-
-        public StackEntry(int parentId, long parentSize, int[] children, int nextChild)
-        {
-            this.parentId = parentId;
-            this.parentSize = parentSize;
-            this.children = children;
-            this.nextChild = nextChild;
         }
     }
 
@@ -273,6 +250,7 @@ public class BigDropsQuery implements IQuery, IResultTree
     public Object getColumnValue(Object row, int columnIndex)
     {
         BigDropEntry element = (BigDropEntry) row;
+        resolve(element);
         switch (columnIndex)
         {
             case 0:
@@ -345,6 +323,7 @@ public class BigDropsQuery implements IQuery, IResultTree
 
     IContextObject getDominator(final Object row)
     {
+        resolve((BigDropEntry) row);
         if (((BigDropEntry) row).dominatorId < 0)
             return null;
         return new IContextObject()
@@ -386,6 +365,16 @@ public class BigDropsQuery implements IQuery, IResultTree
             this.dominatorRetainedSize = new Bytes(dominatorRetainedSize);
         }
 
+        /**
+         * An entry whose labels and dominator are read when first needed.
+         */
+        BigDropEntry(int objectId, long objectRetainedSize, int numberOfChildren)
+        {
+            this.objectId = objectId;
+            this.objectRetainedSize = new Bytes(objectRetainedSize);
+            this.numberOfChildren = numberOfChildren;
+        }
+
     }
 
 }
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.inspections;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.query.Bytes;
+import org.eclipse.mat.query.Column;
+import org.eclipse.mat.query.Column.SortDirection;
+import org.eclipse.mat.query.ContextProvider;
+import org.eclipse.mat.query.IContextObject;
+import org.eclipse.mat.query.IIconProvider;
+import org.eclipse.mat.query.IQuery;
+import org.eclipse.mat.query.IResult;
+import org.eclipse.mat.query.IResultTable;
+import org.eclipse.mat.query.ResultMetaData;
+import org.eclipse.mat.query.annotations.Argument;
+import org.eclipse.mat.query.annotations.Argument.Advice;
+import org.eclipse.mat.query.annotations.CommandName;
+import org.eclipse.mat.query.annotations.Icon;
+import org.eclipse.mat.snapshot.IClassAccumulationIndex;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.query.Icons;
+import org.eclipse.mat.util.IProgressListener;
+
+@CommandName("class_accumulation_points")
+@Icon("/META-INF/icons/big_drops.gif")
+public class ClassAccumulationQuery implements IQuery
+{
+    @Argument
+    public ISnapshot snapshot;
+
+    @Argument(isMandatory = false, advice = Advice.CLASS_NAME_PATTERN, flag = "classes")
+    public Pattern pattern;
+
+    public IResult execute(IProgressListener listener) throws Exception
+    {
+        IClassAccumulationIndex index = snapshot.getSnapshotAddons(IClassAccumulationIndex.class);
+        if (index == null)
+            throw new SnapshotException(Messages.ClassAccumulationQuery_Error_NotAvailable);
+
+        List<Point> points = new ArrayList<Point>();
+        for (IClass clazz : snapshot.getClasses())
+        {
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+
+            if (pattern != null && !pattern.matcher(clazz.getName()).matches())
+                continue;
+
+            for (int rootId : index.getRootIds(clazz.getObjectId()))
+            {
+                points.add(new Point(clazz, rootId, //
+                                snapshot.getObject(rootId).getDisplayName(), //
+                                index.getInstanceCount(clazz.getObjectId(), rootId), //
+                                index.getInstanceHeapSize(clazz.getObjectId(), rootId), //
+                                snapshot.getRetainedHeapSize(rootId)));
+            }
+        }
+
+        return new Result(snapshot, points);
+    }
+
+    /**
+     * The instances of one class retained by an object at the top of the
+     * dominator tree.
+     */
+    public static class Point
+    {
+        IClass clazz;
+        int rootId;
+        String rootLabel;
+        long instances;
+        Bytes instancesHeapSize;
+        Bytes rootRetainedHeapSize;
+
+        public Point(IClass clazz, int rootId, String rootLabel, long instances, long instancesHeapSize,
+                        long rootRetainedHeapSize)
+        {
+            this.clazz = clazz;
+            this.rootId = rootId;
+            this.rootLabel = rootLabel;
+            this.instances = instances;
+            this.instancesHeapSize = new Bytes(instancesHeapSize);
+            this.rootRetainedHeapSize = new Bytes(rootRetainedHeapSize);
+        }
+    }
+
+    public static class Result implements IResultTable, IIconProvider
+    {
+        private ISnapshot snapshot;
+        private List<Point> points;
+
+        public Result(ISnapshot snapshot, List<Point> points)
+        {
+            this.snapshot = snapshot;
+            this.points = points;
+        }
+
+        public ResultMetaData getResultMetaData()
+        {
+            return new ResultMetaData.Builder() //
+
+                            .addContext(new ContextProvider(Messages.ClassAccumulationQuery_Column_Class)
+                            {
+                                @Override
+                                public IContextObject getContext(Object row)
+                                {
+                                    return getClassContext(row);
+                                }
+                            }) //
+
+                            .build();
+        }
+
+        public Column[] getColumns()
+        {
+            return new Column[] { new Column(Messages.ClassAccumulationQuery_Column_Class), //
+                            new Column(Messages.ClassAccumulationQuery_Column_AccumulationPoint), //
+                            new Column(Messages.ClassAccumulationQuery_Column_Instances, Long.class), //
+                            new Column(Messages.ClassAccumulationQuery_Column_InstancesShallowHeap, Bytes.class)
+                                            .sorting(SortDirection.DESC), //
+                            new Column(Messages.Column_RetainedHeap, Bytes.class) };
+        }
+
+        public int getRowCount()
+        {
+            return points.size();
+        }
+
+        public Object getRow(int rowId)
+        {
+            return points.get(rowId);
+        }
+
+        public Object getColumnValue(Object row, int columnIndex)
+        {
+            Point point = (Point) row;
+            switch (columnIndex)
+            {
+                case 0:
+                    return point.clazz.getName();
+                case 1:
+                    return point.rootLabel;
+                case 2:
+                    return point.instances;
+                case 3:
+                    return point.instancesHeapSize;
+                case 4:
+                    return point.rootRetainedHeapSize;
+            }
+            return null;
+        }
+
+        public URL getIcon(Object row)
+        {
+            return Icons.forObject(snapshot, ((Point) row).rootId);
+        }
+
+        public IContextObject getContext(final Object row)
+        {
+            return new IContextObject()
+            {
+                public int getObjectId()
+                {
+                    return ((Point) row).rootId;
+                }
+            };
+        }
+
+        IContextObject getClassContext(final Object row)
+        {
+            return new IContextObject()
+            {
+                public int getObjectId()
+                {
+                    return ((Point) row).clazz.getObjectId();
+                }
+            };
+        }
+    }
+}
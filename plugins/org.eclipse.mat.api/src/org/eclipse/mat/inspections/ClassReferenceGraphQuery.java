@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.inspections;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.query.Bytes;
+import org.eclipse.mat.query.Column;
+import org.eclipse.mat.query.Column.SortDirection;
+import org.eclipse.mat.query.ContextProvider;
+import org.eclipse.mat.query.IContextObject;
+import org.eclipse.mat.query.IIconProvider;
+import org.eclipse.mat.query.IQuery;
+import org.eclipse.mat.query.IResult;
+import org.eclipse.mat.query.IResultTable;
+import org.eclipse.mat.query.ResultMetaData;
+import org.eclipse.mat.query.annotations.Argument;
+import org.eclipse.mat.query.annotations.Argument.Advice;
+import org.eclipse.mat.query.annotations.CommandName;
+import org.eclipse.mat.query.annotations.Icon;
+import org.eclipse.mat.snapshot.IClassReferenceGraph;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.query.Icons;
+import org.eclipse.mat.util.IProgressListener;
+
+@CommandName("class_reference_graph")
+@Icon("/META-INF/icons/class_refs_outbound.gif")
+public class ClassReferenceGraphQuery implements IQuery
+{
+    @Argument
+    public ISnapshot snapshot;
+
+    @Argument(isMandatory = false, advice = Advice.CLASS_NAME_PATTERN, flag = "classes")
+    public Pattern pattern;
+
+    public IResult execute(IProgressListener listener) throws Exception
+    {
+        IClassReferenceGraph graph = snapshot.getSnapshotAddons(IClassReferenceGraph.class);
+
+        List<Edge> edges = new ArrayList<Edge>();
+        for (IClass referrer : snapshot.getClasses())
+        {
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+
+            boolean referrerMatches = pattern == null || pattern.matcher(referrer.getName()).matches();
+            for (int referencedId : graph.getReferencedClassIds(referrer.getObjectId()))
+            {
+                IClass referenced = (IClass) snapshot.getObject(referencedId);
+                if (referrerMatches || pattern.matcher(referenced.getName()).matches())
+                {
+                    edges.add(new Edge(referrer, referenced, //
+                                    graph.getReferenceCount(referrer.getObjectId(), referencedId), //
+                                    graph.getReferencedHeapSize(referrer.getObjectId(), referencedId)));
+                }
+            }
+        }
+
+        return new Result(edges);
+    }
+
+    /**
+     * The references from instances of one class to instances of another.
+     */
+    public static class Edge
+    {
+        IClass referrer;
+        IClass referenced;
+        long references;
+        Bytes referencedHeapSize;
+
+        public Edge(IClass referrer, IClass referenced, long references, long referencedHeapSize)
+        {
+            this.referrer = referrer;
+            this.referenced = referenced;
+            this.references = references;
+            this.referencedHeapSize = new Bytes(referencedHeapSize);
+        }
+    }
+
+    public static class Result implements IResultTable, IIconProvider
+    {
+        private List<Edge> edges;
+
+        public Result(List<Edge> edges)
+        {
+            this.edges = edges;
+        }
+
+        public ResultMetaData getResultMetaData()
+        {
+            return new ResultMetaData.Builder() //
+
+                            .addContext(new ContextProvider(Messages.ClassReferenceGraphQuery_Column_ReferencedClass)
+                            {
+                                @Override
+                                public IContextObject getContext(Object row)
+                                {
+                                    return getReferenced(row);
+                                }
+                            }) //
+
+                            .build();
+        }
+
+        public Column[] getColumns()
+        {
+            return new Column[] { new Column(Messages.ClassReferenceGraphQuery_Column_ReferringClass), //
+                            new Column(Messages.ClassReferenceGraphQuery_Column_ReferencedClass), //
+                            new Column(Messages.ClassReferenceGraphQuery_Column_References, Long.class), //
+                            new Column(Messages.ClassReferenceGraphQuery_Column_ReferencedShallowHeap, Bytes.class)
+                                            .sorting(SortDirection.DESC) };
+        }
+
+        public int getRowCount()
+        {
+            return edges.size();
+        }
+
+        public Object getRow(int rowId)
+        {
+            return edges.get(rowId);
+        }
+
+        public Object getColumnValue(Object row, int columnIndex)
+        {
+            Edge edge = (Edge) row;
+            switch (columnIndex)
+            {
+                case 0:
+                    return edge.referrer.getName();
+                case 1:
+                    return edge.referenced.getName();
+                case 2:
+                    return edge.references;
+                case 3:
+                    return edge.referencedHeapSize;
+            }
+            return null;
+        }
+
+        public URL getIcon(Object row)
+        {
+            return Icons.CLASS;
+        }
+
+        public IContextObject getContext(final Object row)
+        {
+            return new IContextObject()
+            {
+                public int getObjectId()
+                {
+                    return ((Edge) row).referrer.getObjectId();
+                }
+            };
+        }
+
+        IContextObject getReferenced(final Object row)
+        {
+            return new IContextObject()
+            {
+                public int getObjectId()
+                {
+                    return ((Edge) row).referenced.getObjectId();
+                }
+            };
+        }
+    }
+}
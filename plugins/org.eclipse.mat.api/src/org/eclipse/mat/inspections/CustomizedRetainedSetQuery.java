@@ -40,6 +40,7 @@ import org.eclipse.mat.query.annotations.HelpUrl;
 import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.snapshot.ExcludedReferencesDescriptor;
 import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.IRetainedSet;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.query.IHeapObjectArgument;
@@ -68,13 +69,13 @@ public class CustomizedRetainedSetQuery implements IQuery
     {
         SimpleMonitor monitor = new SimpleMonitor(MessageUtil.format(Messages.CustomizedRetainedSetQuery_QueryName, objects.getLabel()),
                         listener, new int[] { 10, 950, 50 });
-        int[] retainedSet;
+        IRetainedSet retainedSet;
 
         if (excludedReferences == null && excludedReferencesListFile == null)
         {
             // normal retained set
             int objs[] = objects.getIds(monitor.nextMonitor());
-            retainedSet = snapshot.getRetainedSet(objs, monitor.nextMonitor());
+            retainedSet = snapshot.getRetainedSetOf(objs, monitor.nextMonitor());
         }
         else
         {
@@ -98,13 +99,13 @@ public class CustomizedRetainedSetQuery implements IQuery
             }
             ExcludedReferencesDescriptor[] excludedRefDescriptors = getExcludedReferenceDescriptors(excludedReferences);
             int objs[] = objects.getIds(monitor.nextMonitor());
-            retainedSet = snapshot.getRetainedSet(objs, excludedRefDescriptors, monitor.nextMonitor());
+            retainedSet = snapshot.getRetainedSetOf(objs, excludedRefDescriptors, monitor.nextMonitor());
         }
 
         if (listener.isCanceled())
             throw new IProgressListener.OperationCanceledException();
 
-        Histogram histogram = snapshot.getHistogram(retainedSet, monitor.nextMonitor());
+        Histogram histogram = retainedSet.getHistogram(monitor.nextMonitor());
 
         if (listener.isCanceled())
             throw new IProgressListener.OperationCanceledException();
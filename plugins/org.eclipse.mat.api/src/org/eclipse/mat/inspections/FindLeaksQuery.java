@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2023 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
@@ -243,19 +244,66 @@ public class FindLeaksQuery implements IQuery
         }
     }
 
-    private SuspectRecord buildSuspectRecordGroupOfObjects(ClassHistogramRecord record, IProgressListener listener)
-                    throws SnapshotException
+    /**
+     * Finds the shortest paths from the GC roots to the sampled objects of all
+     * the suspected classes with a single breadth first search.
+     * 
+     * @return the paths to the objects of each suspect
+     */
+    private Object[][] findPaths(int[][] objectIds, IProgressListener listener) throws SnapshotException
     {
-        int[] objectIds = getRandomIds(record.getObjectIds());
-        IObject suspectClass = snapshot.getObject(record.getClassId());
+        int size = 0;
+        for (int[] ids : objectIds)
+            size += ids.length;
+
+        // the object id in the upper and the suspect in the lower half
+        int[] all = new int[size];
+        long[] owners = new long[size];
+        int n = 0;
+        for (int i = 0; i < objectIds.length; i++)
+        {
+            for (int objectId : objectIds[i])
+            {
+                owners[n] = ((long) objectId << 32) | i;
+                all[n++] = objectId;
+            }
+        }
+        Arrays.sort(owners);
 
-        // calculate the shortest paths to all
-        // avoid weak paths
-        // Unfinalized objects from J9 and HotSpot
-        // convert excludes into the required format
-        Map<IClass, Set<String>> excludeMap = ExcludesConverter.convert(snapshot, excludes);
+        List<List<Object>> found = new ArrayList<List<Object>>(objectIds.length);
+        for (int i = 0; i < objectIds.length; i++)
+            found.add(new ArrayList<Object>());
 
-        IMultiplePathsFromGCRootsComputer comp = snapshot.getMultiplePathsFromGCRoots(objectIds, excludeMap);
+        if (size > 0)
+        {
+            // calculate the shortest paths to all
+            // avoid weak paths
+            // Unfinalized objects from J9 and HotSpot
+            // convert excludes into the required format
+            Map<IClass, Set<String>> excludeMap = ExcludesConverter.convert(snapshot, excludes);
+
+            IMultiplePathsFromGCRootsComputer comp = snapshot.getMultiplePathsFromGCRoots(all, excludeMap);
+            for (Object path : comp.getAllPaths(listener))
+            {
+                int pos = Arrays.binarySearch(owners, (long) ((int[]) path)[0] << 32);
+                if (pos < 0)
+                    pos = -pos - 1;
+                found.get((int) owners[pos]).add(path);
+            }
+        }
+
+        Object[][] paths = new Object[objectIds.length][];
+        for (int i = 0; i < objectIds.length; i++)
+            paths[i] = found.get(i).toArray();
+        return paths;
+    }
+
+    private SuspectRecord buildSuspectRecordGroupOfObjects(ClassHistogramRecord record, int[] objectIds,
+                    Object[] paths, IProgressListener listener) throws SnapshotException
+    {
+        IObject suspectClass = snapshot.getObject(record.getClassId());
+
+        IMultiplePathsFromGCRootsComputer comp = new FoundPathsComputer(snapshot, paths);
 
         MultiplePathsFromGCRootsRecord[] records = comp.getPathsByGCRoot(listener);
         ArrayIntBig commonPath = new ArrayIntBig();
@@ -278,8 +326,11 @@ public class FindLeaksQuery implements IQuery
             int diff = objectIds.length - numPaths;
             if (diff > 0)
             {
-                listener.sendUserMessage(IProgressListener.Severity.INFO,
-                                MessageUtil.format(Messages.FindLeaksQuery_PathNotFound, diff, objectIds.length), null);
+                synchronized (listener)
+                {
+                    listener.sendUserMessage(IProgressListener.Severity.INFO,
+                                    MessageUtil.format(Messages.FindLeaksQuery_PathNotFound, diff, objectIds.length), null);
+                }
             }
             setRetainedSizesForMPaths(records, snapshot);
             Arrays.sort(records, MultiplePathsFromGCRootsRecord.getComparatorByNumberOfReferencedObjects());
@@ -347,35 +398,59 @@ public class FindLeaksQuery implements IQuery
                     long totalHeap, IProgressListener listener) throws SnapshotException
     {
         SuspectRecord[] allSuspects = new SuspectRecord[suspiciousObjects.size() + suspiciousClasses.size()];
-        listener.beginTask(Messages.FindLeaksQuery_BuildResult, allSuspects.length);
-        int j = 0;
+        listener.beginTask(Messages.FindLeaksQuery_BuildResult, allSuspects.length + 1);
         int[] suspectObjIds = suspiciousObjects.toArray();
-        for (int objectId : suspectObjIds)
-        {
-            if (listener.isCanceled())
-                throw new IProgressListener.OperationCanceledException();
 
-            IObject suspectObject = snapshot.getObject(objectId);
-            AccumulationPoint accPoint = findAccumulationPoint(objectId);
-            SuspectRecord r = new SuspectRecord(suspectObject, suspectObject.getRetainedHeapSize(), accPoint);
+        // search once for the paths to the objects of all the suspected classes
+        int[][] sampleIds = new int[suspiciousClasses.size()][];
+        for (int i = 0; i < sampleIds.length; i++)
+            sampleIds[i] = getRandomIds(suspiciousClasses.get(i).getObjectIds());
+        IProgressListener silent = new SilentProgressListener(listener);
+        Object[][] paths = findPaths(sampleIds, silent);
+        listener.worked(1);
 
-            allSuspects[j++] = r;
-            listener.worked(1);
-        }
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
 
-        for (ClassHistogramRecord record : suspiciousClasses)
+        // the suspects only read the snapshot, so analyse them in parallel
+        IntStream range = IntStream.range(0, allSuspects.length);
+        if (allSuspects.length > 1)
+            range = range.parallel();
+        try
         {
-            if (listener.isCanceled())
-                throw new IProgressListener.OperationCanceledException();
-
-            SuspectRecord r = buildSuspectRecordGroupOfObjects(record, /*
-                                                                        * (long)
-                                                                        * (
-                                                                        * threshold
-                                                                        * 0.7),
-                                                                        */new SilentProgressListener(listener));
-            allSuspects[j++] = r;
-            listener.worked(1);
+            range.forEach(i -> {
+                if (listener.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+                try
+                {
+                    if (i < suspectObjIds.length)
+                    {
+                        IObject suspectObject = snapshot.getObject(suspectObjIds[i]);
+                        AccumulationPoint accPoint = findAccumulationPoint(suspectObjIds[i]);
+                        allSuspects[i] = new SuspectRecord(suspectObject, suspectObject.getRetainedHeapSize(), accPoint);
+                    }
+                    else
+                    {
+                        int k = i - suspectObjIds.length;
+                        allSuspects[i] = buildSuspectRecordGroupOfObjects(suspiciousClasses.get(k), sampleIds[k],
+                                        paths[k], silent);
+                    }
+                }
+                catch (SnapshotException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+                synchronized (listener)
+                {
+                    listener.worked(1);
+                }
+            });
+        }
+        catch (IllegalStateException e)
+        {
+            if (e.getCause() instanceof SnapshotException)
+                throw (SnapshotException) e.getCause();
+            throw e;
         }
 
         // Have single and group of suspects all arranged by size
@@ -418,6 +493,34 @@ public class FindLeaksQuery implements IQuery
         flq.getRandomIds(nn);
     }
     
+    /**
+     * Paths already found by one search for several suspects.
+     */
+    private static class FoundPathsComputer implements IMultiplePathsFromGCRootsComputer
+    {
+        private final ISnapshot snapshot;
+        private final Object[] paths;
+
+        FoundPathsComputer(ISnapshot snapshot, Object[] paths)
+        {
+            this.snapshot = snapshot;
+            this.paths = paths;
+        }
+
+        public MultiplePathsFromGCRootsRecord[] getPathsByGCRoot(IProgressListener progressListener)
+        {
+            MultiplePathsFromGCRootsRecord dummy = new MultiplePathsFromGCRootsRecord(-1, -1, snapshot);
+            for (Object path : paths)
+                dummy.addPath((int[]) path);
+            return dummy.nextLevel();
+        }
+
+        public Object[] getAllPaths(IProgressListener progressListener)
+        {
+            return paths;
+        }
+    }
+
     public static class AccumulationPoint
     {
         IObject object;
@@ -26,6 +26,7 @@ import org.eclipse.mat.query.annotations.CommandName;
 import org.eclipse.mat.query.annotations.HelpUrl;
 import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.IStringIndex;
 import org.eclipse.mat.snapshot.extension.Subject;
 import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.model.IObject;
@@ -69,8 +70,34 @@ public class FindStringsQuery implements IQuery
         boolean onlyStrings = false;
         ArrayInt result = new ArrayInt();
 
+        // null unless the dump was parsed with the string_index option
+        IStringIndex index = snapshot.getSnapshotAddons(IStringIndex.class);
+        // per content id: 0 not yet matched, 1 matches, 2 does not match
+        byte[] matches = index != null ? new byte[index.getNumberOfContents()] : null;
+
         Collection<IClass> classes = snapshot.getClassesByName("java.lang.String", false); //$NON-NLS-1$
-        if (objects == null)
+        if (objects == null && index != null)
+        {
+            int[] objectIds = index.getObjectIds();
+
+            listener.beginTask(Messages.FindStringsQuery_SearchingStrings, objectIds.length / 1000 + 1);
+
+            for (int ii = 0; ii < objectIds.length; ii++)
+            {
+                if (ii % 1000 == 0)
+                {
+                    if (listener.isCanceled())
+                        break;
+                    listener.worked(1);
+                }
+
+                if (matches(index, index.getContentId(objectIds[ii]), matches))
+                    result.add(objectIds[ii]);
+            }
+
+            listener.done();
+        }
+        else if (objects == null)
         {
             if (classes != null)
                 ClassesLoop: for (IClass clasz : classes)
@@ -112,6 +139,14 @@ public class FindStringsQuery implements IQuery
                         if (listener.isCanceled())
                             break ObjectsLoop;
 
+                        if (index != null && index.contains(id))
+                        {
+                            if (matches(index, index.getContentId(id), matches))
+                                result.add(id);
+                            listener.worked(hot.work());
+                            continue;
+                        }
+
                         if (snapshot.isArray(id) || snapshot.isClass(id) || snapshot.isClassLoader(id))
                         {
                             listener.worked(hot.work());
@@ -146,4 +181,19 @@ public class FindStringsQuery implements IQuery
 
         return new ObjectListResult.Outbound(snapshot, result.toArray());
     }
+
+    /**
+     * Matches each distinct content only once.
+     */
+    private boolean matches(IStringIndex index, int contentId, byte[] matches)
+    {
+        if (contentId < 0)
+            return false;
+        if (matches[contentId] == 0)
+        {
+            String content = index.getContent(contentId);
+            matches[contentId] = content != null && pattern.matcher(content).matches() ? (byte) 1 : (byte) 2;
+        }
+        return matches[contentId] == 1;
+    }
 }
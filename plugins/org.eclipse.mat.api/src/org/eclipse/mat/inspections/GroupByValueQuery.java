@@ -24,6 +24,7 @@ import org.eclipse.mat.query.annotations.HelpUrl;
 import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.query.quantize.Quantize;
 import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.IStringIndex;
 import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.query.IHeapObjectArgument;
 import org.eclipse.mat.snapshot.query.RetainedSizeDerivedData;
@@ -52,6 +53,9 @@ public class GroupByValueQuery implements IQuery
                         .addDerivedData(RetainedSizeDerivedData.APPROXIMATE) //
                         .build();
 
+        // null unless the dump was parsed with the string_index option
+        IStringIndex index = snapshot.getSnapshotAddons(IStringIndex.class);
+
         HeapObjectsTracker hot = new HeapObjectsTracker(objects);
 
         listener.beginTask(Messages.GroupByValueQuery_GroupingObjects, hot.totalWork());
@@ -70,16 +74,33 @@ public class GroupByValueQuery implements IQuery
                 }
 
                 int objectId = objectIds[ii];
-                IObject object = snapshot.getObject(objectId);
-
-                Object subject = object;
-                if (field != null)
-                    subject = object.resolveValue(field);
 
-                if (subject instanceof IObject)
-                    subject = ((IObject) subject).getClassSpecificName();
+                Object subject;
+                if (field == null && index != null && index.contains(objectId))
+                {
+                    // strings are grouped without reading the objects
+                    subject = content(index, objectId);
+                }
+                else
+                {
+                    IObject object = snapshot.getObject(objectId);
+
+                    subject = object;
+                    if (field != null)
+                        subject = object.resolveValue(field);
+
+                    if (subject instanceof IObject)
+                    {
+                        IObject value = (IObject) subject;
+                        if (index != null && index.contains(value.getObjectId()))
+                            subject = content(index, value.getObjectId());
+                        else
+                            subject = value.getClassSpecificName();
+                    }
+                }
 
-                quantize.addValue(objectId, subject, null, object.getUsedHeapSize(), object.getRetainedHeapSize());
+                quantize.addValue(objectId, subject, null, snapshot.getHeapSize(objectId),
+                                snapshot.getRetainedHeapSize(objectId));
 
                 listener.worked(hot.work());
             }
@@ -92,4 +113,10 @@ public class GroupByValueQuery implements IQuery
 
         return quantize.getResult();
     }
+
+    private static String content(IStringIndex index, int objectId)
+    {
+        int contentId = index.getContentId(objectId);
+        return contentId >= 0 ? index.getContent(contentId) : null;
+    }
 }
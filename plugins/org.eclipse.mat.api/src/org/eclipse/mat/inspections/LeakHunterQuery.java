@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2023 SAP AG, IBM Corporation and others.
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -25,9 +25,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayIntBig;
@@ -89,6 +91,7 @@ import org.eclipse.mat.util.HTMLUtils;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.MessageUtil;
 import org.eclipse.mat.util.SimpleMonitor;
+import org.eclipse.mat.util.VoidProgressListener;
 
 import com.ibm.icu.text.NumberFormat;
 
@@ -129,6 +132,9 @@ public class LeakHunterQuery implements IQuery
 
     private long totalHeap;
 
+    /** Histograms of the objects dominated by the described objects, prepared in parallel */
+    private Map<Integer, IResult> dominatedHistograms = Collections.emptyMap();
+
     public IResult execute(IProgressListener listener) throws Exception
     {
         totalHeap = snapshot.getSnapshotInfo().getUsedHeapSize();
@@ -171,6 +177,8 @@ public class LeakHunterQuery implements IQuery
             }
             result.add(new QuerySpec(Messages.LeakHunterQuery_Overview, pie.build()));
 
+            dominatedHistograms = prepareHistogramsOfDominated(leakSuspects, listener);
+
             HashMap<Integer, List<Integer>> accPoint2ProblemNr = new HashMap<Integer, List<Integer>>();
             int problemNum = 0;
             for (SuspectRecord rec : leakSuspects)
@@ -1239,7 +1247,60 @@ public class LeakHunterQuery implements IQuery
         return treeBuilder.build(snapshot);
     }
 
+    /**
+     * The histograms of the objects dominated by the described objects only
+     * read the snapshot, so calculate them for all suspects in parallel.
+     */
+    private Map<Integer, IResult> prepareHistogramsOfDominated(SuspectRecord[] suspects, IProgressListener listener)
+                    throws SnapshotException
+    {
+        Set<Integer> described = new LinkedHashSet<Integer>();
+        for (SuspectRecord rec : suspects)
+        {
+            if (rec.getAccumulationPoint() != null)
+                described.add(rec.getAccumulationPoint().getObject().getObjectId());
+            else if (!(rec instanceof SuspectRecordGroupOfObjects))
+                described.add(rec.getSuspect().getObjectId());
+        }
+        int[] objectIds = described.stream().mapToInt(Integer::intValue).toArray();
+
+        Map<Integer, IResult> histograms = new ConcurrentHashMap<Integer, IResult>();
+        IntStream range = IntStream.range(0, objectIds.length);
+        if (objectIds.length > 1)
+            range = range.parallel();
+        try
+        {
+            range.forEach(i -> {
+                if (listener.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+                try
+                {
+                    histograms.put(objectIds[i], calculateHistogramOfDominated(objectIds[i], new VoidProgressListener()));
+                }
+                catch (SnapshotException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        catch (IllegalStateException e)
+        {
+            if (e.getCause() instanceof SnapshotException)
+                throw (SnapshotException) e.getCause();
+            throw e;
+        }
+        return histograms;
+    }
+
     private IResult getHistogramOfDominated(int objectId, IProgressListener listener) throws SnapshotException
+    {
+        IResult prepared = dominatedHistograms.get(objectId);
+        if (prepared != null)
+            return prepared;
+        return calculateHistogramOfDominated(objectId, listener);
+    }
+
+    private IResult calculateHistogramOfDominated(int objectId, IProgressListener listener) throws SnapshotException
     {
         int[] dominatedByAccPoint = snapshot.getImmediateDominatedIds(objectId);
         Histogram h = snapshot.getHistogram(dominatedByAccPoint, listener);
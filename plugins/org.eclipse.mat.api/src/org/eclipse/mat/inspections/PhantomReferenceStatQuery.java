@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2023 IBM Corporation and others.
+ * Copyright (c) 2009, 2026 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -20,6 +20,7 @@ import org.eclipse.mat.query.annotations.Argument;
 import org.eclipse.mat.query.annotations.CommandName;
 import org.eclipse.mat.query.annotations.HelpUrl;
 import org.eclipse.mat.query.annotations.Icon;
+import org.eclipse.mat.snapshot.IReferentIndex;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.extension.Subject;
 import org.eclipse.mat.util.IProgressListener;
@@ -35,7 +36,7 @@ public class PhantomReferenceStatQuery implements IQuery
 
     public IResult execute(IProgressListener listener) throws Exception
     {
-        return ReferenceQuery.execute("java\\.lang\\.ref\\.PhantomReference", snapshot, //$NON-NLS-1$
+        return ReferenceQuery.execute(IReferentIndex.Kind.PHANTOM, snapshot,
                         Messages.PhantomReferenceStatQuery_Label_Referenced,
                         Messages.PhantomReferenceStatQuery_Label_Retained,
                         Messages.PhantomReferenceStatQuery_Label_StronglyRetainedReferents, listener);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2023 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -29,6 +29,7 @@ import org.eclipse.mat.query.annotations.HelpUrl;
 import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.query.results.CompositeResult;
 import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.IReferentIndex;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.extension.Subject;
 import org.eclipse.mat.snapshot.model.Field;
@@ -40,6 +41,7 @@ import org.eclipse.mat.snapshot.query.IHeapObjectArgument;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.MessageUtil;
 import org.eclipse.mat.util.SimpleMonitor;
+import org.eclipse.mat.util.VoidProgressListener;
 
 /**
  * Extract information about objects extending java.lang.ref.Reference, e.g.
@@ -148,6 +150,125 @@ public class ReferenceQuery implements IQuery
         return execute(instanceSet, referentSet, snapshot, labelHistogramReferenced, labelHistogramRetained, labelHistogramStronglyRetainedReferents, DEFAULT_REFERENT, listener);
     }
 
+    /**
+     * The statistics for all the references of a kind, using the referent
+     * index of the snapshot so the references are not read and the retained
+     * sets of all the kinds are calculated together.
+     * @since 1.17
+     */
+    public static IResult execute(IReferentIndex.Kind kind, ISnapshot snapshot, String labelHistogramReferenced,
+                    String labelHistogramRetained, String labelHistogramStronglyRetainedReferents, IProgressListener listener) throws SnapshotException
+    {
+        IReferentIndex index = snapshot.getSnapshotAddons(IReferentIndex.class);
+        if (index == null || index.getReferenceIds(kind).length == 0)
+            return execute(getClassNamePattern(kind), snapshot, labelHistogramReferenced, labelHistogramRetained,
+                            labelHistogramStronglyRetainedReferents, listener);
+
+        SimpleMonitor monitor = new SimpleMonitor(
+                        Messages.ReferenceQuery_ProgressName, listener,
+                        new int[] { 100, 300, 100, 100 });
+        CompositeResult result = new CompositeResult();
+
+        int[] referents = index.getReferentIds(kind);
+        Histogram histogram = snapshot.getHistogram(referents, monitor.nextMonitor());
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+
+        histogram.setLabel(labelHistogramReferenced);
+        result.addResult(labelHistogramReferenced, histogram);
+
+        listener.subTask(Messages.ReferenceQuery_Msg_ComputingRetainedSet);
+        int[] retainedSet = index.getReferentRetainedSet(kind, monitor.nextMonitor());
+        histogram = snapshot.getHistogram(retainedSet, monitor.nextMonitor());
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+
+        histogram.setLabel(labelHistogramRetained);
+        result.addResult(labelHistogramRetained, histogram);
+
+        listener.subTask(Messages.ReferenceQuery_Msg_ComputingStronglyRetainedSet);
+        // calculated by the same pass as the referent retained set
+        int[] allRetainedSet = index.getRetainedSet(kind, new VoidProgressListener());
+        int leakingReferents[] = getStronglyRetainedReferents(allRetainedSet, retainedSet, referents);
+
+        histogram = snapshot.getHistogram(leakingReferents, monitor.nextMonitor());
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+
+        histogram.setLabel(labelHistogramStronglyRetainedReferents);
+        result.addResult(labelHistogramStronglyRetainedReferents, histogram);
+        listener.done();
+        return result;
+    }
+
+    /**
+     * The statistics for some references from their retained sets, already
+     * calculated by the caller, for example together with those of other
+     * references in one marking of the heap.
+     * 
+     * @param referentSet
+     *            the objects referred to by the references
+     * @param retainedSet
+     *            the objects which would be garbage collected if the
+     *            referents were cleared
+     * @param allRetainedSet
+     *            the retained set of the references
+     * @since 1.17
+     */
+    public static CompositeResult execute(SetInt referentSet, int[] retainedSet, int[] allRetainedSet,
+                    ISnapshot snapshot, String labelHistogramReferenced, String labelHistogramRetained,
+                    String labelHistogramStronglyRetainedReferents, IProgressListener listener)
+                    throws SnapshotException
+    {
+        SimpleMonitor monitor = new SimpleMonitor(
+                        Messages.ReferenceQuery_ProgressName, listener,
+                        new int[] { 100, 100, 100 });
+        CompositeResult result = new CompositeResult();
+
+        int[] referents = referentSet.toArray();
+        Histogram histogram = snapshot.getHistogram(referents, monitor.nextMonitor());
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+
+        histogram.setLabel(labelHistogramReferenced);
+        result.addResult(labelHistogramReferenced, histogram);
+
+        histogram = snapshot.getHistogram(retainedSet, monitor.nextMonitor());
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+
+        histogram.setLabel(labelHistogramRetained);
+        result.addResult(labelHistogramRetained, histogram);
+
+        int leakingReferents[] = getStronglyRetainedReferents(allRetainedSet, retainedSet, referents);
+
+        histogram = snapshot.getHistogram(leakingReferents, monitor.nextMonitor());
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+
+        histogram.setLabel(labelHistogramStronglyRetainedReferents);
+        result.addResult(labelHistogramStronglyRetainedReferents, histogram);
+        listener.done();
+        return result;
+    }
+
+    private static String getClassNamePattern(IReferentIndex.Kind kind)
+    {
+        switch (kind)
+        {
+            case SOFT:
+                return "java\\.lang\\.ref\\.SoftReference"; //$NON-NLS-1$
+            case WEAK:
+                return "java\\.lang\\.ref\\.WeakReference"; //$NON-NLS-1$
+            case PHANTOM:
+                return "java\\.lang\\.ref\\.PhantomReference"; //$NON-NLS-1$
+            case FINAL:
+                return "java\\.lang\\.ref\\.Finalizer"; //$NON-NLS-1$
+            default:
+                return "java\\.lang\\.ref\\.Reference"; //$NON-NLS-1$
+        }
+    }
+
     public static CompositeResult execute(ArrayInt instanceSet, SetInt referentSet, ISnapshot snapshot,
                     String labelHistogramReferenced, String labelHistogramRetained, String labelHistogramStronglyRetainedReferents, IProgressListener listener)
                     throws SnapshotException
@@ -188,6 +309,24 @@ public class ReferenceQuery implements IQuery
         if (listener.isCanceled())
             throw new IProgressListener.OperationCanceledException();
 
+        int leakingReferents[] = getStronglyRetainedReferents(allRetainedSet, retainedSet, referentSet.toArray());
+
+        histogram = snapshot.getHistogram(leakingReferents, monitor.nextMonitor());
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+
+        histogram.setLabel(labelHistogramStronglyRetainedReferents);
+        result.addResult(labelHistogramStronglyRetainedReferents, histogram);
+        listener.done();
+        return result;
+    }
+
+    /**
+     * The referents which are retained by the references, but not only
+     * through the referents.
+     */
+    private static int[] getStronglyRetainedReferents(int[] allRetainedSet, int[] retainedSet, int[] referents)
+    {
         // Exclude referent retained
         Arrays.sort(allRetainedSet);
         int newWeakRetained[] = new int[retainedSet.length];
@@ -207,7 +346,6 @@ public class ReferenceQuery implements IQuery
         }
 
         // Find which of the referent set are strongly retained elsewhere
-        int referents[] = referentSet.toArray();
         Arrays.sort(referents);
         t2 = -1;
         int d = 0;
@@ -223,15 +361,7 @@ public class ReferenceQuery implements IQuery
         }
         int leakingReferents[] = new int[d];
         System.arraycopy(referents, 0, leakingReferents, 0, d);
-
-        histogram = snapshot.getHistogram(leakingReferents, monitor.nextMonitor());
-        if (listener.isCanceled())
-            throw new IProgressListener.OperationCanceledException();
-
-        histogram.setLabel(labelHistogramStronglyRetainedReferents);
-        result.addResult(labelHistogramStronglyRetainedReferents, histogram);
-        listener.done();
-        return result;
+        return leakingReferents;
     }
 
     public static ObjectReference getReferent(IInstance instance) throws SnapshotException
@@ -20,6 +20,7 @@ import org.eclipse.mat.query.annotations.CommandName;
 import org.eclipse.mat.query.annotations.HelpUrl;
 import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.IRetainedSet;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.query.IHeapObjectArgument;
 import org.eclipse.mat.util.IProgressListener;
@@ -42,20 +43,29 @@ public class RetainedSetQuery implements IQuery
 
     public IResult execute(IProgressListener listener) throws Exception
     {
-        int[] retainedSet;
-
         SimpleMonitor monitor = new SimpleMonitor(
                         MessageUtil.format(Messages.RetainedSetQuery_ProgressName, objects.getLabel()), listener,
                         new int[] { 10, 100, 10 });
+        Histogram histogram;
         if (fieldNames == null)
-            retainedSet = snapshot.getRetainedSet(objects.getIds(monitor.nextMonitor()), monitor.nextMonitor());
+        {
+            // histogram straight from the marks, without an array of the retained objects
+            IRetainedSet retainedSet = snapshot.getRetainedSetOf(objects.getIds(monitor.nextMonitor()), monitor.nextMonitor());
+
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+
+            histogram = retainedSet.getHistogram(monitor.nextMonitor());
+        }
         else
-            retainedSet = snapshot.getRetainedSet(objects.getIds(monitor.nextMonitor()), fieldNames, monitor.nextMonitor());
+        {
+            int[] retainedSet = snapshot.getRetainedSet(objects.getIds(monitor.nextMonitor()), fieldNames, monitor.nextMonitor());
 
-        if (listener.isCanceled())
-            throw new IProgressListener.OperationCanceledException();
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
 
-        Histogram histogram = snapshot.getHistogram(retainedSet, monitor.nextMonitor());
+            histogram = snapshot.getHistogram(retainedSet, monitor.nextMonitor());
+        }
 
         if (listener.isCanceled())
             throw new IProgressListener.OperationCanceledException();
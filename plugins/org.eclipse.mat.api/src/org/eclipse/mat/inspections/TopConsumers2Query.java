@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2023 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -21,6 +21,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.stream.IntStream;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
@@ -92,14 +93,25 @@ public class TopConsumers2Query implements IQuery
     private long totalHeap;
     private int[] topDominators;
     private long[] topDominatorRetainedHeap;
+    /** the class of each top dominator */
+    private int[] topDominatorClassIds;
+    /** the class loader of each top dominator, or the loader itself */
+    private int[] topDominatorLoaderIds;
+    /** the shallow heap of each top dominator */
+    private long[] topDominatorUsedHeap;
+    /** whether each top dominator is a class or a class loader */
+    private boolean[] topDominatorIsClassOrLoader;
     private long threshold;
 
+    /** Fewer top dominators are read on the calling thread */
+    private static final int PARALLEL_THRESHOLD = 10000;
+
     public IResult execute(IProgressListener listener) throws Exception
     {
         if (objects != null && objects.length == 0)
             return new TextResult(Messages.TopConsumers2Query_MsgNoObjects);
         SimpleMonitor monitor = new SimpleMonitor(Messages.TopConsumers2Query_TopConsumers, listener,
-                        new int[] { 100, 100, 100, 100, 100 });
+                        new int[] { 100, 100, 100, 100, 100, 100 });
         IProgressListener listener0 = listener;
 
         SectionSpec spec = new SectionSpec(Messages.TopConsumers2Query_TopConsumers);
@@ -115,6 +127,9 @@ public class TopConsumers2Query implements IQuery
         if (listener.isCanceled())
             throw new IProgressListener.OperationCanceledException();
 
+        listener = monitor.nextMonitor();
+        readTopDominators(listener);
+
         listener = monitor.nextMonitor();
         Histogram histogram = getDominatedHistogramWithRetainedSizes(listener);
 
@@ -146,8 +161,28 @@ public class TopConsumers2Query implements IQuery
             totalHeap = snapshot.getSnapshotInfo().getUsedHeapSize();
 
             topDominatorRetainedHeap = new long[topDominators.length];
-            for (int ii = 0; ii < topDominators.length; ii++)
-                topDominatorRetainedHeap[ii] = snapshot.getRetainedHeapSize(topDominators[ii]);
+            IntStream range = IntStream.range(0, topDominators.length);
+            if (topDominators.length >= PARALLEL_THRESHOLD)
+                range = range.parallel();
+            try
+            {
+                range.forEach(ii -> {
+                    try
+                    {
+                        topDominatorRetainedHeap[ii] = snapshot.getRetainedHeapSize(topDominators[ii]);
+                    }
+                    catch (SnapshotException e)
+                    {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+            catch (IllegalStateException e)
+            {
+                if (e.getCause() instanceof SnapshotException)
+                    throw (SnapshotException) e.getCause();
+                throw e;
+            }
         }
         else
         {
@@ -262,7 +297,14 @@ public class TopConsumers2Query implements IQuery
     /** find suspect classes */
     private void addTopLevelDominatorClasses(SectionSpec composite, Histogram histogram, IProgressListener listener)
     {
-        ClassHistogramRecord[] records = histogram.getClassHistogramRecords().toArray(new ClassHistogramRecord[0]);
+        // only the records above the threshold are shown, so only sort those
+        ArrayList<ClassHistogramRecord> above = new ArrayList<ClassHistogramRecord>();
+        for (ClassHistogramRecord record : histogram.getClassHistogramRecords())
+        {
+            if (record.getRetainedHeapSize() > threshold)
+                above.add(record);
+        }
+        ClassHistogramRecord[] records = above.toArray(new ClassHistogramRecord[0]);
         Arrays.sort(records, Histogram.reverseComparator(Histogram.COMPARATOR_FOR_RETAINEDHEAPSIZE));
 
         PieFactory pie = new PieFactory(snapshot, totalHeap);
@@ -355,8 +397,14 @@ public class TopConsumers2Query implements IQuery
     /** find suspect class loaders */
     private void addTopLevelDominatorClassloader(SectionSpec composite, Histogram histogram, IProgressListener listener)
     {
-        ClassLoaderHistogramRecord[] records = histogram.getClassLoaderHistogramRecords().toArray(
-                        new ClassLoaderHistogramRecord[0]);
+        // only the records above the threshold are shown, so only sort those
+        ArrayList<ClassLoaderHistogramRecord> above = new ArrayList<ClassLoaderHistogramRecord>();
+        for (ClassLoaderHistogramRecord record : histogram.getClassLoaderHistogramRecords())
+        {
+            if (record.getRetainedHeapSize() > threshold)
+                above.add(record);
+        }
+        ClassLoaderHistogramRecord[] records = above.toArray(new ClassLoaderHistogramRecord[0]);
         Arrays.sort(records, Histogram.reverseComparator(Histogram.COMPARATOR_FOR_RETAINEDHEAPSIZE));
 
         PieFactory pie = new PieFactory(snapshot, totalHeap);
@@ -497,6 +545,77 @@ public class TopConsumers2Query implements IQuery
         }
     }
 
+    /**
+     * Read the class, class loader and shallow heap of all the top dominators
+     * from the indexes, in parallel, so the grouping which follows only needs
+     * to look at each class and class loader once.
+     */
+    private void readTopDominators(IProgressListener listener) throws SnapshotException
+    {
+        final int length = topDominators.length;
+        topDominatorClassIds = new int[length];
+        topDominatorLoaderIds = new int[length];
+        topDominatorUsedHeap = new long[length];
+        topDominatorIsClassOrLoader = new boolean[length];
+
+        int availableProcessors = Runtime.getRuntime().availableProcessors();
+        final int chunks = length < PARALLEL_THRESHOLD || availableProcessors <= 1 ? 1 : availableProcessors * 4;
+        listener.beginTask(Messages.TopConsumers2Query_ReadingTopDominators, chunks);
+
+        IntStream range = IntStream.range(0, chunks);
+        if (chunks > 1)
+            range = range.parallel();
+        try
+        {
+            range.forEach(chunk -> {
+                int from = (int) ((long) length * chunk / chunks);
+                int to = (int) ((long) length * (chunk + 1) / chunks);
+                try
+                {
+                    for (int ii = from; ii < to && !listener.isCanceled(); ii++)
+                    {
+                        int objectId = topDominators[ii];
+                        IClass clazz = snapshot.getClassOf(objectId);
+                        topDominatorClassIds[ii] = clazz.getObjectId();
+                        topDominatorUsedHeap[ii] = snapshot.getHeapSize(objectId);
+                        if (snapshot.isClass(objectId))
+                        {
+                            topDominatorLoaderIds[ii] = ((IClass) snapshot.getObject(objectId)).getClassLoaderId();
+                            topDominatorIsClassOrLoader[ii] = true;
+                        }
+                        else if (snapshot.isClassLoader(objectId))
+                        {
+                            topDominatorLoaderIds[ii] = objectId;
+                            topDominatorIsClassOrLoader[ii] = true;
+                        }
+                        else
+                        {
+                            topDominatorLoaderIds[ii] = clazz.getClassLoaderId();
+                        }
+                    }
+                }
+                catch (SnapshotException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+                synchronized (listener)
+                {
+                    listener.worked(1);
+                }
+            });
+        }
+        catch (IllegalStateException e)
+        {
+            if (e.getCause() instanceof SnapshotException)
+                throw (SnapshotException) e.getCause();
+            throw e;
+        }
+
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+        listener.done();
+    }
+
     private Histogram getDominatedHistogramWithRetainedSizes(IProgressListener listener) throws SnapshotException
     {
         listener.beginTask(Messages.TopConsumers2Query_CreatingHistogram, (topDominators.length + 999) / 1000);
@@ -508,36 +627,23 @@ public class TopConsumers2Query implements IQuery
 
         for (int ii = 0; ii < topDominators.length; ii++)
         {
-            long usedHeap = snapshot.getHeapSize(topDominators[ii]);
+            long usedHeap = topDominatorUsedHeap[ii];
             totalShallow += usedHeap;
 
-            IClass clazz = snapshot.getClassOf(topDominators[ii]);
-
-            ClassHistogramRecordWithObjIds classRecord = id2class.get(clazz.getObjectId());
+            int classId = topDominatorClassIds[ii];
+            ClassHistogramRecordWithObjIds classRecord = id2class.get(classId);
             if (classRecord == null)
             {
-                classRecord = new ClassHistogramRecordWithObjIds(clazz.getName(), clazz.getObjectId(), 0, 0, 0);
-                id2class.put(clazz.getObjectId(), classRecord);
+                IClass clazz = (IClass) snapshot.getObject(classId);
+                classRecord = new ClassHistogramRecordWithObjIds(clazz.getName(), classId, 0, 0, 0);
+                id2class.put(classId, classRecord);
             }
             classRecord.incNumberOfObjects();
             classRecord.incUsedHeapSize(usedHeap);
             classRecord.incRetainedHeapSize(topDominatorRetainedHeap[ii]);
             classRecord.addObjectId(topDominators[ii]);
 
-            int clId;
-            if (snapshot.isClass(topDominators[ii]))
-            {
-                IClass cl = (IClass)snapshot.getObject(topDominators[ii]);
-                clId = cl.getClassLoaderId();
-            }
-            else if (snapshot.isClassLoader(topDominators[ii]))
-            {
-                clId = topDominators[ii];
-            }
-            else
-            {
-                clId = clazz.getClassLoaderId();
-            }
+            int clId = topDominatorLoaderIds[ii];
             ClassLoaderHistogramRecord loaderRecord = id2loader.get(clId);
             if (loaderRecord == null)
             {
@@ -552,7 +658,7 @@ public class TopConsumers2Query implements IQuery
             loaderRecord.incNumberOfObjects();
             loaderRecord.incUsedHeapSize(usedHeap);
             loaderRecord.incRetainedHeapSize(topDominatorRetainedHeap[ii]);
-            if (snapshot.isClass(topDominators[ii]) || snapshot.isClassLoader(topDominators[ii]))
+            if (topDominatorIsClassOrLoader[ii])
             {
                 // Look for the class histogram record just for this class loader
                 ClassHistogramRecordWithObjIds chr2 = null;
@@ -567,7 +673,7 @@ public class TopConsumers2Query implements IQuery
                 if (chr2 == null)
                 {
                     // New one
-                    chr2 = new ClassHistogramRecordWithObjIds(clazz.getName(), clazz.getObjectId(), 0, 0, 0);
+                    chr2 = new ClassHistogramRecordWithObjIds(classRecord.getLabel(), classId, 0, 0, 0);
                     loaderRecord.getClassHistogramRecords().add(chr2);
                 }
                 chr2.incNumberOfObjects();
@@ -650,6 +756,8 @@ public class TopConsumers2Query implements IQuery
     {
         PackageTreeNode root = new PackageTreeNode(Messages.TopConsumers2Query_Label_all);
         PackageTreeNode current;
+        // the nodes below the root for each class name, so each name is split once
+        HashMapIntObject<PackageTreeNode[]> paths = new HashMapIntObject<PackageTreeNode[]>();
 
         listener.beginTask(Messages.TopConsumers2Query_GroupingByPackage, (topDominators.length + 999) / 1000);
 
@@ -666,27 +774,34 @@ public class TopConsumers2Query implements IQuery
             current.objs.add(dominatorId);
 
             // for classes take their name instead of java.lang.Class
-            String className;
-            if (snapshot.isClass(dominatorId))
-                className = ((IClass) snapshot.getObject(dominatorId)).getName();
-            else
-                className = snapshot.getClassOf(dominatorId).getName();
-
-            for (String subpack : new SimpleStringTokenizer(className, '.'))
+            int nameId = snapshot.isClass(dominatorId) ? dominatorId : topDominatorClassIds[ii];
+            PackageTreeNode[] path = paths.get(nameId);
+            if (path == null)
             {
-                PackageTreeNode childNode = current.subpackages.get(subpack);
-                if (childNode == null)
+                String className = ((IClass) snapshot.getObject(nameId)).getName();
+                List<PackageTreeNode> nodes = new ArrayList<PackageTreeNode>();
+                for (String subpack : new SimpleStringTokenizer(className, '.'))
                 {
-                    childNode = new PackageTreeNode(subpack);
-                    current.subpackages.put(subpack, childNode);
-                    // Record that current is a package - as subpackages may get pruned later
-                    current.pkg = true;
+                    PackageTreeNode childNode = current.subpackages.get(subpack);
+                    if (childNode == null)
+                    {
+                        childNode = new PackageTreeNode(subpack);
+                        current.subpackages.put(subpack, childNode);
+                        // Record that current is a package - as subpackages may get pruned later
+                        current.pkg = true;
+                    }
+                    nodes.add(childNode);
+                    current = childNode;
                 }
+                path = nodes.toArray(new PackageTreeNode[nodes.size()]);
+                paths.put(nameId, path);
+            }
+
+            for (PackageTreeNode childNode : path)
+            {
                 childNode.retainedSize = childNode.retainedSize.add(retainedSize);
                 childNode.dominatorsCount++;
                 childNode.objs.add(dominatorId);
-
-                current = childNode;
             }
 
             if (ii % 1000 == 0)
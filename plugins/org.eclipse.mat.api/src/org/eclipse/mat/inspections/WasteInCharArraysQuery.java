@@ -28,6 +28,7 @@ import org.eclipse.mat.query.annotations.CommandName;
 import org.eclipse.mat.query.annotations.HelpUrl;
 import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.IStringIndex;
 import org.eclipse.mat.snapshot.extension.Subject;
 import org.eclipse.mat.snapshot.model.IArray;
 import org.eclipse.mat.snapshot.model.IClass;
@@ -47,12 +48,17 @@ public class WasteInCharArraysQuery implements IQuery
     @Argument
     public int minimumWaste = 50;
 
+    private IStringIndex index;
+
     public IResult execute(IProgressListener listener) throws Exception
     {
         InspectionAssert.heapFormatIsNot(snapshot, "DTFJ-PHD"); //$NON-NLS-1$
         ArrayInt result = new ArrayInt();
 
         Collection<IClass> classes = snapshot.getClassesByName("char[]", false); //$NON-NLS-1$
+        if (classes != null && !classes.isEmpty())
+            // null unless the dump was parsed with the string_index option
+            index = snapshot.getSnapshotAddons(IStringIndex.class);
         if (classes != null)
             for (IClass clasz : classes)
             {
@@ -94,20 +100,30 @@ public class WasteInCharArraysQuery implements IQuery
 
         for (int inbound : inbounds)
         {
-            // if inbounds contain other types than strings,
-            // then waste is not defined
-            if (!isString(inbound))
-                return false;
-
-            IObject string = snapshot.getObject(inbound);
-            Integer offset = (Integer) string.resolveValue("offset"); //$NON-NLS-1$
-            // E.g. JDK7u6
-            if (offset == null)
-                offset = 0;
-            Integer count = (Integer) string.resolveValue("count"); //$NON-NLS-1$
-            // E.g. JDK7u6
-            if (count == null)
-                count = length - offset;
+            int offset;
+            int count;
+            if (index != null && index.contains(inbound))
+            {
+                offset = index.getOffset(inbound);
+                count = index.getLength(inbound);
+                if (count < 0)
+                    count = length - offset;
+            }
+            else
+            {
+                // if inbounds contain other types than strings,
+                // then waste is not defined
+                if (!isString(inbound))
+                    return false;
+
+                IObject string = snapshot.getObject(inbound);
+                Integer offsetObj = (Integer) string.resolveValue("offset"); //$NON-NLS-1$
+                // E.g. JDK7u6
+                offset = offsetObj != null ? offsetObj : 0;
+                Integer countObj = (Integer) string.resolveValue("count"); //$NON-NLS-1$
+                // E.g. JDK7u6
+                count = countObj != null ? countObj : length - offset;
+            }
             // string length already uses enough of the char[]
             if (length - count < minimumWaste)
                 return false;
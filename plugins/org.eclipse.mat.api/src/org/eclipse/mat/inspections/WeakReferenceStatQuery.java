@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2023 IBM Corporation.
+ * Copyright (c) 2009, 2026 IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -19,6 +19,7 @@ import org.eclipse.mat.query.annotations.Argument;
 import org.eclipse.mat.query.annotations.CommandName;
 import org.eclipse.mat.query.annotations.HelpUrl;
 import org.eclipse.mat.query.annotations.Icon;
+import org.eclipse.mat.snapshot.IReferentIndex;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.extension.Subject;
 import org.eclipse.mat.util.IProgressListener;
@@ -34,7 +35,7 @@ public class WeakReferenceStatQuery implements IQuery
 
     public IResult execute(IProgressListener listener) throws Exception
     {
-        return ReferenceQuery.execute("java\\.lang\\.ref\\.WeakReference", snapshot, //$NON-NLS-1$
+        return ReferenceQuery.execute(IReferentIndex.Kind.WEAK, snapshot,
                         Messages.WeakReferenceStatQuery_Label_Referenced,
                         Messages.WeakReferenceStatQuery_Label_Retained,
                         Messages.WeakReferenceStatQuery_Label_StronglyRetainedReferents, listener);
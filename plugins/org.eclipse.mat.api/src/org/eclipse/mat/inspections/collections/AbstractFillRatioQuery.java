@@ -14,8 +14,6 @@
  *******************************************************************************/
 package org.eclipse.mat.inspections.collections;
 
-import java.util.Arrays;
-
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.collect.ArrayIntBig;
@@ -35,11 +33,9 @@ import org.eclipse.mat.internal.Messages;
 import org.eclipse.mat.query.quantize.Quantize;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.SnapshotInfo;
-import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.model.IObjectArray;
 import org.eclipse.mat.util.IProgressListener;
-import org.eclipse.mat.util.MessageUtil;
 
 public class AbstractFillRatioQuery
 {
@@ -64,141 +60,81 @@ public class AbstractFillRatioQuery
                         && Boolean.TRUE.equals((Boolean) info.getProperty("$useCompressedOops")) //$NON-NLS-1$
                                         ? 4
                                         : info.getIdentifierSize();
-        final long LIMIT = 20;
-        HashMapIntLong exceptions = new HashMapIntLong();
-        int counter = 0;
-        IClass type = null;
-        for (int[] objectIds : objects)
+        new ObjectsScanner(snapshot, listener, msg, Messages.CollectionFillRatioQuery_IgnoringCollection).run(objects,
+                        obj -> extract(obj, specificClass, specificExtractor, refsize),
+                        (objectId, r) -> quantize.addValue(objectId, r.fill, 1, r.used, r.wasted));
+    }
+
+    private static Result extract(IObject obj, String specificClass, ICollectionExtractor specificExtractor,
+                    int refsize) throws SnapshotException
+    {
+        AbstractExtractedCollection<?, ?> coll = CollectionExtractionUtils.extractCollection(obj, specificClass,
+                        specificExtractor);
+        if (coll != null && coll.hasCapacity())
         {
-            HashMapIntObject<Result> resultMap = null;
-            int sortedObjs[] = objectIds;
-            int prev = Integer.MIN_VALUE;
-            for (int objectId : objectIds)
-            {
-                if (objectId < prev)
-                {
-                    sortedObjs = objectIds.clone();
-                    Arrays.sort(sortedObjs);
-                    resultMap = new HashMapIntObject<Result>();
-                    break;
-                }
-                prev = objectId;
-            }
-            for (int objectId : sortedObjs)
+            Double fillRatio = coll.getFillRatio();
+            if (fillRatio != null)
             {
-                if (listener.isCanceled())
-                    break;
-
-                IObject obj = snapshot.getObject(objectId);
-                if (counter++ % 1000 == 0 && !obj.getClazz().equals(type))
+                long wasted = 0;
+                if (coll.hasCapacity())
                 {
-                    type = obj.getClazz();
-                    listener.subTask(msg + "\n" + type.getName()); //$NON-NLS-1$
-                }
-                try
-                {
-                    AbstractExtractedCollection<?, ?> coll = CollectionExtractionUtils.extractCollection(obj, specificClass,
-                                    specificExtractor);
-                    if (coll != null && coll.hasCapacity())
+                    Integer c = coll.getCapacity();
+                    if (c != null)
                     {
-                        Double fillRatio = coll.getFillRatio();
-                        if (fillRatio != null)
-                        {
-                            long wasted = 0;
-                            if (coll.hasCapacity())
-                            {
-                                Integer c = coll.getCapacity();
-                                if (c != null)
-                                {
-                                    // These don't have reference sized slots
-                                    int refsize2;
-                                    if (obj.getClazz().getName().equals(SetInt.class.getName()))
-                                        refsize2 = 4;
-                                    else if (obj.getClazz().getName().equals(ArrayInt.class.getName()))
-                                        refsize2 = 4;
-                                    else if (obj.getClazz().getName().equals(QueueInt.class.getName()))
-                                        refsize2 = 4;
-                                    else if (obj.getClazz().getName().equals(SetLong.class.getName()))
-                                        refsize2 = 8;
-                                    else if (obj.getClazz().getName().equals(ArrayLong.class.getName()))
-                                        refsize2 = 8;
-                                    else if (obj.getClazz().getName().equals(HashMapIntLong.class.getName()))
-                                        refsize2 = 13;
-                                    else if (obj.getClazz().getName().equals(HashMapIntObject.class.getName()))
-                                        refsize2 = 5 + refsize;
-                                    else if (obj.getClazz().getName().equals(HashMapLongObject.class.getName()))
-                                        refsize2 = 9 + refsize;
-                                    else if (obj.getClazz().getName().equals(HashMapObjectLong.class.getName()))
-                                        refsize2 = 9 + refsize;
-                                    else if (obj.getClazz().getName().equals(ArrayIntBig.class.getName()))
-                                        refsize2 = 4;
-                                    else if (obj.getClazz().getName().equals(ArrayLongBig.class.getName()))
-                                        refsize2 = 8;
-                                    else
-                                        refsize2 = refsize;
-                                    wasted = (long)(c * refsize2 * (1 - fillRatio));
-                                }
-                            }
-                            else if (coll.hasExtractableArray())
-                            {
-                                IObjectArray backing = coll.extractEntries();
-                                if (backing != null)
-                                {
-                                    wasted = (long)(backing.getClazz().getHeapSizePerInstance() * (1 - fillRatio));
-                                }
-                            }
-                            else if (coll.hasSize())
-                            {
-                                Integer size = coll.size();
-                                if (size != null)
-                                {
-                                    int s = size;
-                                    // Try to have some limits on what might be calculated
-                                    if (fillRatio > 0)
-                                    {
-                                        wasted = (long) Math.min((s * refsize / (1 - fillRatio)),
-                                                        coll.getUsedHeapSize());
-                                    }
-                                }
-                            }
-                            if (resultMap != null)
-                                resultMap.put(objectId, new Result(fillRatio, coll.getUsedHeapSize(),wasted));
-                            else
-                                quantize.addValue(objectId, fillRatio, 1, coll.getUsedHeapSize(), wasted);
-                        }
+                        // These don't have reference sized slots
+                        int refsize2;
+                        if (obj.getClazz().getName().equals(SetInt.class.getName()))
+                            refsize2 = 4;
+                        else if (obj.getClazz().getName().equals(ArrayInt.class.getName()))
+                            refsize2 = 4;
+                        else if (obj.getClazz().getName().equals(QueueInt.class.getName()))
+                            refsize2 = 4;
+                        else if (obj.getClazz().getName().equals(SetLong.class.getName()))
+                            refsize2 = 8;
+                        else if (obj.getClazz().getName().equals(ArrayLong.class.getName()))
+                            refsize2 = 8;
+                        else if (obj.getClazz().getName().equals(HashMapIntLong.class.getName()))
+                            refsize2 = 13;
+                        else if (obj.getClazz().getName().equals(HashMapIntObject.class.getName()))
+                            refsize2 = 5 + refsize;
+                        else if (obj.getClazz().getName().equals(HashMapLongObject.class.getName()))
+                            refsize2 = 9 + refsize;
+                        else if (obj.getClazz().getName().equals(HashMapObjectLong.class.getName()))
+                            refsize2 = 9 + refsize;
+                        else if (obj.getClazz().getName().equals(ArrayIntBig.class.getName()))
+                            refsize2 = 4;
+                        else if (obj.getClazz().getName().equals(ArrayLongBig.class.getName()))
+                            refsize2 = 8;
+                        else
+                            refsize2 = refsize;
+                        wasted = (long)(c * refsize2 * (1 - fillRatio));
                     }
                 }
-                catch (RuntimeException e)
+                else if (coll.hasExtractableArray())
                 {
-                    int classId = obj.getClazz().getObjectId();
-                    if (!exceptions.containsKey(classId))
-                    {
-                        exceptions.put(classId, 0);
-                    }
-                    long c =  exceptions.get(classId);
-                    exceptions.put(classId, c + 1);
-                    if (c < LIMIT)
+                    IObjectArray backing = coll.extractEntries();
+                    if (backing != null)
                     {
-                        listener.sendUserMessage(
-                                        IProgressListener.Severity.INFO,
-                                        MessageUtil.format(Messages.CollectionFillRatioQuery_IgnoringCollection,
-                                                        obj.getTechnicalName()), e);
+                        wasted = (long)(backing.getClazz().getHeapSizePerInstance() * (1 - fillRatio));
                     }
                 }
-            }
-            if (resultMap != null)
-            {
-                for (int objectId : objectIds)
+                else if (coll.hasSize())
                 {
-                    if (resultMap.containsKey(objectId))
+                    Integer size = coll.size();
+                    if (size != null)
                     {
-                        Result r = resultMap.get(objectId);
-                        quantize.addValue(objectId, r.fill, 1, r.used, r.wasted);
+                        int s = size;
+                        // Try to have some limits on what might be calculated
+                        if (fillRatio > 0)
+                        {
+                            wasted = (long) Math.min((s * refsize / (1 - fillRatio)),
+                                            coll.getUsedHeapSize());
+                        }
                     }
                 }
+                return new Result(fillRatio, coll.getUsedHeapSize(), wasted);
             }
-            if (listener.isCanceled())
-                break;
         }
+        return null;
     }
 }
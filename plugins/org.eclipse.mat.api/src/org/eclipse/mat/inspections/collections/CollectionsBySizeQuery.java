@@ -14,11 +14,7 @@
  *******************************************************************************/
 package org.eclipse.mat.inspections.collections;
 
-import java.util.Arrays;
-
 import org.eclipse.mat.SnapshotException;
-import org.eclipse.mat.collect.HashMapIntLong;
-import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.inspections.collectionextract.AbstractExtractedCollection;
 import org.eclipse.mat.inspections.collectionextract.CollectionExtractionUtils;
 import org.eclipse.mat.inspections.collectionextract.ICollectionExtractor;
@@ -35,12 +31,9 @@ import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.query.quantize.Quantize;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.extension.Subjects;
-import org.eclipse.mat.snapshot.model.IClass;
-import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.query.IHeapObjectArgument;
 import org.eclipse.mat.snapshot.query.RetainedSizeDerivedData;
 import org.eclipse.mat.util.IProgressListener;
-import org.eclipse.mat.util.MessageUtil;
 
 @CommandName("collections_grouped_by_size")
 @Icon("/META-INF/icons/collection_size.gif")
@@ -160,84 +153,17 @@ public class CollectionsBySizeQuery implements IQuery
                     String specificClass) throws SnapshotException
     {
 
-        final long LIMIT = 20;
-        HashMapIntLong exceptions = new HashMapIntLong();
-        int counter = 0;
-        IClass type = null;
-        for (int[] objectIds : objects)
-        {
-            HashMapIntObject<Result> resultMap = null;
-            int sortedObjs[] = objectIds;
-            int prev = Integer.MIN_VALUE;
-            for (int objectId : objectIds)
-            {
-                if (objectId < prev)
-                {
-                    sortedObjs = objectIds.clone();
-                    Arrays.sort(sortedObjs);
-                    resultMap = new HashMapIntObject<Result>();
-                    break;
-                }
-                prev = objectId;
-            }
-            for (int objectId : sortedObjs)
-            {
-                if (listener.isCanceled())
-                    break;
-
-                IObject obj = snapshot.getObject(objectId);
-                if (counter++ % 1000 == 0 && !obj.getClazz().equals(type))
-                {
-                    type = obj.getClazz();
-                    listener.subTask(Messages.CollectionsBySizeQuery_CollectingSizes + "\n" + type.getName()); //$NON-NLS-1$
-                }
-                try
-                {
-                    AbstractExtractedCollection<?, ?> coll = CollectionExtractionUtils.extractCollection(obj, specificClass,
-                                    specificExtractor);
-                    if (coll != null && coll.hasSize())
-                    {
-                        Integer size = coll.size();
-                        if (size != null)
-                        {
-                            if (resultMap != null)
-                                resultMap.put(objectId, new Result(size, coll.getUsedHeapSize()));
-                            else
-                                quantize.addValue(objectId, size, null, coll.getUsedHeapSize());
-                        }
-                    }
-                }
-                catch (RuntimeException e)
-                {
-                    int classId = obj.getClazz().getObjectId();
-                    if (!exceptions.containsKey(classId))
-                    {
-                        exceptions.put(classId, 0);
-                    }
-                    long c =  exceptions.get(classId);
-                    exceptions.put(classId, c + 1);
-                    if (c < LIMIT)
-                    {
-                        listener.sendUserMessage(
-                                        IProgressListener.Severity.INFO,
-                                        MessageUtil.format(Messages.CollectionsBySizeQuery_IgnoringCollection,
-                                                        obj.getTechnicalName()), e);
-                    }
-                }
-            }
-            if (resultMap != null)
-            {
-                for (int objectId : objectIds)
-                {
-                    if (resultMap.containsKey(objectId))
-                    {
-                        Result r = resultMap.get(objectId);
-                        quantize.addValue(objectId, r.size, null, r.used);
-                    }
-                }
-            }
-            if (listener.isCanceled())
-                break;
-        }
+        new ObjectsScanner(snapshot, listener, Messages.CollectionsBySizeQuery_CollectingSizes,
+                        Messages.CollectionsBySizeQuery_IgnoringCollection).run(objects, obj -> {
+                            AbstractExtractedCollection<?, ?> coll = CollectionExtractionUtils.extractCollection(obj,
+                                            specificClass, specificExtractor);
+                            if (coll != null && coll.hasSize())
+                            {
+                                Integer size = coll.size();
+                                if (size != null)
+                                    return new Result(size, coll.getUsedHeapSize());
+                            }
+                            return null;
+                        }, (objectId, r) -> quantize.addValue(objectId, r.size, null, r.used));
     }
 }
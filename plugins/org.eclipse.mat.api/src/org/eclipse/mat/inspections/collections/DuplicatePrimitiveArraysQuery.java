@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.inspections.collections;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.ArrayLong;
+import org.eclipse.mat.inspections.InspectionAssert;
+import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.query.Column;
+import org.eclipse.mat.query.Column.SortDirection;
+import org.eclipse.mat.query.IQuery;
+import org.eclipse.mat.query.IResult;
+import org.eclipse.mat.query.annotations.Argument;
+import org.eclipse.mat.query.annotations.CommandName;
+import org.eclipse.mat.query.annotations.Icon;
+import org.eclipse.mat.query.quantize.Quantize;
+import org.eclipse.mat.snapshot.IPrimitiveArrayDigest;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.extension.Subjects;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.snapshot.model.IPrimitiveArray;
+import org.eclipse.mat.snapshot.query.IHeapObjectArgument;
+import org.eclipse.mat.util.IProgressListener;
+
+@CommandName("duplicate_primitive_arrays")
+@Icon("/META-INF/icons/constant_value.gif")
+@Subjects({"byte[]", "boolean[]", "short[]", "char[]", "int[]", "float[]", "long[]", "double[]"})
+public class DuplicatePrimitiveArraysQuery implements IQuery
+{
+    @Argument
+    public ISnapshot snapshot;
+
+    @Argument(flag = Argument.UNFLAGGED)
+    public IHeapObjectArgument objects;
+
+    public IResult execute(IProgressListener listener) throws Exception
+    {
+        InspectionAssert.heapFormatIsNot(snapshot, "DTFJ-PHD"); //$NON-NLS-1$
+        listener.subTask(Messages.DuplicatePrimitiveArraysQuery_SearchingDuplicates);
+
+        // null unless the dump was parsed with the primitive_array_digest option,
+        // then only the selected arrays are read
+        IPrimitiveArrayDigest digest = snapshot.getSnapshotAddons(IPrimitiveArrayDigest.class);
+
+        // group by type, length and content
+        Quantize.Builder builder = Quantize.valueDistribution( //
+                        new Column(Messages.DuplicatePrimitiveArraysQuery_Column_Type).noTotals(),
+                        new Column(Messages.PrimitiveArraysWithAConstantValueQuery_Column_Length, int.class).noTotals(),
+                        new Column(Messages.DuplicatePrimitiveArraysQuery_Column_ContentHash).noTotals());
+        builder.column(Messages.PrimitiveArraysWithAConstantValueQuery_Column_NumObjects, Quantize.COUNT);
+        builder.column(Messages.Column_ShallowHeap, Quantize.SUM_BYTES);
+        builder.column(Messages.DuplicatePrimitiveArraysQuery_Column_DuplicatedHeap, Quantize.SUM_BYTES,
+                        SortDirection.DESC);
+        Quantize quantize = builder.build();
+
+        // the primitive arrays to examine
+        ArrayInt ids = new ArrayInt();
+        ArrayInt lengths = new ArrayInt();
+        ArrayLong hashes = new ArrayLong();
+        for (int[] objectIds : objects)
+        {
+            if (listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+            for (int objectId : objectIds)
+            {
+                if (digest != null)
+                {
+                    if (digest.contains(objectId))
+                    {
+                        ids.add(objectId);
+                        lengths.add(digest.getLength(objectId));
+                        hashes.add(digest.getHash(objectId));
+                    }
+                }
+                else if (snapshot.isArray(objectId))
+                {
+                    if (listener.isCanceled())
+                        throw new IProgressListener.OperationCanceledException();
+                    IObject object = snapshot.getObject(objectId);
+                    if (object instanceof IPrimitiveArray)
+                    {
+                        ids.add(objectId);
+                        lengths.add(((IPrimitiveArray) object).getLength());
+                        hashes.add(hash((IPrimitiveArray) object));
+                    }
+                }
+            }
+        }
+
+        // the hashes of more than one array
+        long[] sorted = hashes.toArray();
+        Arrays.sort(sorted);
+        ArrayLong duplicated = new ArrayLong();
+        for (int ii = 1; ii < sorted.length; ii++)
+        {
+            if (sorted[ii] == sorted[ii - 1] && (duplicated.isEmpty() || duplicated.lastElement() != sorted[ii]))
+                duplicated.add(sorted[ii]);
+        }
+        sorted = duplicated.toArray();
+        duplicated = null;
+
+        // the first array of each group is kept, the others are duplicates
+        boolean[] seen = new boolean[sorted.length];
+        for (int ii = 0; ii < ids.size(); ii++)
+        {
+            if ((ii & 0xffff) == 0 && listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+
+            long hash = hashes.get(ii);
+            int pos = Arrays.binarySearch(sorted, hash);
+            if (pos < 0)
+                continue;
+
+            int objectId = ids.get(ii);
+            long size = snapshot.getHeapSize(objectId);
+            quantize.addValue(objectId, snapshot.getClassOf(objectId).getName(), lengths.get(ii),
+                            String.format("%016x", hash), null, size, seen[pos] ? size : 0); //$NON-NLS-1$
+            seen[pos] = true;
+        }
+
+        return quantize.getResult();
+    }
+
+    /**
+     * A hash of the type, length and elements of an array, for when there is
+     * no digest.
+     */
+    private static long hash(IPrimitiveArray array)
+    {
+        int length = array.getLength();
+        long hash = (array.getType() + 1) * 0x9e3779b97f4a7c15L ^ length;
+        // Read in chunks as DTFJ is slow for single reads
+        final int BUFSIZE = 16 * 1024;
+        for (int offset = 0; offset < length;)
+        {
+            Object values = array.getValueArray(offset, Math.min(length - offset, BUFSIZE));
+            int read = Array.getLength(values);
+            if (read == 0)
+                break;
+            offset += read;
+            for (int ii = 0; ii < read; ii++)
+            {
+                hash = (hash ^ Array.get(values, ii).hashCode()) * 0x100000001b3L;
+                hash ^= hash >>> 29;
+            }
+        }
+        return hash;
+    }
+}
@@ -14,11 +14,6 @@
  *******************************************************************************/
 package org.eclipse.mat.inspections.collections;
 
-import java.util.Arrays;
-
-import org.eclipse.mat.SnapshotException;
-import org.eclipse.mat.collect.HashMapIntLong;
-import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.inspections.collectionextract.CollectionExtractionUtils;
 import org.eclipse.mat.inspections.collectionextract.ExtractedMap;
 import org.eclipse.mat.inspections.collectionextract.IMapExtractor;
@@ -33,12 +28,9 @@ import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.query.quantize.Quantize;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.extension.Subjects;
-import org.eclipse.mat.snapshot.model.IClass;
-import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.query.IHeapObjectArgument;
 import org.eclipse.mat.snapshot.query.RetainedSizeDerivedData;
 import org.eclipse.mat.util.IProgressListener;
-import org.eclipse.mat.util.MessageUtil;
 
 @CommandName("map_collision_ratio")
 @Icon("/META-INF/icons/map_collision.gif")
@@ -115,91 +107,20 @@ public class MapCollisionRatioQuery implements IQuery
         Quantize quantize = builder.build();
 
         IMapExtractor specificExtractor = new HashMapCollectionExtractor(size_attribute, array_attribute, null, null);
-        final long LIMIT = 20;
-        HashMapIntLong exceptions = new HashMapIntLong();
-        int counter = 0;
-        IClass type = null;
-        for (int[] objectIds : objects)
-        {
-            HashMapIntObject<Result> resultMap = null;
-            int sortedObjs[] = objectIds;
-            int prev = Integer.MIN_VALUE;
-            for (int objectId : objectIds)
-            {
-                if (objectId < prev)
-                {
-                    sortedObjs = objectIds.clone();
-                    Arrays.sort(sortedObjs);
-                    resultMap = new HashMapIntObject<Result>();
-                    break;
-                }
-                prev = objectId;
-            }
-            for (int objectId : sortedObjs)
-            {
-                if (listener.isCanceled())
-                    break;
-
-                IObject obj = snapshot.getObject(objectId);
-                if (counter++ % 1000 == 0 && !obj.getClazz().equals(type))
-                {
-                    type = obj.getClazz();
-                    listener.subTask(Messages.MapCollisionRatioQuery_CalculatingCollisionRatios + "\n" + type.getName()); //$NON-NLS-1$
-                }
-                try
-                {
-                    ExtractedMap coll = CollectionExtractionUtils.extractMap(obj, collection, specificExtractor);
-
-                    if (coll != null)
-                    {
-                        /*
-                         * @FIXME - shouldn't really count maps without a collision ratio
-                         * but current tests presume TreeSet/TreeMap have one.
-                         */
-                        if (coll.hasCollisionRatio() || true)
-                        {
+        new ObjectsScanner(snapshot, listener, Messages.MapCollisionRatioQuery_CalculatingCollisionRatios,
+                        Messages.MapCollisionRatioQuery_IgnoringCollection).run(objects, obj -> {
+                            ExtractedMap coll = CollectionExtractionUtils.extractMap(obj, collection, specificExtractor);
+                            if (coll == null)
+                                return null;
+                            /*
+                             * @FIXME - shouldn't really count maps without a collision ratio
+                             * but current tests presume TreeSet/TreeMap have one.
+                             */
                             Double collisionRatio = coll.getCollisionRatio();
                             if (collisionRatio == null)
                                 collisionRatio = 0.0;
-                            if (resultMap != null)
-                                resultMap.put(objectId, new Result(collisionRatio, coll.getUsedHeapSize()));
-                            else
-                                quantize.addValue(objectId, collisionRatio, null, coll.getUsedHeapSize());
-                        }
-                    }
-                }
-                catch (RuntimeException | SnapshotException e)
-                {
-                    int classId = obj.getClazz().getObjectId();
-                    if (!exceptions.containsKey(classId))
-                    {
-                        exceptions.put(classId, 0);
-                    }
-                    long c =  exceptions.get(classId);
-                    exceptions.put(classId, c + 1);
-                    if (c < LIMIT)
-                    {
-                        listener.sendUserMessage(
-                                        IProgressListener.Severity.INFO,
-                                        MessageUtil.format(Messages.MapCollisionRatioQuery_IgnoringCollection,
-                                                        obj.getTechnicalName()), e);
-                    }
-                }
-            }
-            if (resultMap != null)
-            {
-                for (int objectId : objectIds)
-                {
-                    if (resultMap.containsKey(objectId))
-                    {
-                        Result r = resultMap.get(objectId);
-                        quantize.addValue(objectId, r.ratio, null, r.used);
-                    }
-                }
-            }
-            if (listener.isCanceled())
-                break;
-        }
+                            return new Result(collisionRatio, coll.getUsedHeapSize());
+                        }, (objectId, r) -> quantize.addValue(objectId, r.ratio, null, r.used));
 
         return quantize.getResult();
     }
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.inspections.collections;
+
+import java.util.Arrays;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.HashMapIntLong;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
+import org.eclipse.mat.util.VoidProgressListener;
+
+/**
+ * Extracts a result from each of a set of objects, reading the objects in
+ * parallel.
+ * <p>
+ * Each block of objects is read with
+ * {@link ISnapshot#readObjects(int[], org.eclipse.mat.snapshot.IObjectVisitor, IProgressListener)},
+ * so in the order of the dump, by several threads. The results are passed on
+ * afterwards on the calling thread in the original order of the objects, so
+ * the consumer need not be thread-safe and the results do not depend on the
+ * scheduling of the threads.
+ */
+class ObjectsScanner
+{
+    /** Messages for failing objects of the same class */
+    private static final long LIMIT = 20;
+
+    interface Extractor<R>
+    {
+        /**
+         * @return the result, or null to skip the object
+         */
+        R extract(IObject obj) throws SnapshotException;
+    }
+
+    interface Consumer<R>
+    {
+        void accept(int objectId, R result) throws SnapshotException;
+    }
+
+    private final ISnapshot snapshot;
+    private final IProgressListener listener;
+    private final String task;
+    private final String ignoring;
+    private final HashMapIntLong exceptions = new HashMapIntLong();
+    private int counter = 0;
+    private IClass type = null;
+
+    /**
+     * @param task the sub task, followed by the class currently read
+     * @param ignoring the message for an object where the extraction failed
+     */
+    ObjectsScanner(ISnapshot snapshot, IProgressListener listener, String task, String ignoring)
+    {
+        this.snapshot = snapshot;
+        this.listener = listener;
+        this.task = task;
+        this.ignoring = ignoring;
+    }
+
+    <R> void run(Iterable<int[]> objects, Extractor<R> extractor, Consumer<R> consumer) throws SnapshotException
+    {
+        for (int[] objectIds : objects)
+        {
+            int sortedObjs[] = objectIds;
+            int prev = Integer.MIN_VALUE;
+            for (int objectId : objectIds)
+            {
+                if (objectId < prev)
+                {
+                    sortedObjs = objectIds.clone();
+                    Arrays.sort(sortedObjs);
+                    break;
+                }
+                prev = objectId;
+            }
+
+            Object[] results = extract(sortedObjs, extractor);
+
+            for (int ii = 0; ii < objectIds.length; ii++)
+            {
+                int pos = sortedObjs == objectIds ? ii : Arrays.binarySearch(sortedObjs, objectIds[ii]);
+                @SuppressWarnings("unchecked")
+                R result = (R) results[pos];
+                if (result != null)
+                    consumer.accept(objectIds[ii], result);
+            }
+            if (listener.isCanceled())
+                break;
+        }
+    }
+
+    private <R> Object[] extract(int[] sortedObjs, Extractor<R> extractor) throws SnapshotException
+    {
+        Object[] results = new Object[sortedObjs.length];
+        // only pass on cancellation, the progress is by sub task
+        IProgressListener cancel = new VoidProgressListener()
+        {
+            @Override
+            public boolean isCanceled()
+            {
+                return listener.isCanceled();
+            }
+        };
+        snapshot.readObjects(sortedObjs, obj -> {
+            R result = extract(obj, extractor);
+            results[Arrays.binarySearch(sortedObjs, obj.getObjectId())] = result;
+        }, cancel);
+
+        // a duplicate object id is found at one of its positions
+        for (int ii = 1; ii < sortedObjs.length; ii++)
+        {
+            if (sortedObjs[ii] == sortedObjs[ii - 1])
+            {
+                if (results[ii] == null)
+                    results[ii] = results[ii - 1];
+                else if (results[ii - 1] == null)
+                {
+                    for (int jj = ii - 1; jj >= 0 && sortedObjs[jj] == sortedObjs[ii]; jj--)
+                        results[jj] = results[ii];
+                }
+            }
+        }
+        return results;
+    }
+
+    private <R> R extract(IObject obj, Extractor<R> extractor) throws SnapshotException
+    {
+        synchronized (this)
+        {
+            if (counter++ % 1000 == 0 && !obj.getClazz().equals(type))
+            {
+                type = obj.getClazz();
+                synchronized (listener)
+                {
+                    listener.subTask(task + "\n" + type.getName()); //$NON-NLS-1$
+                }
+            }
+        }
+        try
+        {
+            return extractor.extract(obj);
+        }
+        catch (RuntimeException | SnapshotException e)
+        {
+            int classId = obj.getClazz().getObjectId();
+            long c;
+            synchronized (this)
+            {
+                c = exceptions.containsKey(classId) ? exceptions.get(classId) : 0;
+                exceptions.put(classId, c + 1);
+            }
+            if (c < LIMIT)
+            {
+                synchronized (listener)
+                {
+                    listener.sendUserMessage(IProgressListener.Severity.INFO,
+                                    MessageUtil.format(ignoring, obj.getTechnicalName()), e);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.eclipse.mat.query.annotations.Help;
 import org.eclipse.mat.query.annotations.HelpUrl;
 import org.eclipse.mat.query.annotations.Icon;
 import org.eclipse.mat.query.quantize.Quantize;
+import org.eclipse.mat.snapshot.IPrimitiveArrayDigest;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.extension.Subjects;
 import org.eclipse.mat.snapshot.model.IClass;
@@ -79,6 +80,31 @@ public class PrimitiveArraysWithAConstantValueQuery implements IQuery
         builder.addDerivedData(RetainedSizeDerivedData.APPROXIMATE);
         Quantize quantize = builder.build();
 
+        // null unless the dump was parsed with the primitive_array_digest option
+        IPrimitiveArrayDigest digest = snapshot.getSnapshotAddons(IPrimitiveArrayDigest.class);
+        if (digest != null)
+        {
+            // only the arrays with a constant value are read
+            for (int[] objectIds : objects)
+            {
+                for (int objectId : objectIds)
+                {
+                    if (listener.isCanceled())
+                        break;
+
+                    if (digest.isConstant(objectId))
+                    {
+                        IPrimitiveArray array = (IPrimitiveArray) snapshot.getObject(objectId);
+                        quantize.addValue(objectId, digest.getLength(objectId), array.getValueAt(0), null,
+                                        snapshot.getHeapSize(objectId));
+                    }
+                }
+                if (listener.isCanceled())
+                    break;
+            }
+            return quantize.getResult();
+        }
+
         int counter = 0;
         IClass type = null;
         for (int[] objectIds : objects)
@@ -130,7 +156,7 @@ public class PrimitiveArraysWithAConstantValueQuery implements IQuery
                         int j;
                         if (i == 0)
                         {
-                            value0 = Array.get(objectIds, 0);
+                            value0 = Array.get(o, 0);
                             j = 1;
                         }
                         else
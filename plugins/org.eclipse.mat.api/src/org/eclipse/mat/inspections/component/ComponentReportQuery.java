@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2023 SAP AG, IBM Corporation and others
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -15,16 +15,18 @@
 package org.eclipse.mat.inspections.component;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.stream.IntStream;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.collect.BitField;
-import org.eclipse.mat.collect.IteratorInt;
+import org.eclipse.mat.collect.QueueInt;
 import org.eclipse.mat.collect.SetInt;
 import org.eclipse.mat.inspections.InspectionAssert;
 import org.eclipse.mat.inspections.ReferenceQuery;
@@ -47,9 +49,12 @@ import org.eclipse.mat.report.ITestResult;
 import org.eclipse.mat.report.Params;
 import org.eclipse.mat.report.QuerySpec;
 import org.eclipse.mat.report.SectionSpec;
+import org.eclipse.mat.report.Spec;
 import org.eclipse.mat.snapshot.ClassHistogramRecord;
 import org.eclipse.mat.snapshot.ExcludedReferencesDescriptor;
 import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.IReferentIndex;
+import org.eclipse.mat.snapshot.IRetainedSet;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.OQLParseException;
 import org.eclipse.mat.snapshot.SnapshotFactory;
@@ -70,6 +75,7 @@ import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.MessageUtil;
 import org.eclipse.mat.util.SilentProgressListener;
 import org.eclipse.mat.util.Units;
+import org.eclipse.mat.util.VoidProgressListener;
 
 @CommandName("component_report")
 @Icon("/META-INF/icons/component_report.gif")
@@ -90,6 +96,11 @@ public class ComponentReportQuery implements IQuery
 
     private static final String UNFINALIZED_REFERENCE = "<" + GCRootInfo.getTypeAsString(GCRootInfo.Type.UNFINALIZED) + ">"; //$NON-NLS-1$ //$NON-NLS-2$
 
+    private static final String REFERENT = "referent"; //$NON-NLS-1$
+
+    /** Newly reached objects between checks for cancellation while marking the references */
+    private static final int MARK_STEP = 100000;
+
     public IResult execute(IProgressListener listener) throws Exception
     {
         SectionSpec componentReport = new SectionSpec(MessageUtil.format(Messages.ComponentReportQuery_ComponentReport,
@@ -98,22 +109,20 @@ public class ComponentReportQuery implements IQuery
         Ticks ticks = new Ticks(listener, componentReport.getName(), 16);
 
         // calculate retained set
-        int[] retained = calculateRetainedSize(ticks);
+        IRetainedSet retainedSet = calculateRetainedSet(ticks);
+        int[] retained = retainedSet.toArray();
 
         ticks.tick();
 
-        Histogram histogram = snapshot.getHistogram(retained, ticks);
+        // histogram straight from the marks of the retained set
+        Histogram histogram = retainedSet.getHistogram(ticks);
         // Fill in the approx. retained sizes so we can show the biggest (most important?) first.
-        for (ClassHistogramRecord cr : histogram.getClassHistogramRecords())
-        {
-            long retsize = snapshot.getMinRetainedSize(cr.getObjectIds(), listener);
-            cr.setRetainedHeapSize(retsize);
-        }
+        calculateMinRetainedSizes(histogram, ticks);
         if (ticks.isCanceled())
             throw new IProgressListener.OperationCanceledException();
         ticks.tick();
 
-        long totalSize = snapshot.getHeapSize(retained);
+        long totalSize = retainedSet.getHeapSize();
         ticks.tick();
 
         addOverview(componentReport, totalSize, retained, histogram, ticks);
@@ -121,80 +130,31 @@ public class ComponentReportQuery implements IQuery
         SectionSpec possibleWaste = new SectionSpec(Messages.ComponentReportQuery_PossibleMemoryWaste);
         componentReport.add(possibleWaste);
 
-        try
-        {
-            addDuplicateStrings(possibleWaste, totalSize, histogram, ticks);
-        }
-        catch (UnsupportedOperationException e)
-        { /* ignore, if not supported by heap format */}
-
-        try
-        {
-            addEmptyCollections(possibleWaste, totalSize, histogram, ticks);
-        }
-        catch (UnsupportedOperationException e)
-        { /* ignore, if not supported by heap format */}
-
-        try
-        {
-            addCollectionFillRatios(possibleWaste, totalSize, histogram, ticks);
-        }
-        catch (UnsupportedOperationException e)
-        { /* ignore, if not supported by heap format */}
-
-        try
-        {
-            addZeroLengthArrays(possibleWaste, totalSize, histogram, ticks);
-        }
-        catch (UnsupportedOperationException e)
-        { /* ignore, if not supported by heap format */}
-
-        try
-        {
-            addArrayFillRatios(possibleWaste, totalSize, histogram, ticks);
-        }
-        catch (UnsupportedOperationException e)
-        { /* ignore, if not supported by heap format */}
-
-        try
-        {
-            addPrimitiveArrays(possibleWaste, totalSize, histogram, ticks);
-        }
-        catch (UnsupportedOperationException e)
-        { /* ignore, if not supported by heap format */}
-
         SectionSpec miscellaneous = new SectionSpec(Messages.ComponentReportQuery_Miscellaneous);
         componentReport.add(miscellaneous);
 
-        try
-        {
-            ReferenceMessages msg = new SoftReferenceMessages();
-            addReferenceStatistic(miscellaneous, histogram, ticks, "java.lang.ref.SoftReference", msg); //$NON-NLS-1$
-        }
-        catch (UnsupportedOperationException e)
-        { /* ignore, if not supported by heap format */}
-
-        try
-        {
-            ReferenceMessages msg = new WeakReferenceMessages();
-            addReferenceStatistic(miscellaneous, histogram, ticks, "java.lang.ref.WeakReference", msg); //$NON-NLS-1$
-        }
-        catch (UnsupportedOperationException e)
-        { /* ignore, if not supported by heap format */}
-
-        try
-        {
-            addFinalizerStatistic(miscellaneous, retained, ticks);
-        }
-        catch (UnsupportedOperationException e)
-        { /* ignore, if not supported by heap format */}
-
-        try
-        {
-            addHashMapsCollisionRatios(miscellaneous, totalSize, histogram, ticks);
-        }
-        catch (UnsupportedOperationException e)
-        { /* ignore, if not supported by heap format */}
+        // the soft and weak references of the component, with the retained
+        // sets of both kinds from one marking of the heap
+        ReferenceSet softReferences = collectReferences(histogram, ticks, "java.lang.ref.SoftReference", //$NON-NLS-1$
+                        new SoftReferenceMessages());
+        ReferenceSet weakReferences = collectReferences(histogram, ticks, "java.lang.ref.WeakReference", //$NON-NLS-1$
+                        new WeakReferenceMessages());
+        markReferences(new ReferenceSet[] { softReferences, weakReferences }, ticks);
+
+        // the analyses only read the snapshot, the retained set and the
+        // marks of the references, so they run in parallel
+        Analysis[] analyses = new Analysis[] {
+            new Analysis(possibleWaste, section -> addDuplicateStrings(section, totalSize, histogram, ticks)),
+            new Analysis(possibleWaste, section -> addEmptyCollections(section, totalSize, histogram, ticks)),
+            new Analysis(possibleWaste, section -> addCollectionFillRatios(section, totalSize, histogram, ticks)),
+            new Analysis(possibleWaste, section -> addZeroLengthArrays(section, totalSize, histogram, ticks)),
+            new Analysis(possibleWaste, section -> addArrayFillRatios(section, totalSize, histogram, ticks)),
+            new Analysis(possibleWaste, section -> addPrimitiveArrays(section, totalSize, histogram, ticks)),
+            new Analysis(miscellaneous, section -> addReferenceStatistic(section, softReferences, ticks)),
+            new Analysis(miscellaneous, section -> addReferenceStatistic(section, weakReferences, ticks)),
+            new Analysis(miscellaneous, section -> addFinalizerStatistic(section, retained, ticks)),
+            new Analysis(miscellaneous, section -> addHashMapsCollisionRatios(section, totalSize, histogram, ticks)) };
+        runAnalyses(analyses);
 
         ticks.delegate.done();
 
@@ -215,17 +175,17 @@ public class ComponentReportQuery implements IQuery
             this.delegate.beginTask(task, totalTicks);
         }
 
-        public void tick()
+        public synchronized void tick()
         {
             delegate.worked(1);
         }
 
-        public void beginTask(String name, int totalWork)
+        public synchronized void beginTask(String name, int totalWork)
         {
             delegate.subTask(name);
         }
 
-        public void subTask(String name)
+        public synchronized void subTask(String name)
         {
             delegate.subTask(name);
         }
@@ -238,7 +198,7 @@ public class ComponentReportQuery implements IQuery
             return delegate.isCanceled();
         }
 
-        public void sendUserMessage(Severity severity, String message, Throwable exception)
+        public synchronized void sendUserMessage(Severity severity, String message, Throwable exception)
         {
             delegate.sendUserMessage(severity, message, exception);
         }
@@ -253,14 +213,95 @@ public class ComponentReportQuery implements IQuery
 
     }
 
+    // //////////////////////////////////////////////////////////////
+    // run the analyses
+    // //////////////////////////////////////////////////////////////
+
+    private interface Part
+    {
+        void addTo(SectionSpec section) throws Exception;
+    }
+
+    /**
+     * Purpose: collect the results of one analysis, so that the analyses can
+     * run in parallel and the results still appear in order
+     */
+    private static class Analysis
+    {
+        SectionSpec target;
+        SectionSpec results;
+        Part part;
+        Exception failure;
+
+        public Analysis(SectionSpec target, Part part)
+        {
+            this.target = target;
+            this.results = new SectionSpec(target.getName());
+            this.part = part;
+        }
+
+        public void run()
+        {
+            try
+            {
+                part.addTo(results);
+            }
+            catch (UnsupportedOperationException e)
+            { /* ignore, if not supported by heap format */}
+            catch (Exception e)
+            {
+                failure = e;
+            }
+        }
+    }
+
+    private void runAnalyses(Analysis[] analyses) throws Exception
+    {
+        IntStream.range(0, analyses.length).parallel().forEach(i -> analyses[i].run());
+
+        for (Analysis analysis : analyses)
+        {
+            if (analysis.failure != null)
+                throw analysis.failure;
+            for (Spec spec : analysis.results.getChildren())
+                analysis.target.add(spec);
+        }
+    }
+
+    private void calculateMinRetainedSizes(Histogram histogram, Ticks ticks) throws SnapshotException
+    {
+        ClassHistogramRecord[] records = histogram.getClassHistogramRecords().toArray(new ClassHistogramRecord[0]);
+        try
+        {
+            Arrays.stream(records).parallel().forEach(cr -> {
+                if (ticks.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+                try
+                {
+                    cr.setRetainedHeapSize(snapshot.getMinRetainedSize(cr.getObjectIds(), new VoidProgressListener()));
+                }
+                catch (SnapshotException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        catch (IllegalStateException e)
+        {
+            if (e.getCause() instanceof SnapshotException)
+                throw (SnapshotException) e.getCause();
+            throw e;
+        }
+    }
+
     // //////////////////////////////////////////////////////////////
     // calculate retained size
     // //////////////////////////////////////////////////////////////
 
     private String oqlretained;
-    private int[] calculateRetainedSize(Ticks ticks) throws SnapshotException
+    private IRetainedSet calculateRetainedSet(Ticks ticks) throws SnapshotException
     {
-        int[] retained = null;
+        IRetainedSet retained;
 
         List<ExcludedReferencesDescriptor> excludes = new ArrayList<ExcludedReferencesDescriptor>();
 
@@ -274,17 +315,16 @@ public class ComponentReportQuery implements IQuery
         boolean useoql = label.startsWith("select * ") || label.startsWith("select objects "); //$NON-NLS-1$ //$NON-NLS-2$
         if (excludes.isEmpty())
         {
-            retained = snapshot.getRetainedSet(ids, ticks);
+            retained = snapshot.getRetainedSetOf(ids, ticks);
         }
         else
         {
-            int retlen = -1;
-            long hs = 0;
+            int[] retained1 = null;
             if (useoql)
             {
                 /*
                  * See if the ordinary retained set as used by OQL returns the same results
-                 * Do this first so we can discard the result and just check the length
+                 * Compare the objects of both sets, not just the number of objects.
                  * Consider o is component roots, z = other roots, SR=SoftReference
                  * o->SR->A
                  * o->B
@@ -292,38 +332,16 @@ public class ComponentReportQuery implements IQuery
                  * If SoftRefs followed, retained set = SR,A
                  * if SoftRefs not followed, retained set = SR,B
                  * so same number of refs doesn't prove equality.
-                 * Order doesn't matter though.
+                 * Only keep the ids, not the marks, during the second marking.
                  */
-                int retained1[] = snapshot.getRetainedSet(ids, new SilentProgressListener(ticks));
-                retlen = retained1.length;
-                for (int i : retained1)
-                {
-                    hs += snapshot.mapIdToAddress(i);
-                }
-                retained1 = null;
+                retained1 = snapshot.getRetainedSet(ids, new SilentProgressListener(ticks));
             }
-            retained = snapshot.getRetainedSet(ids, //
+            retained = snapshot.getRetainedSetOf(ids, //
                             excludes.toArray(new ExcludedReferencesDescriptor[0]), //
                             ticks);
-            if (useoql)
+            if (useoql && !containsSame(retained1, retained))
             {
-                if (retained.length != retlen)
-                {
-                    useoql = false;
-                }
-                else
-                {
-                    // Further test that they seem the same
-                    long hs1 = 0;
-                    for (int i : retained)
-                    {
-                        hs1 += snapshot.mapIdToAddress(i);
-                    }
-                    if (hs != hs1)
-                    {
-                        useoql = false;
-                    }
-                }
+                useoql = false;
             }
         }
         if (useoql)
@@ -347,6 +365,18 @@ public class ComponentReportQuery implements IQuery
         return retained;
     }
 
+    private static boolean containsSame(int[] set1, IRetainedSet set2)
+    {
+        if (set1.length != set2.size())
+            return false;
+        for (int objectId : set1)
+        {
+            if (!set2.contains(objectId))
+                return false;
+        }
+        return true;
+    }
+
     private void addExcludes(List<ExcludedReferencesDescriptor> excludes, String className, String... fields)
                     throws SnapshotException
     {
@@ -1342,74 +1372,274 @@ public class ComponentReportQuery implements IQuery
         }
     }
 
-    private void addReferenceStatistic(SectionSpec componentReport, Histogram histogram, Ticks ticks, String className,
+    /**
+     * The referent of a reference object, from the referent index if the
+     * snapshot has one, otherwise read from the object.
+     * @return the referent id, or -1 if there is none
+     */
+    private int getReferentId(IReferentIndex referentIndex, int objectId) throws SnapshotException
+    {
+        if (referentIndex != null)
+            return referentIndex.getReferentId(objectId);
+        ObjectReference ref = ReferenceQuery.getReferent((IInstance) snapshot.getObject(objectId));
+        if (ref == null)
+            return -1;
+        try
+        {
+            return ref.getObjectId();
+        }
+        catch (SnapshotException e)
+        {
+            // Unindexed object
+            return -1;
+        }
+    }
+
+    /**
+     * The references of one kind retained by the component. The retained sets
+     * are filled in by {@link ComponentReportQuery#markReferences}.
+     */
+    private static class ReferenceSet
+    {
+        ReferenceMessages messages;
+        /** null if the snapshot has no classes of this kind */
+        ArrayList<ClassHistogramRecord> records;
+        long numObjects;
+        long heapSize;
+        /** the references, ascending */
+        int[] instances;
+        /** per reference the referent, or -1 */
+        int[] referents;
+        /** per reference the referent if only the referent field refers to it, otherwise -1 */
+        int[] cuts;
+        SetInt referentSet;
+        /** the objects retained only through the referents */
+        int[] retainedSet;
+        /** the retained set of the references */
+        int[] allRetainedSet;
+    }
+
+    private ReferenceSet collectReferences(Histogram histogram, Ticks ticks, String className,
                     ReferenceMessages messages) throws SnapshotException
     {
+        ReferenceSet set = new ReferenceSet();
+        set.messages = messages;
+        set.referentSet = new SetInt();
         Collection<IClass> classes = snapshot.getClassesByName(className, true);
         if (classes == null || classes.isEmpty())
         {
-            addEmptyResult(componentReport, messages.ReferenceStatistics, messages.Msg_NoReferencesFound);
-            return;
+            ticks.tick();
+            return set;
         }
 
-        SetInt softRefClassIds = new SetInt(classes.size());
+        SetInt refClassIds = new SetInt(classes.size());
         for (IClass c : classes)
-            softRefClassIds.add(c.getObjectId());
+            refClassIds.add(c.getObjectId());
 
-        ArrayList<ClassHistogramRecord> softRefs = new ArrayList<ClassHistogramRecord>();
-        long numObjects = 0, heapSize = 0;
+        set.records = new ArrayList<ClassHistogramRecord>();
         ArrayInt instanceSet = new ArrayInt();
-        SetInt referentSet = new SetInt();
-
         for (ClassHistogramRecord record : sorted(histogram.getClassHistogramRecords()))
         {
-            if (ticks.isCanceled())
-                break;
-            if (softRefClassIds.contains(record.getClassId()))
+            if (refClassIds.contains(record.getClassId()))
             {
-                softRefs.add(record);
-                numObjects += record.getNumberOfObjects();
-                heapSize += record.getUsedHeapSize();
-
+                set.records.add(record);
+                set.numObjects += record.getNumberOfObjects();
+                set.heapSize += record.getUsedHeapSize();
                 instanceSet.addAll(record.getObjectIds());
+            }
+        }
 
-                for (int objectId : record.getObjectIds())
+        final int[] instances = instanceSet.toArray();
+        Arrays.sort(instances);
+        final int[] referents = new int[instances.length];
+        final int[] cuts = new int[instances.length];
+        Arrays.fill(referents, -1);
+        Arrays.fill(cuts, -1);
+        // each reference is read once, in dump order
+        snapshot.readObjects(instances, obj -> {
+            if (!(obj instanceof IInstance))
+                return;
+            ObjectReference ref = ReferenceQuery.getReferent((IInstance) obj);
+            if (ref == null)
+                return;
+            int pos = Arrays.binarySearch(instances, obj.getObjectId());
+            try
+            {
+                referents[pos] = ref.getObjectId();
+            }
+            catch (SnapshotException e)
+            {
+                // Unindexed object
+                return;
+            }
+            // as for the retained set with the referent field excluded, only
+            // cut the referent if no other field refers to it
+            boolean byReferent = false;
+            for (NamedReference nr : obj.getOutboundReferences())
+            {
+                if (nr.getObjectAddress() == ref.getObjectAddress())
                 {
-                    IInstance obj = (IInstance) snapshot.getObject(objectId);
+                    if (!REFERENT.equals(nr.getName()))
+                        return;
+                    byReferent = true;
+                }
+            }
+            if (byReferent)
+                cuts[pos] = referents[pos];
+        }, ticks);
+        for (int referentId : referents)
+        {
+            if (referentId >= 0)
+                set.referentSet.add(referentId);
+        }
+        set.instances = instances;
+        set.referents = referents;
+        set.cuts = cuts;
+        ticks.tick();
+        return set;
+    }
 
-                    try
-                    {
-                        ObjectReference ref = ReferenceQuery.getReferent(obj);
-                        if (ref != null)
-                            referentSet.add(ref.getObjectId());
-                    }
-                    catch (SnapshotException e)
-                    {
-                    }
-                    if (ticks.isCanceled())
-                        break;
+    /**
+     * Calculates the retained sets of all the reference sets with a single
+     * marking from the GC roots. Each object gets two bits per set: bit 2k if
+     * it can be reached without following the referents of set k, and bit
+     * 2k+1 if it can be reached without going through the references of set
+     * k. An object is visited again only when it gains bits. The objects
+     * without bit 2k are those retained only through the referents, and those
+     * without bit 2k+1 are the retained set of the references.
+     */
+    private void markReferences(ReferenceSet[] sets, Ticks ticks) throws SnapshotException
+    {
+        int numberOfObjects = snapshot.getSnapshotInfo().getNumberOfObjects();
+
+        // all the references, ascending, with their set and the referent to cut
+        int size = 0;
+        for (ReferenceSet set : sets)
+            size += set.instances != null ? set.instances.length : 0;
+        long[] order = new long[size];
+        int n = 0;
+        for (int k = 0; k < sets.length; k++)
+        {
+            if (sets[k].instances == null)
+                continue;
+            for (int ii = 0; ii < sets[k].instances.length; ii++)
+                order[n++] = ((long) sets[k].instances[ii] << 32) | ((long) k << 24) | ii;
+        }
+        Arrays.sort(order);
+        int[] referenceIds = new int[size];
+        int[] owners = new int[size];
+        int[] cuts = new int[size];
+        BitField isReference = new BitField(numberOfObjects);
+        for (int ii = 0; ii < size; ii++)
+        {
+            referenceIds[ii] = (int) (order[ii] >>> 32);
+            owners[ii] = (int) (order[ii] >>> 24) & 0xff;
+            cuts[ii] = sets[owners[ii]].cuts[(int) order[ii] & 0xffffff];
+            isReference.set(referenceIds[ii]);
+        }
+        order = null;
+
+        final int all = (1 << (2 * sets.length)) - 1;
+        byte[] bits = new byte[numberOfObjects];
+        int reached = 0;
+        QueueInt queue = new QueueInt(1024);
+        for (int rootId : snapshot.getGCRoots())
+        {
+            int mask = all;
+            if (isReference.get(rootId))
+                mask &= ~(2 << (2 * owners[Arrays.binarySearch(referenceIds, rootId)]));
+            if ((mask & ~bits[rootId]) != 0)
+            {
+                if (bits[rootId] == 0)
+                    reached++;
+                bits[rootId] |= mask;
+                queue.put(rootId);
+            }
+        }
+
+        while (queue.size() > 0)
+        {
+            int current = queue.get();
+            int mask = bits[current];
+            int referent = -1;
+            int cut = 0;
+            if (isReference.get(current))
+            {
+                int pos = Arrays.binarySearch(referenceIds, current);
+                referent = cuts[pos];
+                cut = 1 << (2 * owners[pos]);
+            }
+            for (int child : snapshot.getOutboundReferentIds(current))
+            {
+                int childMask = mask;
+                if (child == referent)
+                    childMask &= ~cut;
+                if (isReference.get(child))
+                    childMask &= ~(2 << (2 * owners[Arrays.binarySearch(referenceIds, child)]));
+                if ((childMask & ~bits[child]) != 0)
+                {
+                    if (bits[child] == 0 && ++reached % MARK_STEP == 0 && ticks.isCanceled())
+                        throw new IProgressListener.OperationCanceledException();
+                    bits[child] |= childMask;
+                    queue.put(child);
                 }
             }
         }
+        queue = null;
+        isReference = null;
+
+        ArrayInt[] retainedSets = new ArrayInt[2 * sets.length];
+        for (int ii = 0; ii < retainedSets.length; ii++)
+            retainedSets[ii] = new ArrayInt();
+        for (int ii = 0; ii < numberOfObjects; ii++)
+        {
+            if (bits[ii] == all)
+                continue;
+            for (int bit = 0; bit < retainedSets.length; bit++)
+            {
+                if ((bits[ii] & (1 << bit)) == 0)
+                    retainedSets[bit].add(ii);
+            }
+        }
+        for (int k = 0; k < sets.length; k++)
+        {
+            sets[k].retainedSet = retainedSets[2 * k].toArray();
+            sets[k].allRetainedSet = retainedSets[2 * k + 1].toArray();
+        }
         ticks.tick();
+    }
 
-        if (instanceSet.isEmpty())
+    private void addReferenceStatistic(SectionSpec componentReport, ReferenceSet set, Ticks ticks)
+                    throws SnapshotException
+    {
+        ReferenceMessages messages = set.messages;
+        if (set.records == null)
+        {
+            addEmptyResult(componentReport, messages.ReferenceStatistics, messages.Msg_NoReferencesFound);
+            return;
+        }
+
+        if (set.instances.length == 0)
         {
             addEmptyResult(componentReport, messages.ReferenceStatistics, messages.NoAliveReferences);
             return;
         }
 
-        Histogram softRefHistogram = new Histogram(messages.HistogramOfReferences, softRefs, null, numObjects,
-                        heapSize, 0);
+        Histogram softRefHistogram = new Histogram(messages.HistogramOfReferences, set.records, null,
+                        set.numObjects, set.heapSize, 0);
 
-        CompositeResult referents = ReferenceQuery.execute(instanceSet, referentSet, snapshot,
-                        messages.ReferenceStatQuery_Label_Referenced, messages.ReferenceStatQuery_Label_Retained,
-                        messages.ReferenceStatQuery_Label_StronglyRetainedReferents, "referent", ticks); //$NON-NLS-1$
+        CompositeResult referents = ReferenceQuery.execute(set.referentSet, set.retainedSet, set.allRetainedSet,
+                        snapshot, messages.ReferenceStatQuery_Label_Referenced,
+                        messages.ReferenceStatQuery_Label_Retained,
+                        messages.ReferenceStatQuery_Label_StronglyRetainedReferents, ticks);
 
         StringBuilder comment = new StringBuilder();
-        comment.append(MessageUtil.format(messages.Msg_ReferencesFound, instanceSet.size(), referentSet.size()))
+        comment.append(MessageUtil.format(messages.Msg_ReferencesFound, set.instances.length, set.referentSet.size()))
                         .append(HTML_BREAK);
 
+        long numObjects;
+        long heapSize;
+
         Histogram onlySoftlyReachable = (Histogram) referents.getResultEntries().get(1).getResult();
         numObjects = 0;
         heapSize = 0;
@@ -1485,28 +1715,10 @@ public class ComponentReportQuery implements IQuery
                 }
                 // Find the references
                 ArrayInt ai = new ArrayInt();
-                for (IteratorInt i2 = instanceSet.iterator(); i2.hasNext(); )
+                for (int ii = 0; ii < set.instances.length; ii++)
                 {
-                    int objectId = i2.next();
-                    IInstance obj = (IInstance) snapshot.getObject(objectId);
-
-                    ObjectReference ref = ReferenceQuery.getReferent(obj);
-                    if (ref != null)
-                    {
-                        try
-                        {
-                            if (referents1.contains(ref.getObjectId()))
-                                ai.add(obj.getObjectId());
-                        }
-                        catch (SnapshotException e)
-                        {
-                            // Unindexed object?
-                            // @FIXME log this error?
-                            continue;
-                        }
-                    }
-                    if (ticks.isCanceled())
-                        break;
+                    if (set.referents[ii] >= 0 && referents1.contains(set.referents[ii]))
+                        ai.add(set.instances[ii]);
                 }
                 IResult result = SnapshotQuery.lookup("reference_leak", snapshot) //$NON-NLS-1$
                                 .setArgument("objects", ai.toArray()) //$NON-NLS-1$
@@ -1601,6 +1813,7 @@ public class ComponentReportQuery implements IQuery
 
         // Avoid duplicates from the two approaches by using a set
         SetInt finalizers = new SetInt();
+        IReferentIndex referentIndex = snapshot.getSnapshotAddons(IReferentIndex.class);
 
         for (IClass c : classes)
         {
@@ -1608,13 +1821,11 @@ public class ComponentReportQuery implements IQuery
             {
                 if (ticks.isCanceled())
                     break;
-                IInstance obj = (IInstance) snapshot.getObject(objectId);
                 foundSomeFinalizers = true;
 
-                ObjectReference ref = ReferenceQuery.getReferent(obj);
-                if (ref != null)
+                int referentId = getReferentId(referentIndex, objectId);
+                if (referentId >= 0)
                 {
-                    int referentId = ref.getObjectId();
                     if (useBits ? retainedIds.get(referentId) : retainedSet.contains(referentId))
                     {
                         finalizers.add(referentId);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2023 SAP AG, IBM Corporation and others.
+ * Copyright (c) 2008, 2026 SAP AG, IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -24,6 +24,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
@@ -63,6 +64,7 @@ import org.eclipse.mat.snapshot.query.ObjectListResult;
 import org.eclipse.mat.snapshot.query.SnapshotQuery;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.MessageUtil;
+import org.eclipse.mat.util.SilentProgressListener;
 
 @CommandName("thread_overview")
 @Icon("/META-INF/icons/threads.gif")
@@ -84,7 +86,7 @@ public class ThreadOverviewQuery implements IQuery
     {
         listener.subTask(Messages.ThreadOverviewQuery_SearchingThreads);
 
-        List<ThreadOverviewNode> result = new ArrayList<ThreadOverviewNode>();
+        ArrayInt threadIds = new ArrayInt();
 
         if (objects != null)
         {
@@ -95,7 +97,7 @@ public class ThreadOverviewQuery implements IQuery
                     if (listener.isCanceled())
                         break;
                     if (isThread(snapshot, objectId)) {
-                        result.add(buildThreadOverviewNode(objectId, listener));
+                        threadIds.add(objectId);
                     }
                 }
             }
@@ -111,7 +113,7 @@ public class ThreadOverviewQuery implements IQuery
                     {
                         if (listener.isCanceled())
                             break;
-                        result.add(buildThreadOverviewNode(id, listener));
+                        threadIds.add(id);
                     }
                 }
             }
@@ -127,7 +129,7 @@ public class ThreadOverviewQuery implements IQuery
                         if (gc.getType() == Type.THREAD_OBJ)
                         {
                             if (isThread(snapshot, objectId)) {
-                                result.add(buildThreadOverviewNode(objectId, listener));
+                                threadIds.add(objectId);
                             }
                         }
                     }
@@ -137,6 +139,8 @@ public class ThreadOverviewQuery implements IQuery
             }
         }
 
+        List<ThreadOverviewNode> result = buildThreadOverviewNodes(threadIds.toArray(), listener);
+
         Collections.sort(result, new Comparator<ThreadOverviewNode>()
         {
             public int compare(ThreadOverviewNode o1, ThreadOverviewNode o2)
@@ -204,6 +208,77 @@ public class ThreadOverviewQuery implements IQuery
         return false;
     }
 
+    /**
+     * Build the nodes for the threads in parallel. The thread details resolvers
+     * are called concurrently, so they see a listener which serializes messages
+     * to the real listener.
+     */
+    private List<ThreadOverviewNode> buildThreadOverviewNodes(int[] threadIds, IProgressListener listener)
+                    throws SnapshotException
+    {
+        ThreadOverviewNode[] nodes = new ThreadOverviewNode[threadIds.length];
+        IProgressListener shared = new SynchronizedListener(listener);
+
+        IntStream range = IntStream.range(0, threadIds.length);
+        if (threadIds.length > 1)
+            range = range.parallel();
+        try
+        {
+            range.forEach(ii -> {
+                if (shared.isCanceled())
+                    return;
+                try
+                {
+                    nodes[ii] = buildThreadOverviewNode(threadIds[ii], shared);
+                }
+                catch (SnapshotException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        catch (IllegalStateException e)
+        {
+            if (e.getCause() instanceof SnapshotException)
+                throw (SnapshotException) e.getCause();
+            throw e;
+        }
+
+        List<ThreadOverviewNode> result = new ArrayList<ThreadOverviewNode>(nodes.length);
+        for (ThreadOverviewNode node : nodes)
+        {
+            if (node != null)
+                result.add(node);
+        }
+        return result;
+    }
+
+    private static class SynchronizedListener extends SilentProgressListener
+    {
+        public SynchronizedListener(IProgressListener delegate)
+        {
+            super(delegate);
+        }
+
+        @Override
+        public synchronized void beginTask(String name, int totalWork)
+        {
+            super.beginTask(name, totalWork);
+        }
+
+        @Override
+        public synchronized void subTask(String name)
+        {
+            super.subTask(name);
+        }
+
+        @Override
+        public synchronized void sendUserMessage(Severity severity, String message, Throwable exception)
+        {
+            super.sendUserMessage(severity, message, exception);
+        }
+    }
+
     private ThreadOverviewNode buildThreadOverviewNode(int objectId, IProgressListener listener) throws SnapshotException
     {
         ThreadOverviewNode result = new ThreadOverviewNode();
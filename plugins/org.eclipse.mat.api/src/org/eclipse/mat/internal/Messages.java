@@ -46,6 +46,7 @@ public class Messages extends NLS
     public static String BigDropsQuery_Dominator;
     public static String BigDropsQuery_Root;
 
+    public static String BigDropsQuery_Searching;
     public static String BundleReaderFactory_ErrorMsg_EquinoxNotFound;
     public static String BundleRegistryQuery_Bundles;
     public static String BundleRegistryQuery_BundleState;
@@ -64,6 +65,11 @@ public class Messages extends NLS
     public static String BundleRegistryQuery_Services;
     public static String BundleRegistryQuery_UserServices;
 
+    public static String ClassAccumulationQuery_Column_AccumulationPoint;
+    public static String ClassAccumulationQuery_Column_Class;
+    public static String ClassAccumulationQuery_Column_Instances;
+    public static String ClassAccumulationQuery_Column_InstancesShallowHeap;
+    public static String ClassAccumulationQuery_Error_NotAvailable;
     public static String ClassLoaderExplorerQuery_Class;
     public static String ClassLoaderExplorerQuery_ClassLoader;
     public static String ClassLoaderExplorerQuery_Column_DefinedClasses;
@@ -71,6 +77,11 @@ public class Messages extends NLS
     public static String ClassLoaderExplorerQuery_DefinedClasses;
     public static String ClassLoaderExplorerQuery_Instances;
 
+    public static String ClassReferenceGraphQuery_Column_ReferencedClass;
+    public static String ClassReferenceGraphQuery_Column_ReferencedShallowHeap;
+    public static String ClassReferenceGraphQuery_Column_References;
+    public static String ClassReferenceGraphQuery_Column_ReferringClass;
+
     public static String ClassSpecificNameResolverRegistry_Error_CreateResolver;
     public static String ClassSpecificNameResolverRegistry_Error_MissingObject;
     public static String ClassSpecificNameResolverRegistry_Error_MissingSubjects;
@@ -219,6 +230,10 @@ public class Messages extends NLS
     public static String DuplicatedClassesQuery_Column_DefinedClasses;
     public static String DuplicatedClassesQuery_Column_NoInstances;
 
+    public static String DuplicatePrimitiveArraysQuery_Column_ContentHash;
+    public static String DuplicatePrimitiveArraysQuery_Column_DuplicatedHeap;
+    public static String DuplicatePrimitiveArraysQuery_Column_Type;
+    public static String DuplicatePrimitiveArraysQuery_SearchingDuplicates;
     public static String EclipseNameResolver_EquinoxStartupClassLoader;
     public static String EclipseNameResolver_Point;
     public static String EclipseNameResolver_Rectangle;
@@ -535,11 +550,14 @@ public class Messages extends NLS
     public static String ParseSnapshotApp_ErrorMsg_FileNotFound;
 
     public static String ParseSnapshotApp_ErrorMsg_ReportNotFound;
+    public static String ParseSnapshotApp_QueryServerSnapshotMismatch;
+    public static String ParseSnapshotApp_QueryServerUnavailable;
     public static String ParseSnapshotApp_Usage;
     public static String ParseSnapshotApp_MultipleSnapshotsDetail;
 
     public static String ParseSnapshotApp_MultipleSnapshotsDetected;
 
+    public static String ParseSnapshotApp_UsingQueryServer;
     public static String PhantomReferenceStatQuery_Label_Referenced;
     public static String PhantomReferenceStatQuery_Label_Retained;
     public static String PhantomReferenceStatQuery_Label_StronglyRetainedReferents;
@@ -554,6 +572,11 @@ public class Messages extends NLS
     public static String PrimitiveArraysWithAConstantValueQuery_Column_NumObjects;
     public static String PrimitiveArraysWithAConstantValueQuery_Column_Value;
 
+    public static String QueryServerApp_Listening;
+    public static String QueryServerApp_NoRenderer;
+    public static String QueryServerApp_NotAuthorized;
+    public static String QueryServerApp_UnknownCommand;
+    public static String QueryServerApp_Usage;
     public static String ReferenceLeakQuery_CommonPaths;
     public static String ReferenceLeakQuery_CommonPathsLimit;
     public static String ReferenceLeakQuery_ComputingReferentLeaks;
@@ -700,6 +723,7 @@ public class Messages extends NLS
     public static String TopConsumers2Query_NoClassesBiggerThan;
     public static String TopConsumers2Query_NoClassLoaderBiggerThan;
     public static String TopConsumers2Query_NoObjectsBiggerThan;
+    public static String TopConsumers2Query_ReadingTopDominators;
     public static String TopConsumers2Query_TopConsumers;
 
     public static String TopConsumersQuery_ColumnLabels;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2019 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -60,6 +60,7 @@ public class ParseSnapshotApp implements IApplication
         File file = null;
         Map<String, String> options = new HashMap<String, String>();
         List<Spec> reports = new ArrayList<Spec>();
+        List<String> reportIds = new ArrayList<String>();
 
         for (int ii = 0; ii < args.length; ii++)
         {
@@ -80,24 +81,13 @@ public class ParseSnapshotApp implements IApplication
             }
             else
             {
-                Spec spec = null;
-
-                File specFile = new File(args[ii]);
-                if (specFile.exists())
-                {
-                    spec = factory.create(specFile);
-                }
-                else
-                {
-                    spec = factory.create(args[ii]);
-                }
-
+                Spec spec = createSpec(factory, args[ii], options);
                 if (spec != null)
                 {
-                    // Allow command line options to control reports
-                    spec.putAll(options);
-                    factory.resolve(spec);
                     reports.add(spec);
+                    // the server may run in another directory
+                    File specFile = new File(args[ii]);
+                    reportIds.add(specFile.exists() ? specFile.getAbsolutePath() : args[ii]);
                 }
                 else
                 {
@@ -107,6 +97,18 @@ public class ParseSnapshotApp implements IApplication
 
         }
 
+        // Share an already opened snapshot from a QueryServerApp
+        String server = options.get("query_server"); //$NON-NLS-1$
+        if (server != null && file != null)
+        {
+            int done = runOnServer(Integer.parseInt(server), file, options, reportIds);
+            if (done == reports.size())
+                return IApplication.EXIT_OK;
+            // only run the reports the server did not finish
+            if (done > 0)
+                reports = reports.subList(done, reports.size());
+        }
+
         try
         {
             parse(file, options, reports);
@@ -136,6 +138,86 @@ public class ParseSnapshotApp implements IApplication
     public void stop()
     {}
 
+    /**
+     * Create a report specification from a report identifier or specification file.
+     * @param factory the factory for specifications
+     * @param report report identifier or file name
+     * @param options command line options to control the report
+     * @return the resolved specification or null if not found
+     */
+    /* package */static Spec createSpec(SpecFactory factory, String report, Map<String, String> options)
+                    throws SnapshotException, IOException
+    {
+        Spec spec = null;
+
+        File specFile = new File(report);
+        if (specFile.exists())
+        {
+            spec = factory.create(specFile);
+        }
+        else
+        {
+            spec = factory.create(report);
+        }
+
+        if (spec != null)
+        {
+            // Allow command line options to control reports
+            spec.putAll(options);
+            factory.resolve(spec);
+        }
+        return spec;
+    }
+
+    /**
+     * Runs the reports in the process of a {@link QueryServerApp} which already has the dump open.
+     * @return the number of reports run by the server, in order, or -1 if the
+     *         server is not available or serves another dump
+     */
+    private int runOnServer(int port, File file, Map<String, String> options, List<String> reportIds)
+    {
+        int done = -1;
+        try (QueryClient client = new QueryClient(port, QueryClient.readToken(file)))
+        {
+            File served = client.getSnapshotFile();
+            if (!served.getCanonicalFile().equals(file.getCanonicalFile()))
+            {
+                System.err.println(MessageUtil.format(Messages.ParseSnapshotApp_QueryServerSnapshotMismatch, port,
+                                served.getAbsolutePath()));
+                return -1;
+            }
+
+            System.out.println(MessageUtil.format(Messages.ParseSnapshotApp_UsingQueryServer, port));
+            for (Map.Entry<String, String> option : options.entrySet())
+            {
+                if (!"query_server".equals(option.getKey())) //$NON-NLS-1$
+                    client.setOption(option.getKey(), option.getValue());
+            }
+            done = 0;
+            for (String report : reportIds)
+            {
+                try
+                {
+                    for (File result : client.runReport(report))
+                        System.out.println(result.getAbsolutePath());
+                }
+                catch (SnapshotException e)
+                {
+                    // the report failed, it would fail locally too
+                    MATPlugin.log(e);
+                }
+                done++;
+            }
+            return done;
+        }
+        catch (IOException | SnapshotException e)
+        {
+            System.err.println(MessageUtil.format(Messages.ParseSnapshotApp_QueryServerUnavailable, port,
+                            e.getMessage()));
+            return done;
+        }
+    }
+
     private void parse(File file, Map<String, String> arguments, List<Spec> reports) throws SnapshotException
     {
         ConsoleProgressListener listener = new ConsoleProgressListener(System.out);
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.internal.apps;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.mat.SnapshotException;
+
+/**
+ * Connection to a {@link QueryServerApp} on the local machine.
+ * Requests are answered in order, so a client should not be shared between
+ * threads without synchronization.
+ */
+public class QueryClient implements Closeable
+{
+    private final Socket socket;
+    private final OutputStream out;
+    private final InputStream in;
+
+    /**
+     * Connects to a query server.
+     * @param port the port the server listens to on the loopback interface
+     * @param token the access token of the server, see {@link #readToken(File)}
+     * @throws IOException if there is no server
+     * @throws SnapshotException if the server does not accept the token
+     */
+    public QueryClient(int port, String token) throws IOException, SnapshotException
+    {
+        socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        out = socket.getOutputStream();
+        in = new BufferedInputStream(socket.getInputStream());
+        try
+        {
+            request(QueryServerApp.CMD_AUTH, token);
+        }
+        catch (IOException | SnapshotException e)
+        {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the access token written by the server for a dump.
+     * @param dump the heap dump served
+     * @return the token
+     * @throws IOException if no server has written a token for the dump
+     */
+    public static String readToken(File dump) throws IOException
+    {
+        byte[] bytes = Files.readAllBytes(QueryServerApp.getTokenFile(dump).toPath());
+        return new String(bytes, StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * The heap dump the server has opened.
+     * @return the absolute path of the dump
+     */
+    public File getSnapshotFile() throws IOException, SnapshotException
+    {
+        return new File(request(QueryServerApp.CMD_SNAPSHOT, "")); //$NON-NLS-1$
+    }
+
+    /**
+     * Runs a query on the shared snapshot.
+     * @param commandLine the query and its arguments, e.g. <code>histogram -groupBy BY_CLASSLOADER</code>
+     * @return the result formatted as text
+     */
+    public String query(String commandLine) throws IOException, SnapshotException
+    {
+        return request(QueryServerApp.CMD_QUERY, commandLine);
+    }
+
+    /**
+     * Runs a query on the shared snapshot.
+     * @param commandLine the query and its arguments
+     * @return the result formatted as comma separated values
+     */
+    public String queryAsCSV(String commandLine) throws IOException, SnapshotException
+    {
+        return request(QueryServerApp.CMD_CSV, commandLine);
+    }
+
+    /**
+     * Runs an OQL statement on the shared snapshot.
+     * @param select the OQL statement on a single line
+     * @return the result formatted as text
+     */
+    public String oql(String select) throws IOException, SnapshotException
+    {
+        return request(QueryServerApp.CMD_OQL, select);
+    }
+
+    /**
+     * Sets an option for the reports run on this connection.
+     */
+    public void setOption(String key, String value) throws IOException, SnapshotException
+    {
+        request(QueryServerApp.CMD_SET, key + '=' + value);
+    }
+
+    /**
+     * Runs a report on the server. The report is written by the server in the
+     * same place as if it were run by {@link ParseSnapshotApp}.
+     * @param report the report identifier or specification file
+     * @return the generated files
+     */
+    public List<File> runReport(String report) throws IOException, SnapshotException
+    {
+        List<File> files = new ArrayList<File>();
+        for (String line : request(QueryServerApp.CMD_REPORT, report).split("\n")) //$NON-NLS-1$
+        {
+            if (line.length() > 0)
+                files.add(new File(line));
+        }
+        return files;
+    }
+
+    /**
+     * Stops the server and releases the shared snapshot.
+     */
+    public void shutdown() throws IOException, SnapshotException
+    {
+        request(QueryServerApp.CMD_SHUTDOWN, ""); //$NON-NLS-1$
+    }
+
+    public void close() throws IOException
+    {
+        socket.close();
+    }
+
+    private String request(String command, String argument) throws IOException, SnapshotException
+    {
+        if (argument.indexOf('\n') >= 0 || argument.indexOf('\r') >= 0)
+            argument = argument.replace('\r', ' ').replace('\n', ' ');
+        out.write((command + ' ' + argument + '\n').getBytes(StandardCharsets.UTF_8));
+        out.flush();
+
+        String header = readLine();
+        int p = header.indexOf(' ');
+        if (p < 0)
+            throw new IOException(header);
+        byte[] bytes = new byte[Integer.parseInt(header.substring(p + 1))];
+        for (int n = 0; n < bytes.length;)
+        {
+            int r = in.read(bytes, n, bytes.length - n);
+            if (r < 0)
+                throw new EOFException();
+            n += r;
+        }
+        String response = new String(bytes, StandardCharsets.UTF_8);
+
+        if (!QueryServerApp.OK.equals(header.substring(0, p)))
+            throw new SnapshotException(response);
+        return response;
+    }
+
+    private String readLine() throws IOException
+    {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n')
+        {
+            if (b < 0)
+                throw new EOFException();
+            line.write(b);
+        }
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
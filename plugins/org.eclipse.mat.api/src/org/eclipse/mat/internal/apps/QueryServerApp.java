@@ -0,0 +1,517 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.internal.apps;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.internal.MATPlugin;
+import org.eclipse.mat.internal.Messages;
+import org.eclipse.mat.internal.snapshot.SnapshotQueryContext;
+import org.eclipse.mat.query.IQueryContext;
+import org.eclipse.mat.query.IResult;
+import org.eclipse.mat.report.IOutputter;
+import org.eclipse.mat.report.RendererRegistry;
+import org.eclipse.mat.report.Spec;
+import org.eclipse.mat.report.SpecFactory;
+import org.eclipse.mat.report.TestSuite;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.snapshot.query.SnapshotQuery;
+import org.eclipse.mat.util.ConsoleProgressListener;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
+import org.eclipse.mat.util.SilentProgressListener;
+import org.eclipse.mat.util.VoidProgressListener;
+
+/**
+ * Opens a snapshot once and serves queries, OQL and reports on it to other
+ * processes on the same machine, so that several report runs can share one
+ * snapshot in memory.
+ * <p>
+ * The server listens on the loopback interface only. Each request is one line
+ * <code>command argument</code>, each response is a header line
+ * <code>OK length</code> or <code>ERROR length</code> followed by that many
+ * bytes of UTF-8 text. See {@link QueryClient} for the client side.
+ * <p>
+ * The first request of a connection must be <code>auth token</code> with the
+ * random token the server writes to a file next to the dump, readable by the
+ * owner only. See {@link #getTokenFile(File)}.
+ * <p>
+ * Report options set by a connection only apply to the reports of that
+ * connection. Queries and OQL of several connections run at the same time, as
+ * they only read the snapshot, in the same way as queries run side by side in
+ * the user interface. Reports run one at a time, as a report may run any
+ * query and writes its results next to the dump.
+ */
+public class QueryServerApp implements IApplication
+{
+    /** Authenticates the connection with the token from the token file */
+    /* package */static final String CMD_AUTH = "auth"; //$NON-NLS-1$
+    /** Returns the path of the served heap dump */
+    /* package */static final String CMD_SNAPSHOT = "snapshot"; //$NON-NLS-1$
+    /** Runs a query command line and returns the result as text */
+    /* package */static final String CMD_QUERY = "query"; //$NON-NLS-1$
+    /** Runs a query command line and returns the result as CSV */
+    /* package */static final String CMD_CSV = "csv"; //$NON-NLS-1$
+    /** Runs an OQL statement and returns the result as text */
+    /* package */static final String CMD_OQL = "oql"; //$NON-NLS-1$
+    /** Sets a report option <code>key=value</code> for this connection */
+    /* package */static final String CMD_SET = "set"; //$NON-NLS-1$
+    /** Runs a report and returns the generated files, one per line */
+    /* package */static final String CMD_REPORT = "report"; //$NON-NLS-1$
+    /** Stops the server */
+    /* package */static final String CMD_SHUTDOWN = "shutdown"; //$NON-NLS-1$
+
+    /* package */static final String OK = "OK"; //$NON-NLS-1$
+    /* package */static final String ERROR = "ERROR"; //$NON-NLS-1$
+
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+    private ISnapshot snapshot;
+    /** the default report options, copied by each connection */
+    private Map<String, String> options;
+    /** held while a report runs */
+    private final Object reportLock = new Object();
+    private String token;
+    private File tokenFile;
+
+    public Object start(IApplicationContext context) throws Exception
+    {
+        String[] args = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+
+        if (args == null || args.length < 1)
+            throw new IllegalArgumentException(Messages.QueryServerApp_Usage);
+
+        File file = null;
+        Map<String, String> options = new HashMap<String, String>();
+        for (int ii = 0; ii < args.length; ii++)
+        {
+            if (args[ii].length() > 0 && args[ii].charAt(0) == '-')
+            {
+                int p = args[ii].indexOf('=');
+                if (p < 0)
+                    options.put(args[ii].substring(1), Boolean.TRUE.toString());
+                else
+                    options.put(args[ii].substring(1, p), args[ii].substring(p + 1));
+            }
+            else if (file == null)
+            {
+                file = new File(args[ii]);
+                if (!file.exists())
+                    throw new FileNotFoundException(MessageUtil.format(Messages.ParseSnapshotApp_ErrorMsg_FileNotFound,
+                                    file.getAbsolutePath()));
+            }
+            else
+            {
+                throw new IllegalArgumentException(Messages.QueryServerApp_Usage);
+            }
+        }
+        if (file == null)
+            throw new IllegalArgumentException(Messages.QueryServerApp_Usage);
+
+        String port = options.remove("port"); //$NON-NLS-1$
+
+        ConsoleProgressListener listener = new ConsoleProgressListener(System.out);
+        ISnapshot snapshot;
+        try
+        {
+            snapshot = SnapshotFactory.openSnapshot(file, options, listener);
+        }
+        finally
+        {
+            listener.done();
+        }
+
+        try
+        {
+            int localPort = bind(snapshot, port != null ? Integer.parseInt(port) : 0, options);
+            System.out.println(MessageUtil.format(Messages.QueryServerApp_Listening, file.getAbsolutePath(),
+                            localPort));
+            serve();
+        }
+        finally
+        {
+            stop();
+            SnapshotFactory.dispose(snapshot);
+        }
+
+        return IApplication.EXIT_OK;
+    }
+
+    /**
+     * Starts listening for connections to an open snapshot and writes the
+     * access token file.
+     * @param snapshot the snapshot to serve, not disposed by the server
+     * @param port the port to listen to, or 0 for any free port
+     * @param options the default report options of the connections
+     * @return the port the server listens to
+     */
+    public int bind(ISnapshot snapshot, int port, Map<String, String> options) throws IOException
+    {
+        this.snapshot = snapshot;
+        this.options = Collections.unmodifiableMap(new HashMap<String, String>(options));
+        File f = getTokenFile(new File(snapshot.getSnapshotInfo().getPath()));
+        token = writeToken(f);
+        tokenFile = f;
+        try
+        {
+            serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        }
+        catch (IOException e)
+        {
+            f.delete();
+            throw e;
+        }
+        running = true;
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until the server is stopped.
+     */
+    public void serve() throws IOException, InterruptedException
+    {
+        ExecutorService sessions = Executors.newCachedThreadPool();
+        try
+        {
+            while (running)
+            {
+                Socket socket;
+                try
+                {
+                    socket = serverSocket.accept();
+                }
+                catch (SocketException e)
+                {
+                    // closed by stop()
+                    if (running)
+                        throw e;
+                    break;
+                }
+                sessions.execute(new Session(socket, snapshot, options));
+            }
+        }
+        finally
+        {
+            stop();
+            sessions.shutdown();
+            sessions.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    public void stop()
+    {
+        running = false;
+        ServerSocket s = serverSocket;
+        if (s != null)
+        {
+            try
+            {
+                s.close();
+            }
+            catch (IOException ignore)
+            {
+                // closing anyway
+            }
+        }
+        File f = tokenFile;
+        if (f != null)
+            f.delete();
+    }
+
+    /**
+     * The file holding the access token of a server for a dump.
+     * @param dump the heap dump served
+     * @return the token file next to the dump
+     */
+    public static File getTokenFile(File dump)
+    {
+        File file = dump.getAbsoluteFile();
+        return new File(file.getParentFile(), file.getName() + ".token"); //$NON-NLS-1$
+    }
+
+    /**
+     * Writes a new random token to a file only the owner can read.
+     */
+    private static String writeToken(File file) throws IOException
+    {
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        StringBuilder buf = new StringBuilder(random.length * 2);
+        for (byte b : random)
+            buf.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        String token = buf.toString();
+
+        Path path = file.toPath();
+        Files.deleteIfExists(path);
+        if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) //$NON-NLS-1$
+        {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))); //$NON-NLS-1$
+        }
+        else
+        {
+            Files.createFile(path);
+            file.setReadable(false, false);
+            file.setWritable(false, false);
+            file.setReadable(true, true);
+            file.setWritable(true, true);
+        }
+        Files.write(path, token.getBytes(StandardCharsets.UTF_8));
+        return token;
+    }
+
+    private class Session implements Runnable
+    {
+        private final Socket socket;
+        private final ISnapshot snapshot;
+        /** the report options of this connection only */
+        private final Map<String, String> sessionOptions;
+
+        Session(Socket socket, ISnapshot snapshot, Map<String, String> options)
+        {
+            this.socket = socket;
+            this.snapshot = snapshot;
+            this.sessionOptions = new HashMap<String, String>(options);
+        }
+
+        public void run()
+        {
+            try (Socket s = socket)
+            {
+                BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(),
+                                StandardCharsets.UTF_8));
+                OutputStream out = s.getOutputStream();
+
+                if (!authenticate(in.readLine()))
+                {
+                    respond(out, ERROR, Messages.QueryServerApp_NotAuthorized);
+                    return;
+                }
+                respond(out, OK, ""); //$NON-NLS-1$
+
+                String line;
+                while (running && (line = in.readLine()) != null)
+                {
+                    int p = line.indexOf(' ');
+                    String command = p < 0 ? line : line.substring(0, p);
+                    String argument = p < 0 ? "" : line.substring(p + 1).trim(); //$NON-NLS-1$
+
+                    String status = OK;
+                    String response;
+                    try
+                    {
+                        response = process(command, argument);
+                    }
+                    catch (SnapshotException | IOException | RuntimeException e)
+                    {
+                        status = ERROR;
+                        response = e.getMessage() != null ? e.getMessage() : e.toString();
+                    }
+
+                    respond(out, status, response);
+
+                    if (CMD_SHUTDOWN.equals(command))
+                        stop();
+                }
+            }
+            catch (IOException e)
+            {
+                if (running)
+                    MATPlugin.log(e);
+            }
+        }
+
+        private boolean authenticate(String line)
+        {
+            if (line == null || !line.startsWith(CMD_AUTH + ' '))
+                return false;
+            byte[] presented = line.substring(CMD_AUTH.length() + 1).trim().getBytes(StandardCharsets.UTF_8);
+            return MessageDigest.isEqual(presented, token.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void respond(OutputStream out, String status, String response) throws IOException
+        {
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            out.write((status + ' ' + bytes.length + '\n').getBytes(StandardCharsets.UTF_8));
+            out.write(bytes);
+            out.flush();
+        }
+
+        private String process(String command, String argument) throws SnapshotException, IOException
+        {
+            if (CMD_QUERY.equals(command))
+                return render(SnapshotQuery.parse(argument, snapshot).execute(new VoidProgressListener()), "txt"); //$NON-NLS-1$
+            else if (CMD_CSV.equals(command))
+                return render(SnapshotQuery.parse(argument, snapshot).execute(new VoidProgressListener()), "csv"); //$NON-NLS-1$
+            else if (CMD_OQL.equals(command))
+                return render(SnapshotQuery.lookup("oql", snapshot) //$NON-NLS-1$
+                                .setArgument("queryString", argument) //$NON-NLS-1$
+                                .execute(new VoidProgressListener()), "txt"); //$NON-NLS-1$
+            else if (CMD_SET.equals(command))
+            {
+                int p = argument.indexOf('=');
+                if (p < 0)
+                    sessionOptions.put(argument, Boolean.TRUE.toString());
+                else
+                    sessionOptions.put(argument.substring(0, p), argument.substring(p + 1));
+                return ""; //$NON-NLS-1$
+            }
+            else if (CMD_REPORT.equals(command))
+                return runReport(argument);
+            else if (CMD_SNAPSHOT.equals(command))
+                return snapshot.getSnapshotInfo().getPath();
+            else if (CMD_SHUTDOWN.equals(command))
+                return ""; //$NON-NLS-1$
+            else
+                throw new SnapshotException(MessageUtil.format(Messages.QueryServerApp_UnknownCommand, command));
+        }
+
+        private String render(IResult result, String format) throws SnapshotException, IOException
+        {
+            if (result == null)
+                return ""; //$NON-NLS-1$
+
+            IOutputter outputter = RendererRegistry.instance().match(format, result.getClass());
+            if (outputter == null)
+                throw new SnapshotException(MessageUtil.format(Messages.QueryServerApp_NoRenderer, format,
+                                result.getClass().getName()));
+
+            IQueryContext queryContext = new SnapshotQueryContext(snapshot);
+            File outputDir = new File(snapshot.getSnapshotInfo().getPath()).getParentFile();
+            StringWriter writer = new StringWriter();
+            outputter.process(new ContextImpl(queryContext, outputDir), result, writer);
+            return writer.toString();
+        }
+
+        private String runReport(String argument) throws SnapshotException, IOException
+        {
+            Spec spec = ParseSnapshotApp.createSpec(SpecFactory.instance(), argument, sessionOptions);
+            if (spec == null)
+                throw new SnapshotException(MessageUtil.format(Messages.ParseSnapshotApp_ErrorMsg_ReportNotFound,
+                                argument));
+
+            TestSuite suite = new TestSuite.Builder(spec) //
+                            .build(new SnapshotQueryContext(snapshot));
+
+            synchronized (reportLock)
+            {
+                IProgressListener listener = new SilentProgressListener(new ConsoleProgressListener(System.out));
+                suite.execute(listener);
+                listener.done();
+            }
+
+            StringBuilder buf = new StringBuilder();
+            for (File result : suite.getResults())
+                buf.append(result.getAbsolutePath()).append('\n');
+            return buf.toString();
+        }
+    }
+
+    private static class ContextImpl implements IOutputter.Context
+    {
+        private File outputDir;
+        private IQueryContext context;
+
+        public ContextImpl(IQueryContext context, File outputDir)
+        {
+            this.context = context;
+            this.outputDir = outputDir;
+        }
+
+        public String getId()
+        {
+            return "X"; //$NON-NLS-1$
+        }
+
+        public int getLimit()
+        {
+            return 0;
+        }
+
+        public File getOutputDirectory()
+        {
+            return outputDir;
+        }
+
+        public String getPathToRoot()
+        {
+            return "";//$NON-NLS-1$
+        }
+
+        public IQueryContext getQueryContext()
+        {
+            return context;
+        }
+
+        public String addIcon(URL icon)
+        {
+            return null;
+        }
+
+        public String addContextResult(String name, IResult result)
+        {
+            return null;
+        }
+
+        public boolean hasLimit()
+        {
+            return false;
+        }
+
+        public boolean isColumnVisible(int columnIndex)
+        {
+            return true;
+        }
+
+        public String param(String key, String defaultValue)
+        {
+            return defaultValue;
+        }
+
+        public String param(String key)
+        {
+            return null;
+        }
+
+        public boolean isTotalsRowVisible()
+        {
+            return true;
+        }
+    }
+}
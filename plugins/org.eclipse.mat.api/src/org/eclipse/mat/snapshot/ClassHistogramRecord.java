@@ -109,7 +109,7 @@ public class ClassHistogramRecord extends HistogramRecord
         }
         else
         {
-            retainedHeapSize = snapshot.getHeapSize(snapshot.getRetainedSet(objectIds, listener));
+            retainedHeapSize = snapshot.getRetainedSetOf(objectIds, listener).getHeapSize();
         }
 
         return retainedHeapSize;
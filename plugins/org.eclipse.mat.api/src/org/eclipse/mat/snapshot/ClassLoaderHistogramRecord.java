@@ -117,7 +117,7 @@ public class ClassLoaderHistogramRecord extends HistogramRecord
         }
         else
         {
-            retainedHeapSize = snapshot.getHeapSize(snapshot.getRetainedSet(getObjectIds(), listener));
+            retainedHeapSize = snapshot.getRetainedSetOf(getObjectIds(), listener).getHeapSize();
         }
 
         return retainedHeapSize;
@@ -259,6 +259,10 @@ public final class DominatorsSummary
         SetInt dominated = new SetInt(500);
         SetInt dominator = new SetInt(500);
 
+        // already grouped objects, used instead of the sets until more are added
+        int[] dominatedIds;
+        int[] dominatorIds;
+
         /**
          * Get the name of the class for this record
          */
@@ -340,7 +344,7 @@ public final class DominatorsSummary
          */
         public int getDominatedCount()
         {
-            return dominated.size();
+            return dominatedIds != null ? dominatedIds.length : dominated.size();
         }
 
         /**
@@ -350,7 +354,7 @@ public final class DominatorsSummary
          */
         public int getDominatorCount()
         {
-            return dominator.size();
+            return dominatorIds != null ? dominatorIds.length : dominator.size();
         }
 
         /**
@@ -378,6 +382,11 @@ public final class DominatorsSummary
          */
         public boolean addDominated(int objectId)
         {
+            if (dominatedIds != null)
+            {
+                dominated = toSet(dominatedIds);
+                dominatedIds = null;
+            }
             return this.dominated.add(objectId);
         }
 
@@ -386,9 +395,47 @@ public final class DominatorsSummary
          */
         public boolean addDominator(int objectId)
         {
+            if (dominatorIds != null)
+            {
+                dominator = toSet(dominatorIds);
+                dominatorIds = null;
+            }
             return this.dominator.add(objectId);
         }
 
+        /**
+         * Set all the dominators and dominated objects of the record at once,
+         * for example when they have already been grouped by class into
+         * arrays. This avoids adding them one at a time.
+         * 
+         * @param dominators
+         *            the distinct ids of the dominators
+         * @param dominatorNetSize
+         *            the total net size of the dominators
+         * @param dominated
+         *            the distinct ids of the dominated objects
+         * @param dominatedNetSize
+         *            the total net size of the dominated objects
+         * @since 1.17
+         */
+        public void setObjects(int[] dominators, long dominatorNetSize, int[] dominated, long dominatedNetSize)
+        {
+            this.dominatorIds = dominators;
+            this.dominator = null;
+            this.dominatorNetSize = dominatorNetSize;
+            this.dominatedIds = dominated;
+            this.dominated = null;
+            this.dominatedNetSize = dominatedNetSize;
+        }
+
+        private static SetInt toSet(int[] ids)
+        {
+            SetInt set = new SetInt(Math.max(500, ids.length));
+            for (int id : ids)
+                set.add(id);
+            return set;
+        }
+
         /**
          * Increase the dominated net heap size
          */
@@ -412,7 +459,7 @@ public final class DominatorsSummary
          */
         public int[] getDominated()
         {
-            return dominated.toArray();
+            return dominatedIds != null ? dominatedIds.clone() : dominated.toArray();
         }
 
         /**
@@ -422,7 +469,7 @@ public final class DominatorsSummary
          */
         public int[] getDominators()
         {
-            return dominator.toArray();
+            return dominatorIds != null ? dominatorIds.clone() : dominator.toArray();
         }
 
         /**
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+/**
+ * For each class, the objects at the top of the dominator tree which retain
+ * the most instances of that class. An object at the top of the dominator tree
+ * is dominated only by the artificial root, so its retained set holds every
+ * object below it in the dominator tree.
+ * <p>
+ * For each class only the top objects with the most retained instances and
+ * the top objects with the largest retained shallow heap of instances are
+ * kept, up to {@link #getLimit()} of each. The index is computed once while
+ * the snapshot is parsed, so questions like "which objects keep alive most of
+ * the instances of class X" can be answered without searching. Obtain it with
+ * {@link ISnapshot#getSnapshotAddons(Class)}.
+ * 
+ * @noimplement
+ * @since 1.17
+ */
+public interface IClassAccumulationIndex
+{
+    /**
+     * The most objects kept for each class by number of instances, and also
+     * by shallow heap of the instances.
+     * 
+     * @return the limit
+     */
+    public int getLimit();
+
+    /**
+     * The objects at the top of the dominator tree which retain the most
+     * instances of the class.
+     * 
+     * @param classId
+     *            the id of the class
+     * @return the object ids, largest retained shallow heap of instances first
+     */
+    public int[] getRootIds(int classId);
+
+    /**
+     * The number of instances of the class retained by the object.
+     * 
+     * @param classId
+     *            the id of the class
+     * @param rootId
+     *            one of the objects from {@link #getRootIds(int)}
+     * @return the number of instances, or 0 if the object was not recorded
+     */
+    public long getInstanceCount(int classId, int rootId);
+
+    /**
+     * The shallow heap of the instances of the class retained by the object.
+     * 
+     * @param classId
+     *            the id of the class
+     * @param rootId
+     *            one of the objects from {@link #getRootIds(int)}
+     * @return the shallow heap, or 0 if the object was not recorded
+     */
+    public long getInstanceHeapSize(int classId, int rootId);
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+/**
+ * References between objects aggregated to the classes of the objects. There
+ * is an edge from class A to class B if at least one instance of A references
+ * an instance of B. For each edge the number of such references and the
+ * shallow heap of the referenced objects is recorded.
+ * <p>
+ * The graph is computed once while the snapshot is parsed, so class level
+ * questions like "which classes hold references to instances of B" can be
+ * answered without visiting any objects. Obtain it with
+ * {@link ISnapshot#getSnapshotAddons(Class)}.
+ * <p>
+ * The artificial reference from each object to its class is not part of the
+ * graph. A referenced object is counted once for every reference to it, so
+ * the referenced shallow heap of an edge is the sum over the references, not
+ * over the distinct objects.
+ * 
+ * @noimplement
+ * @since 1.17
+ */
+public interface IClassReferenceGraph
+{
+    /**
+     * The number of edges of the graph.
+     * 
+     * @return the number of pairs of classes with references between them
+     */
+    public int size();
+
+    /**
+     * The classes whose instances are referenced by instances of the given
+     * class.
+     * 
+     * @param classId
+     *            the id of the referring class
+     * @return the ids of the referenced classes in ascending order
+     */
+    public int[] getReferencedClassIds(int classId);
+
+    /**
+     * The classes whose instances reference instances of the given class.
+     * 
+     * @param classId
+     *            the id of the referenced class
+     * @return the ids of the referring classes in ascending order
+     */
+    public int[] getReferringClassIds(int classId);
+
+    /**
+     * The number of references from instances of one class to instances of
+     * another.
+     * 
+     * @param fromClassId
+     *            the id of the referring class
+     * @param toClassId
+     *            the id of the referenced class
+     * @return the number of references, 0 if there are none
+     */
+    public long getReferenceCount(int fromClassId, int toClassId);
+
+    /**
+     * The shallow heap of the instances of one class referenced by instances
+     * of another class, counted once per reference.
+     * 
+     * @param fromClassId
+     *            the id of the referring class
+     * @param toClassId
+     *            the id of the referenced class
+     * @return the summed shallow heap, 0 if there are no references
+     */
+    public long getReferencedHeapSize(int fromClassId, int toClassId);
+}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.model.IObject;
+
+/**
+ * Receives the objects of a scan of the snapshot, see
+ * {@link ISnapshot#scanObjects(int[], IObjectVisitor, org.eclipse.mat.util.IProgressListener)}
+ * and
+ * {@link ISnapshot#readObjects(int[], IObjectVisitor, org.eclipse.mat.util.IProgressListener)}.
+ * <p>
+ * The scan calls the visitor from several threads at once, so the visitor
+ * must be thread safe.
+ * 
+ * @since 1.17
+ */
+public interface IObjectVisitor
+{
+    /**
+     * Called once for each object of the scan.
+     * 
+     * @param object
+     *            the object, read from the dump but not kept in the object
+     *            cache of the snapshot
+     * @throws SnapshotException
+     *             to stop the scan
+     */
+    public void visit(IObject object) throws SnapshotException;
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+/**
+ * A summary of the contents of all primitive arrays of the snapshot: the
+ * length, whether all elements have the same value, and a 64-bit hash of the
+ * contents.
+ * <p>
+ * Arrays with equal contents, of the same type and length, have the same
+ * hash, so candidates for deduplication can be found without reading the
+ * arrays again. Different contents only rarely have the same hash. The digest
+ * is only built when the heap dump is parsed with the
+ * <code>primitive_array_digest</code> option. It is stored in index files next
+ * to the snapshot and read as needed. Obtain it with
+ * {@link ISnapshot#getSnapshotAddons(Class)}, which returns null if the
+ * snapshot does not have the digest.
+ * 
+ * @noimplement
+ * @since 1.17
+ */
+public interface IPrimitiveArrayDigest
+{
+    /**
+     * All the arrays in the digest.
+     * 
+     * @return the object ids of the primitive arrays, in ascending order
+     */
+    public int[] getObjectIds();
+
+    /**
+     * Whether the object is a primitive array in the digest.
+     * 
+     * @param objectId
+     *            the object id
+     * @return true if the object is in the digest
+     */
+    public boolean contains(int objectId);
+
+    /**
+     * The number of elements of the array.
+     * 
+     * @param objectId
+     *            the object id of the array
+     * @return the length, or -1 if the object is not in the digest
+     */
+    public int getLength(int objectId);
+
+    /**
+     * Whether the array has at least two elements and all elements have the
+     * same value.
+     * 
+     * @param objectId
+     *            the object id of the array
+     * @return true if the value is constant
+     */
+    public boolean isConstant(int objectId);
+
+    /**
+     * The hash of the type, length and elements of the array.
+     * 
+     * @param objectId
+     *            the object id of the array
+     * @return the hash, or 0 if the object is not in the digest
+     */
+    public long getHash(int objectId);
+}
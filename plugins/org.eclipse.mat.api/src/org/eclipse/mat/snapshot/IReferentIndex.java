@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * The referent and queue of each instance of <code>java.lang.ref.Reference</code>,
+ * recorded while the snapshot is parsed, so the reference statistics do not
+ * need to read every reference object. Obtain it with
+ * {@link ISnapshot#getSnapshotAddons(Class)}.
+ * <p>
+ * The retained sets of all the references of each kind are calculated
+ * together in one pass over the heap the first time one of them is needed.
+ * 
+ * @noimplement
+ * @since 1.17
+ */
+public interface IReferentIndex
+{
+    /**
+     * The kind of a reference, from the class it extends.
+     */
+    public enum Kind
+    {
+        /** extends <code>java.lang.ref.SoftReference</code> */
+        SOFT,
+        /** extends <code>java.lang.ref.WeakReference</code> */
+        WEAK,
+        /** extends <code>java.lang.ref.PhantomReference</code> */
+        PHANTOM,
+        /** extends <code>java.lang.ref.Finalizer</code> */
+        FINAL,
+        /** any other subclass of <code>java.lang.ref.Reference</code> */
+        OTHER
+    }
+
+    /**
+     * All the references of a kind.
+     * 
+     * @param kind
+     *            the kind of reference
+     * @return the object ids of the references, in ascending order
+     */
+    public int[] getReferenceIds(Kind kind);
+
+    /**
+     * The objects referred to by the references of a kind.
+     * 
+     * @param kind
+     *            the kind of reference
+     * @return the object ids of the referents, in ascending order, without
+     *         duplicates
+     */
+    public int[] getReferentIds(Kind kind);
+
+    /**
+     * The kind of a reference.
+     * 
+     * @param referenceId
+     *            the object id
+     * @return the kind, or null if the object is not a reference
+     */
+    public Kind getKind(int referenceId);
+
+    /**
+     * The object referred to by a reference.
+     * 
+     * @param referenceId
+     *            the object id of the reference
+     * @return the object id of the referent, or -1 if the referent is null or
+     *         the object is not a reference
+     */
+    public int getReferentId(int referenceId);
+
+    /**
+     * The queue a reference is registered with.
+     * 
+     * @param referenceId
+     *            the object id of the reference
+     * @return the object id of the queue, or -1 if there is no queue or the
+     *         object is not a reference
+     */
+    public int getQueueId(int referenceId);
+
+    /**
+     * The objects which would be garbage collected if the referents of all
+     * the references of a kind were cleared. This is the same as
+     * {@link ISnapshot#getRetainedSet(int[], String[], IProgressListener)}
+     * for the references and the <code>referent</code> field.
+     * 
+     * @param kind
+     *            the kind of reference
+     * @param listener
+     *            to report progress of the first calculation
+     * @return the object ids, in ascending order
+     * @throws SnapshotException
+     *             if there was a problem, such as on cancellation
+     */
+    public int[] getReferentRetainedSet(Kind kind, IProgressListener listener) throws SnapshotException;
+
+    /**
+     * The retained set of all the references of a kind, including the
+     * references. This is the same as
+     * {@link ISnapshot#getRetainedSet(int[], IProgressListener)} for the
+     * references.
+     * 
+     * @param kind
+     *            the kind of reference
+     * @param listener
+     *            to report progress of the first calculation
+     * @return the object ids, in ascending order
+     * @throws SnapshotException
+     *             if there was a problem, such as on cancellation
+     */
+    public int[] getRetainedSet(Kind kind, IProgressListener listener) throws SnapshotException;
+}
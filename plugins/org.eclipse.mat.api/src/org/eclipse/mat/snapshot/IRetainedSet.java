@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.IteratorInt;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * The retained set of some objects, as returned by
+ * {@link ISnapshot#getRetainedSetOf(int[], IProgressListener)}.
+ * <p>
+ * Unlike {@link ISnapshot#getRetainedSet(int[], IProgressListener)} the
+ * objects are not copied into an array of object ids. The set keeps the marks
+ * of the object graph traversal, so it can be counted, iterated and summarized
+ * without holding the ids of all retained objects at once. Use
+ * {@link #toArray()} only if the ids are really needed.
+ * 
+ * @noimplement
+ * @since 1.17
+ */
+public interface IRetainedSet
+{
+    /**
+     * The number of retained objects.
+     * 
+     * @return the number of objects in the set
+     */
+    public int size();
+
+    /**
+     * Whether an object is retained.
+     * 
+     * @param objectId
+     *            the id of the object
+     * @return true if the object is in the retained set
+     */
+    public boolean contains(int objectId);
+
+    /**
+     * Iterate over the retained objects.
+     * 
+     * @return the ids of the retained objects in ascending order
+     */
+    public IteratorInt iterator();
+
+    /**
+     * The total shallow heap of the retained objects, which is the retained
+     * heap of the objects the set was calculated for.
+     * 
+     * @return the sum of the shallow sizes
+     * @throws SnapshotException
+     *             if there is a problem reading the sizes
+     */
+    public long getHeapSize() throws SnapshotException;
+
+    /**
+     * Build a class histogram of the retained objects.
+     * 
+     * @param progressListener
+     *            progress listener informing about the current state of
+     *            execution
+     * @return the histogram
+     * @throws SnapshotException
+     *             if there is a problem, such as on cancellation
+     */
+    public Histogram getHistogram(IProgressListener progressListener) throws SnapshotException;
+
+    /**
+     * Copy the retained objects into an array.
+     * 
+     * @return the ids of the retained objects in ascending order
+     */
+    public int[] toArray();
+}
@@ -377,6 +377,52 @@ public interface ISnapshot
     public int[] getRetainedSet(int[] objectIds, ExcludedReferencesDescriptor[] excludedReferences,
                     IProgressListener progressMonitor) throws SnapshotException;
 
+    /**
+     * Get retained set of objects for the given objects (including the given
+     * objects), as for {@link #getRetainedSet(int[], IProgressListener)}.
+     * <p>
+     * The result keeps the marks of the traversal instead of an array of all
+     * retained object ids, so very large retained sets can be counted,
+     * iterated and summarized as a histogram without doubling the memory.
+     * <p>
+     * Performance: Usually extremely slow - on index; depending on the number
+     * of objects and the references (deep).
+     * 
+     * @param objectIds
+     *            objects on which the retained set should be determined
+     * @param progressListener
+     *            progress listener informing about the current state of
+     *            execution
+     * @return retained set of objects for the given objects
+     * @throws SnapshotException if a problem occurs, for example if the operation was
+     *            interrupted
+     * @since 1.17
+     */
+    public IRetainedSet getRetainedSetOf(int[] objectIds, IProgressListener progressListener)
+                    throws SnapshotException;
+
+    /**
+     * Get retained set of objects for the given objects when the given
+     * references are not followed, as for
+     * {@link #getRetainedSet(int[], ExcludedReferencesDescriptor[], IProgressListener)}.
+     * <p>
+     * The result keeps the marks of the traversal instead of an array of all
+     * retained object ids.
+     * 
+     * @param objectIds
+     *            objects on which the retained set should be determined
+     * @param excludedReferences
+     *            references which should not be followed
+     * @param progressMonitor
+     *            progress listener informing about the current state of
+     *            execution
+     * @return retained set of objects for the given objects
+     * @throws SnapshotException if there was a problem, such as on cancellation
+     * @since 1.17
+     */
+    public IRetainedSet getRetainedSetOf(int[] objectIds, ExcludedReferencesDescriptor[] excludedReferences,
+                    IProgressListener progressMonitor) throws SnapshotException;
+
     /**
      * Calculate the minimum retained set of objects for the given objects
      * (including the given objects).
@@ -511,6 +557,62 @@ public interface ISnapshot
      */
     public IObject getObject(int objectId) throws SnapshotException;
 
+    /**
+     * Read all the objects, or all the instances of some classes, and pass
+     * them to a visitor.
+     * <p>
+     * Where the parser knows where the objects are stored in the dump, they
+     * are read in that order, so the dump is read sequentially. Consecutive
+     * parts of the dump are read and visited in parallel. The objects are not
+     * kept in the object cache, so a scan of the whole heap does not replace
+     * the objects in use.
+     * <p>
+     * Performance: Slow - reads every object; use for inspections which look
+     * at most of the objects anyway.
+     * 
+     * @param classIds
+     *            the classes whose instances should be visited, or null for
+     *            all objects
+     * @param visitor
+     *            receives the objects, from several threads at once
+     * @param progressListener
+     *            progress listener informing about the current state of
+     *            execution
+     * @throws SnapshotException
+     *             if the visitor failed, or there was a problem reading the
+     *             objects
+     * @throws IProgressListener.OperationCanceledException
+     *             if the progress listener was canceled
+     * @since 1.17
+     */
+    public void scanObjects(int[] classIds, IObjectVisitor visitor, IProgressListener progressListener)
+                    throws SnapshotException;
+
+    /**
+     * Read some objects and pass them to a visitor, in the order of the dump
+     * and in parallel as for
+     * {@link #scanObjects(int[], IObjectVisitor, IProgressListener)}.
+     * <p>
+     * Performance: Depends on the number of objects; use for inspections
+     * which look at each of many objects on its own.
+     * 
+     * @param objectIds
+     *            the objects to visit
+     * @param visitor
+     *            receives the objects, from several threads at once
+     * @param progressListener
+     *            progress listener informing about the current state of
+     *            execution
+     * @throws SnapshotException
+     *             if the visitor failed, or there was a problem reading the
+     *             objects
+     * @throws IProgressListener.OperationCanceledException
+     *             if the progress listener was canceled
+     * @since 1.17
+     */
+    public void readObjects(int[] objectIds, IObjectVisitor visitor, IProgressListener progressListener)
+                    throws SnapshotException;
+
     /**
      * Get the GC root info for an object. If the provided object is not a GC
      * root, then null will be returned; otherwise, a GCRootInfo[]. An object
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.snapshot;
+
+/**
+ * The contents of all <code>java.lang.String</code> objects of the snapshot.
+ * Equal contents are stored once and numbered, so strings with the same
+ * content have the same content id.
+ * <p>
+ * The content of a string is its class specific name, so like
+ * {@link org.eclipse.mat.snapshot.model.IObject#getClassSpecificName()} it is
+ * truncated for very long strings. The index is only built when the heap
+ * dump is parsed with the <code>string_index</code> option. It is stored in
+ * index files next to the snapshot and read as needed, so string searches do
+ * not need to read any objects. Obtain it with
+ * {@link ISnapshot#getSnapshotAddons(Class)}, which returns null if the
+ * snapshot does not have the index.
+ * 
+ * @noimplement
+ * @since 1.17
+ */
+public interface IStringIndex
+{
+    /**
+     * All the strings in the index.
+     * 
+     * @return the object ids of the strings, in ascending order
+     */
+    public int[] getObjectIds();
+
+    /**
+     * Whether the object is a string in the index.
+     * 
+     * @param objectId
+     *            the object id
+     * @return true if the object is in the index
+     */
+    public boolean contains(int objectId);
+
+    /**
+     * The number of distinct contents.
+     * 
+     * @return content ids are from 0 to this number, exclusive
+     */
+    public int getNumberOfContents();
+
+    /**
+     * The content for the content id.
+     * 
+     * @param contentId
+     *            the content id
+     * @return the content, or null if it is beyond the characters the index
+     *         can hold
+     */
+    public String getContent(int contentId);
+
+    /**
+     * The content id of the string.
+     * 
+     * @param objectId
+     *            the object id of the string
+     * @return the content id, or -1 if the object is not in the index or its
+     *         content could not be read
+     */
+    public int getContentId(int objectId);
+
+    /**
+     * The number of characters of the string, not limited by any truncation
+     * of the content.
+     * 
+     * @param objectId
+     *            the object id of the string
+     * @return the length, or -1 if not known
+     */
+    public int getLength(int objectId);
+
+    /**
+     * The position of the first character of the string in the backing array,
+     * for snapshots where strings can share arrays.
+     * 
+     * @param objectId
+     *            the object id of the string
+     * @return the offset, or 0 if strings do not have an offset
+     */
+    public int getOffset(int objectId);
+
+    /**
+     * The coder of compact strings, 0 for Latin-1 and 1 for UTF-16.
+     * 
+     * @param objectId
+     *            the object id of the string
+     * @return the coder, or -1 if strings do not have a coder
+     */
+    public int getCoder(int objectId);
+
+    /**
+     * The array holding the characters of the string.
+     * 
+     * @param objectId
+     *            the object id of the string
+     * @return the object id of the array, or -1 if not known
+     */
+    public int getArrayId(int objectId);
+}
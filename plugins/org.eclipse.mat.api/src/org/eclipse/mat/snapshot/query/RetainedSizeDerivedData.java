@@ -17,6 +17,8 @@ import java.text.ParsePosition;
 import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,6 +29,7 @@ import org.eclipse.mat.query.Bytes;
 import org.eclipse.mat.query.BytesFormat;
 import org.eclipse.mat.query.Column;
 import org.eclipse.mat.query.ContextDerivedData;
+import org.eclipse.mat.query.ContextDerivedData.ThreadSafeDerivedCalculator;
 import org.eclipse.mat.query.ContextProvider;
 import org.eclipse.mat.query.IContextObject;
 import org.eclipse.mat.query.IContextObjectSet;
@@ -128,17 +131,62 @@ public class RetainedSizeDerivedData extends ContextDerivedData
         return column;
     }
 
-    private static class DerivedCalculatorImpl implements DerivedCalculator
+    private static class DerivedCalculatorImpl implements ThreadSafeDerivedCalculator
     {
         protected final ISnapshot snapshot;
         protected final ContextProvider provider;
         protected final HashMapObjectLong<Object> values;
+        /**
+         * A precise retained set needs a mark for every object, so only
+         * calculate as many at once as fit into the free memory.
+         */
+        protected final Semaphore precise;
 
         /* package */DerivedCalculatorImpl(ISnapshot snaphot, ContextProvider provider)
         {
             this.snapshot = snaphot;
             this.provider = provider;
             this.values = new HashMapObjectLong<Object>();
+            this.precise = new Semaphore(preciseCalculations(snaphot));
+        }
+
+        /**
+         * The number of precise retained sets which can be calculated at once
+         * with half of the free memory, at least one.
+         */
+        private static int preciseCalculations(ISnapshot snapshot)
+        {
+            Runtime runtime = Runtime.getRuntime();
+            long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+            // the marks, the bits of the result and some room for the marking
+            long perCalculation = 2L * snapshot.getSnapshotInfo().getNumberOfObjects() + 1;
+            return (int) Math.max(1, Math.min(runtime.availableProcessors(), free / 2 / perCalculation));
+        }
+
+        /**
+         * Waits until another precise retained set can be calculated.
+         * Must be followed by {@link Semaphore#release()}.
+         */
+        protected void acquirePrecise(IProgressListener listener)
+        {
+            try
+            {
+                while (!precise.tryAcquire(100, TimeUnit.MILLISECONDS))
+                {
+                    if (listener.isCanceled())
+                        throw new IProgressListener.OperationCanceledException();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IProgressListener.OperationCanceledException();
+            }
+            if (listener.isCanceled())
+            {
+                precise.release();
+                throw new IProgressListener.OperationCanceledException();
+            }
         }
 
         /**
@@ -233,8 +281,15 @@ public class RetainedSizeDerivedData extends ContextDerivedData
                             }
                             else
                             {
-                                retainedSet = snapshot.getRetainedSet(retainedSet, listener);
-                                retainedSize = snapshot.getHeapSize(retainedSet);
+                                acquirePrecise(listener);
+                                try
+                                {
+                                    retainedSize = snapshot.getRetainedSetOf(retainedSet, listener).getHeapSize();
+                                }
+                                finally
+                                {
+                                    precise.release();
+                                }
                             }
                         }
 
@@ -350,12 +405,37 @@ public class RetainedSizeDerivedData extends ContextDerivedData
         {
             if (row instanceof ClassHistogramRecord)
             {
-                ((ClassHistogramRecord) row).calculateRetainedSize(snapshot, true, operation == APPROXIMATE, listener);
+                if (operation == APPROXIMATE)
+                    ((ClassHistogramRecord) row).calculateRetainedSize(snapshot, true, true, listener);
+                else
+                {
+                    acquirePrecise(listener);
+                    try
+                    {
+                        ((ClassHistogramRecord) row).calculateRetainedSize(snapshot, true, false, listener);
+                    }
+                    finally
+                    {
+                        precise.release();
+                    }
+                }
             }
             else if (row instanceof ClassLoaderHistogramRecord)
             {
-                ((ClassLoaderHistogramRecord) row).calculateRetainedSize(snapshot, true, operation == APPROXIMATE,
-                                listener);
+                if (operation == APPROXIMATE)
+                    ((ClassLoaderHistogramRecord) row).calculateRetainedSize(snapshot, true, true, listener);
+                else
+                {
+                    acquirePrecise(listener);
+                    try
+                    {
+                        ((ClassLoaderHistogramRecord) row).calculateRetainedSize(snapshot, true, false, listener);
+                    }
+                    finally
+                    {
+                        precise.release();
+                    }
+                }
             }
             else
             {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2021 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -23,6 +23,7 @@ import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.hprof.describer.Version;
 import org.eclipse.mat.hprof.extension.IRuntimeEnhancer;
 import org.eclipse.mat.hprof.ui.HprofPreferences;
+import org.eclipse.mat.parser.IObjectPositions;
 import org.eclipse.mat.parser.IObjectReader;
 import org.eclipse.mat.parser.index.IIndexReader;
 import org.eclipse.mat.parser.index.IndexReader;
@@ -39,26 +40,20 @@ public class HprofHeapObjectReader implements IObjectReader
     public static final String HPROF_LENGTH_PROPERTY = "hprof.length"; //$NON-NLS-1$
     public static final String HPROF_HEAP_START = "hprof.heap.start"; //$NON-NLS-1$
 
+    /** The buffer size for reading many objects in the order of the dump */
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
     private ISnapshot snapshot;
     private HprofRandomAccessParser hprofDump;
     private IIndexReader.IOne2LongIndex o2hprof;
     private List<IRuntimeEnhancer> enhancers;
+    private HprofPreferences.HprofStrictness strictnessPreference;
 
     public void open(ISnapshot snapshot) throws IOException
     {
         this.snapshot = snapshot;
-
-        Version version = Version.valueOf((String) snapshot.getSnapshotInfo()
-                        .getProperty(VERSION_PROPERTY));
-
-        HprofPreferences.HprofStrictness strictnessPreference = HprofPreferences.getCurrentStrictness();
-        Long olen = (Long)snapshot.getSnapshotInfo().getProperty(HPROF_LENGTH_PROPERTY);
-        long len = (olen != null) ? olen : -1;
-
-        this.hprofDump = new HprofRandomAccessParser(new File(snapshot.getSnapshotInfo().getPath()), //
-                        snapshot.getSnapshotInfo().getPrefix(), //
-                        version, //
-                        snapshot.getSnapshotInfo().getIdentifierSize(), len, strictnessPreference);
+        this.strictnessPreference = HprofPreferences.getCurrentStrictness();
+        this.hprofDump = openParser(512);
         this.o2hprof = new IndexReader.LongIndexReader(new File(snapshot.getSnapshotInfo().getPrefix()
                         + "o2hprof.index")); //$NON-NLS-1$
 
@@ -200,6 +195,20 @@ public class HprofHeapObjectReader implements IObjectReader
         return answer;
     }
 
+    private HprofRandomAccessParser openParser(int bufferSize) throws IOException
+    {
+        Version version = Version.valueOf((String) snapshot.getSnapshotInfo()
+                        .getProperty(VERSION_PROPERTY));
+
+        Long olen = (Long)snapshot.getSnapshotInfo().getProperty(HPROF_LENGTH_PROPERTY);
+        long len = (olen != null) ? olen : -1;
+
+        return new HprofRandomAccessParser(new File(snapshot.getSnapshotInfo().getPath()), //
+                        snapshot.getSnapshotInfo().getPrefix(), //
+                        version, //
+                        snapshot.getSnapshotInfo().getIdentifierSize(), len, strictnessPreference, bufferSize);
+    }
+
     public IObject read(int objectId, ISnapshot snapshot) throws SnapshotException, IOException
     {
         long filePosition = o2hprof.get(objectId);
@@ -226,6 +235,10 @@ public class HprofHeapObjectReader implements IObjectReader
             if (answer != null)
                 return answer;
         }
+        if (addon == IObjectPositions.class)
+        {
+            return addon.cast(new Positions());
+        }
         if (addon.isAssignableFrom(HprofRandomAccessParser.ObjectAddressReference.class))
         {
             return addon.cast(new HprofRandomAccessParser.ObjectAddressReference(snapshot, hprofDump, o2hprof, Long.MIN_VALUE));
@@ -233,6 +246,50 @@ public class HprofHeapObjectReader implements IObjectReader
         return null;
     }
 
+    /**
+     * The positions from the o2hprof index. Each scanner reads the dump with
+     * a file handle and buffers of its own, except for a compressed dump,
+     * where the shared reader avoids decompressing the dump again.
+     */
+    private class Positions implements IObjectPositions
+    {
+        public long getPosition(int objectId)
+        {
+            return o2hprof.get(objectId);
+        }
+
+        public IObjectScanner openScanner() throws IOException
+        {
+            if (hprofDump.isCompressed())
+            {
+                return new IObjectScanner()
+                {
+                    public IObject read(int objectId, ISnapshot snapshot) throws SnapshotException, IOException
+                    {
+                        return HprofHeapObjectReader.this.read(objectId, snapshot);
+                    }
+
+                    public void close()
+                    {}
+                };
+            }
+
+            final HprofRandomAccessParser parser = openParser(SCAN_BUFFER_SIZE);
+            return new IObjectScanner()
+            {
+                public IObject read(int objectId, ISnapshot snapshot) throws SnapshotException, IOException
+                {
+                    return parser.read(objectId, o2hprof.get(objectId), snapshot, o2hprof);
+                }
+
+                public void close() throws IOException
+                {
+                    parser.close();
+                }
+            };
+        }
+    }
+
     public void close() throws IOException
     {
         try
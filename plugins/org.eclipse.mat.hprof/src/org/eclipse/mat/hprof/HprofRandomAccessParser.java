@@ -50,13 +50,26 @@ public class HprofRandomAccessParser extends AbstractParser
 {
     public static final int LAZY_LOADING_LIMIT = 256;
     private final IPositionInputStream in;
+    private final boolean compressed;
 
     public HprofRandomAccessParser(File file, String prefix, Version version, int identifierSize, long len,
                     HprofPreferences.HprofStrictness strictnessPreference) throws IOException
+    {
+        this(file, prefix, version, identifierSize, len, strictnessPreference, 512);
+    }
+
+    /**
+     * @param bufferSize
+     *            the size of each buffer of the file, larger for reading
+     *            many objects in order
+     */
+    /* package */HprofRandomAccessParser(File file, String prefix, Version version, int identifierSize, long len,
+                    HprofPreferences.HprofStrictness strictnessPreference, int bufferSize) throws IOException
     {
         super(strictnessPreference);
         RandomAccessFile raf = new RandomAccessFile(file, "r"); //$NON-NLS-1$
         boolean gzip = CompressedRandomAccessFile.isGZIP(raf);
+        this.compressed = gzip;
         if (gzip)
         {
             ChunkedGZIPRandomAccessFile cgraf = ChunkedGZIPRandomAccessFile.get(raf, file, prefix);
@@ -77,11 +90,19 @@ public class HprofRandomAccessParser extends AbstractParser
                     raf = new CompressedRandomAccessFile(file, true, len);
             }
         }
-        this.in = new DefaultPositionInputStream(new BufferedRandomAccessInputStream(raf, 512));
+        this.in = new DefaultPositionInputStream(new BufferedRandomAccessInputStream(raf, bufferSize));
         this.version = version;
         this.idSize = identifierSize;
     }
 
+    /**
+     * @return true if the dump is compressed, so is expensive to open again
+     */
+    /* package */boolean isCompressed()
+    {
+        return compressed;
+    }
+
     public synchronized void close() throws IOException
     {
         in.close();
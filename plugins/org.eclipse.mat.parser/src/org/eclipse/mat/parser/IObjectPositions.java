@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.IObject;
+
+/**
+ * Where the objects are stored in the dump. An {@link IObjectReader} can
+ * return this from {@link IObjectReader#getAddon(Class)}, so that a scan of
+ * many objects reads them in the order of the dump.
+ * 
+ * @since 1.17
+ */
+public interface IObjectPositions
+{
+    /**
+     * The position of the object in the dump.
+     * 
+     * @param objectId
+     *            the object id
+     * @return the position, where objects stored later have larger positions
+     * @throws SnapshotException
+     *             if there is a problem reading the position
+     */
+    long getPosition(int objectId) throws SnapshotException;
+
+    /**
+     * Opens a reader with its own access to the dump, so that several threads
+     * can each read a different part of the dump in order, without waiting
+     * for each other.
+     * 
+     * @return the reader, to be closed after use
+     * @throws IOException
+     *             if the dump cannot be opened again
+     */
+    IObjectScanner openScanner() throws IOException;
+
+    /**
+     * Reads objects for one thread, best in the order of their positions.
+     */
+    public interface IObjectScanner extends Closeable
+    {
+        /**
+         * Get detailed information about an object, as
+         * {@link IObjectReader#read(int, ISnapshot)}.
+         * 
+         * @param objectId
+         *            the object id
+         * @param snapshot
+         *            the snapshot
+         * @return the object
+         * @throws SnapshotException
+         *             some other problem such as where the object is
+         *             incompatible with the snapshot
+         * @throws IOException
+         *             an IO problem or unexpected data in the dump
+         */
+        IObject read(int objectId, ISnapshot snapshot) throws SnapshotException, IOException;
+    }
+}
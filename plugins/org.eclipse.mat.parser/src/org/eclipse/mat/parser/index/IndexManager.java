@@ -52,7 +52,26 @@ public class IndexManager
          * Retained size cache for a class loader: loader+all classes+all instances. 
          * @since 1.2
          */
-        I2RETAINED("i2sv2", RetainedSizeCache.class); //$NON-NLS-1$
+        I2RETAINED("i2sv2", RetainedSizeCache.class), //$NON-NLS-1$
+        /**
+         * Shortest paths from the GC roots: object id to its parent in a breadth
+         * first search from the GC roots (as id + 2, 1 for a GC root, 0 if unreachable)
+         * @since 1.17
+         */
+        GCROOTPATH("gcpath", IndexReader.IntIndexReader.class), //$NON-NLS-1$
+        /**
+         * Dominator tree pre-order: object id to its number in a depth first
+         * traversal of the dominator tree, starting at 1 (0 if not in the tree)
+         * @since 1.17
+         */
+        DOMPREORDER("domPre", IndexReader.IntIndexReader.class), //$NON-NLS-1$
+        /**
+         * Dominator tree post-order: object id to the highest pre-order number of the
+         * objects it dominates, so an object dominates another if the pre-order
+         * number of the other is in its interval
+         * @since 1.17
+         */
+        DOMPOSTORDER("domPost", IndexReader.IntIndexReader.class); //$NON-NLS-1$
         /*
          * Other indexes:
          * i2s
@@ -126,6 +145,21 @@ public class IndexManager
      * @noreference This field is not intended to be referenced by clients.
      */
     public RetainedSizeCache i2sv2;
+    /**
+     * The index from an object to its parent on a shortest path from the GC roots
+     * @since 1.17
+     */
+    public IIndexReader.IOne2OneIndex gcpath;
+    /**
+     * The index from an object to its pre-order number in the dominator tree
+     * @since 1.17
+     */
+    public IIndexReader.IOne2OneIndex domPre;
+    /**
+     * The index from an object to the last pre-order number of its subtree in the dominator tree
+     * @since 1.17
+     */
+    public IIndexReader.IOne2OneIndex domPost;
 
     /**
      * Add index reader corresponding to the index to the index manager
@@ -190,7 +224,10 @@ public class IndexManager
                     File indexFile = index.getFile(prefix);
                     if (indexFile.exists())
                     {
-                        Constructor<?> constructor = index.impl.getConstructor(new Class[] { File.class });
+                        Class<? extends IIndexReader> impl = index.impl;
+                        if (index == Index.OUTBOUND && IndexReader.IntIndex1NDeltaReader.isDeltaIndex(indexFile))
+                            impl = IndexReader.IntIndex1NDeltaReader.class;
+                        Constructor<?> constructor = impl.getConstructor(new Class[] { File.class });
                         reader = (IIndexReader) constructor.newInstance(new Object[] { indexFile });
                         setReader(index, reader);
                     }
@@ -309,6 +346,40 @@ public class IndexManager
         return domIn;
     }
 
+    /**
+     * The index reader for each object to its parent on a shortest path from the GC roots.
+     * Only available for snapshots where it has been calculated.
+     * @return the index reader, or null
+     * @since 1.17
+     */
+    public IIndexReader.IOne2OneIndex gcRootPath()
+    {
+        return gcpath;
+    }
+
+    /**
+     * The index reader for each object to its pre-order number in the dominator tree.
+     * Only available for snapshots where it has been calculated.
+     * @return the index reader, or null
+     * @since 1.17
+     */
+    public IIndexReader.IOne2OneIndex dominatorPreOrder()
+    {
+        return domPre;
+    }
+
+    /**
+     * The index reader for each object to the last pre-order number of the
+     * objects it dominates, directly or indirectly.
+     * Only available for snapshots where it has been calculated.
+     * @return the index reader, or null
+     * @since 1.17
+     */
+    public IIndexReader.IOne2OneIndex dominatorPostOrder()
+    {
+        return domPost;
+    }
+
     /**
      * Closes all the index reader files
      * @throws IOException if there is a problem closing the files
@@ -14,7 +14,9 @@
  *******************************************************************************/
 package org.eclipse.mat.parser.index;
 
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.io.Serializable;
@@ -31,6 +33,7 @@ import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.parser.index.IndexWriter.ArrayIntLongCompressed;
 import org.eclipse.mat.parser.internal.Messages;
 import org.eclipse.mat.parser.io.SimpleBufferedRandomAccessInputStream;
+import org.eclipse.mat.util.MessageUtil;
 
 /**
  * Implementations to read index files.
@@ -216,7 +219,7 @@ public abstract class IndexReader
             byte[] buffer;
             try
             {
-                buffer = this.in.readDirect(pageStart[page], toRead);
+                buffer = IndexWriter.decodePage(this.in.readDirect(pageStart[page], toRead));
             }
             catch (IOException e)
             {
@@ -650,6 +653,201 @@ public abstract class IndexReader
 
     }
 
+    /**
+     * Reads a 1 to N index written by {@link IndexWriter.IntArray1NDeltaWriter}.
+     * The records of 64 consecutive objects are read and cached together, so
+     * traversing objects in order mostly decodes cached data.
+     * @since 1.17
+     */
+    public static class IntIndex1NDeltaReader implements IIndexReader.IOne2ManyIndex
+    {
+        /**
+         * The lock to protect the read from concurrent access
+         */
+        Object LOCK = new Object();
+
+        File indexFile;
+        SimpleBufferedRandomAccessInputStream in;
+        IntIndexReader skip;
+        int size;
+        /** Thread-safe block cache */
+        final ConcurrentHashMap<Integer, SoftReference<byte[]>> blocks = new ConcurrentHashMap<Integer, SoftReference<byte[]>>();
+
+        public IntIndex1NDeltaReader(File indexFile) throws IOException
+        {
+            this.indexFile = indexFile;
+            this.in = new SimpleBufferedRandomAccessInputStream(new RandomAccessFile(indexFile, "r")); //$NON-NLS-1$
+            try
+            {
+                if (in.readLong() != IndexWriter.IntArray1NDeltaWriter.MAGIC)
+                    throw new IOException(MessageUtil.format(Messages.IndexReader_Error_UnknownFormat, indexFile));
+
+                long indexLength = indexFile.length();
+                in.seek(indexLength - 12);
+                long skipStart = in.readLong();
+                size = in.readInt();
+
+                skip = new PositionIndexReader(in, skipStart, indexLength - 12 - skipStart);
+                skip.LOCK = LOCK;
+            }
+            catch (IOException | RuntimeException e)
+            {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * Whether the file holds an index written by {@link IndexWriter.IntArray1NDeltaWriter}.
+         * @param indexFile the file
+         * @return true if the file has the expected format
+         * @throws IOException if there is a problem reading the file
+         */
+        public static boolean isDeltaIndex(File indexFile) throws IOException
+        {
+            if (indexFile.length() < 8)
+                return false;
+            try (DataInputStream is = new DataInputStream(new FileInputStream(indexFile)))
+            {
+                return is.readLong() == IndexWriter.IntArray1NDeltaWriter.MAGIC;
+            }
+        }
+
+        private byte[] getBlock(int block)
+        {
+            SoftReference<byte[]> ref = blocks.get(block);
+            byte[] data = ref == null ? null : ref.get();
+            if (data != null)
+                return data;
+
+            long start = skip.getPos(block);
+            long ltoRead = skip.getPos(block + 1) - start;
+            if (ltoRead >= Integer.MAX_VALUE)
+            {
+                throw new RuntimeException(new IOException(Messages.IndexReader_Error_PageReadOverflow));
+            }
+
+            try
+            {
+                data = this.in.readDirect(start, (int) ltoRead);
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+
+            synchronized (LOCK)
+            {
+                // if another thread finished a concurrent read, use it
+                ref = blocks.get(block);
+                byte[] existing = ref == null ? null : ref.get();
+                if (existing != null)
+                    return existing;
+                blocks.put(block, new SoftReference<byte[]>(data));
+                return data;
+            }
+        }
+
+        public int[] get(int index)
+        {
+            int block = index / IndexWriter.IntArray1NDeltaWriter.BLOCK_SIZE;
+            byte[] data = getBlock(block);
+            int[] pos = new int[1];
+
+            // skip over the earlier records of the block
+            for (int ii = block * IndexWriter.IntArray1NDeltaWriter.BLOCK_SIZE; ii < index; ii++)
+            {
+                if (readVarInt(data, pos) != 0)
+                {
+                    int len = readVarInt(data, pos);
+                    pos[0] += len;
+                }
+            }
+
+            int length = readVarInt(data, pos);
+            int[] ret = new int[length];
+            if (length == 0)
+                return ret;
+            readVarInt(data, pos);
+
+            int last = readVarInt(data, pos);
+            ret[0] = last;
+            for (int ii = 1; ii < length; ii++)
+            {
+                int v = readVarInt(data, pos);
+                last += (v >>> 1) ^ -(v & 1);
+                ret[ii] = last;
+            }
+            return ret;
+        }
+
+        private static int readVarInt(byte[] data, int[] pos)
+        {
+            int p = pos[0];
+            int b = data[p++];
+            int v = b & 0x7f;
+            for (int shift = 7; b < 0; shift += 7)
+            {
+                b = data[p++];
+                v |= (b & 0x7f) << shift;
+            }
+            pos[0] = p;
+            return v;
+        }
+
+        public int size()
+        {
+            return size;
+        }
+
+        public void unload()
+        {
+            blocks.clear();
+            if (skip != null)
+                skip.unload();
+        }
+
+        public synchronized void close()
+        {
+            unload();
+
+            if (in != null)
+            {
+                try
+                {
+                    in.close();
+                }
+                catch (IOException ignore)
+                {
+                    // $JL-EXC$
+                }
+                finally
+                {
+                    in = null;
+                    if (skip != null)
+                        skip.in = null;
+                }
+            }
+        }
+
+        public void delete()
+        {
+            close();
+
+            if (indexFile != null)
+            {
+                if (indexFile.delete())
+                {
+                    indexFile = null;
+                }
+                else
+                {
+                    logger.log(Level.WARNING, Messages.SnapshotFactoryImpl_UnableToDeleteIndexFile, indexFile.toString());
+                }
+            }
+        }
+    }
+
     /**
      * Creates a int to long index reader
      * 
@@ -852,7 +1050,7 @@ public abstract class IndexReader
             byte[] buffer;
             try
             {
-                buffer = this.in.readDirect(pageStart[page], toRead);
+                buffer = IndexWriter.decodePage(this.in.readDirect(pageStart[page], toRead));
             }
             catch (IOException e)
             {
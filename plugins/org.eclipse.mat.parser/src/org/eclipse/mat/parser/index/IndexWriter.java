@@ -40,6 +40,9 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.collect.ArrayIntCompressed;
@@ -86,6 +89,163 @@ public abstract class IndexWriter
 
     private static final Logger logger = Logger.getLogger(RetainedSizeCache.class.getName());
 
+    /**
+     * Parse option to select additional compression of the indexes.
+     * A comma separated list of {@link #COMPRESSION_DEFLATE} and {@link #COMPRESSION_DELTA}.
+     */
+    public static final String INDEX_COMPRESSION = "index_compression"; //$NON-NLS-1$
+    /** Compress index pages with Deflate on top of the bit packing */
+    public static final String COMPRESSION_DEFLATE = "deflate"; //$NON-NLS-1$
+    /**
+     * Write the outbound references with gap encoded variable length integers,
+     * see {@link IntArray1NDeltaWriter}.
+     */
+    public static final String COMPRESSION_DELTA = "delta"; //$NON-NLS-1$
+    /**
+     * Marks a deflated page. Bit packed pages start with the number of bits per entry,
+     * which is at most 64.
+     */
+    private static final byte DEFLATED_PAGE = (byte) 0xff;
+    /** Prefixes of the index files being written, and whether their pages are deflated */
+    private static final Map<String, Boolean> deflatedPrefixes = new ConcurrentHashMap<String, Boolean>();
+
+    /**
+     * Selects the general purpose compression for the index pages of one snapshot.
+     * Pages are compressed individually, so each page can still be read on its own,
+     * and readers detect compressed pages, so indexes with and without compressed pages
+     * can be read alike. The setting only applies to index files starting with the
+     * prefix, so snapshots parsed at the same time can use different settings.
+     * Call {@link #clearPageCompression(String)} once the indexes are written.
+     * @param prefix the prefix of the index files of the snapshot
+     * @param compression a comma separated list of compression options, which enables
+     * page compression if it contains {@link #COMPRESSION_DEFLATE}, or null for bit packing only
+     * @since 1.17
+     */
+    public static void setPageCompression(String prefix, String compression)
+    {
+        deflatedPrefixes.put(prefix, isCompressionSelected(compression, COMPRESSION_DEFLATE));
+    }
+
+    /**
+     * Forgets the compression selected for the index files of a snapshot.
+     * @param prefix the prefix passed to {@link #setPageCompression(String, String)}
+     * @since 1.17
+     */
+    public static void clearPageCompression(String prefix)
+    {
+        deflatedPrefixes.remove(prefix);
+    }
+
+    /**
+     * Whether the pages of an index file are to be deflated.
+     * The longest matching prefix decides, as one prefix can start with another.
+     */
+    static boolean isPageCompressed(File indexFile)
+    {
+        if (deflatedPrefixes.isEmpty())
+            return false;
+        String path = indexFile.getAbsolutePath();
+        String match = null;
+        boolean deflate = false;
+        for (Map.Entry<String, Boolean> entry : deflatedPrefixes.entrySet())
+        {
+            String prefix = entry.getKey();
+            if (path.startsWith(prefix) && (match == null || prefix.length() > match.length()))
+            {
+                match = prefix;
+                deflate = entry.getValue();
+            }
+        }
+        return deflate;
+    }
+
+    /**
+     * Whether a compression is selected in the value of the {@link #INDEX_COMPRESSION} option.
+     * @param compression the option value, a comma separated list
+     * @param method for example {@link #COMPRESSION_DEFLATE}
+     * @return true if selected
+     * @since 1.17
+     */
+    public static boolean isCompressionSelected(String compression, String method)
+    {
+        if (compression == null)
+            return false;
+        for (String s : compression.split(",")) //$NON-NLS-1$
+        {
+            if (method.equalsIgnoreCase(s.trim()))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compresses a bit packed page if selected and if that saves space.
+     */
+    static byte[] encodePage(byte[] data, boolean deflate)
+    {
+        // tiny pages cannot get smaller
+        if (!deflate || data.length < 64)
+            return data;
+
+        Deflater deflater = new Deflater();
+        try
+        {
+            deflater.setInput(data);
+            deflater.finish();
+            // only worth keeping if smaller, so limit the output to the original size
+            byte[] out = new byte[data.length];
+            out[0] = DEFLATED_PAGE;
+            out[1] = (byte) (data.length >>> 24);
+            out[2] = (byte) (data.length >>> 16);
+            out[3] = (byte) (data.length >>> 8);
+            out[4] = (byte) data.length;
+            int len = 5;
+            while (!deflater.finished() && len < out.length)
+                len += deflater.deflate(out, len, out.length - len);
+            if (!deflater.finished())
+                return data;
+            return Arrays.copyOf(out, len);
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Expands a page written by {@link #encodePage(byte[], boolean)}.
+     */
+    static byte[] decodePage(byte[] data) throws IOException
+    {
+        if (data.length < 5 || data[0] != DEFLATED_PAGE)
+            return data;
+
+        int length = ((data[1] & 0xff) << 24) | ((data[2] & 0xff) << 16) | ((data[3] & 0xff) << 8) | (data[4] & 0xff);
+        byte[] out = new byte[length];
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(data, 5, data.length - 5);
+            int len = 0;
+            while (len < length)
+            {
+                int n = inflater.inflate(out, len, length - len);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IOException(Messages.IndexWriter_Error_CorruptPage);
+                len += n;
+            }
+            return out;
+        }
+        catch (DataFormatException e)
+        {
+            throw new IOException(Messages.IndexWriter_Error_CorruptPage, e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
     /**
      * Used to write out a key for an index.
      */
@@ -782,10 +942,26 @@ public abstract class IndexWriter
         final ExecutorService compressor = singleThreadedExecutor("IntIndexStreamer-Compressor"); //$NON-NLS-1$
         final ExecutorService writer = singleThreadedExecutor("IntIndexStreamer-Writer"); //$NON-NLS-1$
 
+        // whether pages are deflated, see setPageCompression
+        boolean deflate;
+
+        /**
+         * A simple constructor.
+         */
+        public IntIndexStreamer()
+        {}
+
+        IntIndexStreamer(boolean deflate)
+        {
+            this.deflate = deflate;
+        }
+
         public IIndexReader.IOne2OneIndex writeTo(File indexFile, IteratorInt iterator) throws IOException
         {
             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
 
+            deflate = isPageCompressed(indexFile);
+
             openStream(out, 0);
             addAll(iterator);
             closeStream();
@@ -806,6 +982,8 @@ public abstract class IndexWriter
         {
             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
 
+            deflate = isPageCompressed(indexFile);
+
             openStream(out, 0);
             addAll(array);
             closeStream();
@@ -1007,7 +1185,7 @@ public abstract class IndexWriter
             {
                 ArrayIntCompressed array = new ArrayIntCompressed(page, 0, page.length - left);
                 pages.put(pageNumber, new SoftReference<ArrayIntCompressed>(array));
-                return array.toByteArray();
+                return encodePage(array.toByteArray(), deflate);
             }
         }
 
@@ -1085,7 +1263,7 @@ public abstract class IndexWriter
             this.indexFile = indexFile;
 
             this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
-            this.body = new IntIndexStreamer();
+            this.body = new IntIndexStreamer(isPageCompressed(indexFile));
             this.body.openStream(this.out, 0);
         }
 
@@ -1235,7 +1413,7 @@ public abstract class IndexWriter
             }
             if (usesHeader2)
             {
-                headerIndex = new PosIndexStreamer().writeTo2(out, divider, new IteratorLong()
+                headerIndex = new PosIndexStreamer(isPageCompressed(indexFile)).writeTo2(out, divider, new IteratorLong()
                 {
                     int i;
 
@@ -1254,7 +1432,7 @@ public abstract class IndexWriter
             }
             else
             {
-                headerIndex = new IntIndexStreamer().writeTo(out, divider, header);
+                headerIndex = new IntIndexStreamer(isPageCompressed(indexFile)).writeTo(out, divider, header);
             }
 
             out.writeLong(divider);
@@ -1362,6 +1540,219 @@ public abstract class IndexWriter
 
     }
 
+    /**
+     * Writes a 1 to N index of sorted references as gap encoded variable length integers.
+     * This is much smaller than the bit packed {@link IntArray1NSortedWriter} when the
+     * references of an object are close together.
+     * <p>
+     * Disk file structure:
+     * <pre>
+     * magic (8)
+     * record for object 0
+     * ...
+     * record for object n-1
+     * skip table: position of the record of every 64th object, then the end of the records,
+     *             in the format of a header of a 1 to N index
+     * skip table start in file (8)
+     * number of objects (4)
+     * </pre>
+     * A record is the number of entries as a variable length integer, and unless that is zero
+     * the number of bytes of the entries followed by the entries. The first entry is stored
+     * as is, each of the others as the difference to the previous one, zig-zag encoded so that
+     * unsorted entries also work.
+     * @since 1.17
+     */
+    public static class IntArray1NDeltaWriter
+    {
+        /** Identifies the format */
+        static final long MAGIC = 0x4d41545f314e4401L; // MAT_1ND\1
+        /** Number of records per entry in the skip table */
+        static final int BLOCK_SIZE = 64;
+
+        int size;
+        File indexFile;
+        DataOutputStream out;
+        long position;
+        int next;
+        ArrayLong skip = new ArrayLong();
+        byte[] buffer = new byte[64];
+
+        /**
+         * Construct a writer of the required size.
+         * @param size the number of entries
+         * @param indexFile the file to be written to
+         * @throws IOException if there is a problem writing the file
+         */
+        public IntArray1NDeltaWriter(int size, File indexFile) throws IOException
+        {
+            this.size = size;
+            this.indexFile = indexFile;
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+            this.out.writeLong(MAGIC);
+            this.position = 8;
+        }
+
+        /**
+         * Store the references of an object.
+         * Objects must be logged in ascending order; objects skipped have no references.
+         * @param index the object
+         * @param values the references, usually the first then the rest sorted
+         * @throws IOException if there is a problem writing the data
+         */
+        public void log(int index, int[] values) throws IOException
+        {
+            if (index < next)
+                throw new IllegalArgumentException(MessageUtil.format(Messages.IndexWriter_Error_OutOfOrder, index, next - 1));
+            while (next < index)
+                writeRecord(values, 0, 0);
+            writeRecord(values, 0, values.length);
+        }
+
+        /**
+         * Store the references of an object.
+         * @param index the object
+         * @param references the references
+         * @throws IOException if there is a problem writing the data
+         */
+        public void log(int index, ArrayInt references) throws IOException
+        {
+            log(index, references.toArray());
+        }
+
+        private void writeRecord(int[] values, int offset, int length) throws IOException
+        {
+            if (next % BLOCK_SIZE == 0)
+                skip.add(position);
+            next++;
+
+            if (length == 0)
+            {
+                out.write(0);
+                position++;
+                return;
+            }
+
+            if (buffer.length < length * 5)
+                buffer = new byte[length * 5];
+
+            int len = 0;
+            int last = 0;
+            for (int ii = offset; ii < offset + length; ii++)
+            {
+                int v = values[ii];
+                len = putVarInt(buffer, len, ii == offset ? v : zigZag(v - last));
+                last = v;
+            }
+
+            position += writeVarInt(length);
+            position += writeVarInt(len);
+            out.write(buffer, 0, len);
+            position += len;
+        }
+
+        private int writeVarInt(int v) throws IOException
+        {
+            int n = 1;
+            while ((v & ~0x7f) != 0)
+            {
+                out.write((v & 0x7f) | 0x80);
+                v >>>= 7;
+                n++;
+            }
+            out.write(v);
+            return n;
+        }
+
+        static int zigZag(int v)
+        {
+            return (v << 1) ^ (v >> 31);
+        }
+
+        static int putVarInt(byte[] b, int pos, int v)
+        {
+            while ((v & ~0x7f) != 0)
+            {
+                b[pos++] = (byte) ((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            b[pos++] = (byte) v;
+            return pos;
+        }
+
+        /**
+         * Finishes writing out everything
+         * @return a reader for the data
+         * @throws IOException if there is a problem writing the data
+         */
+        public IIndexReader.IOne2ManyIndex flush() throws IOException
+        {
+            while (next < size)
+                writeRecord(null, 0, 0);
+            skip.add(position);
+
+            long skipStart = position;
+            new PosIndexStreamer(isPageCompressed(indexFile)).writeTo2(out, skipStart, new IteratorLong()
+            {
+                int i;
+
+                public boolean hasNext()
+                {
+                    return i < skip.size();
+                }
+
+                public long next()
+                {
+                    return skip.get(i++);
+                }
+            });
+            out.writeLong(skipStart);
+            out.writeInt(size);
+
+            out.close();
+            out = null;
+            skip = null;
+
+            return new IndexReader.IntIndex1NDeltaReader(indexFile);
+        }
+
+        /**
+         * Terminate the writer and delete any file which has been written so far.
+         * Use to cancel part way through.
+         */
+        public void cancel()
+        {
+            try
+            {
+                if (out != null)
+                {
+                    out.close();
+                    out = null;
+                }
+            }
+            catch (IOException ignore)
+            {}
+            finally
+            {
+                if (indexFile.exists())
+                {
+                    if (!indexFile.delete())
+                    {
+                        logger.log(Level.WARNING, Messages.SnapshotFactoryImpl_UnableToDeleteIndexFile, indexFile.toString());
+                    }
+                }
+            }
+        }
+
+        /**
+         * Get the index file.
+         * @return the file
+         */
+        public File getIndexFile()
+        {
+            return indexFile;
+        }
+    }
+
     /**
      * A writer for inbound references.
      * The object and the inbound reference are stored in a
@@ -1462,7 +1853,7 @@ public abstract class IndexWriter
             DataOutputStream index = new DataOutputStream(new BufferedOutputStream(
                             new FileOutputStream(this.indexFile), 1024 * 256));
 
-            IntIndexStreamer body = new IntIndexStreamer();
+            IntIndexStreamer body = new IntIndexStreamer(isPageCompressed(indexFile));
             body.openStream(index, 0);
             boolean bodyopen = true;
             try
@@ -1484,7 +1875,7 @@ public abstract class IndexWriter
                 IIndexReader.IOne2OneIndex headerIndex = null;
                 if (header2 != null)
                 {
-                    headerIndex = new PosIndexStreamer().writeTo2(index, divider, new IteratorLong()
+                    headerIndex = new PosIndexStreamer(isPageCompressed(indexFile)).writeTo2(index, divider, new IteratorLong()
                     {
                         int i;
 
@@ -1503,7 +1894,7 @@ public abstract class IndexWriter
                 }
                 else
                 {
-                    headerIndex = new IntIndexStreamer().writeTo(index, divider, header);
+                    headerIndex = new IntIndexStreamer(isPageCompressed(indexFile)).writeTo(index, divider, header);
                 }
 
                 index.writeLong(divider);
@@ -2267,12 +2658,20 @@ public abstract class IndexWriter
         final ExecutorService compressor = singleThreadedExecutor("LongIndexStreamer-Compressor");
         final ExecutorService writer = singleThreadedExecutor("LongIndexStreamer-Writer");
 
+        // whether pages are deflated, see setPageCompression
+        boolean deflate;
+
         /**
          * A simple constructor.
          */
         public LongIndexStreamer()
         {}
 
+        LongIndexStreamer(boolean deflate)
+        {
+            this.deflate = deflate;
+        }
+
         /**
          * Construct a streamer which outputs to a file
          * @param indexFile the output file
@@ -2280,6 +2679,7 @@ public abstract class IndexWriter
          */
         public LongIndexStreamer(File indexFile) throws IOException
         {
+            deflate = isPageCompressed(indexFile);
             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
             openStream(out, 0);
         }
@@ -2300,6 +2700,8 @@ public abstract class IndexWriter
         {
             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
 
+            deflate = isPageCompressed(indexFile);
+
             openStream(out, 0);
 
             int noOfPages = size / pageSize + (size % pageSize > 0 ? 1 : 0);
@@ -2334,6 +2736,8 @@ public abstract class IndexWriter
         {
             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
 
+            deflate = isPageCompressed(indexFile);
+
             openStream(out, 0);
             addAll(array);
             closeStream();
@@ -2357,6 +2761,8 @@ public abstract class IndexWriter
             {
                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
 
+                deflate = isPageCompressed(indexFile);
+
                 openStream(out, 0);
                 addAll(iterator);
                 closeStream();
@@ -2387,6 +2793,8 @@ public abstract class IndexWriter
         {
             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
 
+            deflate = isPageCompressed(indexFile);
+
             openStream(out, 0);
             addAll(array);
             closeStream();
@@ -2559,7 +2967,7 @@ public abstract class IndexWriter
             {
                 ArrayLongCompressed array = new ArrayLongCompressed(page, 0, page.length - left);
                 pages.put(pageNumber, new SoftReference<ArrayLongCompressed>(array));
-                return array.toByteArray();
+                return encodePage(array.toByteArray(), deflate);
             }
         }
 
@@ -2636,6 +3044,11 @@ public abstract class IndexWriter
         {
             super();
         }
+
+        PosIndexStreamer(boolean deflate)
+        {
+            super(deflate);
+        }
         IIndexReader.IOne2OneIndex writeTo2(DataOutputStream out, long position, IteratorLong iterator)
                         throws IOException
         {
@@ -2677,7 +3090,7 @@ public abstract class IndexWriter
             this.indexFile = indexFile;
 
             this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
-            this.body = new LongIndexStreamer();
+            this.body = new LongIndexStreamer(isPageCompressed(indexFile));
             this.body.openStream(this.out, 0);
         }
 
@@ -2699,7 +3112,7 @@ public abstract class IndexWriter
         {
             long divider = body.closeStream();
 
-            new IntIndexStreamer().writeTo(out, divider, header).close();
+            new IntIndexStreamer(isPageCompressed(indexFile)).writeTo(out, divider, header).close();
 
             out.writeLong(divider);
 
@@ -21,6 +21,7 @@ import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayUtils;
 import org.eclipse.mat.collect.BitField;
 import org.eclipse.mat.collect.IteratorInt;
+import org.eclipse.mat.collect.IteratorLong;
 import org.eclipse.mat.parser.index.IIndexReader;
 import org.eclipse.mat.parser.index.IndexManager;
 import org.eclipse.mat.parser.index.IndexWriter;
@@ -537,9 +538,19 @@ public class DominatorTree
 
             public void calculateTotalSizesIterative(int e) throws SnapshotException, IOException
             {
-                IndexWriter.LongIndexCollector retained = new IndexWriter.LongIndexCollector(dump.getSnapshotInfo()
-                                .getNumberOfObjects(), IndexWriter.mostSignificantBit(dump.getSnapshotInfo()
-                                .getUsedHeapSize()));
+                /*
+                 * Number the objects in the order of the traversal, so each
+                 * subtree is an interval of pre-order numbers. 0 is left for
+                 * objects not in the tree. The retained sizes are kept in ts
+                 * and only written out afterwards, so the traversal does not
+                 * hold a third index beside these two.
+                 */
+                final int numberOfObjects = dump.getSnapshotInfo().getNumberOfObjects();
+                IndexWriter.IntIndexCollector preOrder = new IndexWriter.IntIndexCollector(numberOfObjects,
+                                IndexWriter.mostSignificantBit(numberOfObjects + 1));
+                IndexWriter.IntIndexCollector postOrder = new IndexWriter.IntIndexCollector(numberOfObjects,
+                                IndexWriter.mostSignificantBit(numberOfObjects + 1));
+                int preOrderNumber = 1;
 
                 int capacity = 2047; // capacity for the arrays - allows resize up to 2047<<20
                 int size = 0;
@@ -568,6 +579,8 @@ public class DominatorTree
                         currentSucc = getSuccessorsEnum(nextChild);
 
                         ts[nextChild + 2] = nextChild < 0 ? 0 : snapshot.getHeapSize(nextChild);
+                        if (nextChild >= 0)
+                            preOrder.set(nextChild, preOrderNumber++);
 
                         if (size == capacity)
                         {
@@ -595,7 +608,7 @@ public class DominatorTree
 
                         if (currentEntry >= 0)
                         {
-                            retained.set(currentEntry, ts[currentEntry + 2]);
+                            postOrder.set(currentEntry, preOrderNumber - 1);
                             if (++counter % 1000 == 0)
                             {
                                 if (progressListener.isCanceled())
@@ -607,11 +620,32 @@ public class DominatorTree
                     }
                 }
 
+                // write and release the numbers one at a time
+                dump.getIndexManager().setReader(Index.DOMPREORDER,
+                                preOrder.writeTo(Index.DOMPREORDER.getFile(dump.getSnapshotInfo().getPrefix())));
+                preOrder = null;
+                dump.getIndexManager().setReader(Index.DOMPOSTORDER,
+                                postOrder.writeTo(Index.DOMPOSTORDER.getFile(dump.getSnapshotInfo().getPrefix())));
+                postOrder = null;
+
+                // the retained sizes straight from ts
                 dump.getIndexManager().setReader(
                                 Index.O2RETAINED,
-                                retained.writeTo(IndexManager.Index.O2RETAINED.getFile(dump.getSnapshotInfo()
-                                                .getPrefix())));
-                retained = null;
+                                new IndexWriter.LongIndexStreamer().writeTo(IndexManager.Index.O2RETAINED
+                                                .getFile(dump.getSnapshotInfo().getPrefix()), new IteratorLong()
+                                {
+                                    int next = 0;
+
+                                    public boolean hasNext()
+                                    {
+                                        return next < numberOfObjects;
+                                    }
+
+                                    public long next()
+                                    {
+                                        return ts[2 + next++];
+                                    }
+                                }));
 
                 progressListener.done();
             }
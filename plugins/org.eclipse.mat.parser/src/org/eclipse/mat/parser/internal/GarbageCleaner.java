@@ -377,8 +377,14 @@ import org.eclipse.mat.util.SilentProgressListener;
 
             listener.subTask(Messages.GarbageCleaner_ReIndexingOutboundIndex);
 
-            IndexWriter.IntArray1NSortedWriter w_out = new IndexWriter.IntArray1NSortedWriter(newNoOfObjects,
-                            IndexManager.Index.OUTBOUND.getFile(idx.snapshotInfo.getPrefix()));
+            // the new ids are assigned in ascending order, as the delta writer requires
+            boolean deltaOutbound = IndexWriter.isCompressionSelected(arguments.get(IndexWriter.INDEX_COMPRESSION),
+                            IndexWriter.COMPRESSION_DELTA);
+            File outboundFile = IndexManager.Index.OUTBOUND.getFile(idx.snapshotInfo.getPrefix());
+            IndexWriter.IntArray1NSortedWriter w_out = deltaOutbound ? null
+                            : new IndexWriter.IntArray1NSortedWriter(newNoOfObjects, outboundFile);
+            IndexWriter.IntArray1NDeltaWriter w_outDelta = deltaOutbound
+                            ? new IndexWriter.IntArray1NDeltaWriter(newNoOfObjects, outboundFile) : null;
             IndexWriter.InboundWriter w_in = new IndexWriter.InboundWriter(newNoOfObjects, IndexManager.Index.INBOUND
                             .getFile(idx.snapshotInfo.getPrefix()));
 
@@ -400,7 +406,10 @@ import org.eclipse.mat.util.SilentProgressListener;
 					w_in.log(t, k, jj == 0);
 				}
 
-				w_out.log(k, tl);
+				if (w_outDelta != null)
+					w_outDelta.log(k, tl);
+				else
+					w_out.log(k, tl);
             }
 
             preOutbound.close();
@@ -410,7 +419,10 @@ import org.eclipse.mat.util.SilentProgressListener;
             if (listener.isCanceled())
             {
                 w_in.cancel();
-                w_out.cancel();
+                if (w_outDelta != null)
+                    w_outDelta.cancel();
+                else
+                    w_out.cancel();
                 throw new IProgressListener.OperationCanceledException();
             }
             listener.worked(1); // 10
@@ -423,16 +435,20 @@ import org.eclipse.mat.util.SilentProgressListener;
             w_in = null;
             if (listener.isCanceled())
             {
-                w_out.cancel();
+                if (w_outDelta != null)
+                    w_outDelta.cancel();
+                else
+                    w_out.cancel();
                 throw new IProgressListener.OperationCanceledException();
             }
 
             listener.worked(1); // 11
 
-            listener.subTask(MessageUtil.format(Messages.GarbageCleaner_Writing, new Object[] { w_out.getIndexFile()
+            listener.subTask(MessageUtil.format(Messages.GarbageCleaner_Writing, new Object[] { outboundFile
                             .getAbsolutePath() }));
-            idxManager.setReader(Index.OUTBOUND, w_out.flush());
+            idxManager.setReader(Index.OUTBOUND, w_outDelta != null ? w_outDelta.flush() : w_out.flush());
             w_out = null;
+            w_outDelta = null;
             if (listener.isCanceled())
                 throw new IProgressListener.OperationCanceledException();
             listener.worked(1); // 12
@@ -22,7 +22,9 @@ public class Messages extends NLS
     public static String AbstractObjectImpl_Error_FieldContainsIllegalReference;
     public static String AbstractObjectImpl_Error_FieldIsNotReference;
     public static String BitOutputStream_Error_ArrayFull;
+    public static String ClassAccumulationIndex_Calculating;
     public static String ClassHistogramRecordBuilder_Error_IllegalUseOfHistogramBuilder;
+    public static String ClassReferenceGraph_Calculating;
     public static String DominatorTree_CalculateRetainedSizes;
     public static String DominatorTree_CalculatingDominatorTree;
     public static String DominatorTree_ComputingDominators;
@@ -42,14 +44,19 @@ public class Messages extends NLS
     public static String HistogramBuilder_Error_FailedToStoreInHistogram;
     public static String IndexReader_Error_IndexIsEmbedded;
     public static String IndexReader_Error_PageReadOverflow;
+    public static String IndexReader_Error_UnknownFormat;
     public static String IndexWriter_Error_ArrayLength;
+    public static String IndexWriter_Error_CorruptPage;
     public static String IndexWriter_Error_ObjectArrayLength;
+    public static String IndexWriter_Error_OutOfOrder;
     public static String IndexWriter_NotImplemented;
     public static String IndexWriter_StoredError;
     public static String IndexWriter_StoredException;
     public static String MethodCallExpression_Error_MethodNotFound;
     public static String MethodCallExpression_Error_MethodProhibited;
     public static String MultiplePathsFromGCRootsComputerImpl_FindingPaths;
+    public static String ReferentIndex_Calculating;
+    public static String ReferentIndex_Marking;
     public static String SimpleBufferedRandomAccessInputStream_InvalidReadDirect;
     public static String SnapshotFactoryImpl_ClassIDNotFound;
     public static String SnapshotFactoryImpl_ClassImplNotFound;
@@ -88,6 +95,7 @@ public class Messages extends NLS
     public static String SnapshotFactoryImpl_UnableToDeleteIndexFile;
     public static String SnapshotFactoryImpl_ValidatingGCRoots;
     public static String SnapshotFactoryImpl_ValidatingIndices;
+    public static String SnapshotImage_Corrupt;
     public static String SnapshotImpl_BuildingHistogram;
     public static String SnapshotImpl_CalculatingRetainedHeapSizeForClasses;
     public static String SnapshotImpl_Error_DomTreeNotAvailable;
@@ -96,10 +104,13 @@ public class Messages extends NLS
     public static String SnapshotImpl_Error_ReplacingNonExistentClassLoader;
     public static String SnapshotImpl_Error_UnknownVersion;
     public static String SnapshotImpl_Error_UnrecognizedState;
+    public static String SnapshotImpl_ErrorReadingSnapshotImage;
+    public static String SnapshotImpl_ErrorWritingSnapshotImage;
     public static String SnapshotImpl_Histogram;
     public static String SnapshotImpl_Label;
     public static String SnapshotImpl_ReadingInboundReferrers;
     public static String SnapshotImpl_ReadingOutboundReferrers;
+    public static String SnapshotImpl_ReadingThreadStacks;
     public static String SnapshotImpl_ReopeningParsedHeapDumpFile;
     public static String SnapshotImpl_RetainedSetProgressName;
     public static String SnapshotImpl_RetrievingDominators;
@@ -143,6 +154,7 @@ public class Messages extends NLS
     public static String OQLParser_Encountered_X_at_line_X_column_X_Was_expecting_one_of_X;
     public static String OQLParser_Missing_return_statement_in_function;
 
+    public static String SnapshotImpl_ScanningObjects;
     public static String ThreadStackHelper_InvalidThread;
     public static String ThreadStackHelper_InvalidThreadLocal;
 
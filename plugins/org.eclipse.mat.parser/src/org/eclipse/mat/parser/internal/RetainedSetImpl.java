@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.BitField;
+import org.eclipse.mat.collect.IteratorInt;
+import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.IRetainedSet;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.VoidProgressListener;
+
+/**
+ * A retained set held as one bit per object of the snapshot, or as the sorted
+ * ids if there are few of them or they were already available from the
+ * dominator tree. Counting, sizes and histograms split the objects into
+ * ranges and process the ranges in parallel.
+ */
+/* package */class RetainedSetImpl implements IRetainedSet
+{
+    private static final int PARALLEL_THRESHOLD = 100000;
+
+    private final SnapshotImpl snapshot;
+
+    /** the retained objects, indexed by object id, or null */
+    private final BitField bits;
+    /** the number of objects of the snapshot, if there are bits */
+    private final int numberOfObjects;
+    /** the sorted ids, if there are no bits */
+    private final int[] objectIds;
+
+    private final int size;
+
+    private RetainedSetImpl(SnapshotImpl snapshot, BitField bits, int numberOfObjects, int size)
+    {
+        this.snapshot = snapshot;
+        this.bits = bits;
+        this.numberOfObjects = numberOfObjects;
+        this.objectIds = null;
+        this.size = size;
+    }
+
+    /* package */RetainedSetImpl(SnapshotImpl snapshot, int[] sortedObjectIds)
+    {
+        this.snapshot = snapshot;
+        this.bits = null;
+        this.numberOfObjects = 0;
+        this.objectIds = sortedObjectIds;
+        this.size = sortedObjectIds.length;
+    }
+
+    /**
+     * Copies the marks left by the object marker into a bit per object, or
+     * into the sorted ids if they take less space, so that the marks can be
+     * released.
+     * 
+     * @param snapshot
+     *            the snapshot
+     * @param marks
+     *            one mark per object of the snapshot
+     * @param retained
+     *            the mark of a retained object
+     * @return the retained set
+     */
+    /* package */static RetainedSetImpl of(SnapshotImpl snapshot, boolean[] marks, boolean retained)
+    {
+        final int length = marks.length;
+        final int chunks = chunks(length);
+        IntStream range = IntStream.range(0, chunks);
+        if (chunks > 1)
+            range = range.parallel();
+        int size = (int) range.mapToLong(chunk -> {
+            int count = 0;
+            for (int i = from(length, chunk, chunks), to = from(length, chunk + 1, chunks); i < to; i++)
+            {
+                if (marks[i] == retained)
+                    count++;
+            }
+            return count;
+        }).sum();
+
+        if (size < length / 32)
+        {
+            int[] objectIds = new int[size];
+            for (int i = 0, j = 0; j < size; i++)
+            {
+                if (marks[i] == retained)
+                    objectIds[j++] = i;
+            }
+            return new RetainedSetImpl(snapshot, objectIds);
+        }
+
+        // the ranges start at a multiple of 32, so no two share an int of the bits
+        BitField bits = new BitField(length);
+        range = IntStream.range(0, chunks);
+        if (chunks > 1)
+            range = range.parallel();
+        range.forEach(chunk -> {
+            for (int i = from(length, chunk, chunks), to = from(length, chunk + 1, chunks); i < to; i++)
+            {
+                if (marks[i] == retained)
+                    bits.set(i);
+            }
+        });
+        return new RetainedSetImpl(snapshot, bits, length, size);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean contains(int objectId)
+    {
+        if (bits != null)
+            return objectId >= 0 && objectId < numberOfObjects && bits.get(objectId);
+        return Arrays.binarySearch(objectIds, objectId) >= 0;
+    }
+
+    public IteratorInt iterator()
+    {
+        return iterator(0, length());
+    }
+
+    public long getHeapSize() throws SnapshotException
+    {
+        final int chunks = chunks(length());
+        IntStream range = IntStream.range(0, chunks);
+        if (chunks > 1)
+            range = range.parallel();
+        try
+        {
+            return range.mapToLong(chunk -> {
+                long heapSize = 0;
+                try
+                {
+                    for (IteratorInt it = iterator(from(chunk, chunks), from(chunk + 1, chunks)); it.hasNext();)
+                        heapSize += snapshot.getHeapSize(it.next());
+                }
+                catch (SnapshotException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+                return heapSize;
+            }).sum();
+        }
+        catch (IllegalStateException e)
+        {
+            if (e.getCause() instanceof SnapshotException)
+                throw (SnapshotException) e.getCause();
+            throw e;
+        }
+    }
+
+    public Histogram getHistogram(IProgressListener progressListener) throws SnapshotException
+    {
+        if (progressListener == null)
+            progressListener = new VoidProgressListener();
+        final int chunks = chunks(length());
+        return snapshot.buildHistogram(chunks, chunk -> iterator(from(chunk, chunks), from(chunk + 1, chunks)),
+                        chunks, progressListener);
+    }
+
+    public int[] toArray()
+    {
+        if (bits == null)
+            return objectIds.clone();
+
+        int[] answer = new int[size];
+        int j = 0;
+        for (IteratorInt it = iterator(); it.hasNext();)
+            answer[j++] = it.next();
+        return answer;
+    }
+
+    // //////////////////////////////////////////////////////////////
+    // ranges
+    // //////////////////////////////////////////////////////////////
+
+    /** The object ids or the positions in the sorted ids */
+    private int length()
+    {
+        return bits != null ? numberOfObjects : objectIds.length;
+    }
+
+    private static int chunks(int length)
+    {
+        int availableProcessors = Runtime.getRuntime().availableProcessors();
+        return length < PARALLEL_THRESHOLD || availableProcessors <= 1 ? 1 : availableProcessors * 4;
+    }
+
+    private int from(int chunk, int chunks)
+    {
+        return from(length(), chunk, chunks);
+    }
+
+    /** The start of a range, a multiple of 32 except for the end */
+    private static int from(int length, int chunk, int chunks)
+    {
+        if (chunk == chunks)
+            return length;
+        return (int) ((long) length * chunk / chunks) & ~0x1f;
+    }
+
+    private IteratorInt iterator(int from, int to)
+    {
+        if (bits != null)
+            return new BitIterator(bits, from, to);
+
+        return new IteratorInt()
+        {
+            int next = from;
+
+            public boolean hasNext()
+            {
+                return next < to;
+            }
+
+            public int next()
+            {
+                if (next >= to)
+                    throw new NoSuchElementException();
+                return objectIds[next++];
+            }
+        };
+    }
+
+    /**
+     * The ids of the retained objects of a range.
+     */
+    private static final class BitIterator implements IteratorInt
+    {
+        private final BitField bits;
+        private final int to;
+        private int next;
+
+        BitIterator(BitField bits, int from, int to)
+        {
+            this.bits = bits;
+            this.to = to;
+            this.next = advance(from);
+        }
+
+        private int advance(int objectId)
+        {
+            while (objectId < to && !bits.get(objectId))
+                objectId++;
+            return objectId;
+        }
+
+        public boolean hasNext()
+        {
+            return next < to;
+        }
+
+        public int next()
+        {
+            if (next >= to)
+                throw new NoSuchElementException();
+            int objectId = next;
+            next = advance(objectId + 1);
+            return objectId;
+        }
+    }
+}
@@ -48,6 +48,7 @@ import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.collect.IteratorInt;
 import org.eclipse.mat.parser.IIndexBuilder;
+import org.eclipse.mat.parser.index.IndexWriter;
 import org.eclipse.mat.parser.internal.oql.OQLQueryImpl;
 import org.eclipse.mat.parser.internal.util.ParserRegistry;
 import org.eclipse.mat.parser.internal.util.ParserRegistry.Parser;
@@ -419,6 +420,8 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
             if (indexBuilder == null)
                 continue;
 
+            // Optional extra compression of the index files of this snapshot
+            IndexWriter.setPageCompression(prefix, args.get(IndexWriter.INDEX_COMPRESSION));
             try
             {
                 indexBuilder.init(file, prefix);
@@ -451,7 +454,7 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
                 PreliminaryIndexImpl idx = new PreliminaryIndexImpl(snapshotInfo);
                 SimpleMonitor monitor = new SimpleMonitor(MessageUtil
                                 .format(Messages.SnapshotFactoryImpl_ParsingHeapDump, file.getAbsolutePath()), listener,
-                                new int[] { 700, 30, 90, 20, 150, 10 });
+                                new int[] { 700, 30, 90, 20, 150, 10, 30, 20, 10, 10, 20, 30, 30 });
 
                 indexBuilder.fill(idx, monitor.nextMonitor());
 
@@ -474,7 +477,37 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
                 try
                 {
                     snapshot.calculateDominatorTree(monitor.nextMonitor());
-                    snapshot.calculateMinRetainedHeapSizeForClasses(monitor.nextMonitor());
+                    if (Boolean.parseBoolean(args.get("precise_retained_sizes"))) //$NON-NLS-1$
+                        snapshot.calculateRetainedHeapSizeForClasses(false, monitor.nextMonitor());
+                    else
+                        snapshot.calculateMinRetainedHeapSizeForClasses(monitor.nextMonitor());
+                    // Optional, paths are otherwise found by a search when needed
+                    if (Boolean.parseBoolean(args.get("gc_root_paths_index"))) //$NON-NLS-1$
+                        snapshot.calculateGCRootPaths(monitor.nextMonitor());
+                    else
+                        monitor.nextMonitor();
+                    // Optional, the graph is otherwise calculated on first use
+                    if (Boolean.parseBoolean(args.get("class_reference_graph"))) //$NON-NLS-1$
+                        snapshot.calculateClassReferenceGraph(monitor.nextMonitor());
+                    else
+                        monitor.nextMonitor();
+                    // Optional, the index is otherwise calculated on first use
+                    if (Boolean.parseBoolean(args.get("class_accumulation_index"))) //$NON-NLS-1$
+                        snapshot.calculateClassAccumulationIndex(monitor.nextMonitor());
+                    else
+                        monitor.nextMonitor();
+                    snapshot.calculateThreadStacks(monitor.nextMonitor());
+                    snapshot.calculateReferentIndex(monitor.nextMonitor());
+                    // Optional, string queries otherwise read the strings
+                    if (Boolean.parseBoolean(args.get("string_index"))) //$NON-NLS-1$
+                        snapshot.calculateStringIndex(monitor.nextMonitor());
+                    else
+                        monitor.nextMonitor();
+                    // Optional, array queries otherwise read the arrays
+                    if (Boolean.parseBoolean(args.get("primitive_array_digest"))) //$NON-NLS-1$
+                        snapshot.calculatePrimitiveArrayDigest(monitor.nextMonitor());
+                    else
+                        monitor.nextMonitor();
                     done = true;
                 }
                 finally
@@ -505,6 +538,10 @@ public class SnapshotFactoryImpl implements SnapshotFactory.Implementation
 
                 throw SnapshotException.rethrow(e);
             }
+            finally
+            {
+                IndexWriter.clearPageCompression(prefix);
+            }
         }
 
         if (errors.size() > 1)
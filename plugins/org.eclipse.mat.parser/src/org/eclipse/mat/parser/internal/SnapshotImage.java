@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.eclipse.mat.collect.BitField;
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.parser.model.ClassImpl;
+import org.eclipse.mat.parser.model.XGCRootInfo;
+import org.eclipse.mat.parser.model.XSnapshotInfo;
+
+/**
+ * Binary image of the snapshot state held in the master index file.
+ * <p>
+ * The master <code>index</code> file is a Java serialization stream which has to
+ * be fully deserialized and validated on every reopen, including the GC roots per thread
+ * which are only needed once threads are inspected. The image is a companion file
+ * <code>image.index</code> holding the same data in a flat binary layout:
+ * <ul>
+ * <li>a header stamped with the length and modification time of the master index,
+ * so a stale image is never used</li>
+ * <li>the snapshot info, class cache and class loader labels as one serialized block</li>
+ * <li>the array object bits and the GC roots as plain binary records</li>
+ * <li>the GC roots per thread as a trailing section which is only decoded on
+ * first access</li>
+ * <li>a trailer with the position of that section and a CRC32 checksum of
+ * everything before the trailer, so a corrupt or truncated image is rejected</li>
+ * </ul>
+ * The image is an optimization only: if it is missing, stale or unreadable
+ * the master index is read as before.
+ */
+/* package */class SnapshotImage
+{
+    /** "MAT_IMG" followed by the format version */
+    private static final long MAGIC = 0x4d41545f494d4702L;
+
+    /** magic, master index length and modification time */
+    private static final int HEADER_LENGTH = 24;
+    /** per thread section offset and checksum */
+    private static final int TRAILER_LENGTH = 16;
+
+    /* package */static final String FILENAME = "image.index"; //$NON-NLS-1$
+
+    private final File file;
+    private final long rootsPerThreadOffset;
+
+    /* package */String objectReaderUniqueIdentifier;
+    /* package */XSnapshotInfo snapshotInfo;
+    /* package */HashMapIntObject<ClassImpl> classCache;
+    /* package */HashMapIntObject<String> loaderLabels;
+    /* package */HashMapIntObject<XGCRootInfo[]> roots;
+    /* package */BitField arrayObjects;
+
+    private SnapshotImage(File file, long rootsPerThreadOffset)
+    {
+        this.file = file;
+        this.rootsPerThreadOffset = rootsPerThreadOffset;
+    }
+
+    /* package */static File getFile(String prefix)
+    {
+        return new File(prefix + FILENAME);
+    }
+
+    /**
+     * Writes the image next to the master index file.
+     * Must be called after the master index has been completely written.
+     */
+    /* package */static void write(String prefix, String objectReaderUniqueIdentifier, XSnapshotInfo snapshotInfo,
+                    HashMapIntObject<ClassImpl> classCache, HashMapIntObject<String> loaderLabels,
+                    HashMapIntObject<XGCRootInfo[]> roots,
+                    HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread, BitField arrayObjects)
+                    throws IOException
+    {
+        int numberOfObjects = snapshotInfo.getNumberOfObjects();
+        File indexFile = new File(prefix + "index"); //$NON-NLS-1$
+        File imageFile = getFile(prefix);
+        boolean done = false;
+        CRC32 checksum = new CRC32();
+        try (FileOutputStream fos = new FileOutputStream(imageFile);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(fos, checksum))))
+        {
+            out.writeLong(MAGIC);
+            out.writeLong(indexFile.length());
+            out.writeLong(indexFile.lastModified());
+            out.writeUTF(objectReaderUniqueIdentifier);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes))
+            {
+                oos.writeObject(snapshotInfo);
+                oos.writeObject(classCache);
+                oos.writeObject(loaderLabels);
+            }
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+
+            out.writeInt(numberOfObjects);
+            for (int ii = 0; ii < numberOfObjects; ii += 32)
+            {
+                int word = 0;
+                int end = Math.min(32, numberOfObjects - ii);
+                for (int jj = 0; jj < end; jj++)
+                {
+                    if (arrayObjects.get(ii + jj))
+                        word |= 1 << jj;
+                }
+                out.writeInt(word);
+            }
+
+            writeRoots(out, roots);
+
+            out.flush();
+            long offset = fos.getChannel().position();
+            out.writeInt(rootsPerThread.size());
+            for (Iterator<HashMapIntObject.Entry<HashMapIntObject<XGCRootInfo[]>>> it = rootsPerThread.entries(); it
+                            .hasNext();)
+            {
+                HashMapIntObject.Entry<HashMapIntObject<XGCRootInfo[]>> entry = it.next();
+                out.writeInt(entry.getKey());
+                writeRoots(out, entry.getValue());
+            }
+            out.flush();
+            long crc = checksum.getValue();
+            out.writeLong(offset);
+            out.writeLong(crc);
+            done = true;
+        }
+        finally
+        {
+            if (!done)
+                imageFile.delete();
+        }
+    }
+
+    private static void writeRoots(DataOutputStream out, HashMapIntObject<XGCRootInfo[]> roots) throws IOException
+    {
+        out.writeInt(roots.size());
+        for (Iterator<HashMapIntObject.Entry<XGCRootInfo[]>> it = roots.entries(); it.hasNext();)
+        {
+            HashMapIntObject.Entry<XGCRootInfo[]> entry = it.next();
+            XGCRootInfo[] infos = entry.getValue();
+            out.writeInt(entry.getKey());
+            out.writeInt(infos.length);
+            for (XGCRootInfo info : infos)
+            {
+                out.writeLong(info.getObjectAddress());
+                out.writeLong(info.getContextAddress());
+                out.writeInt(info.getObjectId());
+                out.writeInt(info.getContextId());
+                out.writeInt(info.getType());
+            }
+        }
+    }
+
+    /**
+     * Reads the eagerly needed part of the image.
+     *
+     * @return the image, or null if there is no image or it does not match the
+     *         current master index file
+     * @throws IOException if the image is corrupt or truncated
+     */
+    @SuppressWarnings("unchecked")
+    /* package */static SnapshotImage read(String prefix) throws IOException
+    {
+        File indexFile = new File(prefix + "index"); //$NON-NLS-1$
+        File imageFile = getFile(prefix);
+        if (!imageFile.isFile() || imageFile.length() < HEADER_LENGTH + TRAILER_LENGTH)
+            return null;
+
+        long rootsPerThreadOffset;
+        try (FileInputStream fis = new FileInputStream(imageFile);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(fis)))
+        {
+            if (in.readLong() != MAGIC || in.readLong() != indexFile.length()
+                            || in.readLong() != indexFile.lastModified())
+                return null;
+
+            // The trailer holds the position of the per thread section and the checksum
+            ByteBuffer trailer = readTrailer(fis);
+            long length = fis.getChannel().size();
+            rootsPerThreadOffset = trailer.getLong();
+            if (trailer.getLong() != checksum(fis, length - TRAILER_LENGTH))
+                throw new IOException(Messages.SnapshotImage_Corrupt);
+            if (rootsPerThreadOffset < HEADER_LENGTH || rootsPerThreadOffset > length - TRAILER_LENGTH - 4)
+                throw new IOException(Messages.SnapshotImage_Corrupt);
+
+            SnapshotImage image = new SnapshotImage(imageFile, rootsPerThreadOffset);
+            image.objectReaderUniqueIdentifier = in.readUTF();
+
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            try (ObjectInputStream ois = new SnapshotImpl.FilteredObjectInputStream(new ByteArrayInputStream(bytes)))
+            {
+                image.snapshotInfo = (XSnapshotInfo) ois.readObject();
+                image.classCache = (HashMapIntObject<ClassImpl>) ois.readObject();
+                image.loaderLabels = (HashMapIntObject<String>) ois.readObject();
+            }
+            catch (ClassNotFoundException | ClassCastException e)
+            {
+                throw new IOException(e.getMessage(), e);
+            }
+
+            int numberOfObjects = in.readInt();
+            if (numberOfObjects != image.snapshotInfo.getNumberOfObjects())
+                throw new IOException(Messages.SnapshotImage_Corrupt);
+            image.arrayObjects = new BitField(numberOfObjects);
+            for (int ii = 0; ii < numberOfObjects; ii += 32)
+            {
+                int word = in.readInt();
+                while (word != 0)
+                {
+                    int bit = Integer.numberOfTrailingZeros(word);
+                    image.arrayObjects.set(ii + bit);
+                    word &= word - 1;
+                }
+            }
+
+            image.roots = readRoots(in);
+            return image;
+        }
+    }
+
+    private static ByteBuffer readTrailer(FileInputStream fis) throws IOException
+    {
+        FileChannel channel = fis.getChannel();
+        ByteBuffer buffer = ByteBuffer.allocate(TRAILER_LENGTH);
+        long pos = channel.size() - TRAILER_LENGTH;
+        while (buffer.hasRemaining())
+        {
+            int n = channel.read(buffer, pos + buffer.position());
+            if (n < 0)
+                throw new EOFException();
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * CRC32 of the first bytes of the file, read without moving the stream position.
+     */
+    private static long checksum(FileInputStream fis, long length) throws IOException
+    {
+        FileChannel channel = fis.getChannel();
+        CRC32 checksum = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        for (long pos = 0; pos < length;)
+        {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), length - pos));
+            int n = channel.read(buffer, pos);
+            if (n < 0)
+                throw new EOFException();
+            checksum.update(buffer.array(), 0, n);
+            pos += n;
+        }
+        return checksum.getValue();
+    }
+
+    private static HashMapIntObject<XGCRootInfo[]> readRoots(DataInputStream in) throws IOException
+    {
+        int size = in.readInt();
+        HashMapIntObject<XGCRootInfo[]> roots = new HashMapIntObject<XGCRootInfo[]>(Math.max(size, 1));
+        for (int ii = 0; ii < size; ii++)
+        {
+            int key = in.readInt();
+            XGCRootInfo[] infos = new XGCRootInfo[in.readInt()];
+            for (int jj = 0; jj < infos.length; jj++)
+            {
+                long objectAddress = in.readLong();
+                long contextAddress = in.readLong();
+                int objectId = in.readInt();
+                int contextId = in.readInt();
+                XGCRootInfo info = new XGCRootInfo(objectAddress, contextAddress, in.readInt());
+                info.setObjectId(objectId);
+                info.setContextId(contextId);
+                infos[jj] = info;
+            }
+            roots.put(key, infos);
+        }
+        return roots;
+    }
+
+    /**
+     * Decodes the GC roots per thread on demand.
+     */
+    /* package */HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> readRootsPerThread() throws IOException
+    {
+        try (FileInputStream fis = new FileInputStream(file))
+        {
+            fis.getChannel().position(rootsPerThreadOffset);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(fis));
+            int size = in.readInt();
+            HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread = new HashMapIntObject<HashMapIntObject<XGCRootInfo[]>>(
+                            Math.max(size, 1));
+            for (int ii = 0; ii < size; ii++)
+            {
+                int threadId = in.readInt();
+                rootsPerThread.put(threadId, readRoots(in));
+            }
+            return rootsPerThread;
+        }
+    }
+}
@@ -20,6 +20,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -36,27 +37,39 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.regex.Pattern;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.collect.ArrayIntBig;
+import org.eclipse.mat.collect.ArrayUtils;
 import org.eclipse.mat.collect.BitField;
 import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.collect.IteratorInt;
 import org.eclipse.mat.collect.SetInt;
+import org.eclipse.mat.parser.IObjectPositions;
 import org.eclipse.mat.parser.IObjectReader;
 import org.eclipse.mat.parser.index.IIndexReader;
 import org.eclipse.mat.parser.index.IIndexReader.IOne2OneIndex;
 import org.eclipse.mat.parser.index.IIndexReader.IOne2SizeIndex;
 import org.eclipse.mat.parser.index.IndexManager;
 import org.eclipse.mat.parser.index.IndexManager.Index;
+import org.eclipse.mat.parser.internal.snapshot.ClassAccumulationIndex;
+import org.eclipse.mat.parser.internal.snapshot.ClassReferenceGraph;
 import org.eclipse.mat.parser.internal.snapshot.HistogramBuilder;
 import org.eclipse.mat.parser.internal.snapshot.MultiplePathsFromGCRootsComputerImpl;
-import org.eclipse.mat.parser.internal.snapshot.ObjectCache;
+import org.eclipse.mat.parser.internal.snapshot.ConcurrentObjectCache;
 import org.eclipse.mat.parser.internal.snapshot.ObjectMarker;
 import org.eclipse.mat.parser.internal.snapshot.PathsFromGCRootsTreeBuilder;
+import org.eclipse.mat.parser.internal.snapshot.PrimitiveArrayDigest;
+import org.eclipse.mat.parser.internal.snapshot.ReferentIndex;
 import org.eclipse.mat.parser.internal.snapshot.RetainedSizeCache;
+import org.eclipse.mat.parser.internal.snapshot.StringIndex;
 import org.eclipse.mat.parser.internal.util.IntStack;
 import org.eclipse.mat.parser.internal.util.ParserRegistry;
 import org.eclipse.mat.parser.internal.util.ParserRegistry.Parser;
@@ -73,13 +86,21 @@ import org.eclipse.mat.snapshot.DominatorsSummary;
 import org.eclipse.mat.snapshot.DominatorsSummary.ClassDominatorRecord;
 import org.eclipse.mat.snapshot.ExcludedReferencesDescriptor;
 import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.IClassAccumulationIndex;
+import org.eclipse.mat.snapshot.IClassReferenceGraph;
 import org.eclipse.mat.snapshot.IMultiplePathsFromGCRootsComputer;
+import org.eclipse.mat.snapshot.IObjectVisitor;
 import org.eclipse.mat.snapshot.IPathsFromGCRootsComputer;
+import org.eclipse.mat.snapshot.IPrimitiveArrayDigest;
+import org.eclipse.mat.snapshot.IReferentIndex;
+import org.eclipse.mat.snapshot.IRetainedSet;
 import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.IStringIndex;
 import org.eclipse.mat.snapshot.PathsFromGCRootsTree;
 import org.eclipse.mat.snapshot.UnreachableObjectsHistogram;
 import org.eclipse.mat.snapshot.model.GCRootInfo;
 import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IClassLoader;
 import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.model.IPrimitiveArray;
 import org.eclipse.mat.snapshot.model.IThreadStack;
@@ -88,7 +109,6 @@ import org.eclipse.mat.snapshot.model.ObjectReference;
 import org.eclipse.mat.util.IProgressListener;
 import org.eclipse.mat.util.IProgressListener.OperationCanceledException;
 import org.eclipse.mat.util.MessageUtil;
-import org.eclipse.mat.util.SilentProgressListener;
 import org.eclipse.mat.util.SimpleMonitor;
 import org.eclipse.mat.util.VoidProgressListener;
 
@@ -97,6 +117,19 @@ import org.eclipse.mat.util.VoidProgressListener;
  */
 public final class SnapshotImpl implements ISnapshot
 {
+    private static final Logger logger = Logger.getLogger(SnapshotImpl.class.getName());
+
+    /** Histograms of fewer objects are built on the calling thread */
+    private static final int PARALLEL_HISTOGRAM_THRESHOLD = 100000;
+
+    /** Fewer ids are sorted on the calling thread */
+    private static final int PARALLEL_SORT_THRESHOLD = 100000;
+
+    /** Scans of fewer objects read them on the calling thread */
+    /** The fewest objects of a chunk of a scan read in parallel, or with a reader of its own */
+    private static final int SCAN_MIN_CHUNK_SIZE = 1000;
+    /** The most objects of a chunk of a scan, as the chunk is sorted by position */
+    private static final int SCAN_MAX_CHUNK_SIZE = 1 << 20;
 
     // //////////////////////////////////////////////////////////////
     // factory methods
@@ -120,6 +153,29 @@ public final class SnapshotImpl implements ISnapshot
         listener.beginTask(Messages.SnapshotImpl_ReopeningParsedHeapDumpFile, 9);
 
         File indexFile = new File(prefix + "index"); //$NON-NLS-1$
+
+        // Fast path: a current binary image avoids deserializing and validating the master index
+        SnapshotImage image = readImage(prefix);
+        if (image != null)
+        {
+            try
+            {
+                listener.worked(1);
+                Parser parser = lookupParser(image.objectReaderUniqueIdentifier);
+                listener.worked(1);
+                IObjectReader heapObjectReader = createObjectReader(parser, file);
+                image.snapshotInfo.setProperty("$heapFormat", parser.getId()); //$NON-NLS-1$
+                listener.worked(4);
+
+                return open(file, indexFile, prefix, image.snapshotInfo, heapObjectReader, image.classCache,
+                                image.roots, null, image.loaderLabels, image.arrayObjects, image, listener);
+            }
+            finally
+            {
+                listener.done();
+            }
+        }
+
         try (FileInputStream fis = new FileInputStream(indexFile);
             /**
              * Classes deserialized:
@@ -158,38 +214,7 @@ public final class SnapshotImpl implements ISnapshot
              * [I
              *
              */
-            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(fis)) {
-                @Override
-                protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
-                    // similar to system property jdk.serialFilter
-                    String match="java.lang.*;java.util.*;org.eclipse.mat.parser.model.*;org.eclipse.mat.snapshot.*;org.eclipse.mat.snapshot.model.*;org.eclipse.mat.collect.*;!*"; //$NON-NLS-1$
-                    String nm = desc.getName();
-                    if (!nm.startsWith("[")) //$NON-NLS-1$
-                    {
-                        for (String pt : match.split(";")) //$NON-NLS-1$
-                        {
-                            boolean not = pt.startsWith("!"); //$NON-NLS-1$
-                            if (not)
-                                pt = pt.substring(1);
-                            boolean m;
-                            if (pt.endsWith(".**")) //$NON-NLS-1$
-                                m = nm.startsWith(pt.substring(0, pt.length() - 2));
-                            else if (pt.endsWith(".*")) //$NON-NLS-1$
-                                m = nm.startsWith(pt.substring(0, pt.length() - 1))
-                                                && !nm.substring(pt.length() - 1).contains("."); //$NON-NLS-1$
-                            else if (pt.endsWith("*")) //$NON-NLS-1$
-                                m = nm.startsWith(pt.substring(0, pt.length() - 1));
-                            else
-                                m = nm.equals(pt);
-                            if (not && m)
-                                throw new InvalidClassException(nm, match);
-                            if (m)
-                                break;
-                        }
-                    }
-                    return super.resolveClass(desc);
-                }
-            };)
+            ObjectInputStream in = new FilteredObjectInputStream(new BufferedInputStream(fis));)
          {
             listener.worked(1);
 
@@ -198,13 +223,9 @@ public final class SnapshotImpl implements ISnapshot
                 throw new IOException(MessageUtil.format(Messages.SnapshotImpl_Error_UnknownVersion, version));
 
             String objectReaderUniqueIdentifier = in.readUTF();
-            Parser parser = ParserPlugin.getDefault().getParserRegistry().lookupParser(objectReaderUniqueIdentifier);
-            if (parser == null)
-                throw new IOException(Messages.SnapshotImpl_Error_ParserNotFound + objectReaderUniqueIdentifier);
+            Parser parser = lookupParser(objectReaderUniqueIdentifier);
             listener.worked(1);
-            IObjectReader heapObjectReader = parser.create(IObjectReader.class, ParserRegistry.OBJECT_READER);
-            if (heapObjectReader == null)
-                throw new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_OpeningHeapDump, file));
+            IObjectReader heapObjectReader = createObjectReader(parser, file);
 
             XSnapshotInfo snapshotInfo = (XSnapshotInfo) in.readObject();
             snapshotInfo.setProperty("$heapFormat", parser.getId()); //$NON-NLS-1$
@@ -225,45 +246,12 @@ public final class SnapshotImpl implements ISnapshot
             BitField arrayObjects = (BitField) in.readObject();
             listener.worked(3);
 
-            snapshotInfo.setPrefix(prefix);
-            // Allow a dump to be opened via the index file
-            if (file.equals(indexFile))
-            {
-                // Previous location of the heap dump
-                file = new File(snapshotInfo.getPath());
-                if (!file.exists())
-                {
-                    // Perhaps files were moved, so try in same directory as index
-                    file = new File(indexFile.getParentFile(), file.getName());
-                    snapshotInfo.setPath(file.getAbsolutePath());
-                }
-            }
-            else
-            {
-                snapshotInfo.setPath(file.getAbsolutePath());
-            }
-
-            IndexManager indexManager = new IndexManager();
-            boolean done = false;
-            try
-            {
-                indexManager.init(prefix);
+            // Next time the snapshot can be reopened from the image
+            writeImage(prefix, objectReaderUniqueIdentifier, snapshotInfo, classCache, loaderLabels, roots,
+                            rootsPerThread, arrayObjects);
 
-                SnapshotImpl ret = new SnapshotImpl(snapshotInfo, heapObjectReader, classCache, roots, rootsPerThread, loaderLabels,
-                                arrayObjects, indexManager);
-                listener.worked(3);
-                done = true;
-
-                return ret;
-            }
-            finally
-            {
-                if (!done)
-                {
-                    // Close files on error to allow delete
-                    indexManager.close();
-                }
-            }
+            return open(file, indexFile, prefix, snapshotInfo, heapObjectReader, classCache, roots, rootsPerThread,
+                            loaderLabels, arrayObjects, null, listener);
         }
         catch (ClassNotFoundException e)
         {
@@ -283,6 +271,181 @@ public final class SnapshotImpl implements ISnapshot
         }
     }
 
+    private static Parser lookupParser(String objectReaderUniqueIdentifier) throws IOException
+    {
+        Parser parser = ParserPlugin.getDefault().getParserRegistry().lookupParser(objectReaderUniqueIdentifier);
+        if (parser == null)
+            throw new IOException(Messages.SnapshotImpl_Error_ParserNotFound + objectReaderUniqueIdentifier);
+        return parser;
+    }
+
+    private static IObjectReader createObjectReader(Parser parser, File file) throws SnapshotException
+    {
+        IObjectReader heapObjectReader = parser.create(IObjectReader.class, ParserRegistry.OBJECT_READER);
+        if (heapObjectReader == null)
+            throw new SnapshotException(MessageUtil.format(Messages.SnapshotFactoryImpl_Error_OpeningHeapDump, file));
+        return heapObjectReader;
+    }
+
+    private static SnapshotImpl open(File file, File indexFile, String prefix, //
+                    XSnapshotInfo snapshotInfo, //
+                    IObjectReader heapObjectReader, //
+                    HashMapIntObject<ClassImpl> classCache, //
+                    HashMapIntObject<XGCRootInfo[]> roots, //
+                    HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread, //
+                    HashMapIntObject<String> loaderLabels, //
+                    BitField arrayObjects, //
+                    SnapshotImage image, //
+                    IProgressListener listener) throws SnapshotException, IOException
+    {
+        snapshotInfo.setPrefix(prefix);
+        // Allow a dump to be opened via the index file
+        if (file.equals(indexFile))
+        {
+            // Previous location of the heap dump
+            file = new File(snapshotInfo.getPath());
+            if (!file.exists())
+            {
+                // Perhaps files were moved, so try in same directory as index
+                file = new File(indexFile.getParentFile(), file.getName());
+                snapshotInfo.setPath(file.getAbsolutePath());
+            }
+        }
+        else
+        {
+            snapshotInfo.setPath(file.getAbsolutePath());
+        }
+
+        IndexManager indexManager = new IndexManager();
+        boolean done = false;
+        try
+        {
+            indexManager.init(prefix);
+
+            SnapshotImpl ret = new SnapshotImpl(snapshotInfo, heapObjectReader, classCache, roots, rootsPerThread, loaderLabels,
+                            arrayObjects, indexManager);
+            ret.image = image;
+            listener.worked(3);
+            done = true;
+
+            return ret;
+        }
+        finally
+        {
+            if (!done)
+            {
+                // Close files on error to allow delete
+                indexManager.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the binary image of the master index, if it is present and current.
+     * @return the image or null if the master index needs to be read
+     */
+    private static SnapshotImage readImage(String prefix)
+    {
+        try
+        {
+            return SnapshotImage.read(prefix);
+        }
+        catch (IOException e)
+        {
+            logger.log(Level.WARNING, MessageUtil.format(Messages.SnapshotImpl_ErrorReadingSnapshotImage,
+                            SnapshotImage.getFile(prefix)), e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the binary image of the master index. The image is only an
+     * optimization for reopening, so failures are logged and otherwise ignored.
+     */
+    private static void writeImage(String prefix, String objectReaderUniqueIdentifier, XSnapshotInfo snapshotInfo,
+                    HashMapIntObject<ClassImpl> classCache, HashMapIntObject<String> loaderLabels,
+                    HashMapIntObject<XGCRootInfo[]> roots,
+                    HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread, BitField arrayObjects)
+    {
+        try
+        {
+            SnapshotImage.write(prefix, objectReaderUniqueIdentifier, snapshotInfo, classCache, loaderLabels, roots,
+                            rootsPerThread, arrayObjects);
+        }
+        catch (IOException e)
+        {
+            logger.log(Level.WARNING, MessageUtil.format(Messages.SnapshotImpl_ErrorWritingSnapshotImage,
+                            SnapshotImage.getFile(prefix)), e);
+        }
+    }
+
+    /**
+     * Reads just the GC roots per thread from the master index.
+     */
+    @SuppressWarnings("unchecked")
+    private static HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> readRootsPerThread(String prefix)
+                    throws IOException
+    {
+        try (FileInputStream fis = new FileInputStream(prefix + "index"); //$NON-NLS-1$
+             ObjectInputStream in = new FilteredObjectInputStream(new BufferedInputStream(fis)))
+        {
+            String version = in.readUTF();
+            if (!VERSION.equals(version))
+                throw new IOException(MessageUtil.format(Messages.SnapshotImpl_Error_UnknownVersion, version));
+            in.readUTF(); // object reader
+            in.readObject(); // snapshot info
+            in.readObject(); // class cache
+            in.readObject(); // roots
+            return (HashMapIntObject<HashMapIntObject<XGCRootInfo[]>>) in.readObject();
+        }
+        catch (ClassNotFoundException | ClassCastException e)
+        {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Only allows the classes expected in the index files to be deserialized.
+     */
+    /* package */static class FilteredObjectInputStream extends ObjectInputStream
+    {
+        /* package */FilteredObjectInputStream(InputStream in) throws IOException
+        {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            // similar to system property jdk.serialFilter
+            String match="java.lang.*;java.util.*;org.eclipse.mat.parser.model.*;org.eclipse.mat.snapshot.*;org.eclipse.mat.snapshot.model.*;org.eclipse.mat.collect.*;!*"; //$NON-NLS-1$
+            String nm = desc.getName();
+            if (!nm.startsWith("[")) //$NON-NLS-1$
+            {
+                for (String pt : match.split(";")) //$NON-NLS-1$
+                {
+                    boolean not = pt.startsWith("!"); //$NON-NLS-1$
+                    if (not)
+                        pt = pt.substring(1);
+                    boolean m;
+                    if (pt.endsWith(".**")) //$NON-NLS-1$
+                        m = nm.startsWith(pt.substring(0, pt.length() - 2));
+                    else if (pt.endsWith(".*")) //$NON-NLS-1$
+                        m = nm.startsWith(pt.substring(0, pt.length() - 1))
+                                        && !nm.substring(pt.length() - 1).contains("."); //$NON-NLS-1$
+                    else if (pt.endsWith("*")) //$NON-NLS-1$
+                        m = nm.startsWith(pt.substring(0, pt.length() - 1));
+                    else
+                        m = nm.equals(pt);
+                    if (not && m)
+                        throw new InvalidClassException(nm, match);
+                    if (m)
+                        break;
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+
     /**
      * Create the snapshot after a fresh parse.
      * @param snapshotInfo the basic data about the snapshot
@@ -341,6 +504,9 @@ public final class SnapshotImpl implements ISnapshot
             throw new SnapshotException(e);
         }
 
+        writeImage(snapshotInfo.getPrefix(), objectReaderUniqueIdentifier, answer.snapshotInfo, answer.classCache,
+                        answer.loaderLabels, answer.roots, answer.rootsPerThread, answer.arrayObjects);
+
         return answer;
     }
 
@@ -352,7 +518,7 @@ public final class SnapshotImpl implements ISnapshot
     private XSnapshotInfo snapshotInfo;
     private HashMapIntObject<ClassImpl> classCache;
     private HashMapIntObject<XGCRootInfo[]> roots;
-    private HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread;
+    private volatile HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> rootsPerThread;
 
     private HashMapIntObject<String> loaderLabels;
     private BitField arrayObjects;
@@ -361,10 +527,16 @@ public final class SnapshotImpl implements ISnapshot
     private IndexManager indexManager;
 
     // runtime data
+    private SnapshotImage image;
     private IObjectReader heapObjectReader;
     private boolean dominatorTreeCalculated;
     private Map<String, List<IClass>> classCacheByName;
-    private ObjectCache<IObject> objectCache;
+    private HeapObjectCache objectCache;
+    private ClassReferenceGraph classReferenceGraph;
+    private ClassAccumulationIndex classAccumulationIndex;
+    private StringIndex stringIndex;
+    private PrimitiveArrayDigest primitiveArrayDigest;
+    private ReferentIndex referentIndex;
     
     private boolean parsedThreads = false;
     HashMapIntObject<IThreadStack> threadId2stack;
@@ -413,7 +585,7 @@ public final class SnapshotImpl implements ISnapshot
         this.dominatorTreeCalculated = indexManager.dominated() != null && indexManager.o2retained() != null
                         && indexManager.dominator() != null;
 
-        this.objectCache = new HeapObjectCache(this, 1000);
+        this.objectCache = new HeapObjectCache(this, HeapObjectCache.defaultMaxWeight());
 
         this.heapObjectReader.open(this);
 
@@ -589,64 +761,141 @@ public final class SnapshotImpl implements ISnapshot
         if (progressMonitor == null)
             progressMonitor = new VoidProgressListener();
 
-        HistogramBuilder histogramBuilder = new HistogramBuilder(Messages.SnapshotImpl_Histogram);
-
         // Round up count
-        progressMonitor.beginTask(Messages.SnapshotImpl_BuildingHistogram, (objectIds.length >>> 8) + ((objectIds.length & 0xff) > 0 ? 1 : 0));
+        final int work = (objectIds.length >>> 8) + ((objectIds.length & 0xff) > 0 ? 1 : 0);
+
+        final int[] sortedObjectIds = Arrays.copyOf(objectIds, objectIds.length);
+        if (sortedObjectIds.length >= PARALLEL_HISTOGRAM_THRESHOLD)
+            Arrays.parallelSort(sortedObjectIds);
+        else
+            Arrays.sort(sortedObjectIds);
 
-        int[] sortedObjectIds = Arrays.copyOf(objectIds, objectIds.length);
-        Arrays.sort(sortedObjectIds);
+        /*
+         * Split the sorted ids into ranges, and count each range separately.
+         * Adding the ranges in order keeps the ids of each class sorted.
+         */
+        int availableProcessors = Runtime.getRuntime().availableProcessors();
+        final int chunks = sortedObjectIds.length < PARALLEL_HISTOGRAM_THRESHOLD || availableProcessors <= 1 ? 1
+                        : availableProcessors * 4;
+        return buildHistogram(chunks, chunk -> {
+            final int from = (int) ((long) sortedObjectIds.length * chunk / chunks);
+            final int to = (int) ((long) sortedObjectIds.length * (chunk + 1) / chunks);
+            return new IteratorInt()
+            {
+                int next = from;
 
-        IOne2OneIndex o2class = indexManager.o2class();
+                public boolean hasNext()
+                {
+                    return next < to;
+                }
 
-        // firstly, arrays we collect the size for each array separately
-        for(int i = 0; i < sortedObjectIds.length; i++) {
-            int objectId = sortedObjectIds[i];
-            if (arrayObjects.get(objectId)) {
-                int classId = o2class.get(objectId);
-                histogramBuilder.add(classId, objectId, indexManager.a2size().getSize(objectId));
+                public int next()
+                {
+                    return sortedObjectIds[next++];
+                }
+            };
+        }, work, progressMonitor);
+    }
+
+    /**
+     * Build a histogram from ranges of objects, counting each range
+     * separately, in parallel if there is more than one range. The ranges
+     * must be in ascending order of object id, then adding the ranges in
+     * order keeps the ids of each class sorted.
+     * @param chunks the number of ranges
+     * @param objectsOfChunk the objects of each range
+     * @param work the total work to report
+     * @param progressMonitor for progress and cancellation
+     * @throws SnapshotException if there is a problem building the histogram
+     */
+    /* package */Histogram buildHistogram(final int chunks, final IntFunction<IteratorInt> objectsOfChunk,
+                    final int work, IProgressListener progressMonitor) throws SnapshotException
+    {
+        HistogramBuilder histogramBuilder = new HistogramBuilder(Messages.SnapshotImpl_Histogram);
+        progressMonitor.beginTask(Messages.SnapshotImpl_BuildingHistogram, work);
+
+        final IProgressListener listener = progressMonitor;
+        IntStream range = IntStream.range(0, chunks);
+        if (chunks > 1)
+            range = range.parallel();
+        List<HashMapIntObject<ClassHistogramChunk>> partials = range.mapToObj(chunk -> {
+            HashMapIntObject<ClassHistogramChunk> partial = buildHistogramChunk(objectsOfChunk.apply(chunk), listener);
+            synchronized (listener)
+            {
+                listener.worked((int) ((long) work * (chunk + 1) / chunks) - (int) ((long) work * chunk / chunks));
             }
-        }
+            return partial;
+        }).collect(Collectors.toList());
+
+        if (progressMonitor.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
 
-        // for all of the non-array objects, group by class id
-        // we are going to accumulate these into arrays grouped by class id
-        HashMap<Integer, ArrayInt> classToObjectIds = new HashMap<>();
-        for(int i = 0; i < sortedObjectIds.length; i++) {
-            int objectId = sortedObjectIds[i];
-            if (!arrayObjects.get(objectId)) {
-                int classId = o2class.get(objectId);
-                ArrayInt thisClassObjIds = classToObjectIds.computeIfAbsent(classId, (k) -> new ArrayInt());
-                thisClassObjIds.add(objectId);
+        for (HashMapIntObject<ClassHistogramChunk> partial : partials)
+        {
+            for (Iterator<HashMapIntObject.Entry<ClassHistogramChunk>> iter = partial.entries(); iter.hasNext();)
+            {
+                HashMapIntObject.Entry<ClassHistogramChunk> entry = iter.next();
+                ClassHistogramChunk chunk = entry.getValue();
+                histogramBuilder.addAll(entry.getKey(), chunk.objectIds.toArray(), chunk.usedHeapSize);
             }
+            partial.clear();
         }
 
-        // load all of the objects; grouped by class id so all heap size lookups should be (relatively) hot
-        for (Iterator<Map.Entry<Integer, ArrayInt>> iter = classToObjectIds.entrySet().iterator(); iter.hasNext(); ) {
-            Map.Entry<Integer, ArrayInt> entry = iter.next();
-            int classId = entry.getKey();
-            ArrayInt thisClassObjIds = entry.getValue();
+        progressMonitor.done();
+        return histogramBuilder.toHistogram(this, false);
+    }
+
+    /**
+     * Group a range of sorted object ids by class, with primitive collections only,
+     * so that several ranges can be counted at once.
+     * @throws OperationCanceledException if cancelled, checked as the range is read
+     */
+    private HashMapIntObject<ClassHistogramChunk> buildHistogramChunk(IteratorInt sortedObjectIds,
+                    IProgressListener listener)
+    {
+        IOne2OneIndex o2class = indexManager.o2class();
+        HashMapIntObject<ClassHistogramChunk> result = new HashMapIntObject<ClassHistogramChunk>();
+
+        // the same class is usually repeated
+        int lastClassId = -1;
+        ClassHistogramChunk last = null;
+        int count = 0;
+        while (sortedObjectIds.hasNext())
+        {
+            if ((count++ & 0xffff) == 0 && listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
 
-            for (int i = 0; i < thisClassObjIds.size(); i++) {
-                final int objectId = thisClassObjIds.get(i);
+            int objectId = sortedObjectIds.next();
+            int classId = o2class.get(objectId);
+            if (classId != lastClassId)
+            {
+                last = result.get(classId);
+                if (last == null)
+                    result.put(classId, last = new ClassHistogramChunk());
+                lastClassId = classId;
+            }
 
+            final long heapSize;
+            if (arrayObjects.get(objectId))
+            {
+                // arrays, we collect the size for each array separately
+                heapSize = indexManager.a2size().getSize(objectId);
+            }
+            else
+            {
                 // it would be preferable to call getHeapSize once per class id, but on occasion
                 // objects with the same class id might get a different reference in the classCache
-                final long heapSize;
                 IClass clazz = classCache.get(objectId);
-                if (clazz != null) {
+                if (clazz != null)
                     heapSize = clazz.getUsedHeapSize();
-                } else {
+                else
                     heapSize = classCache.get(classId).getHeapSizePerInstance();
-                }
-
-                histogramBuilder.add(classId, objectId, heapSize);
             }
 
-            iter.remove();
+            last.objectIds.add(objectId);
+            last.usedHeapSize += heapSize;
         }
-
-        progressMonitor.done();
-        return histogramBuilder.toHistogram(this, false);
+        return result;
     }
 
     @Override
@@ -1000,10 +1249,12 @@ public final class SnapshotImpl implements ISnapshot
 
         /*
          * Second pass - from the non-marked objects mark the ones starting from
-         * the initial set (objectIds)
+         * the initial set (objectIds). Continue on the same marks, so only
+         * keep the first pass as bits.
          */
-        boolean[] secondPass = new boolean[firstPass.length];
-        System.arraycopy(firstPass, 0, secondPass, 0, firstPass.length);
+        BitField reached = reachedBits(firstPass);
+        boolean[] secondPass = firstPass;
+        firstPass = null;
 
         ObjectMarker secondMarker = new ObjectMarker(objectIds, secondPass, getIndexManager().outbound,
                         monitor.nextMonitor());
@@ -1018,74 +1269,190 @@ public final class SnapshotImpl implements ISnapshot
         ArrayIntBig retainedSet = new ArrayIntBig();
         for (int i = 0; i < numObjects; i++)
         {
-            if (!firstPass[i] && secondPass[i])
+            if (secondPass[i] && !reached.get(i))
             {
                 retainedSet.add(i);
             }
         }
         // Clear to make space
-        firstPass = null;
+        reached = null;
         secondPass = null;
         return retainedSet.toArray();
     }
 
     @Override
-    public long getMinRetainedSize(int[] objectIds, IProgressListener progressMonitor)
-                    throws UnsupportedOperationException, SnapshotException
+    public IRetainedSet getRetainedSetOf(int[] objectIds, IProgressListener progressMonitor) throws SnapshotException
     {
-        if (objectIds.length == 1) { return getRetainedHeapSize(objectIds[0]); }
-        if (objectIds.length == 0) { return 0; }
+        /* for empty initial set - return immediately an empty retained set */
+        if (objectIds.length == 0)
+            return new RetainedSetImpl(this, new int[0]);
 
-        // to get the min.retained size we do not need to find the min.retain
-        // set at all
-        // all one needs is the distinct objects in the dominator tree. The
-        // sum of their retained sizes is the correct value then
-        int[] topAncestors = getTopAncestorsInDominatorTree(objectIds, progressMonitor);
-        long result = 0;
-        for (int topAncestorId : topAncestors)
+        /*
+         * take the retained set of a single object out of the dominator tree -
+         * it's faster
+         */
+        if (objectIds.length == 1)
         {
-            result += getRetainedHeapSize(topAncestorId);
+            int[] retained = getSingleObjectRetainedSet(objectIds[0]);
+            if (retained.length >= PARALLEL_SORT_THRESHOLD)
+                Arrays.parallelSort(retained);
+            else
+                Arrays.sort(retained);
+            return new RetainedSetImpl(this, retained);
         }
-        return result;
-    }
 
-    @Override
-    public int[] getMinRetainedSet(int[] objectIds, IProgressListener progressMonitor)
-                    throws UnsupportedOperationException, SnapshotException
-    {
-        if (objectIds.length == 1) { return getSingleObjectRetainedSet(objectIds[0]); }
+        if (progressMonitor == null)
+            progressMonitor = new VoidProgressListener();
 
-        SetInt retainedSet = new SetInt(2 * objectIds.length);
-        for (int i : objectIds)
+        /*
+         * Mark the initial objects, so the marking from the GC roots stops
+         * there, then the unmarked objects are the retained set
+         */
+        boolean[] reachable = new boolean[snapshotInfo.getNumberOfObjects()];
+        for (int objId : objectIds)
         {
-            retainedSet.add(i);
+            reachable[objId] = true;
         }
 
-        /*
-         * objects on the path from a top-ancestor to the <root> will be saved
-         * here to avoid walking the same path many times
-         */
-        SetInt negativeCache = new SetInt(2 * objectIds.length);
+        ObjectMarker marker = new ObjectMarker(roots.getAllKeys(), reachable, indexManager.outbound(),
+                        IndexManager.Index.OUTBOUND.getFile(getSnapshotInfo().getPrefix()).length(),
+                        progressMonitor);
+        try
+        {
+            marker.markMultiThreaded(Runtime.getRuntime().availableProcessors());
+        }
+        catch (InterruptedException e)
+        {
+            throw new SnapshotException(e);
+        }
+        if (progressMonitor.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
 
-        // used to temporarily keep the walked-through objects before we decide
-        // in which cache to store them
-        // inline the stack functionality for performance reasons
-        // IntStack temp = new IntStack();
-        int tempSize = 0;
-        int tempCapacity = 10 * 1024;
-        int[] temp = new int[tempCapacity];
+        // the initial objects are in the retained set
+        for (int objId : objectIds)
+        {
+            reachable[objId] = false;
+        }
 
-        IIndexReader.IOne2OneIndex dominatorIdx = indexManager.dominator();
-        IIndexReader.IOne2ManyIndex dominated = indexManager.dominated();
+        return RetainedSetImpl.of(this, reachable, false);
+    }
 
-        int size = 0;
-        int capacity = 10 * 1024;
-        int[] stack = new int[capacity];
+    @Override
+    public IRetainedSet getRetainedSetOf(int[] objectIds, ExcludedReferencesDescriptor[] excludedReferences,
+                    IProgressListener progressMonitor) throws SnapshotException
+    {
+        if (progressMonitor == null)
+            progressMonitor = new VoidProgressListener();
+        SimpleMonitor monitor = new SimpleMonitor(Messages.SnapshotImpl_RetainedSetProgressName, progressMonitor, new int[] {50,50});
 
-        int iterations = 0;
-        for (int objectId : objectIds)
+        // first pass - as for getRetainedSet, the objects not reached from the GC roots
+        boolean[] firstPass = new boolean[getSnapshotInfo().getNumberOfObjects()];
+        for (int objId : objectIds)
         {
-
+            firstPass[objId] = true;
+        }
+        ObjectMarker marker = new ObjectMarker(getGCRoots(), firstPass, getIndexManager().outbound,
+                        IndexManager.Index.OUTBOUND.getFile(getSnapshotInfo().getPrefix()).length(),
+                        monitor.nextMonitor());
+        marker.markSingleThreaded(excludedReferences, this);
+
+        for (int objId : objectIds)
+        {
+            firstPass[objId] = false;
+        }
+
+        // second pass - of those, the ones reached from the initial objects,
+        // continuing on the same marks and remembering the first pass in bits
+        BitField reached = reachedBits(firstPass);
+        boolean[] marks = firstPass;
+        firstPass = null;
+        ObjectMarker secondMarker = new ObjectMarker(objectIds, marks, getIndexManager().outbound,
+                        monitor.nextMonitor());
+        secondMarker.markSingleThreaded();
+        if (progressMonitor.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+
+        // remove the objects of the first pass
+        for (int i = 0; i < marks.length; i++)
+        {
+            if (marks[i] && reached.get(i))
+                marks[i] = false;
+        }
+        reached = null;
+        return RetainedSetImpl.of(this, marks, true);
+    }
+
+    /**
+     * The marked objects as bits, an eighth of the size of the marks.
+     */
+    private static BitField reachedBits(boolean[] marks)
+    {
+        BitField reached = new BitField(marks.length);
+        for (int i = 0; i < marks.length; i++)
+        {
+            if (marks[i])
+                reached.set(i);
+        }
+        return reached;
+    }
+
+    @Override
+    public long getMinRetainedSize(int[] objectIds, IProgressListener progressMonitor)
+                    throws UnsupportedOperationException, SnapshotException
+    {
+        if (objectIds.length == 1) { return getRetainedHeapSize(objectIds[0]); }
+        if (objectIds.length == 0) { return 0; }
+
+        // to get the min.retained size we do not need to find the min.retain
+        // set at all
+        // all one needs is the distinct objects in the dominator tree. The
+        // sum of their retained sizes is the correct value then
+        int[] topAncestors = getTopAncestorsInDominatorTree(objectIds, progressMonitor);
+        long result = 0;
+        for (int topAncestorId : topAncestors)
+        {
+            result += getRetainedHeapSize(topAncestorId);
+        }
+        return result;
+    }
+
+    @Override
+    public int[] getMinRetainedSet(int[] objectIds, IProgressListener progressMonitor)
+                    throws UnsupportedOperationException, SnapshotException
+    {
+        if (objectIds.length == 1) { return getSingleObjectRetainedSet(objectIds[0]); }
+
+        SetInt retainedSet = new SetInt(2 * objectIds.length);
+        for (int i : objectIds)
+        {
+            retainedSet.add(i);
+        }
+
+        /*
+         * objects on the path from a top-ancestor to the <root> will be saved
+         * here to avoid walking the same path many times
+         */
+        SetInt negativeCache = new SetInt(2 * objectIds.length);
+
+        // used to temporarily keep the walked-through objects before we decide
+        // in which cache to store them
+        // inline the stack functionality for performance reasons
+        // IntStack temp = new IntStack();
+        int tempSize = 0;
+        int tempCapacity = 10 * 1024;
+        int[] temp = new int[tempCapacity];
+
+        IIndexReader.IOne2OneIndex dominatorIdx = indexManager.dominator();
+        IIndexReader.IOne2ManyIndex dominated = indexManager.dominated();
+
+        int size = 0;
+        int capacity = 10 * 1024;
+        int[] stack = new int[capacity];
+
+        int iterations = 0;
+        for (int objectId : objectIds)
+        {
+
             iterations++;
             if ((iterations & 0xffff) == 0)
             {
@@ -1195,6 +1562,11 @@ public final class SnapshotImpl implements ISnapshot
         if (listener == null)
             listener = new VoidProgressListener();
 
+        IIndexReader.IOne2OneIndex preOrder = indexManager.dominatorPreOrder();
+        IIndexReader.IOne2OneIndex postOrder = indexManager.dominatorPostOrder();
+        if (preOrder != null && postOrder != null)
+            return getTopAncestorsByPreOrder(objectIds, preOrder, postOrder, listener);
+
         /*
          * For big objects sets use a boolean[] instead of SetInt to mark
          * processed objects SetInt is too memory expensive and on huge sets may
@@ -1310,6 +1682,67 @@ public final class SnapshotImpl implements ISnapshot
 
     }
 
+    /**
+     * Each subtree of the dominator tree is an interval of pre-order numbers,
+     * from the pre-order number of its root to the post-order index entry.
+     * Sorted by pre-order number, an object is a top-ancestor exactly if it
+     * is not inside the interval of the last top-ancestor found, so there is
+     * no need to walk up the dominator tree.
+     */
+    private int[] getTopAncestorsByPreOrder(int[] objectIds, IIndexReader.IOne2OneIndex preOrder,
+                    IIndexReader.IOne2OneIndex postOrder, IProgressListener listener)
+    {
+        int[] pre = preOrder.getAll(objectIds);
+
+        // pre-order number in the high word, position in the low word
+        long[] order = new long[pre.length];
+        for (int i = 0; i < pre.length; i++)
+            order[i] = ((long) pre[i] << 32) | i;
+        pre = null;
+        if (order.length >= PARALLEL_SORT_THRESHOLD)
+            Arrays.parallelSort(order);
+        else
+            Arrays.sort(order);
+
+        boolean[] top = new boolean[objectIds.length];
+        int count = 0;
+        int start = -1;
+        int end = -1;
+        for (int i = 0; i < order.length; i++)
+        {
+            if ((i & 0xffff) == 0 && listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+
+            int p = (int) (order[i] >>> 32);
+            int position = (int) order[i];
+            // not in the dominator tree, so independent of all other objects,
+            // or a duplicate of the last top-ancestor, which is kept as well
+            // as an object does not dominate itself
+            if (p == 0 || p == start)
+            {
+                top[position] = true;
+                count++;
+            }
+            else if (p > end)
+            {
+                top[position] = true;
+                start = p;
+                end = postOrder.get(objectIds[position]);
+                count++;
+            }
+        }
+        order = null;
+
+        // keep the order of the supplied objects
+        int[] result = new int[count];
+        for (int i = 0, j = 0; j < count; i++)
+        {
+            if (top[i])
+                result[j++] = objectIds[i];
+        }
+        return result;
+    }
+
     private int[] getTopAncestorsWithBooleanCache(int[] objectIds, IProgressListener listener)
     {
         /*
@@ -1422,191 +1855,815 @@ public final class SnapshotImpl implements ISnapshot
     }
 
     /**
-     * Calculates the dominator tree after a parse
-     * @param listener to report progress
-     * @throws SnapshotException if a problem occurred
-     * @throws OperationCanceledException if the calculation was cancelled by user via the listener
+     * Calculates the dominator tree after a parse
+     * @param listener to report progress
+     * @throws SnapshotException if a problem occurred
+     * @throws OperationCanceledException if the calculation was cancelled by user via the listener
+     */
+    public void calculateDominatorTree(IProgressListener listener) throws SnapshotException,
+                    IProgressListener.OperationCanceledException
+    {
+        try
+        {
+            DominatorTree.calculate(this, listener);
+            dominatorTreeCalculated = indexManager.dominated() != null && indexManager.o2retained() != null
+                            && indexManager.dominator() != null;
+        }
+        catch (IOException e)
+        {
+            throw new SnapshotException(e);
+        }
+    }
+
+    /**
+     * Calculates the index of the shortest paths from the GC roots after a parse
+     * @param listener to report progress
+     * @throws SnapshotException if a problem occurred
+     * @throws OperationCanceledException if the calculation was cancelled by user via the listener
+     */
+    public void calculateGCRootPaths(IProgressListener listener) throws SnapshotException,
+                    IProgressListener.OperationCanceledException
+    {
+        try
+        {
+            indexManager.setReader(Index.GCROOTPATH, MultiplePathsFromGCRootsComputerImpl.writeParentIndex(this,
+                            Index.GCROOTPATH.getFile(snapshotInfo.getPrefix()), listener));
+        }
+        catch (IOException e)
+        {
+            throw new SnapshotException(e);
+        }
+    }
+
+    /**
+     * Calculates the class to class reference graph after a parse,
+     * if selected by the parse option <code>class_reference_graph</code>
+     * @param listener to report progress
+     * @throws SnapshotException if a problem occurred
+     * @throws OperationCanceledException if the calculation was cancelled by user via the listener
+     */
+    public void calculateClassReferenceGraph(IProgressListener listener) throws SnapshotException,
+                    IProgressListener.OperationCanceledException
+    {
+        ClassReferenceGraph graph = ClassReferenceGraph.calculate(this, listener);
+        try
+        {
+            graph.write(ClassReferenceGraph.getFile(snapshotInfo.getPrefix()));
+        }
+        catch (IOException e)
+        {
+            throw new SnapshotException(e);
+        }
+        synchronized (this)
+        {
+            classReferenceGraph = graph;
+        }
+    }
+
+    /**
+     * The class reference graph, read from the index file or, for snapshots
+     * parsed without the graph, calculated on first use.
+     */
+    private synchronized ClassReferenceGraph getClassReferenceGraph() throws SnapshotException
+    {
+        if (classReferenceGraph == null)
+        {
+            File file = ClassReferenceGraph.getFile(snapshotInfo.getPrefix());
+            if (file.exists())
+            {
+                try
+                {
+                    classReferenceGraph = ClassReferenceGraph.read(file);
+                }
+                catch (IOException e)
+                {
+                    logger.log(Level.WARNING, e.getMessage(), e);
+                }
+            }
+            if (classReferenceGraph == null)
+            {
+                classReferenceGraph = ClassReferenceGraph.calculate(this, new VoidProgressListener());
+                try
+                {
+                    classReferenceGraph.write(file);
+                }
+                catch (IOException e)
+                {
+                    // the graph is calculated again next time
+                    logger.log(Level.WARNING, e.getMessage(), e);
+                }
+            }
+        }
+        return classReferenceGraph;
+    }
+
+    /**
+     * Calculates the class accumulation index after the dominator tree,
+     * if selected by the parse option <code>class_accumulation_index</code>
+     * @param listener to report progress
+     * @throws SnapshotException if a problem occurred
+     * @throws OperationCanceledException if the calculation was cancelled by user via the listener
+     */
+    public void calculateClassAccumulationIndex(IProgressListener listener) throws SnapshotException,
+                    IProgressListener.OperationCanceledException
+    {
+        ClassAccumulationIndex index = ClassAccumulationIndex.calculate(this, listener);
+        if (index == null)
+            return;
+        try
+        {
+            index.write(ClassAccumulationIndex.getFile(snapshotInfo.getPrefix()));
+        }
+        catch (IOException e)
+        {
+            throw new SnapshotException(e);
+        }
+        synchronized (this)
+        {
+            classAccumulationIndex = index;
+        }
+    }
+
+    /**
+     * The class accumulation index, read from the index file or, for snapshots
+     * parsed without the index, calculated on first use.
+     * @return the index, or null if the dominator tree is not available
+     */
+    private synchronized ClassAccumulationIndex getClassAccumulationIndex() throws SnapshotException
+    {
+        if (classAccumulationIndex == null)
+        {
+            File file = ClassAccumulationIndex.getFile(snapshotInfo.getPrefix());
+            if (file.exists())
+            {
+                try
+                {
+                    classAccumulationIndex = ClassAccumulationIndex.read(file);
+                }
+                catch (IOException e)
+                {
+                    logger.log(Level.WARNING, e.getMessage(), e);
+                }
+            }
+            if (classAccumulationIndex == null)
+            {
+                classAccumulationIndex = ClassAccumulationIndex.calculate(this, new VoidProgressListener());
+                if (classAccumulationIndex != null)
+                {
+                    try
+                    {
+                        classAccumulationIndex.write(file);
+                    }
+                    catch (IOException e)
+                    {
+                        // the index is calculated again next time
+                        logger.log(Level.WARNING, e.getMessage(), e);
+                    }
+                }
+            }
+        }
+        return classAccumulationIndex;
+    }
+
+    /**
+     * Reads the referents of all the reference objects after a parse
+     * @param listener to report progress
+     * @throws SnapshotException if a problem occurred
+     * @throws OperationCanceledException if the calculation was cancelled by user via the listener
+     */
+    public void calculateReferentIndex(IProgressListener listener) throws SnapshotException,
+                    IProgressListener.OperationCanceledException
+    {
+        ReferentIndex index = ReferentIndex.calculate(this, listener);
+        try
+        {
+            index.write(ReferentIndex.getFile(snapshotInfo.getPrefix()));
+        }
+        catch (IOException e)
+        {
+            throw new SnapshotException(e);
+        }
+        synchronized (this)
+        {
+            referentIndex = index;
+        }
+    }
+
+    /**
+     * The referent index, read from the index file or, for snapshots parsed
+     * before the index existed, calculated on first use.
+     */
+    private synchronized ReferentIndex getReferentIndex() throws SnapshotException
+    {
+        if (referentIndex == null)
+        {
+            File file = ReferentIndex.getFile(snapshotInfo.getPrefix());
+            if (file.exists())
+            {
+                try
+                {
+                    referentIndex = ReferentIndex.read(file, this);
+                }
+                catch (IOException e)
+                {
+                    logger.log(Level.WARNING, e.getMessage(), e);
+                }
+            }
+            if (referentIndex == null)
+            {
+                referentIndex = ReferentIndex.calculate(this, new VoidProgressListener());
+                try
+                {
+                    referentIndex.write(file);
+                }
+                catch (IOException e)
+                {
+                    // the index is calculated again next time
+                    logger.log(Level.WARNING, e.getMessage(), e);
+                }
+            }
+        }
+        return referentIndex;
+    }
+
+    /**
+     * Calculates the string index after a parse, if selected by the parse
+     * option <code>string_index</code>
+     * @param listener to report progress
+     * @throws SnapshotException if a problem occurred
+     * @throws OperationCanceledException if the calculation was cancelled by user via the listener
+     */
+    public void calculateStringIndex(IProgressListener listener) throws SnapshotException,
+                    IProgressListener.OperationCanceledException
+    {
+        StringIndex index;
+        try
+        {
+            index = StringIndex.calculate(this, listener);
+        }
+        catch (IOException e)
+        {
+            throw new SnapshotException(e);
+        }
+        synchronized (this)
+        {
+            stringIndex = index;
+        }
+    }
+
+    /**
+     * The string index, opened from the index files if the snapshot was
+     * parsed with the index.
+     * @return the index, or null if not calculated
+     */
+    private synchronized StringIndex getStringIndex()
+    {
+        if (stringIndex == null)
+        {
+            try
+            {
+                stringIndex = StringIndex.open(snapshotInfo.getPrefix());
+            }
+            catch (IOException e)
+            {
+                logger.log(Level.WARNING, e.getMessage(), e);
+            }
+        }
+        return stringIndex;
+    }
+
+    /**
+     * Calculates the primitive array digest after a parse, if selected by the
+     * parse option <code>primitive_array_digest</code>
+     * @param listener to report progress
+     * @throws SnapshotException if a problem occurred
+     * @throws OperationCanceledException if the calculation was cancelled by user via the listener
+     */
+    public void calculatePrimitiveArrayDigest(IProgressListener listener) throws SnapshotException,
+                    IProgressListener.OperationCanceledException
+    {
+        PrimitiveArrayDigest digest;
+        try
+        {
+            digest = PrimitiveArrayDigest.calculate(this, listener);
+        }
+        catch (IOException e)
+        {
+            throw new SnapshotException(e);
+        }
+        synchronized (this)
+        {
+            primitiveArrayDigest = digest;
+        }
+    }
+
+    /**
+     * The primitive array digest, opened from the index files if the snapshot
+     * was parsed with the digest.
+     * @return the digest, or null if not calculated
+     */
+    private synchronized PrimitiveArrayDigest getPrimitiveArrayDigest()
+    {
+        if (primitiveArrayDigest == null)
+        {
+            try
+            {
+                primitiveArrayDigest = PrimitiveArrayDigest.open(snapshotInfo.getPrefix());
+            }
+            catch (IOException e)
+            {
+                logger.log(Level.WARNING, e.getMessage(), e);
+            }
+        }
+        return primitiveArrayDigest;
+    }
+
+    @Override
+    public int[] getImmediateDominatedIds(int objectId) throws SnapshotException
+    {
+        if (!isDominatorTreeCalculated())
+            throw new SnapshotException(Messages.SnapshotImpl_Error_DomTreeNotAvailable);
+        // Add a useful error message
+        int nobjs = indexManager.dominated().size() - 1;
+        // -1 is the root node, so is allowed
+        if (objectId >= nobjs || objectId < -1)
+        {
+            throw new SnapshotException(MessageUtil.format(Messages.SnapshotImpl_Error_ObjectNotFound, objectId));
+        }
+        return indexManager.dominated().get(objectId + 1);
+    }
+
+    @Override
+    public int getImmediateDominatorId(int objectId) throws SnapshotException
+    {
+        if (!isDominatorTreeCalculated())
+            throw new SnapshotException(Messages.SnapshotImpl_Error_DomTreeNotAvailable);
+        // Add a useful error message
+        int nobjs = indexManager.dominator().size();
+        if (objectId >= nobjs || objectId < 0)
+        {
+            throw new SnapshotException(MessageUtil.format(Messages.SnapshotImpl_Error_ObjectNotFound, objectId));
+        }
+        return indexManager.dominator().get(objectId) - 2;
+    }
+
+    @Override
+    public DominatorsSummary getDominatorsOf(int[] objectIds, Pattern excludePattern, IProgressListener progressListener)
+                    throws SnapshotException
+    {
+        if (!isDominatorTreeCalculated())
+            throw new SnapshotException(Messages.SnapshotImpl_Error_DomTreeNotAvailable);
+
+        if (progressListener == null)
+            progressListener = new VoidProgressListener();
+        final IProgressListener listener = progressListener;
+
+        final IIndexReader.IOne2OneIndex dominatorIndex = indexManager.dominator();
+        final IIndexReader.IOne2OneIndex o2classIndex = indexManager.o2class();
+
+        // the classes to skip over to the next dominator
+        final SetInt excludeSet = new SetInt();
+        if (excludePattern != null)
+        {
+            for (Iterator<ClassImpl> classes = classCache.values(); classes.hasNext();)
+            {
+                ClassImpl clasz = classes.next();
+                if (excludePattern.matcher(clasz.getName()).matches())
+                    excludeSet.add(clasz.getObjectId());
+            }
+        }
+
+        // sorted and distinct, so each object is counted once
+        final int[] ids = objectIds.clone();
+        if (ids.length >= PARALLEL_SORT_THRESHOLD)
+            Arrays.parallelSort(ids);
+        else
+            Arrays.sort(ids);
+        int distinct = 0;
+        for (int ii = 0; ii < ids.length; ii++)
+        {
+            if (distinct == 0 || ids[ii] != ids[distinct - 1])
+                ids[distinct++] = ids[ii];
+        }
+        final int size = distinct;
+
+        int availableProcessors = Runtime.getRuntime().availableProcessors();
+        final int chunks = size < PARALLEL_SORT_THRESHOLD || availableProcessors <= 1 ? 1 : availableProcessors * 4;
+
+        listener.beginTask(Messages.SnapshotImpl_RetrievingDominators, 2 * chunks + 1);
+
+        /*
+         * Find the dominator of each object, packed with the class of the
+         * dominator as (class + 1) << 32 | dominator, so that sorting groups
+         * the dominators by class. Each range of objects totals the dominated
+         * objects by class into its own map.
+         */
+        final long[] dominators = new long[size];
+        List<HashMapIntObject<long[]>> partials = forEachChunk(size, chunks, listener, (from, to) -> {
+            HashMapIntObject<long[]> totals = new HashMapIntObject<long[]>();
+            for (int ii = from; ii < to; ii++)
+            {
+                if ((ii & 0xfff) == 0 && listener.isCanceled())
+                    throw new IProgressListener.OperationCanceledException();
+
+                // the values in the index are 2+the real value
+                int dominatorId = dominatorIndex.get(ids[ii]) - 2;
+                int domClassId = dominatorId == -1 ? -1 : o2classIndex.get(dominatorId);
+                while (dominatorId != -1 && excludeSet.contains(domClassId))
+                {
+                    dominatorId = dominatorIndex.get(dominatorId) - 2;
+                    domClassId = dominatorId == -1 ? -1 : o2classIndex.get(dominatorId);
+                }
+                dominators[ii] = (long) (domClassId + 1) << 32 | (dominatorId & 0xffffffffL);
+
+                long[] total = totals.get(domClassId);
+                if (total == null)
+                    totals.put(domClassId, total = new long[2]);
+                total[0]++;
+                total[1] += getHeapSize(ids[ii]);
+            }
+            return totals;
+        });
+        HashMapIntObject<long[]> dominated = merge(partials);
+
+        /*
+         * Distribute the dominated objects into one array per class. The ids
+         * are sorted, so each array is sorted too.
+         */
+        HashMapIntObject<int[]> dominatedByClass = new HashMapIntObject<int[]>(dominated.size());
+        for (int classId : dominated.getAllKeys())
+        {
+            long[] total = dominated.get(classId);
+            dominatedByClass.put(classId, new int[(int) total[0]]);
+            // now the fill position
+            total[0] = 0;
+        }
+        for (int ii = 0; ii < size; ii++)
+        {
+            int domClassId = (int) (dominators[ii] >>> 32) - 1;
+            long[] total = dominated.get(domClassId);
+            dominatedByClass.get(domClassId)[(int) total[0]++] = ids[ii];
+        }
+
+        // distinct dominators, grouped by class
+        if (size >= PARALLEL_SORT_THRESHOLD)
+            Arrays.parallelSort(dominators);
+        else
+            Arrays.sort(dominators);
+        distinct = 0;
+        for (int ii = 0; ii < size; ii++)
+        {
+            if (distinct == 0 || dominators[ii] != dominators[distinct - 1])
+                dominators[distinct++] = dominators[ii];
+        }
+        final int numberOfDominators = distinct;
+
+        partials = forEachChunk(numberOfDominators, chunks, listener, (from, to) -> {
+            HashMapIntObject<long[]> totals = new HashMapIntObject<long[]>();
+            for (int ii = from; ii < to; ii++)
+            {
+                int domClassId = (int) (dominators[ii] >>> 32) - 1;
+                int dominatorId = (int) dominators[ii];
+                long[] total = totals.get(domClassId);
+                if (total == null)
+                    totals.put(domClassId, total = new long[2]);
+                total[0]++;
+                if (dominatorId != -1)
+                    total[1] += getHeapSize(dominatorId);
+            }
+            return totals;
+        });
+        HashMapIntObject<long[]> dominatorTotals = merge(partials);
+
+        ClassDominatorRecord[] records = new ClassDominatorRecord[dominatorTotals.size()];
+        int recordIndex = 0;
+        for (int ii = 0; ii < numberOfDominators;)
+        {
+            int domClassId = (int) (dominators[ii] >>> 32) - 1;
+            long[] total = dominatorTotals.get(domClassId);
+            int[] dominatorIds = new int[(int) total[0]];
+            for (int jj = 0; jj < dominatorIds.length; jj++)
+                dominatorIds[jj] = (int) dominators[ii + jj];
+            ii += dominatorIds.length;
+
+            ClassDominatorRecord record = new DominatorsSummary.ClassDominatorRecord();
+            if (domClassId == -1)
+            {
+                record.setClassName("<ROOT>");//$NON-NLS-1$
+                record.setClassloaderId(-1);
+            }
+            else
+            {
+                IClass clasz = classCache.get(domClassId);
+                record.setClassName(clasz.getName());
+                record.setClassloaderId(clasz.getClassLoaderId());
+            }
+            record.setClassId(domClassId);
+            record.setObjects(dominatorIds, total[1], dominatedByClass.get(domClassId), dominated.get(domClassId)[1]);
+            records[recordIndex++] = record;
+        }
+        listener.worked(1);
+
+        listener.done();
+
+        return new DominatorsSummary(records, this);
+    }
+
+    /**
+     * Work on a range of objects.
+     */
+    private interface ChunkCalculator<T>
+    {
+        T calculate(int from, int to) throws SnapshotException;
+    }
+
+    /**
+     * Split the range into chunks, processed in parallel if there is more than one.
+     */
+    private static <T> List<T> forEachChunk(final int size, final int chunks, final IProgressListener listener,
+                    final ChunkCalculator<T> calculator) throws SnapshotException
+    {
+        IntStream range = IntStream.range(0, chunks);
+        if (chunks > 1)
+            range = range.parallel();
+        try
+        {
+            return range.mapToObj(chunk -> {
+                int from = (int) ((long) size * chunk / chunks);
+                int to = (int) ((long) size * (chunk + 1) / chunks);
+                T partial;
+                try
+                {
+                    partial = calculator.calculate(from, to);
+                }
+                catch (SnapshotException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+                synchronized (listener)
+                {
+                    listener.worked(1);
+                }
+                return partial;
+            }).collect(Collectors.toList());
+        }
+        catch (IllegalStateException e)
+        {
+            if (e.getCause() instanceof SnapshotException)
+                throw (SnapshotException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Add up the count and size totals by class from each chunk.
      */
-    public void calculateDominatorTree(IProgressListener listener) throws SnapshotException,
-                    IProgressListener.OperationCanceledException
+    private static HashMapIntObject<long[]> merge(List<HashMapIntObject<long[]>> partials)
     {
-        try
-        {
-            DominatorTree.calculate(this, listener);
-            dominatorTreeCalculated = indexManager.dominated() != null && indexManager.o2retained() != null
-                            && indexManager.dominator() != null;
-        }
-        catch (IOException e)
+        HashMapIntObject<long[]> merged = partials.get(0);
+        for (int ii = 1; ii < partials.size(); ii++)
         {
-            throw new SnapshotException(e);
+            for (Iterator<HashMapIntObject.Entry<long[]>> iter = partials.get(ii).entries(); iter.hasNext();)
+            {
+                HashMapIntObject.Entry<long[]> entry = iter.next();
+                long[] total = merged.get(entry.getKey());
+                if (total == null)
+                {
+                    merged.put(entry.getKey(), entry.getValue());
+                }
+                else
+                {
+                    total[0] += entry.getValue()[0];
+                    total[1] += entry.getValue()[1];
+                }
+            }
         }
+        return merged;
     }
 
     @Override
-    public int[] getImmediateDominatedIds(int objectId) throws SnapshotException
+    public IObject getObject(int objectId) throws SnapshotException
     {
-        if (!isDominatorTreeCalculated())
-            throw new SnapshotException(Messages.SnapshotImpl_Error_DomTreeNotAvailable);
-        // Add a useful error message
-        int nobjs = indexManager.dominated().size() - 1;
-        // -1 is the root node, so is allowed
-        if (objectId >= nobjs || objectId < -1)
+        IObject answer = this.classCache.get(objectId);
+        if (answer != null)
+            return answer;
+
+        try
         {
-            throw new SnapshotException(MessageUtil.format(Messages.SnapshotImpl_Error_ObjectNotFound, objectId));
+            return this.objectCache.get(objectId);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw SnapshotException.rethrow(e);
         }
-        return indexManager.dominated().get(objectId + 1);
     }
 
     @Override
-    public int getImmediateDominatorId(int objectId) throws SnapshotException
+    public void scanObjects(int[] classIds, IObjectVisitor visitor, IProgressListener progressListener)
+                    throws SnapshotException
     {
-        if (!isDominatorTreeCalculated())
-            throw new SnapshotException(Messages.SnapshotImpl_Error_DomTreeNotAvailable);
-        // Add a useful error message
-        int nobjs = indexManager.dominator().size();
-        if (objectId >= nobjs || objectId < 0)
+        if (progressListener == null)
+            progressListener = new VoidProgressListener();
+
+        // null for all the objects
+        final int[] objectIds;
+        if (classIds == null)
         {
-            throw new SnapshotException(MessageUtil.format(Messages.SnapshotImpl_Error_ObjectNotFound, objectId));
+            objectIds = null;
         }
-        return indexManager.dominator().get(objectId) - 2;
+        else
+        {
+            ArrayInt ids = new ArrayInt();
+            for (int classId : classIds)
+            {
+                ClassImpl clazz = classCache.get(classId);
+                if (clazz == null)
+                    throw new SnapshotException(MessageUtil.format(Messages.SnapshotImpl_Error_ObjectNotFound, classId));
+                ids.addAll(clazz.getObjectIds());
+            }
+            objectIds = ids.toArray();
+            Arrays.sort(objectIds);
+        }
+        scan(objectIds, visitor, progressListener);
     }
 
     @Override
-    public DominatorsSummary getDominatorsOf(int[] objectIds, Pattern excludePattern, IProgressListener progressListener)
+    public void readObjects(int[] objectIds, IObjectVisitor visitor, IProgressListener progressListener)
                     throws SnapshotException
     {
-        if (!isDominatorTreeCalculated())
-            throw new SnapshotException(Messages.SnapshotImpl_Error_DomTreeNotAvailable);
-
         if (progressListener == null)
             progressListener = new VoidProgressListener();
+        scan(objectIds, visitor, progressListener);
+    }
 
-        IIndexReader.IOne2OneIndex dominatorIndex = indexManager.dominator();
-        IIndexReader.IOne2OneIndex o2classIndex = indexManager.o2class();
-
-        SetInt excludeSet = new SetInt();
-        SetInt includeSet = new SetInt();
-
-        progressListener.beginTask(Messages.SnapshotImpl_RetrievingDominators, objectIds.length / 10);
-
-        Map<IClass, DominatorsSummary.ClassDominatorRecord> map = new HashMap<IClass, DominatorsSummary.ClassDominatorRecord>();
-        for (int ii = 0; ii < objectIds.length; ii++)
-        {
-            int objectId = objectIds[ii];
-
-            int domClassId;
-            IClass clasz;
-            String domClassName;
+    /**
+     * Reads the objects in chunks in parallel, each chunk in the order of the
+     * dump if the parser knows it.
+     * @param objectIds the objects, or null for all objects
+     */
+    private void scan(final int[] objectIds, IObjectVisitor visitor, final IProgressListener listener)
+                    throws SnapshotException
+    {
+        final int numberOfObjects = objectIds != null ? objectIds.length : snapshotInfo.getNumberOfObjects();
 
-            // the values in the index are 2+the real value
-            int dominatorId = dominatorIndex.get(objectId) - 2;
-            if (dominatorId == -1)
+        int availableProcessors = Runtime.getRuntime().availableProcessors();
+        final int chunks = numberOfObjects < 2 * SCAN_MIN_CHUNK_SIZE || availableProcessors <= 1 ? 1
+                        : Math.max(Math.min(availableProcessors * 4, numberOfObjects / SCAN_MIN_CHUNK_SIZE),
+                                        numberOfObjects / SCAN_MAX_CHUNK_SIZE + 1);
+
+        // read the objects in the order of the dump if the parser knows it
+        final IObjectPositions positions = heapObjectReader.getAddon(IObjectPositions.class);
+        final int[] ordered;
+        final int[] starts;
+        if (positions != null)
+        {
+            // each chunk is a range of positions in the dump
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < numberOfObjects; i++)
             {
-                clasz = null;
-                domClassName = "<ROOT>";//$NON-NLS-1$
-                domClassId = -1;
+                long position = positions.getPosition(objectIds != null ? objectIds[i] : i);
+                min = Math.min(min, position);
+                max = Math.max(max, position);
             }
-            else
+            starts = new int[chunks + 1];
+            for (int i = 0; i < numberOfObjects; i++)
+                starts[positionChunk(positions.getPosition(objectIds != null ? objectIds[i] : i), min, max, chunks) + 1]++;
+            for (int chunk = 0; chunk < chunks; chunk++)
+                starts[chunk + 1] += starts[chunk];
+            ordered = new int[numberOfObjects];
+            int[] next = starts.clone();
+            for (int i = 0; i < numberOfObjects; i++)
             {
-                domClassId = o2classIndex.get(dominatorId);
-                clasz = classCache.get(domClassId);
-                domClassName = clasz.getName();
+                int objectId = objectIds != null ? objectIds[i] : i;
+                ordered[next[positionChunk(positions.getPosition(objectId), min, max, chunks)]++] = objectId;
             }
+        }
+        else
+        {
+            // each chunk is a range of object ids
+            ordered = objectIds;
+            starts = new int[chunks + 1];
+            for (int chunk = 0; chunk <= chunks; chunk++)
+                starts[chunk] = (int) ((long) numberOfObjects * chunk / chunks);
+        }
 
-            if (excludePattern != null && dominatorId >= 0)
-            {
-                boolean exclude = true;
-                while (exclude)
+        listener.beginTask(Messages.SnapshotImpl_ScanningObjects, chunks);
+        IntStream range = IntStream.range(0, chunks);
+        if (chunks > 1)
+            range = range.parallel();
+        try
+        {
+            range.forEach(chunk -> {
+                try
                 {
-                    if (progressListener.isCanceled())
-                        throw new IProgressListener.OperationCanceledException();
-
-                    // check the negative cache first
-                    if (excludeSet.contains(domClassId))
-                    {
-                        // the values in the index are 2+the real value
-                        dominatorId = dominatorIndex.get(dominatorId) - 2;
-                        if (dominatorId == -1)
-                        {
-                            clasz = null;
-                            domClassName = "<ROOT>";//$NON-NLS-1$
-                            domClassId = -1;
-                        }
-                        else
-                        {
-                            domClassId = o2classIndex.get(dominatorId);
-                            clasz = classCache.get(domClassId);
-                            domClassName = clasz.getName();
-                        }
-                    }
-                    // then check the positive cache
-                    else if (includeSet.contains(domClassId))
-                    {
-                        exclude = false;
-                    }
-                    // the class has not been processed so far
+                    if (positions != null)
+                        scanChunk(Arrays.copyOfRange(ordered, starts[chunk], starts[chunk + 1]), positions, visitor,
+                                        listener);
                     else
-                    {
-                        if (excludePattern.matcher(domClassName).matches() && dominatorId >= 0)
-                        {
-                            // just add the classId to the exclude cache
-                            // the next iteration will get the next dominator
-                            excludeSet.add(domClassId);
-                        }
-                        else
-                        {
-                            includeSet.add(domClassId);
-                            exclude = false;
-                        }
-                    }
+                        scanChunk(ordered, starts[chunk], starts[chunk + 1], visitor, listener);
                 }
-            }
+                catch (SnapshotException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+                catch (IOException e)
+                {
+                    throw new IllegalStateException(new SnapshotException(e));
+                }
+                synchronized (listener)
+                {
+                    listener.worked(1);
+                }
+            });
+        }
+        catch (IllegalStateException e)
+        {
+            if (e.getCause() instanceof SnapshotException)
+                throw (SnapshotException) e.getCause();
+            throw e;
+        }
+        listener.done();
+    }
 
-            DominatorsSummary.ClassDominatorRecord record = map.get(clasz);
-            if (record == null)
-            {
-                record = new DominatorsSummary.ClassDominatorRecord();
-                map.put(clasz, record);
-                record.setClassName(domClassName);
-                record.setClassId(domClassId);
-                record.setClassloaderId(dominatorId == -1 || clasz == null ? -1 : clasz.getClassLoaderId());
-            }
+    private static int positionChunk(long position, long min, long max, int chunks)
+    {
+        return (int) Math.min(chunks - 1, (double) (position - min) / (max - min + 1) * chunks);
+    }
+
+    /**
+     * Reads the objects of a range of positions in the order of the dump,
+     * with a reader of its own unless there are only a few objects.
+     */
+    private void scanChunk(int[] objectIds, IObjectPositions positions, IObjectVisitor visitor,
+                    IProgressListener listener) throws SnapshotException, IOException
+    {
+        // sort descending by the distance from the end
+        long[] keys = new long[objectIds.length];
+        for (int i = 0; i < objectIds.length; i++)
+            keys[i] = Long.MAX_VALUE - positions.getPosition(objectIds[i]);
+        ArrayUtils.sortDesc(keys, objectIds);
+        keys = null;
 
-            if (record.addDominator(dominatorId) && dominatorId != -1)
-                record.addDominatorNetSize(getHeapSize(dominatorId));
-            if (record.addDominated(objectId))
-                record.addDominatedNetSize(getHeapSize(objectId));
+        if (objectIds.length < SCAN_MIN_CHUNK_SIZE)
+        {
+            scanChunk(objectIds, 0, objectIds.length, visitor, listener);
+            return;
+        }
 
-            if (ii % 10 == 0)
+        try (IObjectPositions.IObjectScanner scanner = positions.openScanner())
+        {
+            for (int i = 0; i < objectIds.length; i++)
             {
-                if (progressListener.isCanceled())
+                if (i % 10000 == 0 && listener.isCanceled())
                     throw new IProgressListener.OperationCanceledException();
-                progressListener.worked(1);
+                IObject object = classCache.get(objectIds[i]);
+                if (object == null)
+                {
+                    object = scanner.read(objectIds[i], this);
+                    if (object instanceof AbstractObjectImpl)
+                        ((AbstractObjectImpl) object).setSnapshot(this);
+                }
+                visitor.visit(object);
             }
         }
+    }
 
-        ClassDominatorRecord[] records = map.values().toArray(new DominatorsSummary.ClassDominatorRecord[0]);
-
-        progressListener.done();
-
-        return new DominatorsSummary(records, this);
+    /**
+     * Reads the objects of a range of object ids.
+     * @param objectIds the object ids, or null for all objects
+     */
+    private void scanChunk(int[] objectIds, int from, int to, IObjectVisitor visitor, IProgressListener listener)
+                    throws SnapshotException
+    {
+        for (int i = from; i < to; i++)
+        {
+            if ((i - from) % 10000 == 0 && listener.isCanceled())
+                throw new IProgressListener.OperationCanceledException();
+            visitor.visit(readObject(objectIds != null ? objectIds[i] : i));
+        }
     }
 
-    @Override
-    public IObject getObject(int objectId) throws SnapshotException
+    /**
+     * Read the whole object from the dump, without adding it to the object cache.
+     */
+    private IObject readObject(int objectId) throws SnapshotException
     {
-        IObject answer = this.classCache.get(objectId);
+        IObject answer = classCache.get(objectId);
         if (answer != null)
             return answer;
 
         try
         {
-            return this.objectCache.get(objectId);
+            answer = heapObjectReader.read(objectId, this);
         }
-        catch (IllegalArgumentException e)
+        catch (IOException e)
         {
-            throw SnapshotException.rethrow(e);
+            throw new SnapshotException(e);
         }
+        if (answer instanceof AbstractObjectImpl)
+            ((AbstractObjectImpl) answer).setSnapshot(this);
+        return answer;
     }
 
     @Override
@@ -1723,24 +2780,80 @@ public final class SnapshotImpl implements ISnapshot
      * @throws SnapshotException if there is a problem
      */
     public void calculateMinRetainedHeapSizeForClasses(IProgressListener listener) throws SnapshotException {
-
         // too expensive to do accurate search
-        boolean approximate = true;
-        boolean calculate = true;
+        calculateRetainedHeapSizeForClasses(true, listener);
+    }
 
-        int size = classCache.size();
+    /**
+     * Calculate for each class the retained size of all instances of that class.
+     * For the precise retained sizes also calculate for each class loader the
+     * retained size of the loader, its classes and their instances. The sizes
+     * are kept in the retained size cache, so are persisted with the other
+     * indices.
+     * @param approximate true for the minimum retained size, which is cheap
+     * using the dominator tree, false for the precise retained size
+     * @param listener for reporting progress
+     * @throws SnapshotException if there is a problem
+     */
+    public void calculateRetainedHeapSizeForClasses(boolean approximate, IProgressListener listener) throws SnapshotException
+    {
+        final int[] classIds = classCache.getAllKeys();
+        // the set of a class loader is usually a large part of the heap and
+        // collecting it looks at every class, so only worth it when precise
+        final int[] classLoaderIds = approximate ? new int[0] : loaderLabels.getAllKeys();
+        final int size = classIds.length + classLoaderIds.length;
         listener.beginTask(Messages.SnapshotImpl_CalculatingRetainedHeapSizeForClasses, size);
-        IProgressListener l2 = new SilentProgressListener(listener);
-        Iterator<ClassImpl> classes = classCache.values();
-        while (classes.hasNext())
+
+        /*
+         * The minimum retained sizes only read the dominator tree indices, so
+         * the classes can be done in parallel. Each precise retained set
+         * already marks the heap with all processors, so the classes and
+         * class loaders go one at a time.
+         */
+        IntStream range = IntStream.range(0, size);
+        if (approximate && Runtime.getRuntime().availableProcessors() > 1)
+            range = range.parallel();
+        final IProgressListener l2 = new VoidProgressListener()
         {
-            if (listener.isCanceled()) {
-                break;
+            @Override
+            public boolean isCanceled()
+            {
+                return listener.isCanceled();
             }
-
-            IClass theClass = classes.next();
-            theClass.getRetainedHeapSizeOfObjects(calculate, approximate, l2);
-            listener.worked(1);
+        };
+        try
+        {
+            range.forEach(ii -> {
+                if (listener.isCanceled())
+                    return;
+                try
+                {
+                    if (ii < classIds.length)
+                    {
+                        classCache.get(classIds[ii]).getRetainedHeapSizeOfObjects(true, approximate, l2);
+                    }
+                    else
+                    {
+                        IObject classLoader = getObject(classLoaderIds[ii - classIds.length]);
+                        if (classLoader instanceof IClassLoader)
+                            ((IClassLoader) classLoader).getRetainedHeapSizeOfObjects(true, approximate, l2);
+                    }
+                }
+                catch (SnapshotException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+                synchronized (listener)
+                {
+                    listener.worked(1);
+                }
+            });
+        }
+        catch (IllegalStateException e)
+        {
+            if (e.getCause() instanceof SnapshotException)
+                throw (SnapshotException) e.getCause();
+            throw e;
         }
         listener.done();
     }
@@ -1832,8 +2945,40 @@ public final class SnapshotImpl implements ISnapshot
             error = e1;
         }
 
+        synchronized (this)
+        {
+            if (stringIndex != null)
+            {
+                try
+                {
+                    stringIndex.close();
+                }
+                catch (IOException e1)
+                {
+                    error = e1;
+                }
+                stringIndex = null;
+            }
+            if (primitiveArrayDigest != null)
+            {
+                try
+                {
+                    primitiveArrayDigest.close();
+                }
+                catch (IOException e1)
+                {
+                    error = e1;
+                }
+                primitiveArrayDigest = null;
+            }
+        }
+
         classCacheByName.clear();
 
+        if (logger.isLoggable(Level.FINE))
+            logger.log(Level.FINE, objectCache.toString());
+        objectCache.clear();
+
         if (error != null)
             throw new RuntimeException(error);
     }
@@ -2100,6 +3245,7 @@ public final class SnapshotImpl implements ISnapshot
         int[] referringThreads;
         int currentReferringThread;
         int[] foundPath;
+        int[] indexedPath;
 
         Map<IClass, Set<String>> excludeMap;
 
@@ -2196,6 +3342,17 @@ public final class SnapshotImpl implements ISnapshot
                         foundPath = new int[] { currentId };
                         return getNextShortestPath();
                     }
+                    else if (excludeMap == null && indexManager.gcRootPath() != null
+                                    && (indexedPath = MultiplePathsFromGCRootsComputerImpl.getPathFromIndex(currentId,
+                                                    indexManager.gcRootPath())) != null)
+                    {
+                        // the first shortest path is known, search for more only when asked
+                        referringThreads = null;
+                        state = 2; // PROCESSING GC ROOT
+                        nextState = 3; // NORMAL
+                        foundPath = indexedPath;
+                        return getNextShortestPath();
+                    }
                     else
                     {
                         state = 3; // NORMAL
@@ -2339,13 +3496,17 @@ public final class SnapshotImpl implements ISnapshot
                 {
                     if (excludeMap == null)
                     {
+                        Path p = new Path(currentReferrers[i], currentPath);
+                        int[] path = path2Int(p);
+                        // already returned from the index
+                        if (indexedPath != null && Arrays.equals(path, indexedPath))
+                            continue;
                         // save state
                         lastReadReferrer = i;
-                        Path p = new Path(currentReferrers[i], currentPath);
                         referringThreads = null;
                         state = 2; // FOUND GC ROOT
                         nextState = 3; // NORMAL PROCESSING
-                        foundPath = path2Int(p);
+                        foundPath = path;
                         return getNextShortestPath();
                     }
                     else
@@ -2422,13 +3583,46 @@ public final class SnapshotImpl implements ISnapshot
      */
     public HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> getRootsPerThread()
     {
-        return rootsPerThread;
+        HashMapIntObject<HashMapIntObject<XGCRootInfo[]>> result = rootsPerThread;
+        if (result == null)
+        {
+            // only decoded from the snapshot image on first use
+            synchronized (image)
+            {
+                result = rootsPerThread;
+                if (result == null)
+                {
+                    try
+                    {
+                        result = image.readRootsPerThread();
+                    }
+                    catch (IOException e)
+                    {
+                        logger.log(Level.WARNING, MessageUtil.format(Messages.SnapshotImpl_ErrorReadingSnapshotImage,
+                                        SnapshotImage.getFile(snapshotInfo.getPrefix())), e);
+                        try
+                        {
+                            result = readRootsPerThread(snapshotInfo.getPrefix());
+                        }
+                        catch (IOException e1)
+                        {
+                            logger.log(Level.SEVERE, e1.getMessage(), e1);
+                            result = new HashMapIntObject<HashMapIntObject<XGCRootInfo[]>>();
+                        }
+                    }
+                    rootsPerThread = result;
+                }
+            }
+        }
+        return result;
     }
 
     /**
      * Get additional JVM information, if available.
      * <p>
-     * A known type is {@link UnreachableObjectsHistogram}. 
+     * Known types are {@link UnreachableObjectsHistogram}, {@link IClassReferenceGraph},
+     * {@link IClassAccumulationIndex}, {@link IStringIndex}, {@link IPrimitiveArrayDigest}
+     * and {@link IReferentIndex}.
      * Extra information can be obtained from an implementation of {@link IObjectReader#getAddon(Class)}.
      * @param addon the type of the data. For example, {@link UnreachableObjectsHistogram}.class
      * @return the extra data
@@ -2441,6 +3635,26 @@ public final class SnapshotImpl implements ISnapshot
         {
             return (A) this.getSnapshotInfo().getProperty(UnreachableObjectsHistogram.class.getName());
         }
+        else if (addon == IClassReferenceGraph.class)
+        {
+            return (A) getClassReferenceGraph();
+        }
+        else if (addon == IClassAccumulationIndex.class)
+        {
+            return (A) getClassAccumulationIndex();
+        }
+        else if (addon == IStringIndex.class)
+        {
+            return (A) getStringIndex();
+        }
+        else if (addon == IPrimitiveArrayDigest.class)
+        {
+            return (A) getPrimitiveArrayDigest();
+        }
+        else if (addon == IReferentIndex.class)
+        {
+            return (A) getReferentIndex();
+        }
         else
         {
             return heapObjectReader.getAddon(addon);
@@ -2449,34 +3663,112 @@ public final class SnapshotImpl implements ISnapshot
     
     @Override
     public IThreadStack getThreadStack(int objectId) throws SnapshotException
+    {
+        HashMapIntObject<IThreadStack> stacks = getThreadStacks();
+        if (stacks != null)
+        {
+            return stacks.get(objectId);
+        }
+        return null;
+    }
+
+    private synchronized HashMapIntObject<IThreadStack> getThreadStacks() throws SnapshotException
     {
         if (!parsedThreads)
         {
-            threadId2stack = ThreadStackHelper.loadThreadsData(this);
+            threadId2stack = ThreadStackHelper.loadThreadsData(this, false);
             parsedThreads = true;
         }
+        return threadId2stack;
+    }
 
-        if (threadId2stack != null)
+    /**
+     * Read the thread stacks written by the parser and store them with the
+     * local variables as object ids in a binary index, so that opening the
+     * snapshot again does not need to parse the text and map the addresses.
+     * @param listener to report progress
+     * @throws SnapshotException if the stacks cannot be read
+     */
+    public void calculateThreadStacks(IProgressListener listener) throws SnapshotException
+    {
+        listener.beginTask(Messages.SnapshotImpl_ReadingThreadStacks, 1);
+        HashMapIntObject<IThreadStack> stacks = ThreadStackHelper.loadThreadsData(this, true);
+        synchronized (this)
         {
-            return threadId2stack.get(objectId);
+            threadId2stack = stacks;
+            parsedThreads = true;
         }
-        return null;
+        listener.done();
     }
 
     // //////////////////////////////////////////////////////////////
     // private classes
     // //////////////////////////////////////////////////////////////
 
-    private static final class HeapObjectCache extends ObjectCache<IObject>
+    /**
+     * The objects of one class in a range of a histogram.
+     */
+    private static final class ClassHistogramChunk
+    {
+        final ArrayInt objectIds = new ArrayInt();
+        long usedHeapSize;
+    }
+
+    private static final class HeapObjectCache extends ConcurrentObjectCache<IObject>
     {
+        /** System property to set the size of the cache in bytes */
+        private static final String MAX_WEIGHT_PROPERTY = "mat.objectCacheSize"; //$NON-NLS-1$
+        /** Estimated size of a model object without its fields or array contents */
+        private static final long OBJECT_OVERHEAD = 96;
+
         SnapshotImpl snapshot;
 
-        private HeapObjectCache(SnapshotImpl snapshot, int maxSize)
+        private HeapObjectCache(SnapshotImpl snapshot, long maxWeight)
         {
-            super(maxSize);
+            super(maxWeight);
             this.snapshot = snapshot;
         }
 
+        /**
+         * A small share of the Java heap, between 4MB and 256MB,
+         * unless set by a system property.
+         */
+        static long defaultMaxWeight()
+        {
+            Long size = Long.getLong(MAX_WEIGHT_PROPERTY);
+            if (size != null)
+                return size;
+            long max = Runtime.getRuntime().maxMemory();
+            if (max == Long.MAX_VALUE)
+                max = Runtime.getRuntime().totalMemory();
+            return Math.max(4L << 20, Math.min(256L << 20, max / 32));
+        }
+
+        /**
+         * The model objects read fields and array contents lazily, so estimate from the
+         * size in the dump what they will hold once used:
+         * primitive array contents are held as is, object array contents as
+         * long addresses, and each instance field as a field object with a boxed value.
+         */
+        @Override
+        protected long weigh(int objectId, IObject object)
+        {
+            try
+            {
+                long heapSize = snapshot.getHeapSize(objectId);
+                if (object instanceof PrimitiveArrayImpl)
+                    return OBJECT_OVERHEAD + heapSize;
+                else if (object instanceof ObjectArrayImpl)
+                    return OBJECT_OVERHEAD + heapSize * 2;
+                else
+                    return OBJECT_OVERHEAD + heapSize * 8;
+            }
+            catch (SnapshotException e)
+            {
+                return OBJECT_OVERHEAD;
+            }
+        }
+
         @Override
         protected IObject load(int objectId)
         {
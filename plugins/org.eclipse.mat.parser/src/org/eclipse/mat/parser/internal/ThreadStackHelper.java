@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2022 SAP AG and IBM Corporation.
+ * Copyright (c) 2008, 2026 SAP AG and IBM Corporation.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License 2.0
  * which accompanies this distribution, and is available at
@@ -13,9 +13,14 @@
  *******************************************************************************/
 package org.eclipse.mat.parser.internal;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.math.BigInteger;
@@ -28,6 +33,7 @@ import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.IStackFrame;
 import org.eclipse.mat.snapshot.model.IThreadStack;
 import org.eclipse.mat.util.MessageUtil;
 
@@ -35,10 +41,55 @@ import org.eclipse.mat.util.MessageUtil;
 {
     private static final Logger logger = Logger.getLogger(ThreadStackHelper.class.getName());
 
-    /* package */static HashMapIntObject<IThreadStack> loadThreadsData(ISnapshot snapshot) throws SnapshotException
+    private static final long MAGIC = 0x4d41545f54485201L;
+
+    /* package */static final String INDEX_FILENAME = "threads.index"; //$NON-NLS-1$
+
+    /**
+     * Load the thread stacks from the binary index, or from the text file
+     * written by the parser, in which case the binary index is written for
+     * the next time.
+     * 
+     * @param snapshot
+     *            the snapshot
+     * @param rebuild
+     *            read the text file even if the binary index exists
+     * @return the thread stacks by thread id, or null if there are none
+     */
+    /* package */static HashMapIntObject<IThreadStack> loadThreadsData(ISnapshot snapshot, boolean rebuild)
+                    throws SnapshotException
+    {
+        File text = new File(snapshot.getSnapshotInfo().getPrefix() + "threads"); //$NON-NLS-1$
+        File index = new File(snapshot.getSnapshotInfo().getPrefix() + INDEX_FILENAME);
+        if (!rebuild && index.exists() && (!text.exists() || index.lastModified() >= text.lastModified()))
+        {
+            try
+            {
+                return read(index);
+            }
+            catch (IOException e)
+            {
+                logger.log(Level.WARNING, e.getLocalizedMessage(), e);
+            }
+        }
+
+        HashMapIntObject<IThreadStack> threadId2stack = loadThreadsData(snapshot, text);
+        if (threadId2stack != null)
+        {
+            try
+            {
+                write(index, threadId2stack);
+            }
+            catch (IOException e)
+            {
+                logger.log(Level.WARNING, e.getLocalizedMessage(), e);
+            }
+        }
+        return threadId2stack;
+    }
+
+    private static HashMapIntObject<IThreadStack> loadThreadsData(ISnapshot snapshot, File f) throws SnapshotException
     {
-        String fileName = snapshot.getSnapshotInfo().getPrefix() + "threads"; //$NON-NLS-1$
-        File f = new File(fileName);
         if (!f.exists())
             return null;
 
@@ -128,6 +179,68 @@ import org.eclipse.mat.util.MessageUtil;
 
     }
 
+    private static void write(File file, HashMapIntObject<IThreadStack> threadId2stack) throws IOException
+    {
+        boolean done = false;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeLong(MAGIC);
+            int[] threadIds = threadId2stack.getAllKeys();
+            out.writeInt(threadIds.length);
+            for (int threadId : threadIds)
+            {
+                IStackFrame[] frames = threadId2stack.get(threadId).getStackFrames();
+                out.writeInt(threadId);
+                out.writeInt(frames.length);
+                for (IStackFrame frame : frames)
+                {
+                    out.writeUTF(frame.getText());
+                    int[] locals = frame.getLocalObjectsIds();
+                    out.writeInt(locals != null ? locals.length : -1);
+                    if (locals != null)
+                    {
+                        for (int objectId : locals)
+                            out.writeInt(objectId);
+                    }
+                }
+            }
+            done = true;
+        }
+        finally
+        {
+            if (!done)
+                file.delete();
+        }
+    }
+
+    private static HashMapIntObject<IThreadStack> read(File file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readLong() != MAGIC)
+                throw new IOException(MessageUtil.format(Messages.IndexReader_Error_UnknownFormat,
+                                file.getAbsolutePath()));
+            int size = in.readInt();
+            HashMapIntObject<IThreadStack> threadId2stack = new HashMapIntObject<IThreadStack>(size);
+            for (int ii = 0; ii < size; ii++)
+            {
+                int threadId = in.readInt();
+                StackFrameImpl[] frames = new StackFrameImpl[in.readInt()];
+                for (int jj = 0; jj < frames.length; jj++)
+                {
+                    String text = in.readUTF();
+                    int count = in.readInt();
+                    int[] locals = count >= 0 ? new int[count] : null;
+                    for (int kk = 0; kk < count; kk++)
+                        locals[kk] = in.readInt();
+                    frames[jj] = new StackFrameImpl(text, locals);
+                }
+                threadId2stack.put(threadId, new ThreadStackImpl(threadId, frames));
+            }
+            return threadId2stack;
+        }
+    }
+
     private static long readThreadAddres(String line)
     {
         int start = line.indexOf("0x"); //$NON-NLS-1$
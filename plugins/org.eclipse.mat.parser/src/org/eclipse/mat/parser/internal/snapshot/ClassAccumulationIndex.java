@@ -0,0 +1,380 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.ArrayLong;
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.parser.index.IIndexReader.IOne2OneIndex;
+import org.eclipse.mat.parser.internal.Messages;
+import org.eclipse.mat.parser.internal.SnapshotImpl;
+import org.eclipse.mat.snapshot.IClassAccumulationIndex;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * For each class the objects at the top of the dominator tree retaining the
+ * most instances of the class.
+ * <p>
+ * The instances of each class are assigned to their top-level dominator with
+ * the pre-order numbers of the dominator tree, so no dominator chains are
+ * walked. The index is stored in <code>c2root.index</code>:
+ * <ul>
+ * <li>a header with the format version, the limit and the number of classes</li>
+ * <li>per class the class id and the number of entries, in ascending order of
+ * the class ids</li>
+ * <li>per entry the root object id, the number of retained instances and their
+ * shallow heap, largest shallow heap first</li>
+ * </ul>
+ */
+public class ClassAccumulationIndex implements IClassAccumulationIndex
+{
+    /** "MAT_ACC" followed by the format version */
+    private static final long MAGIC = 0x4d41545f41434301L;
+
+    public static final String FILENAME = "c2root.index"; //$NON-NLS-1$
+
+    /** The number of roots kept per class by count and by size */
+    public static final int LIMIT = 10;
+
+    /** Fewer objects are visited on the calling thread */
+    private static final int PARALLEL_THRESHOLD = 100000;
+
+    private final int limit;
+    /** ascending */
+    private final int[] classIds;
+    /** the entries of class classIds[i] are from offsets[i] to offsets[i + 1] */
+    private final int[] offsets;
+    private final int[] roots;
+    private final long[] counts;
+    private final long[] sizes;
+
+    private ClassAccumulationIndex(int limit, int[] classIds, int[] offsets, int[] roots, long[] counts,
+                    long[] sizes)
+    {
+        this.limit = limit;
+        this.classIds = classIds;
+        this.offsets = offsets;
+        this.roots = roots;
+        this.counts = counts;
+        this.sizes = sizes;
+    }
+
+    public static File getFile(String prefix)
+    {
+        return new File(prefix + FILENAME);
+    }
+
+    /**
+     * Assigns the instances of all classes to the objects at the top of the
+     * dominator tree.
+     * 
+     * @param snapshot the snapshot
+     * @param listener to report progress
+     * @return the index, or null if the dominator tree pre-order numbers are
+     *         not available
+     */
+    public static ClassAccumulationIndex calculate(SnapshotImpl snapshot, IProgressListener listener)
+                    throws SnapshotException
+    {
+        final IOne2OneIndex preOrder = snapshot.getIndexManager().dominatorPreOrder();
+        if (preOrder == null)
+            return null;
+
+        // the top-level roots, sorted by pre-order number
+        int[] topIds = snapshot.getImmediateDominatedIds(-1);
+        long[] order = new long[topIds.length];
+        for (int ii = 0; ii < topIds.length; ii++)
+            order[ii] = ((long) preOrder.get(topIds[ii]) << 32) | topIds[ii];
+        Arrays.sort(order);
+        final int[] rootPre = new int[order.length];
+        final int[] rootIds = new int[order.length];
+        for (int ii = 0; ii < order.length; ii++)
+        {
+            rootPre[ii] = (int) (order[ii] >>> 32);
+            rootIds[ii] = (int) order[ii];
+        }
+        order = null;
+
+        Collection<IClass> all = snapshot.getClasses();
+        final IClass[] classes = all.toArray(new IClass[all.size()]);
+        int availableProcessors = Runtime.getRuntime().availableProcessors();
+        final int chunks = snapshot.getSnapshotInfo().getNumberOfObjects() < PARALLEL_THRESHOLD
+                        || availableProcessors <= 1 || classes.length < availableProcessors ? 1
+                        : availableProcessors * 4;
+
+        listener.beginTask(Messages.ClassAccumulationIndex_Calculating, chunks);
+
+        IntStream range = IntStream.range(0, chunks);
+        if (chunks > 1)
+            range = range.parallel();
+        List<List<Entry>> partials;
+        try
+        {
+            partials = range.mapToObj(chunk -> {
+                int from = (int) ((long) classes.length * chunk / chunks);
+                int to = (int) ((long) classes.length * (chunk + 1) / chunks);
+                List<Entry> partial = new ArrayList<Entry>();
+                try
+                {
+                    for (int ii = from; ii < to && !listener.isCanceled(); ii++)
+                    {
+                        Entry entry = calculateClass(snapshot, classes[ii], preOrder, rootPre, rootIds);
+                        if (entry != null)
+                            partial.add(entry);
+                    }
+                }
+                catch (SnapshotException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+                synchronized (listener)
+                {
+                    listener.worked(1);
+                }
+                return partial;
+            }).collect(Collectors.toList());
+        }
+        catch (IllegalStateException e)
+        {
+            if (e.getCause() instanceof SnapshotException)
+                throw (SnapshotException) e.getCause();
+            throw e;
+        }
+
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+
+        List<Entry> entries = new ArrayList<Entry>();
+        for (List<Entry> partial : partials)
+            entries.addAll(partial);
+        entries.sort((a, b) -> Integer.compare(a.classId, b.classId));
+
+        int[] classIds = new int[entries.size()];
+        int[] offsets = new int[entries.size() + 1];
+        ArrayInt roots = new ArrayInt();
+        ArrayLong counts = new ArrayLong();
+        ArrayLong sizes = new ArrayLong();
+        for (int ii = 0; ii < classIds.length; ii++)
+        {
+            Entry entry = entries.get(ii);
+            classIds[ii] = entry.classId;
+            offsets[ii] = roots.size();
+            roots.addAll(entry.roots);
+            counts.addAll(entry.counts);
+            sizes.addAll(entry.sizes);
+        }
+        offsets[classIds.length] = roots.size();
+
+        listener.done();
+        return new ClassAccumulationIndex(LIMIT, classIds, offsets, roots.toArray(), counts.toArray(),
+                        sizes.toArray());
+    }
+
+    private static class Entry
+    {
+        int classId;
+        int[] roots;
+        long[] counts;
+        long[] sizes;
+    }
+
+    private static Entry calculateClass(SnapshotImpl snapshot, IClass clazz, IOne2OneIndex preOrder,
+                    int[] rootPre, int[] rootIds) throws SnapshotException
+    {
+        int[] objectIds = clazz.getObjectIds();
+        if (objectIds.length == 0)
+            return null;
+
+        // root position -> number of instances, shallow heap
+        HashMapIntObject<long[]> totals = new HashMapIntObject<long[]>();
+        int[] pre = preOrder.getAll(objectIds);
+        for (int ii = 0; ii < objectIds.length; ii++)
+        {
+            // not reachable, so not retained by any root
+            if (pre[ii] == 0)
+                continue;
+            int pos = Arrays.binarySearch(rootPre, pre[ii]);
+            if (pos < 0)
+                pos = -pos - 2;
+            long[] total = totals.get(pos);
+            if (total == null)
+                totals.put(pos, total = new long[2]);
+            total[0]++;
+            total[1] += snapshot.getHeapSize(objectIds[ii]);
+        }
+        if (totals.isEmpty())
+            return null;
+
+        // keep the largest by number of instances and by shallow heap
+        int[] positions = totals.getAllKeys();
+        Integer[] byCount = new Integer[positions.length];
+        for (int ii = 0; ii < positions.length; ii++)
+            byCount[ii] = positions[ii];
+        Integer[] bySize = byCount.clone();
+        Arrays.sort(byCount, (a, b) -> Long.compare(totals.get(b)[0], totals.get(a)[0]));
+        Arrays.sort(bySize, (a, b) -> Long.compare(totals.get(b)[1], totals.get(a)[1]));
+
+        ArrayInt kept = new ArrayInt();
+        for (int ii = 0; ii < LIMIT && ii < bySize.length; ii++)
+            kept.add(bySize[ii]);
+        for (int ii = 0; ii < LIMIT && ii < byCount.length; ii++)
+        {
+            boolean found = false;
+            for (int jj = 0; jj < LIMIT && jj < bySize.length && !found; jj++)
+                found = bySize[jj].intValue() == byCount[ii].intValue();
+            if (!found)
+                kept.add(byCount[ii]);
+        }
+        int[] keptPositions = kept.toArray();
+        Integer[] sorted = new Integer[keptPositions.length];
+        for (int ii = 0; ii < keptPositions.length; ii++)
+            sorted[ii] = keptPositions[ii];
+        Arrays.sort(sorted, (a, b) -> Long.compare(totals.get(b)[1], totals.get(a)[1]));
+
+        Entry entry = new Entry();
+        entry.classId = clazz.getObjectId();
+        entry.roots = new int[sorted.length];
+        entry.counts = new long[sorted.length];
+        entry.sizes = new long[sorted.length];
+        for (int ii = 0; ii < sorted.length; ii++)
+        {
+            long[] total = totals.get(sorted[ii]);
+            entry.roots[ii] = rootIds[sorted[ii]];
+            entry.counts[ii] = total[0];
+            entry.sizes[ii] = total[1];
+        }
+        return entry;
+    }
+
+    /**
+     * Writes the index so it can be reopened with the snapshot.
+     */
+    public void write(File file) throws IOException
+    {
+        boolean done = false;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeLong(MAGIC);
+            out.writeInt(limit);
+            out.writeInt(classIds.length);
+            for (int ii = 0; ii < classIds.length; ii++)
+            {
+                out.writeInt(classIds[ii]);
+                out.writeInt(offsets[ii + 1] - offsets[ii]);
+                for (int jj = offsets[ii]; jj < offsets[ii + 1]; jj++)
+                {
+                    out.writeInt(roots[jj]);
+                    out.writeLong(counts[jj]);
+                    out.writeLong(sizes[jj]);
+                }
+            }
+            done = true;
+        }
+        finally
+        {
+            if (!done)
+                file.delete();
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #write(File)}.
+     */
+    public static ClassAccumulationIndex read(File file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readLong() != MAGIC)
+                throw new IOException(MessageUtil.format(Messages.IndexReader_Error_UnknownFormat,
+                                file.getAbsolutePath()));
+            int limit = in.readInt();
+            int size = in.readInt();
+            int[] classIds = new int[size];
+            int[] offsets = new int[size + 1];
+            ArrayInt roots = new ArrayInt();
+            ArrayLong counts = new ArrayLong();
+            ArrayLong sizes = new ArrayLong();
+            for (int ii = 0; ii < size; ii++)
+            {
+                classIds[ii] = in.readInt();
+                offsets[ii] = roots.size();
+                int entries = in.readInt();
+                for (int jj = 0; jj < entries; jj++)
+                {
+                    roots.add(in.readInt());
+                    counts.add(in.readLong());
+                    sizes.add(in.readLong());
+                }
+            }
+            offsets[size] = roots.size();
+            return new ClassAccumulationIndex(limit, classIds, offsets, roots.toArray(), counts.toArray(),
+                            sizes.toArray());
+        }
+    }
+
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    public int[] getRootIds(int classId)
+    {
+        int pos = Arrays.binarySearch(classIds, classId);
+        if (pos < 0)
+            return new int[0];
+        return Arrays.copyOfRange(roots, offsets[pos], offsets[pos + 1]);
+    }
+
+    public long getInstanceCount(int classId, int rootId)
+    {
+        int pos = find(classId, rootId);
+        return pos >= 0 ? counts[pos] : 0;
+    }
+
+    public long getInstanceHeapSize(int classId, int rootId)
+    {
+        int pos = find(classId, rootId);
+        return pos >= 0 ? sizes[pos] : 0;
+    }
+
+    private int find(int classId, int rootId)
+    {
+        int pos = Arrays.binarySearch(classIds, classId);
+        if (pos < 0)
+            return -1;
+        for (int ii = offsets[pos]; ii < offsets[pos + 1]; ii++)
+        {
+            if (roots[ii] == rootId)
+                return ii;
+        }
+        return -1;
+    }
+}
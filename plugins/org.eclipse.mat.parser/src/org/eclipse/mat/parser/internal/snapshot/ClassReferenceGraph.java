@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.HashMapLongObject;
+import org.eclipse.mat.parser.index.IIndexReader.IOne2ManyIndex;
+import org.eclipse.mat.parser.index.IIndexReader.IOne2OneIndex;
+import org.eclipse.mat.parser.internal.Messages;
+import org.eclipse.mat.parser.internal.SnapshotImpl;
+import org.eclipse.mat.snapshot.IClassReferenceGraph;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * The class to class reference graph, held as edges sorted by referring and
+ * referenced class.
+ * <p>
+ * The graph is calculated in one pass over the outbound and object to class
+ * indices and stored in <code>c2c.index</code>:
+ * <ul>
+ * <li>a header with the format version and the number of edges</li>
+ * <li>per edge the referring and referenced class ids as one long, the number of
+ * references and the referenced shallow heap, in ascending order of the class ids</li>
+ * </ul>
+ */
+public class ClassReferenceGraph implements IClassReferenceGraph
+{
+    /** "MAT_C2C" followed by the format version */
+    private static final long MAGIC = 0x4d41545f43324301L;
+
+    public static final String FILENAME = "c2c.index"; //$NON-NLS-1$
+
+    /** Fewer objects are visited on the calling thread */
+    private static final int PARALLEL_THRESHOLD = 100000;
+
+    /** referring class id in the high, referenced class id in the low word, ascending */
+    private final long[] edges;
+    private final long[] counts;
+    private final long[] sizes;
+    /** referenced class id in the high, referring class id in the low word, ascending */
+    private final long[] reverseEdges;
+
+    private ClassReferenceGraph(long[] edges, long[] counts, long[] sizes)
+    {
+        this.edges = edges;
+        this.counts = counts;
+        this.sizes = sizes;
+
+        reverseEdges = new long[edges.length];
+        for (int ii = 0; ii < edges.length; ii++)
+            reverseEdges[ii] = (edges[ii] << 32) | (edges[ii] >>> 32);
+        Arrays.sort(reverseEdges);
+    }
+
+    public static File getFile(String prefix)
+    {
+        return new File(prefix + FILENAME);
+    }
+
+    /**
+     * Aggregates the references of all objects of the snapshot to their classes.
+     * 
+     * @param snapshot the snapshot
+     * @param listener to report progress
+     * @return the graph
+     */
+    public static ClassReferenceGraph calculate(SnapshotImpl snapshot, IProgressListener listener)
+                    throws SnapshotException
+    {
+        final int numberOfObjects = snapshot.getSnapshotInfo().getNumberOfObjects();
+        int availableProcessors = Runtime.getRuntime().availableProcessors();
+        final int chunks = numberOfObjects < PARALLEL_THRESHOLD || availableProcessors <= 1 ? 1
+                        : availableProcessors * 4;
+
+        listener.beginTask(Messages.ClassReferenceGraph_Calculating, chunks);
+
+        /*
+         * Each range of objects is counted into its own map, keyed by the
+         * pair of classes, and the maps are merged afterwards.
+         */
+        IntStream range = IntStream.range(0, chunks);
+        if (chunks > 1)
+            range = range.parallel();
+        List<HashMapLongObject<long[]>> partials;
+        try
+        {
+            partials = range.mapToObj(chunk -> {
+                int from = (int) ((long) numberOfObjects * chunk / chunks);
+                int to = (int) ((long) numberOfObjects * (chunk + 1) / chunks);
+                HashMapLongObject<long[]> partial = calculateChunk(snapshot, from, to, listener);
+                synchronized (listener)
+                {
+                    listener.worked(1);
+                }
+                return partial;
+            }).collect(Collectors.toList());
+        }
+        catch (IllegalStateException e)
+        {
+            if (e.getCause() instanceof SnapshotException)
+                throw (SnapshotException) e.getCause();
+            throw e;
+        }
+
+        if (listener.isCanceled())
+            throw new IProgressListener.OperationCanceledException();
+
+        HashMapLongObject<long[]> merged = partials.get(0);
+        for (int ii = 1; ii < partials.size(); ii++)
+        {
+            for (Iterator<HashMapLongObject.Entry<long[]>> iter = partials.get(ii).entries(); iter.hasNext();)
+            {
+                HashMapLongObject.Entry<long[]> entry = iter.next();
+                long[] total = merged.get(entry.getKey());
+                if (total == null)
+                {
+                    merged.put(entry.getKey(), entry.getValue());
+                }
+                else
+                {
+                    total[0] += entry.getValue()[0];
+                    total[1] += entry.getValue()[1];
+                }
+            }
+            partials.get(ii).clear();
+        }
+
+        long[] edges = merged.getAllKeys();
+        Arrays.sort(edges);
+        long[] counts = new long[edges.length];
+        long[] sizes = new long[edges.length];
+        for (int ii = 0; ii < edges.length; ii++)
+        {
+            long[] total = merged.get(edges[ii]);
+            counts[ii] = total[0];
+            sizes[ii] = total[1];
+        }
+
+        listener.done();
+        return new ClassReferenceGraph(edges, counts, sizes);
+    }
+
+    private static HashMapLongObject<long[]> calculateChunk(SnapshotImpl snapshot, int from, int to,
+                    IProgressListener listener)
+    {
+        IOne2ManyIndex outbound = snapshot.getIndexManager().outbound();
+        IOne2OneIndex o2class = snapshot.getIndexManager().o2class();
+        HashMapLongObject<long[]> result = new HashMapLongObject<long[]>();
+
+        try
+        {
+            for (int objectId = from; objectId < to; objectId++)
+            {
+                if ((objectId & 0xffff) == 0 && listener.isCanceled())
+                    break;
+
+                long referrer = ((long) o2class.get(objectId)) << 32;
+                int[] refs = outbound.get(objectId);
+                // the first entry is the artificial reference to the class
+                for (int ii = 1; ii < refs.length; ii++)
+                {
+                    long key = referrer | o2class.get(refs[ii]);
+                    long[] total = result.get(key);
+                    if (total == null)
+                        result.put(key, total = new long[2]);
+                    total[0]++;
+                    total[1] += snapshot.getHeapSize(refs[ii]);
+                }
+            }
+        }
+        catch (SnapshotException e)
+        {
+            throw new IllegalStateException(e);
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes the graph so it can be reopened with the snapshot.
+     */
+    public void write(File file) throws IOException
+    {
+        boolean done = false;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeLong(MAGIC);
+            out.writeInt(edges.length);
+            for (int ii = 0; ii < edges.length; ii++)
+            {
+                out.writeLong(edges[ii]);
+                out.writeLong(counts[ii]);
+                out.writeLong(sizes[ii]);
+            }
+            done = true;
+        }
+        finally
+        {
+            if (!done)
+                file.delete();
+        }
+    }
+
+    /**
+     * Reads a graph written by {@link #write(File)}.
+     */
+    public static ClassReferenceGraph read(File file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readLong() != MAGIC)
+                throw new IOException(MessageUtil.format(Messages.IndexReader_Error_UnknownFormat,
+                                file.getAbsolutePath()));
+            int size = in.readInt();
+            long[] edges = new long[size];
+            long[] counts = new long[size];
+            long[] sizes = new long[size];
+            for (int ii = 0; ii < size; ii++)
+            {
+                edges[ii] = in.readLong();
+                counts[ii] = in.readLong();
+                sizes[ii] = in.readLong();
+            }
+            return new ClassReferenceGraph(edges, counts, sizes);
+        }
+    }
+
+    public int size()
+    {
+        return edges.length;
+    }
+
+    public int[] getReferencedClassIds(int classId)
+    {
+        return range(edges, classId);
+    }
+
+    public int[] getReferringClassIds(int classId)
+    {
+        return range(reverseEdges, classId);
+    }
+
+    public long getReferenceCount(int fromClassId, int toClassId)
+    {
+        int pos = Arrays.binarySearch(edges, ((long) fromClassId << 32) | toClassId);
+        return pos >= 0 ? counts[pos] : 0;
+    }
+
+    public long getReferencedHeapSize(int fromClassId, int toClassId)
+    {
+        int pos = Arrays.binarySearch(edges, ((long) fromClassId << 32) | toClassId);
+        return pos >= 0 ? sizes[pos] : 0;
+    }
+
+    /**
+     * The low words of all keys with the given high word.
+     */
+    private static int[] range(long[] keys, int high)
+    {
+        int pos = Arrays.binarySearch(keys, (long) high << 32);
+        if (pos < 0)
+            pos = -pos - 1;
+
+        ArrayInt result = new ArrayInt();
+        for (; pos < keys.length && (int) (keys[pos] >>> 32) == high; pos++)
+            result.add((int) keys[pos]);
+        return result.toArray();
+    }
+}
@@ -0,0 +1,311 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.snapshot;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.mat.collect.HashMapIntObject;
+
+/**
+ * Cache of loaded objects bounded by the estimated memory of the cached
+ * objects rather than by the number of entries.
+ * <p>
+ * The keys are spread over independently locked segments so that threads
+ * looking up different objects rarely contend, and objects are loaded outside
+ * the lock. Each segment evicts with the clock algorithm: entries are queued in
+ * insertion order, every hit raises a small usage count, and an entry at the
+ * head of the queue with a non-zero count is given another round with the count
+ * decremented. Frequently used objects therefore stay in the cache while objects
+ * used once are evicted first.
+ * <p>
+ * Small budgets get fewer segments so that each segment can hold an object of
+ * at least {@link #MIN_SEGMENT_WEIGHT}. An object weighing more than the budget
+ * of its segment is returned but not cached.
+ */
+public abstract class ConcurrentObjectCache<E>
+{
+    private static final int MAX_USAGES = 3;
+    /** The most segments, enough to spread the lookups of many threads */
+    private static final int MAX_SEGMENTS = 64;
+    /** The smallest budget of a segment, and so the weight of the largest object always cacheable */
+    static final long MIN_SEGMENT_WEIGHT = 1L << 20;
+
+    private static final class Entry<E>
+    {
+        final int key;
+        final E object;
+        final long weight;
+        int usages;
+        Entry<E> prev;
+        Entry<E> next;
+
+        Entry(int key, E object, long weight)
+        {
+            this.key = key;
+            this.object = object;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Segment<E>
+    {
+        final HashMapIntObject<Entry<E>> map = new HashMapIntObject<Entry<E>>();
+        /** Sentinel of the queue, head is the next candidate for eviction */
+        final Entry<E> queue = new Entry<E>(-1, null, 0);
+        final long maxSegmentWeight;
+        final LongAdder evictions;
+        long weight;
+
+        Segment(long maxSegmentWeight, LongAdder evictions)
+        {
+            this.maxSegmentWeight = maxSegmentWeight;
+            this.evictions = evictions;
+            queue.prev = queue;
+            queue.next = queue;
+        }
+
+        synchronized E get(int key)
+        {
+            Entry<E> e = map.get(key);
+            if (e == null)
+                return null;
+            if (e.usages < MAX_USAGES)
+                e.usages++;
+            return e.object;
+        }
+
+        synchronized E put(int key, E object, long w)
+        {
+            Entry<E> e = map.get(key);
+            if (e != null)
+            {
+                // loaded concurrently by another thread
+                return e.object;
+            }
+            if (w > maxSegmentWeight)
+                return object;
+
+            e = new Entry<E>(key, object, w);
+            map.put(key, e);
+            e.prev = queue.prev;
+            e.next = queue;
+            queue.prev.next = e;
+            queue.prev = e;
+            weight += w;
+
+            while (weight > maxSegmentWeight)
+                evict();
+
+            return object;
+        }
+
+        private void evict()
+        {
+            Entry<E> e = queue.next;
+            while (e.usages > 0)
+            {
+                e.usages--;
+                // move to the tail
+                unlink(e);
+                e.prev = queue.prev;
+                e.next = queue;
+                queue.prev.next = e;
+                queue.prev = e;
+                e = queue.next;
+            }
+            unlink(e);
+            map.remove(e.key);
+            weight -= e.weight;
+            evictions.increment();
+        }
+
+        private void unlink(Entry<E> e)
+        {
+            e.prev.next = e.next;
+            e.next.prev = e.prev;
+        }
+
+        synchronized void clear()
+        {
+            map.clear();
+            queue.prev = queue;
+            queue.next = queue;
+            weight = 0;
+        }
+
+        synchronized long weight()
+        {
+            return weight;
+        }
+
+        synchronized int size()
+        {
+            return map.size();
+        }
+    }
+
+    private final Segment<E>[] segments;
+    private final long maxSegmentWeight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Create the cache.
+     * @param maxWeight the upper bound of the sum of the weights of all cached objects
+     */
+    public ConcurrentObjectCache(long maxWeight)
+    {
+        this(maxWeight, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create the cache for a number of threads.
+     * @param maxWeight the upper bound of the sum of the weights of all cached objects
+     * @param threads the number of threads expected to use the cache at once
+     */
+    @SuppressWarnings("unchecked")
+    protected ConcurrentObjectCache(long maxWeight, int threads)
+    {
+        // a power of two of about four segments per thread
+        int n = Integer.highestOneBit(Math.max(1, threads * 4 - 1)) << 1;
+        n = Math.min(n, MAX_SEGMENTS);
+        // but not so many that large objects cannot be cached
+        n = Math.min(n, Integer.highestOneBit((int) Math.max(1, Math.min(MAX_SEGMENTS, maxWeight / MIN_SEGMENT_WEIGHT))));
+        this.maxSegmentWeight = Math.max(1, maxWeight / n);
+        this.segments = (Segment<E>[]) new Segment<?>[n];
+        for (int ii = 0; ii < n; ii++)
+            segments[ii] = new Segment<E>(maxSegmentWeight, evictions);
+    }
+
+    private Segment<E> segmentFor(int key)
+    {
+        int h = key * 0x9e3779b9;
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    public E get(int objectId)
+    {
+        Segment<E> segment = segmentFor(objectId);
+        E object = segment.get(objectId);
+        if (object != null)
+        {
+            hits.increment();
+            return object;
+        }
+
+        misses.increment();
+        object = load(objectId);
+        return segment.put(objectId, object, weigh(objectId, object));
+    }
+
+    public void clear()
+    {
+        for (Segment<E> segment : segments)
+            segment.clear();
+    }
+
+    /**
+     * Load an object not found in the cache.
+     * @param key the object id
+     * @return the object
+     */
+    protected abstract E load(int key);
+
+    /**
+     * Estimate the memory held by the object, including the data it will
+     * load on demand.
+     * @param key the object id
+     * @param object the loaded object
+     * @return the weight, usually in bytes
+     */
+    protected abstract long weigh(int key, E object);
+
+    /**
+     * The number of lookups answered from the cache.
+     * @return the hit count
+     */
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * The number of lookups which had to load the object.
+     * @return the miss count
+     */
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * The number of objects removed to keep within the weight bound.
+     * @return the eviction count
+     */
+    public long getEvictionCount()
+    {
+        return evictions.sum();
+    }
+
+    /**
+     * The current sum of the weights of the cached objects.
+     * @return the weight
+     */
+    public long getWeight()
+    {
+        long w = 0;
+        for (Segment<E> segment : segments)
+            w += segment.weight();
+        return w;
+    }
+
+    /**
+     * The weight of the largest object which can be cached.
+     * @return the budget of one segment
+     */
+    public long getMaxObjectWeight()
+    {
+        return maxSegmentWeight;
+    }
+
+    /**
+     * The upper bound of the weight.
+     * @return the maximum weight
+     */
+    public long getMaxWeight()
+    {
+        return maxSegmentWeight * segments.length;
+    }
+
+    /**
+     * The number of cached objects.
+     * @return the size
+     */
+    public int size()
+    {
+        int size = 0;
+        for (Segment<E> segment : segments)
+            size += segment.size();
+        return size;
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + " [size=" + size() + ", weight=" + getWeight() + "/" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                        + getMaxWeight() + ", hits=" + getHitCount() + ", misses=" + getMissCount() //$NON-NLS-1$ //$NON-NLS-2$
+                        + ", evictions=" + getEvictionCount() + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+}
@@ -57,6 +57,15 @@ public class HistogramBuilder extends HistogramRecord
         object.add(objectId, heapSize);
     }
 
+    public void addAll(int classId, int[] objectIds, long heapSize)
+    {
+        ClassHistogramRecordBuilder object = (ClassHistogramRecordBuilder) data.get(classId);
+        if (object == null)
+            data.put(classId, object = new ClassHistogramRecordBuilder(null, classId));
+
+        object.addAll(objectIds, heapSize);
+    }
+
     public Histogram toHistogram(SnapshotImpl snapshot, boolean isDefaultHistogram) throws SnapshotException
     {
         ArrayList<ClassHistogramRecord> classHistogramRecords = new ArrayList<ClassHistogramRecord>(data.size());
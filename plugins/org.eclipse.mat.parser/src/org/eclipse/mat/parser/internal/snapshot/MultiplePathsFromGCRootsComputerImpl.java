@@ -14,6 +14,8 @@
  *******************************************************************************/
 package org.eclipse.mat.parser.internal.snapshot;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -21,6 +23,11 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
@@ -29,6 +36,7 @@ import org.eclipse.mat.collect.IteratorInt;
 import org.eclipse.mat.collect.QueueInt;
 import org.eclipse.mat.collect.SetInt;
 import org.eclipse.mat.parser.index.IIndexReader;
+import org.eclipse.mat.parser.index.IndexWriter;
 import org.eclipse.mat.parser.internal.Messages;
 import org.eclipse.mat.parser.internal.SnapshotImpl;
 import org.eclipse.mat.snapshot.IMultiplePathsFromGCRootsComputer;
@@ -57,6 +65,15 @@ public class MultiplePathsFromGCRootsComputerImpl implements IMultiplePathsFromG
 
 	private static final int NOT_VISITED = -2;
 	private static final int NO_PARENT = -1;
+	/** Offset of the parent ids stored in the index, so that the special values are not negative */
+	private static final int INDEX_OFFSET = 2;
+
+	/** Levels smaller than this are searched on the calling thread */
+	private static final int MIN_PARALLEL_LEVEL = 10000;
+	/** Search bottom up once the level is larger than the unvisited objects divided by this */
+	private static final int BOTTOM_UP_ALPHA = 14;
+	/** Search top down again once the level is smaller than all objects divided by this */
+	private static final int TOP_DOWN_BETA = 24;
 
 	public MultiplePathsFromGCRootsComputerImpl(int[] objectIds, Map<IClass, Set<String>> excludeMap, SnapshotImpl snapshot) throws SnapshotException
 	{
@@ -90,13 +107,16 @@ public class MultiplePathsFromGCRootsComputerImpl implements IMultiplePathsFromG
 	{
 		ArrayList<int[]> pathsList = new ArrayList<int[]>();
 
+		// without exclusions the result of the breadth first search may be stored
+		IIndexReader.IOne2OneIndex parentIndex = excludeMap == null ? snapshot.getIndexManager().gcRootPath() : null;
+
 		// make a breadth first search for the objects, starting from the roots
-		int[] parent = bfs(progressListener);
+		int[] parent = parentIndex == null ? bfs(progressListener) : null;
 
 		// then get the shortest path per object
 		for (int i = 0; i < objectIds.length; i++)
 		{
-			int[] path = getPathFromBFS(objectIds[i], parent);
+			int[] path = parent != null ? getPathFromBFS(objectIds[i], parent) : getPathFromIndex(objectIds[i], parentIndex);
 
 			/*
 			 * if there is an exclude filter, for some objects there could be no
@@ -251,6 +271,12 @@ public class MultiplePathsFromGCRootsComputerImpl implements IMultiplePathsFromG
 		final boolean skipReferences = excludeMap != null; // should some paths
 		// be excluded?
 
+		// reading the excluded fields is I/O bound, so only search in parallel without exclusions
+		if (!skipReferences)
+		{
+			return parallelBfs(progressListener);
+		}
+
 		// used to store the parent of each object during the BFS
 		int[] parent = new int[numObjects];
 		Arrays.fill(parent, NOT_VISITED);
@@ -260,10 +286,18 @@ public class MultiplePathsFromGCRootsComputerImpl implements IMultiplePathsFromG
 
 		int count = 0; // the number of distinct objects whose paths should be
 		// calculated
-		for (int i : objectIds)
+		if (objectIds == null)
 		{
-			if (!toBeChecked[i]) count++;
-			toBeChecked[i] = true;
+			// search everything
+			count = Integer.MAX_VALUE;
+		}
+		else
+		{
+			for (int i : objectIds)
+			{
+				if (!toBeChecked[i]) count++;
+				toBeChecked[i] = true;
+			}
 		}
 
 		// use first-in-first-out to get the shortest paths
@@ -339,6 +373,244 @@ public class MultiplePathsFromGCRootsComputerImpl implements IMultiplePathsFromG
 		return parent;
 	}
 
+	/*
+	 * Level synchronous breadth first search using several threads, without exclusions.
+	 * Small levels are expanded top down along the outbound references. Large levels
+	 * are expanded bottom up: each unvisited object looks for a referrer in the level
+	 * along its inbound references, which avoids reading the outbound references of
+	 * most of a large level. Either way the parent is the lowest object id in the
+	 * level referring to the object, which is what the single threaded search finds,
+	 * so the paths are the same.
+	 */
+	private int[] parallelBfs(IProgressListener progressListener) throws SnapshotException
+	{
+		final int numObjects = snapshot.getSnapshotInfo().getNumberOfObjects();
+		final IIndexReader.IOne2ManyIndex inboundIndex = snapshot.getIndexManager().inbound();
+
+		final int[] parent = new int[numObjects];
+		Arrays.fill(parent, NOT_VISITED);
+
+		boolean[] toBeChecked = null;
+		int count = Integer.MAX_VALUE; // search everything
+		if (objectIds != null)
+		{
+			toBeChecked = new boolean[numObjects];
+			count = 0;
+			for (int i : objectIds)
+			{
+				if (!toBeChecked[i]) count++;
+				toBeChecked[i] = true;
+			}
+		}
+
+		ArrayInt current = new ArrayInt();
+		for (int root : snapshot.getGCRoots())
+		{
+			if (parent[root] == NOT_VISITED)
+			{
+				parent[root] = NO_PARENT;
+				current.add(root);
+			}
+		}
+		current.sort();
+
+		// the current level, for the bottom up search
+		final boolean[] inLevel = new boolean[numObjects];
+
+		final int steps = 1000;
+		int reported = 0;
+		progressListener.beginTask(Messages.MultiplePathsFromGCRootsComputerImpl_FindingPaths, steps);
+
+		// share the common pool rather than start threads for every search
+		ExecutorService executor = ForkJoinPool.commonPool();
+		int threads = ForkJoinPool.getCommonPoolParallelism();
+		long visited = current.size();
+		boolean bottomUp = false;
+		int previousSize = 0;
+		while (current.size() > 0)
+		{
+			if (toBeChecked != null)
+			{
+				for (IteratorInt it = current.iterator(); it.hasNext();)
+				{
+					if (toBeChecked[it.next()]) count--;
+				}
+			}
+			// were all the objects of interest reached?
+			if (count <= 0)
+				break;
+
+			// bottom up reads more references, but unlike top down it needs no
+			// single threaded step to choose the parents, so only use it with several threads
+			int size = current.size();
+			if (threads > 1 && !bottomUp && size > previousSize && (long) size * BOTTOM_UP_ALPHA > numObjects - visited)
+				bottomUp = true;
+			else if (bottomUp && size < previousSize && (long) size * TOP_DOWN_BETA < numObjects)
+				bottomUp = false;
+			previousSize = size;
+
+			final int[] level = current.toArray();
+			ArrayInt next;
+			if (bottomUp)
+				next = bottomUpStep(level, inLevel, parent, inboundIndex, threads, executor, progressListener);
+			else
+				next = topDownStep(level, parent, threads, executor, progressListener);
+
+			if (progressListener.isCanceled())
+				throw new IProgressListener.OperationCanceledException();
+
+			visited += next.size();
+			int done = (int) (visited * steps / numObjects);
+			if (done > reported)
+			{
+				progressListener.worked(done - reported);
+				reported = done;
+			}
+			current = next;
+		}
+		progressListener.done();
+		return parent;
+	}
+
+	/*
+	 * Expands a level along the outbound references. The threads only collect
+	 * the unvisited objects with their referrer, the parents are then assigned
+	 * in the order of the level.
+	 */
+	private ArrayInt topDownStep(final int[] level, final int[] parent, int threads, ExecutorService executor,
+			final IProgressListener progressListener) throws SnapshotException
+	{
+		int tasks = level.length < MIN_PARALLEL_LEVEL ? 1 : Math.min(threads * 4, level.length / (MIN_PARALLEL_LEVEL / 4));
+		List<Callable<ArrayInt>> work = new ArrayList<Callable<ArrayInt>>(tasks);
+		for (int t = 0; t < tasks; t++)
+		{
+			final int from = (int) ((long) level.length * t / tasks);
+			final int to = (int) ((long) level.length * (t + 1) / tasks);
+			work.add(new Callable<ArrayInt>()
+			{
+				public ArrayInt call()
+				{
+					// pairs of object, referrer
+					ArrayInt found = new ArrayInt();
+					for (int i = from; i < to; i++)
+					{
+						if ((i & 0xfff) == 0 && progressListener.isCanceled())
+							break;
+						int objectId = level[i];
+						for (int child : outboundIndex.get(objectId))
+						{
+							if (parent[child] == NOT_VISITED)
+							{
+								found.add(child);
+								found.add(objectId);
+							}
+						}
+					}
+					return found;
+				}
+			});
+		}
+
+		ArrayInt next = new ArrayInt();
+		for (ArrayInt found : invokeAll(executor, work))
+		{
+			for (int i = 0; i < found.size(); i += 2)
+			{
+				int child = found.get(i);
+				if (parent[child] == NOT_VISITED)
+				{
+					parent[child] = found.get(i + 1);
+					next.add(child);
+				}
+			}
+		}
+		next.sort();
+		return next;
+	}
+
+	/*
+	 * Expands a level by checking the inbound references of all unvisited objects.
+	 * Each thread owns a range of objects, so the parents can be set directly.
+	 */
+	private ArrayInt bottomUpStep(int[] level, final boolean[] inLevel, final int[] parent,
+			final IIndexReader.IOne2ManyIndex inboundIndex, int threads, ExecutorService executor,
+			final IProgressListener progressListener) throws SnapshotException
+	{
+		for (int objectId : level)
+			inLevel[objectId] = true;
+
+		int tasks = threads * 16;
+		List<Callable<ArrayInt>> work = new ArrayList<Callable<ArrayInt>>(tasks);
+		for (int t = 0; t < tasks; t++)
+		{
+			final int from = (int) ((long) parent.length * t / tasks);
+			final int to = (int) ((long) parent.length * (t + 1) / tasks);
+			work.add(new Callable<ArrayInt>()
+			{
+				public ArrayInt call()
+				{
+					ArrayInt found = new ArrayInt();
+					for (int objectId = from; objectId < to; objectId++)
+					{
+						if ((objectId & 0xfff) == 0 && progressListener.isCanceled())
+							break;
+						if (parent[objectId] != NOT_VISITED)
+							continue;
+						int lowest = NOT_VISITED;
+						for (int referrer : inboundIndex.get(objectId))
+						{
+							if (inLevel[referrer] && (lowest == NOT_VISITED || referrer < lowest))
+								lowest = referrer;
+						}
+						if (lowest != NOT_VISITED)
+						{
+							parent[objectId] = lowest;
+							found.add(objectId);
+						}
+					}
+					return found;
+				}
+			});
+		}
+
+		// the ranges are in order, so the next level is sorted
+		ArrayInt next = new ArrayInt();
+		for (ArrayInt found : invokeAll(executor, work))
+			next.addAll(found);
+
+		for (int objectId : level)
+			inLevel[objectId] = false;
+		return next;
+	}
+
+	private static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> work) throws SnapshotException
+	{
+		List<T> results = new ArrayList<T>(work.size());
+		try
+		{
+			if (work.size() == 1)
+			{
+				results.add(work.get(0).call());
+				return results;
+			}
+			for (Future<T> future : executor.invokeAll(work))
+				results.add(future.get());
+			return results;
+		}
+		catch (ExecutionException e)
+		{
+			throw SnapshotException.rethrow(e.getCause());
+		}
+		catch (InterruptedException e)
+		{
+			throw new SnapshotException(e);
+		}
+		catch (Exception e)
+		{
+			throw SnapshotException.rethrow(e);
+		}
+	}
+
 	/*
 	 * Returns the shortest path to an object, using the stored parent of every
 	 * needed object calculated during a BFS
@@ -367,6 +639,61 @@ public class MultiplePathsFromGCRootsComputerImpl implements IMultiplePathsFromG
 		return path.toArray();
 	}
 
+	/**
+	 * Returns the shortest path to an object from the stored result of a
+	 * breadth first search without exclusions.
+	 * 
+	 * @param objectId the object to which a path should be calculated
+	 * @param parentIndex the index written by {@link #writeParentIndex(SnapshotImpl, File, IProgressListener)}
+	 * @return the shortest path from a GC root, the object of interest is at
+	 *         index 0, the GC root at index length-1, or null if the object is not reachable
+	 */
+	public static int[] getPathFromIndex(int objectId, IIndexReader.IOne2OneIndex parentIndex)
+	{
+		int p = parentIndex.get(objectId) - INDEX_OFFSET;
+		if (p == NOT_VISITED) return null;
+
+		ArrayInt path = new ArrayInt();
+		path.add(objectId);
+		while (p != NO_PARENT)
+		{
+			path.add(p);
+			p = parentIndex.get(p) - INDEX_OFFSET;
+		}
+
+		return path.toArray();
+	}
+
+	/**
+	 * Runs the breadth first search from the GC roots over the whole snapshot and
+	 * stores the parent of each object, so shortest paths without exclusions
+	 * can later be found by {@link #getPathFromIndex(int, IIndexReader.IOne2OneIndex)}.
+	 * 
+	 * @param snapshot the snapshot
+	 * @param indexFile the file to write
+	 * @param progressListener to report progress
+	 * @return the reader of the index
+	 */
+	public static IIndexReader.IOne2OneIndex writeParentIndex(SnapshotImpl snapshot, File indexFile,
+			IProgressListener progressListener) throws SnapshotException, IOException
+	{
+		final int[] parent = new MultiplePathsFromGCRootsComputerImpl(null, null, snapshot).bfs(progressListener);
+		return new IndexWriter.IntIndexStreamer().writeTo(indexFile, new IteratorInt()
+		{
+			int nextIndex = 0;
+
+			public boolean hasNext()
+			{
+				return nextIndex < parent.length;
+			}
+
+			public int next()
+			{
+				return parent[nextIndex++] + INDEX_OFFSET;
+			}
+		});
+	}
+
     /**
      * Used for sorting {@link ObjectReference} by address.
      */
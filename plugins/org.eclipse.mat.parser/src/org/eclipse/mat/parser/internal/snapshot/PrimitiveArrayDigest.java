@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.parser.index.IIndexReader.IOne2LongIndex;
+import org.eclipse.mat.parser.index.IIndexReader.IOne2OneIndex;
+import org.eclipse.mat.parser.index.IndexReader;
+import org.eclipse.mat.parser.index.IndexWriter;
+import org.eclipse.mat.parser.internal.SnapshotImpl;
+import org.eclipse.mat.snapshot.IPrimitiveArrayDigest;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IPrimitiveArray;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * The length, constant value flag and content hash of all primitive arrays.
+ * <p>
+ * The arrays are read with one scan, without filling the object cache, and
+ * the digest is stored in int and long index files, which are read page by
+ * page when needed:
+ * <ul>
+ * <li><code>a2digest.length.index</code>, <code>a2digest.constant.index</code>
+ * and <code>a2digest.hash.index</code> per array the length, 1 if the value
+ * is constant, and the hash</li>
+ * <li><code>a2digest.ids.index</code> the object ids of the arrays in
+ * ascending order, written last so that the digest is only found once
+ * complete</li>
+ * </ul>
+ */
+public class PrimitiveArrayDigest implements IPrimitiveArrayDigest
+{
+    private static final String IDS = "a2digest.ids.index"; //$NON-NLS-1$
+    private static final String LENGTH = "a2digest.length.index"; //$NON-NLS-1$
+    private static final String CONSTANT = "a2digest.constant.index"; //$NON-NLS-1$
+    private static final String HASH = "a2digest.hash.index"; //$NON-NLS-1$
+
+    /** Arrays are read in pieces of this many elements */
+    private static final int BUFSIZE = 16 * 1024;
+
+    private static final String[] TYPES = { "boolean[]", "char[]", "float[]", "double[]", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+                    "byte[]", "short[]", "int[]", "long[]" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+
+    /** ascending */
+    private final IOne2OneIndex objectIds;
+    private final IOne2OneIndex lengths;
+    private final IOne2OneIndex constants;
+    private final IOne2LongIndex hashes;
+
+    private PrimitiveArrayDigest(IOne2OneIndex objectIds, IOne2OneIndex lengths, IOne2OneIndex constants,
+                    IOne2LongIndex hashes)
+    {
+        this.objectIds = objectIds;
+        this.lengths = lengths;
+        this.constants = constants;
+        this.hashes = hashes;
+    }
+
+    /**
+     * The file showing whether the digest is present.
+     */
+    public static File getFile(String prefix)
+    {
+        return new File(prefix + IDS);
+    }
+
+    /**
+     * Reads all primitive arrays of the snapshot and writes the index files.
+     * 
+     * @param snapshot the snapshot
+     * @param listener to report progress
+     * @return the digest
+     */
+    public static PrimitiveArrayDigest calculate(SnapshotImpl snapshot, IProgressListener listener)
+                    throws SnapshotException, IOException
+    {
+        ArrayInt all = new ArrayInt();
+        ArrayInt classIds = new ArrayInt();
+        for (String type : TYPES)
+        {
+            Collection<IClass> classes = snapshot.getClassesByName(type, false);
+            if (classes != null)
+            {
+                for (IClass clazz : classes)
+                {
+                    classIds.add(clazz.getObjectId());
+                    all.addAll(clazz.getObjectIds());
+                }
+            }
+        }
+        final int[] objectIds = all.toArray();
+        all = null;
+        Arrays.sort(objectIds);
+
+        final int size = objectIds.length;
+        final int[] lengths = new int[size];
+        final int[] constants = new int[size];
+        final long[] hashes = new long[size];
+
+        // the arrays are read without filling the object cache
+        snapshot.scanObjects(classIds.toArray(), object -> {
+            int ii = Arrays.binarySearch(objectIds, object.getObjectId());
+            IPrimitiveArray array = (IPrimitiveArray) object;
+            Digest digest = new Digest();
+            digest.read(array);
+            lengths[ii] = array.getLength();
+            constants[ii] = digest.constant && lengths[ii] > 1 ? 1 : 0;
+            hashes[ii] = digest.getHash();
+        }, listener);
+
+        String prefix = snapshot.getSnapshotInfo().getPrefix();
+        IOne2OneIndex lengthsIndex = new IndexWriter.IntIndexStreamer().writeTo(new File(prefix + LENGTH), lengths);
+        IOne2OneIndex constantsIndex = new IndexWriter.IntIndexStreamer().writeTo(new File(prefix + CONSTANT),
+                        constants);
+        IOne2LongIndex hashesIndex = new IndexWriter.LongIndexStreamer().writeTo(new File(prefix + HASH), hashes);
+        IOne2OneIndex objectIdsIndex = new IndexWriter.IntIndexStreamer().writeTo(getFile(prefix), objectIds);
+
+        return new PrimitiveArrayDigest(objectIdsIndex, lengthsIndex, constantsIndex, hashesIndex);
+    }
+
+    /**
+     * Hashes the elements of one array at a time.
+     */
+    private static class Digest
+    {
+        long hash;
+        long first;
+        boolean constant;
+        int count;
+
+        void read(IPrimitiveArray array)
+        {
+            int length = array.getLength();
+            hash = (array.getType() + 1) * 0x9e3779b97f4a7c15L ^ length;
+            constant = true;
+            count = 0;
+            for (int offset = 0; offset < length;)
+            {
+                Object values = array.getValueArray(offset, Math.min(length - offset, BUFSIZE));
+                int read = Array.getLength(values);
+                if (read == 0)
+                    break;
+                offset += read;
+
+                if (values instanceof byte[])
+                    for (byte value : (byte[]) values)
+                        add(value);
+                else if (values instanceof char[])
+                    for (char value : (char[]) values)
+                        add(value);
+                else if (values instanceof int[])
+                    for (int value : (int[]) values)
+                        add(value);
+                else if (values instanceof long[])
+                    for (long value : (long[]) values)
+                        add(value);
+                else if (values instanceof short[])
+                    for (short value : (short[]) values)
+                        add(value);
+                else if (values instanceof boolean[])
+                    for (boolean value : (boolean[]) values)
+                        add(value ? 1 : 0);
+                else if (values instanceof float[])
+                    for (float value : (float[]) values)
+                        add(Float.floatToRawIntBits(value));
+                else if (values instanceof double[])
+                    for (double value : (double[]) values)
+                        add(Double.doubleToRawLongBits(value));
+            }
+        }
+
+        private void add(long value)
+        {
+            if (count++ == 0)
+                first = value;
+            else if (value != first)
+                constant = false;
+            hash = (hash ^ value) * 0x100000001b3L;
+            hash ^= hash >>> 29;
+        }
+
+        long getHash()
+        {
+            long h = hash;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+
+    /**
+     * Opens the index files written by {@link #calculate(SnapshotImpl, IProgressListener)}.
+     * 
+     * @param prefix the prefix of the snapshot
+     * @return the digest, or null if the digest has not been written
+     */
+    public static PrimitiveArrayDigest open(String prefix) throws IOException
+    {
+        if (!getFile(prefix).exists())
+            return null;
+        return new PrimitiveArrayDigest(new IndexReader.IntIndexReader(getFile(prefix)), //
+                        new IndexReader.IntIndexReader(new File(prefix + LENGTH)), //
+                        new IndexReader.IntIndexReader(new File(prefix + CONSTANT)), //
+                        new IndexReader.LongIndexReader(new File(prefix + HASH)));
+    }
+
+    /**
+     * Closes the index files.
+     */
+    public void close() throws IOException
+    {
+        objectIds.close();
+        lengths.close();
+        constants.close();
+        hashes.close();
+    }
+
+    private int position(int objectId)
+    {
+        int low = 0;
+        int high = objectIds.size() - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int midVal = objectIds.get(mid);
+            if (midVal < objectId)
+                low = mid + 1;
+            else if (midVal > objectId)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    public int[] getObjectIds()
+    {
+        return objectIds.size() > 0 ? objectIds.getNext(0, objectIds.size()) : new int[0];
+    }
+
+    public boolean contains(int objectId)
+    {
+        return position(objectId) >= 0;
+    }
+
+    public int getLength(int objectId)
+    {
+        int pos = position(objectId);
+        return pos >= 0 ? lengths.get(pos) : -1;
+    }
+
+    public boolean isConstant(int objectId)
+    {
+        int pos = position(objectId);
+        return pos >= 0 && constants.get(pos) != 0;
+    }
+
+    public long getHash(int objectId)
+    {
+        int pos = position(objectId);
+        return pos >= 0 ? hashes.get(pos) : 0;
+    }
+}
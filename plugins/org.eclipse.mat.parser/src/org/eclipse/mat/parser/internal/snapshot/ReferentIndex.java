@@ -0,0 +1,442 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.BitField;
+import org.eclipse.mat.collect.HashMapIntObject;
+import org.eclipse.mat.collect.SetInt;
+import org.eclipse.mat.parser.index.IIndexReader;
+import org.eclipse.mat.parser.internal.Messages;
+import org.eclipse.mat.parser.internal.SnapshotImpl;
+import org.eclipse.mat.parser.internal.util.IntStack;
+import org.eclipse.mat.snapshot.IReferentIndex;
+import org.eclipse.mat.snapshot.model.Field;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IInstance;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.snapshot.model.ObjectReference;
+import org.eclipse.mat.util.IProgressListener;
+import org.eclipse.mat.util.MessageUtil;
+
+/**
+ * The referent, queue and kind of every reference object.
+ * <p>
+ * The reference objects are read once, with a scan of the snapshot, while the
+ * snapshot is parsed. The index is stored in <code>referent.index</code>:
+ * <ul>
+ * <li>a header with the format version and the number of references</li>
+ * <li>per reference the object id, the kind, the referent id and the queue
+ * id, in ascending order of the object ids</li>
+ * </ul>
+ * The retained sets are not stored. They are calculated on first use for all
+ * the kinds at once by a single marking from the GC roots, which keeps for
+ * each object one bit per kind saying whether the object is reachable without
+ * the references of that kind, and one bit saying whether the object is
+ * reachable without the referents of that kind. Most objects get all the bits,
+ * so only the objects missing some of them are kept, with their bits.
+ */
+public class ReferentIndex implements IReferentIndex
+{
+    /** "MAT_REF" followed by the format version */
+    private static final long MAGIC = 0x4d41545f52454601L;
+
+    public static final String FILENAME = "referent.index"; //$NON-NLS-1$
+
+    private static final String REFERENT = "referent"; //$NON-NLS-1$
+    private static final String QUEUE = "queue"; //$NON-NLS-1$
+
+    private static final Pattern QUEUE_PATTERN = Pattern.compile("java\\.lang\\.ref\\..*ReferenceQueue.*"); //$NON-NLS-1$
+
+    private static final Kind[] KINDS = Kind.values();
+
+    /** Set in the kind if another field of the reference also refers to the referent */
+    private static final byte STRONGLY_HELD = 0x40;
+
+    /** Newly reached objects between progress reports and checks for cancellation */
+    private static final int MARK_STEP = 100000;
+
+    private final SnapshotImpl snapshot;
+    /** ascending */
+    private final int[] referenceIds;
+    private final byte[] kinds;
+    private final int[] referents;
+    private final int[] queues;
+
+    /** ascending, the objects which did not get all the bits from the marking, null until first used */
+    private int[] partialIds;
+    /** the bits of those objects */
+    private short[] partialMarks;
+
+    private ReferentIndex(SnapshotImpl snapshot, int[] referenceIds, byte[] kinds, int[] referents, int[] queues)
+    {
+        this.snapshot = snapshot;
+        this.referenceIds = referenceIds;
+        this.kinds = kinds;
+        this.referents = referents;
+        this.queues = queues;
+    }
+
+    public static File getFile(String prefix)
+    {
+        return new File(prefix + FILENAME);
+    }
+
+    /**
+     * Reads the referent and queue of all the reference objects.
+     * 
+     * @param snapshot the snapshot
+     * @param listener to report progress
+     * @return the index
+     */
+    public static ReferentIndex calculate(SnapshotImpl snapshot, IProgressListener listener)
+                    throws SnapshotException
+    {
+        final HashMapIntObject<Kind> classKinds = new HashMapIntObject<Kind>();
+        ArrayInt ids = new ArrayInt();
+        for (IClass clazz : snapshot.getClasses())
+        {
+            Kind kind = kindOf(clazz);
+            if (kind != null)
+            {
+                classKinds.put(clazz.getObjectId(), kind);
+                ids.addAll(clazz.getObjectIds());
+            }
+        }
+
+        final int[] referenceIds = ids.toArray();
+        ids = null;
+        Arrays.sort(referenceIds);
+        final byte[] kinds = new byte[referenceIds.length];
+        final int[] referents = new int[referenceIds.length];
+        final int[] queues = new int[referenceIds.length];
+        Arrays.fill(referents, -1);
+        Arrays.fill(queues, -1);
+
+        listener.subTask(Messages.ReferentIndex_Calculating);
+        // each object is written to its own position, so no locking is needed
+        snapshot.scanObjects(classKinds.getAllKeys(), object -> {
+            int pos = Arrays.binarySearch(referenceIds, object.getObjectId());
+            if (pos < 0)
+                return;
+            Kind kind = classKinds.get(object.getClazz().getObjectId());
+            kinds[pos] = (byte) kind.ordinal();
+            if (!(object instanceof IInstance))
+                return;
+            IInstance instance = (IInstance) object;
+
+            Field field = instance.getField(REFERENT);
+            if (field != null)
+            {
+                if (field.getValue() instanceof ObjectReference)
+                {
+                    long address = ((ObjectReference) field.getValue()).getObjectAddress();
+                    referents[pos] = mapAddressToId(snapshot, address);
+                    for (Field other : instance.getFields())
+                    {
+                        if (other != field && other.getValue() instanceof ObjectReference
+                                        && ((ObjectReference) other.getValue()).getObjectAddress() == address)
+                            kinds[pos] |= STRONGLY_HELD;
+                    }
+                }
+            }
+            else
+            {
+                // see [266231] guess the referent for dumps without field names
+                referents[pos] = guessReferent(snapshot, instance, classKinds);
+            }
+
+            field = instance.getField(QUEUE);
+            if (field != null && field.getValue() instanceof ObjectReference)
+                queues[pos] = mapAddressToId(snapshot, ((ObjectReference) field.getValue()).getObjectAddress());
+        }, listener);
+
+        return new ReferentIndex(snapshot, referenceIds, kinds, referents, queues);
+    }
+
+    private static Kind kindOf(IClass clazz)
+    {
+        for (IClass c = clazz; c != null; c = c.getSuperClass())
+        {
+            String name = c.getName();
+            if ("java.lang.ref.SoftReference".equals(name)) //$NON-NLS-1$
+                return Kind.SOFT;
+            else if ("java.lang.ref.WeakReference".equals(name)) //$NON-NLS-1$
+                return Kind.WEAK;
+            else if ("java.lang.ref.PhantomReference".equals(name)) //$NON-NLS-1$
+                return Kind.PHANTOM;
+            else if ("java.lang.ref.Finalizer".equals(name)) //$NON-NLS-1$
+                return Kind.FINAL;
+            else if ("java.lang.ref.Reference".equals(name)) //$NON-NLS-1$
+                return Kind.OTHER;
+        }
+        return null;
+    }
+
+    private static int mapAddressToId(SnapshotImpl snapshot, long address)
+    {
+        if (address == 0)
+            return -1;
+        try
+        {
+            return snapshot.mapAddressToId(address);
+        }
+        catch (SnapshotException e)
+        {
+            // the referent is missing from the dump
+            return -1;
+        }
+    }
+
+    /**
+     * The first outbound reference which is not the class, another reference
+     * ('next') or a queue ('queue').
+     */
+    private static int guessReferent(SnapshotImpl snapshot, IObject instance, HashMapIntObject<Kind> classKinds)
+                    throws SnapshotException
+    {
+        int classId = instance.getClazz().getObjectId();
+        for (int outboundId : snapshot.getOutboundReferentIds(instance.getObjectId()))
+        {
+            if (outboundId == classId)
+                continue;
+            IClass outboundType = snapshot.getClassOf(outboundId);
+            if (classKinds.containsKey(outboundType.getObjectId()))
+                continue;
+            if (QUEUE_PATTERN.matcher(outboundType.getName()).matches()
+                            || outboundType.doesExtend("java.lang.ref.ReferenceQueue")) //$NON-NLS-1$
+                continue;
+            return outboundId;
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the index so it can be reopened with the snapshot.
+     */
+    public void write(File file) throws IOException
+    {
+        boolean done = false;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            out.writeLong(MAGIC);
+            out.writeInt(referenceIds.length);
+            for (int ii = 0; ii < referenceIds.length; ii++)
+            {
+                out.writeInt(referenceIds[ii]);
+                out.writeByte(kinds[ii]);
+                out.writeInt(referents[ii]);
+                out.writeInt(queues[ii]);
+            }
+            done = true;
+        }
+        finally
+        {
+            if (!done)
+                file.delete();
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #write(File)}.
+     */
+    public static ReferentIndex read(File file, SnapshotImpl snapshot) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readLong() != MAGIC)
+                throw new IOException(MessageUtil.format(Messages.IndexReader_Error_UnknownFormat,
+                                file.getAbsolutePath()));
+            int size = in.readInt();
+            int[] referenceIds = new int[size];
+            byte[] kinds = new byte[size];
+            int[] referents = new int[size];
+            int[] queues = new int[size];
+            for (int ii = 0; ii < size; ii++)
+            {
+                referenceIds[ii] = in.readInt();
+                kinds[ii] = in.readByte();
+                referents[ii] = in.readInt();
+                queues[ii] = in.readInt();
+            }
+            return new ReferentIndex(snapshot, referenceIds, kinds, referents, queues);
+        }
+    }
+
+    public int[] getReferenceIds(Kind kind)
+    {
+        ArrayInt result = new ArrayInt();
+        for (int ii = 0; ii < referenceIds.length; ii++)
+        {
+            if (kindAt(ii) == kind)
+                result.add(referenceIds[ii]);
+        }
+        return result.toArray();
+    }
+
+    public int[] getReferentIds(Kind kind)
+    {
+        SetInt result = new SetInt();
+        for (int ii = 0; ii < referenceIds.length; ii++)
+        {
+            if (kindAt(ii) == kind && referents[ii] >= 0)
+                result.add(referents[ii]);
+        }
+        int[] answer = result.toArray();
+        Arrays.sort(answer);
+        return answer;
+    }
+
+    public Kind getKind(int referenceId)
+    {
+        int pos = Arrays.binarySearch(referenceIds, referenceId);
+        return pos >= 0 ? kindAt(pos) : null;
+    }
+
+    public int getReferentId(int referenceId)
+    {
+        int pos = Arrays.binarySearch(referenceIds, referenceId);
+        return pos >= 0 ? referents[pos] : -1;
+    }
+
+    public int getQueueId(int referenceId)
+    {
+        int pos = Arrays.binarySearch(referenceIds, referenceId);
+        return pos >= 0 ? queues[pos] : -1;
+    }
+
+    public int[] getReferentRetainedSet(Kind kind, IProgressListener listener) throws SnapshotException
+    {
+        return unmarked(1 << (KINDS.length + kind.ordinal()), listener);
+    }
+
+    public int[] getRetainedSet(Kind kind, IProgressListener listener) throws SnapshotException
+    {
+        return unmarked(1 << kind.ordinal(), listener);
+    }
+
+    private Kind kindAt(int pos)
+    {
+        return KINDS[kinds[pos] & ~STRONGLY_HELD];
+    }
+
+    private synchronized int[] unmarked(int bit, IProgressListener listener) throws SnapshotException
+    {
+        if (partialIds == null)
+            mark(listener);
+        ArrayInt result = new ArrayInt();
+        for (int ii = 0; ii < partialIds.length; ii++)
+        {
+            if ((partialMarks[ii] & bit) == 0)
+                result.add(partialIds[ii]);
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Marks all the objects from the GC roots. Bit k of an object is set if it
+     * can be reached without going through the references of kind k, and bit
+     * (number of kinds + k) is set if it can be reached without following the
+     * referents of the references of kind k. An object is visited again only
+     * when it gains bits, so each object is visited at most once per bit.
+     * Afterwards only the objects without all the bits are kept.
+     */
+    private void mark(IProgressListener listener) throws SnapshotException
+    {
+        int numberOfObjects = snapshot.getSnapshotInfo().getNumberOfObjects();
+        IIndexReader.IOne2ManyIndex outbound = snapshot.getIndexManager().outbound();
+        BitField isReference = new BitField(numberOfObjects);
+        for (int referenceId : referenceIds)
+            isReference.set(referenceId);
+        final int all = (1 << (2 * KINDS.length)) - 1;
+
+        listener.beginTask(Messages.ReferentIndex_Marking, numberOfObjects / MARK_STEP + 1);
+        short[] bits = new short[numberOfObjects];
+        int reached = 0;
+        IntStack stack = new IntStack();
+        for (int rootId : snapshot.getGCRoots())
+        {
+            int mask = all;
+            if (isReference.get(rootId))
+                mask &= ~(1 << kindAt(Arrays.binarySearch(referenceIds, rootId)).ordinal());
+            if ((mask & ~bits[rootId]) != 0)
+            {
+                if (bits[rootId] == 0)
+                    reached++;
+                bits[rootId] |= mask;
+                stack.push(rootId);
+            }
+        }
+
+        while (stack.size() > 0)
+        {
+            int current = stack.pop();
+            int mask = bits[current];
+            int referent = -1;
+            int cut = 0;
+            if (isReference.get(current))
+            {
+                int pos = Arrays.binarySearch(referenceIds, current);
+                referent = referents[pos];
+                if ((kinds[pos] & STRONGLY_HELD) == 0)
+                    cut = 1 << (KINDS.length + kindAt(pos).ordinal());
+            }
+            for (int child : outbound.get(current))
+            {
+                int childMask = mask;
+                if (child == referent)
+                    childMask &= ~cut;
+                if (isReference.get(child))
+                    childMask &= ~(1 << kindAt(Arrays.binarySearch(referenceIds, child)).ordinal());
+                if ((childMask & ~bits[child]) != 0)
+                {
+                    if (bits[child] == 0 && ++reached % MARK_STEP == 0)
+                    {
+                        if (listener.isCanceled())
+                            throw new IProgressListener.OperationCanceledException();
+                        listener.worked(1);
+                    }
+                    bits[child] |= childMask;
+                    stack.push(child);
+                }
+            }
+        }
+        listener.done();
+        stack = null;
+        isReference = null;
+
+        ArrayInt ids = new ArrayInt();
+        for (int ii = 0; ii < numberOfObjects; ii++)
+        {
+            if (bits[ii] != all)
+                ids.add(ii);
+        }
+        partialIds = ids.toArray();
+        ids = null;
+        partialMarks = new short[partialIds.length];
+        for (int ii = 0; ii < partialIds.length; ii++)
+            partialMarks[ii] = bits[partialIds[ii]];
+    }
+}
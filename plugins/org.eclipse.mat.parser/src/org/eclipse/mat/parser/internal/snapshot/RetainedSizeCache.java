@@ -57,7 +57,7 @@ public class RetainedSizeCache implements IIndexReader
         readId2Size(snapshotInfo.getPrefix());
     }
 
-    public long get(int key)
+    public synchronized long get(int key)
     {
         try
         {
@@ -70,13 +70,13 @@ public class RetainedSizeCache implements IIndexReader
         }
     }
 
-    public void put(int key, long value)
+    public synchronized void put(int key, long value)
     {
         id2size.put(key, value);
         isDirty = true;
     }
 
-    public void close()
+    public synchronized void close()
     {
         if (!isDirty)
             return;
@@ -161,7 +161,7 @@ public class RetainedSizeCache implements IIndexReader
         }
     }
 
-    public int size()
+    public synchronized int size()
     {
         return id2size.size();
     }
@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.parser.internal.snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.IteratorInt;
+import org.eclipse.mat.collect.IteratorLong;
+import org.eclipse.mat.parser.index.IIndexReader.IOne2LongIndex;
+import org.eclipse.mat.parser.index.IIndexReader.IOne2OneIndex;
+import org.eclipse.mat.parser.index.IndexReader;
+import org.eclipse.mat.parser.index.IndexWriter;
+import org.eclipse.mat.parser.internal.SnapshotImpl;
+import org.eclipse.mat.snapshot.IStringIndex;
+import org.eclipse.mat.snapshot.model.IArray;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.snapshot.model.IPrimitiveArray;
+import org.eclipse.mat.util.IProgressListener;
+
+/**
+ * The contents of the strings of a snapshot, with equal contents stored once.
+ * <p>
+ * The index is built with one scan over the strings and stored in int and
+ * long index files, which are read page by page when needed:
+ * <ul>
+ * <li><code>strings.chars.index</code> the characters of all contents, one
+ * after the other</li>
+ * <li><code>strings.charpos.index</code> per content the position of its
+ * first character, followed by the total number of characters</li>
+ * <li><code>strings.content.index</code>, <code>strings.length.index</code>,
+ * <code>strings.offset.index</code>, <code>strings.array.index</code> and
+ * <code>strings.coder.index</code> per string the content id, the length, the
+ * offset, the array id and the coder, all but the offset stored plus one so
+ * that -1 is stored as 0</li>
+ * <li><code>strings.ids.index</code> the object ids of the strings in
+ * ascending order, written last so that the index is only found once
+ * complete</li>
+ * </ul>
+ */
+public class StringIndex implements IStringIndex
+{
+    private static final String IDS = "strings.ids.index"; //$NON-NLS-1$
+    private static final String CHARS = "strings.chars.index"; //$NON-NLS-1$
+    private static final String CHARPOS = "strings.charpos.index"; //$NON-NLS-1$
+    private static final String CONTENT = "strings.content.index"; //$NON-NLS-1$
+    private static final String LENGTH = "strings.length.index"; //$NON-NLS-1$
+    private static final String OFFSET = "strings.offset.index"; //$NON-NLS-1$
+    private static final String ARRAY = "strings.array.index"; //$NON-NLS-1$
+    private static final String CODER = "strings.coder.index"; //$NON-NLS-1$
+
+    /** ascending */
+    private final IOne2OneIndex objectIds;
+    private final IOne2OneIndex chars;
+    private final IOne2LongIndex charPositions;
+    private final IOne2OneIndex contentIds;
+    private final IOne2OneIndex lengths;
+    private final IOne2OneIndex offsets;
+    private final IOne2OneIndex arrayIds;
+    private final IOne2OneIndex coders;
+
+    private StringIndex(IOne2OneIndex objectIds, IOne2OneIndex chars, IOne2LongIndex charPositions,
+                    IOne2OneIndex contentIds, IOne2OneIndex lengths, IOne2OneIndex offsets, IOne2OneIndex arrayIds,
+                    IOne2OneIndex coders)
+    {
+        this.objectIds = objectIds;
+        this.chars = chars;
+        this.charPositions = charPositions;
+        this.contentIds = contentIds;
+        this.lengths = lengths;
+        this.offsets = offsets;
+        this.arrayIds = arrayIds;
+        this.coders = coders;
+    }
+
+    /**
+     * The file showing whether the index is present.
+     */
+    public static File getFile(String prefix)
+    {
+        return new File(prefix + IDS);
+    }
+
+    /**
+     * Reads all strings of the snapshot and writes the index files.
+     * 
+     * @param snapshot the snapshot
+     * @param listener to report progress
+     * @return the index
+     */
+    public static StringIndex calculate(SnapshotImpl snapshot, IProgressListener listener) throws SnapshotException,
+                    IOException
+    {
+        ArrayInt all = new ArrayInt();
+        ArrayInt classIds = new ArrayInt();
+        Collection<IClass> classes = snapshot.getClassesByName("java.lang.String", false); //$NON-NLS-1$
+        if (classes != null)
+        {
+            for (IClass clazz : classes)
+            {
+                classIds.add(clazz.getObjectId());
+                all.addAll(clazz.getObjectIds());
+            }
+        }
+        final int[] objectIds = all.toArray();
+        all = null;
+        Arrays.sort(objectIds);
+
+        int size = objectIds.length;
+        final int[] contentIds = new int[size];
+        final int[] lengths = new int[size];
+        final int[] offsets = new int[size];
+        final int[] arrayIds = new int[size];
+        final int[] coders = new int[size];
+        final Map<String, Integer> content2id = new ConcurrentHashMap<String, Integer>();
+        final AtomicInteger nextContentId = new AtomicInteger();
+
+        // the objects are read without filling the object cache
+        snapshot.scanObjects(classIds.toArray(), string -> {
+            int ii = Arrays.binarySearch(objectIds, string.getObjectId());
+
+            String content = string.getClassSpecificName();
+            contentIds[ii] = content == null ? -1
+                            : content2id.computeIfAbsent(content, c -> nextContentId.getAndIncrement());
+
+            Object value = string.resolveValue("value"); //$NON-NLS-1$
+            Object count = string.resolveValue("count"); //$NON-NLS-1$
+            Object offset = string.resolveValue("offset"); //$NON-NLS-1$
+            Object coder = string.resolveValue("coder"); //$NON-NLS-1$
+
+            arrayIds[ii] = value instanceof IObject ? ((IObject) value).getObjectId() : -1;
+            offsets[ii] = offset instanceof Integer ? (Integer) offset : 0;
+            coders[ii] = coder instanceof Byte ? (Byte) coder : -1;
+            if (count instanceof Integer)
+                lengths[ii] = (Integer) count;
+            else if (!(value instanceof IArray))
+                lengths[ii] = -1;
+            else if (value instanceof IPrimitiveArray && ((IPrimitiveArray) value).getType() == IObject.Type.BYTE
+                            && coders[ii] != 0)
+                // UTF-16 compact string, two bytes per character
+                lengths[ii] = ((IArray) value).getLength() / 2;
+            else
+                lengths[ii] = ((IArray) value).getLength();
+        }, listener);
+
+        final String[] contents = new String[content2id.size()];
+        for (Map.Entry<String, Integer> entry : content2id.entrySet())
+            contents[entry.getValue()] = entry.getKey();
+        content2id.clear();
+
+        String prefix = snapshot.getSnapshotInfo().getPrefix();
+        IOne2OneIndex charsIndex = new IndexWriter.IntIndexStreamer().writeTo(new File(prefix + CHARS),
+                        new IteratorInt()
+                        {
+                            int content = 0;
+                            int pos = 0;
+                            int written = 0;
+
+                            public boolean hasNext()
+                            {
+                                while (content < contents.length && pos >= contents[content].length())
+                                {
+                                    content++;
+                                    pos = 0;
+                                }
+                                // an int index only reads the first 2^31 entries
+                                return content < contents.length && written < Integer.MAX_VALUE;
+                            }
+
+                            public int next()
+                            {
+                                hasNext();
+                                written++;
+                                return contents[content].charAt(pos++);
+                            }
+                        });
+        IOne2LongIndex charPositions = new IndexWriter.LongIndexStreamer().writeTo(new File(prefix + CHARPOS),
+                        new IteratorLong()
+                        {
+                            int content = 0;
+                            long pos = 0;
+
+                            public boolean hasNext()
+                            {
+                                return content <= contents.length;
+                            }
+
+                            public long next()
+                            {
+                                long answer = pos;
+                                if (content < contents.length)
+                                    pos += contents[content].length();
+                                content++;
+                                return answer;
+                            }
+                        });
+        IOne2OneIndex contentIdsIndex = writePlusOne(new File(prefix + CONTENT), contentIds);
+        IOne2OneIndex lengthsIndex = writePlusOne(new File(prefix + LENGTH), lengths);
+        IOne2OneIndex offsetsIndex = new IndexWriter.IntIndexStreamer().writeTo(new File(prefix + OFFSET), offsets);
+        IOne2OneIndex arrayIdsIndex = writePlusOne(new File(prefix + ARRAY), arrayIds);
+        IOne2OneIndex codersIndex = writePlusOne(new File(prefix + CODER), coders);
+        IOne2OneIndex objectIdsIndex = new IndexWriter.IntIndexStreamer().writeTo(getFile(prefix), objectIds);
+
+        return new StringIndex(objectIdsIndex, charsIndex, charPositions, contentIdsIndex, lengthsIndex,
+                        offsetsIndex, arrayIdsIndex, codersIndex);
+    }
+
+    private static IOne2OneIndex writePlusOne(File file, int[] values) throws IOException
+    {
+        for (int ii = 0; ii < values.length; ii++)
+            values[ii]++;
+        return new IndexWriter.IntIndexStreamer().writeTo(file, values);
+    }
+
+    /**
+     * Opens the index files written by {@link #calculate(SnapshotImpl, IProgressListener)}.
+     * 
+     * @param prefix the prefix of the snapshot
+     * @return the index, or null if the index has not been written
+     */
+    public static StringIndex open(String prefix) throws IOException
+    {
+        if (!getFile(prefix).exists())
+            return null;
+        return new StringIndex(new IndexReader.IntIndexReader(getFile(prefix)), //
+                        new IndexReader.IntIndexReader(new File(prefix + CHARS)), //
+                        new IndexReader.LongIndexReader(new File(prefix + CHARPOS)), //
+                        new IndexReader.IntIndexReader(new File(prefix + CONTENT)), //
+                        new IndexReader.IntIndexReader(new File(prefix + LENGTH)), //
+                        new IndexReader.IntIndexReader(new File(prefix + OFFSET)), //
+                        new IndexReader.IntIndexReader(new File(prefix + ARRAY)), //
+                        new IndexReader.IntIndexReader(new File(prefix + CODER)));
+    }
+
+    /**
+     * Closes the index files.
+     */
+    public void close() throws IOException
+    {
+        objectIds.close();
+        chars.close();
+        charPositions.close();
+        contentIds.close();
+        lengths.close();
+        offsets.close();
+        arrayIds.close();
+        coders.close();
+    }
+
+    private int position(int objectId)
+    {
+        int low = 0;
+        int high = objectIds.size() - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int midVal = objectIds.get(mid);
+            if (midVal < objectId)
+                low = mid + 1;
+            else if (midVal > objectId)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    public int[] getObjectIds()
+    {
+        return objectIds.size() > 0 ? objectIds.getNext(0, objectIds.size()) : new int[0];
+    }
+
+    public boolean contains(int objectId)
+    {
+        return position(objectId) >= 0;
+    }
+
+    public int getNumberOfContents()
+    {
+        return charPositions.size() - 1;
+    }
+
+    public String getContent(int contentId)
+    {
+        long start = charPositions.get(contentId);
+        long end = charPositions.get(contentId + 1);
+        if (end > Integer.MAX_VALUE)
+            return null;
+        int length = (int) (end - start);
+        if (length == 0)
+            return ""; //$NON-NLS-1$
+        int[] values = chars.getNext((int) start, length);
+        char[] content = new char[length];
+        for (int ii = 0; ii < length; ii++)
+            content[ii] = (char) values[ii];
+        return new String(content);
+    }
+
+    public int getContentId(int objectId)
+    {
+        int pos = position(objectId);
+        return pos >= 0 ? contentIds.get(pos) - 1 : -1;
+    }
+
+    public int getLength(int objectId)
+    {
+        int pos = position(objectId);
+        return pos >= 0 ? lengths.get(pos) - 1 : -1;
+    }
+
+    public int getOffset(int objectId)
+    {
+        int pos = position(objectId);
+        return pos >= 0 ? offsets.get(pos) : 0;
+    }
+
+    public int getCoder(int objectId)
+    {
+        int pos = position(objectId);
+        return pos >= 0 ? coders.get(pos) - 1 : -1;
+    }
+
+    public int getArrayId(int objectId)
+    {
+        int pos = position(objectId);
+        return pos >= 0 ? arrayIds.get(pos) - 1 : -1;
+    }
+}
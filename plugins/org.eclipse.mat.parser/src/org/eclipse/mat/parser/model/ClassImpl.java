@@ -32,6 +32,7 @@ import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.collect.ArrayLong;
+import org.eclipse.mat.snapshot.IRetainedSet;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.model.Field;
 import org.eclipse.mat.snapshot.model.FieldDescriptor;
@@ -169,15 +170,14 @@ public class ClassImpl extends AbstractObjectImpl implements IClass, Comparable<
         ids.add(getObjectId());
         ids.addAll(getObjectIds());
 
-        int[] retainedSet;
         long retainedSize = 0;
 
         if (!approximation)
         {
-            retainedSet = source.getRetainedSet(ids.toArray(), listener);
+            IRetainedSet retainedSet = source.getRetainedSetOf(ids.toArray(), listener);
             if (listener.isCanceled())
                 return 0;
-            retainedSize = source.getHeapSize(retainedSet);
+            retainedSize = retainedSet.getHeapSize();
         }
         else
         {
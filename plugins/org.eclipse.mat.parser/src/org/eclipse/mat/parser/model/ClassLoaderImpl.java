@@ -18,6 +18,7 @@ import java.util.List;
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
 import org.eclipse.mat.parser.internal.SnapshotImpl;
+import org.eclipse.mat.snapshot.IRetainedSet;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.model.Field;
 import org.eclipse.mat.snapshot.model.IClass;
@@ -171,15 +172,14 @@ public class ClassLoaderImpl extends InstanceImpl implements IClassLoader
             objectIds.addAll(clasz.getObjectIds());
         }
 
-        int[] retainedSet;
         long retainedSize = 0;
 
         if (!calculateMinRetainedSize)
         {
-            retainedSet = dump.getRetainedSet(objectIds.toArray(), listener);
+            IRetainedSet retainedSet = dump.getRetainedSetOf(objectIds.toArray(), listener);
             if (listener.isCanceled())
                 return 0;
-            retainedSize = dump.getHeapSize(retainedSet);
+            retainedSize = retainedSet.getHeapSize();
         }
         else
         {
@@ -127,6 +127,15 @@ public abstract class ContextDerivedData
         void calculate(DerivedOperation operation, Object row, IProgressListener listener) throws SnapshotException;
     }
 
+    /**
+     * A calculator which can be called for several rows at once from
+     * different threads. Calculators which do not implement this interface
+     * are only ever called for one row at a time.
+     * @since 1.17
+     */
+    public interface ThreadSafeDerivedCalculator extends DerivedCalculator
+    {}
+
     /**
      * Get all the derived columns for the current context (page)
      * Do not modify the returned array.
@@ -20,6 +20,11 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.collect.ArrayInt;
@@ -30,6 +35,7 @@ import org.eclipse.mat.query.ContextDerivedData;
 import org.eclipse.mat.query.ContextDerivedData.DerivedCalculator;
 import org.eclipse.mat.query.ContextDerivedData.DerivedColumn;
 import org.eclipse.mat.query.ContextDerivedData.DerivedOperation;
+import org.eclipse.mat.query.ContextDerivedData.ThreadSafeDerivedCalculator;
 import org.eclipse.mat.query.ContextProvider;
 import org.eclipse.mat.query.IContextObject;
 import org.eclipse.mat.query.IDecorator;
@@ -499,6 +505,15 @@ public abstract class RefinedStructuredResult implements IStructuredResult, //
             l1.beginTask(Messages.RefinedStructuredResult_Calculating, work);
             l2 = new SilentProgressListener(listener);
             sm = null;
+
+            int threads = Math.min(Runtime.getRuntime().availableProcessors(), work);
+            if (threads > 1 && accessor.calculator instanceof ThreadSafeDerivedCalculator)
+            {
+                calculateParallel(accessor.calculator, operation, elements, progress, listener, threads);
+                if (!listener.isCanceled())
+                    l1.done();
+                return;
+            }
         }
         int index = 0;
         // Don't iterate over the elements in case the order is changed by the user sorting the table.
@@ -524,6 +539,83 @@ public abstract class RefinedStructuredResult implements IStructuredResult, //
             l1.done();
     }
 
+    /**
+     * Calculate the rows with a few workers on the common pool. Each worker
+     * takes the next row index until all rows are done, so expensive rows do
+     * not hold up the others. Only used for a
+     * {@link ThreadSafeDerivedCalculator}. Finished rows are reported to the
+     * progress callback as they complete.
+     */
+    private void calculateParallel(final DerivedCalculator calculator, //
+                    final DerivedOperation operation, //
+                    final List<?> elements, //
+                    final ICalculationProgress progress, //
+                    final IProgressListener listener, //
+                    int threads) throws SnapshotException
+    {
+        final int work = elements.size();
+        final AtomicInteger next = new AtomicInteger();
+        final Object lock = new Object();
+
+        ExecutorService executor = ForkJoinPool.commonPool();
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(threads);
+        for (int ii = 0; ii < threads; ii++)
+        {
+            futures.add(executor.submit(() -> {
+                // only pass on cancellation, the overall progress is by row
+                IProgressListener rowListener = new VoidProgressListener()
+                {
+                    @Override
+                    public boolean isCanceled()
+                    {
+                        return listener.isCanceled();
+                    }
+                };
+                int index;
+                while ((index = next.getAndIncrement()) < work && !listener.isCanceled())
+                {
+                    Object row = elements.get(index);
+                    calculator.calculate(operation, row, rowListener);
+
+                    synchronized (lock)
+                    {
+                        if (progress != null)
+                            progress.done(index, row);
+                        listener.worked(1);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        for (Future<Void> future : futures)
+        {
+            try
+            {
+                future.get();
+            }
+            catch (ExecutionException e)
+            {
+                // stop the other workers
+                next.set(work);
+                Throwable cause = e.getCause();
+                if (cause instanceof SnapshotException)
+                    throw (SnapshotException) cause;
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                if (cause instanceof Error)
+                    throw (Error) cause;
+                throw new SnapshotException(cause);
+            }
+            catch (InterruptedException e)
+            {
+                next.set(work);
+                Thread.currentThread().interrupt();
+                throw new IProgressListener.OperationCanceledException();
+            }
+        }
+    }
+
     // //////////////////////////////////////////////////////////////
     // access to the underlying original result
     // //////////////////////////////////////////////////////////////
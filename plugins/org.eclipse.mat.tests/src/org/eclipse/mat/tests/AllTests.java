@@ -30,18 +30,25 @@ import org.junit.runners.Suite.SuiteClasses;
                 org.eclipse.mat.tests.collect.CommandTests.class, //
                 org.eclipse.mat.tests.collect.SortTest.class, //
                 org.eclipse.mat.tests.collect.ExtractCollectionEntriesTest.class, //
+                org.eclipse.mat.tests.collect.CollectionQueriesScanTest.class, //
                 org.eclipse.mat.tests.parser.GzipTests.class, //
                 org.eclipse.mat.tests.parser.TestIndex.class, //
                 org.eclipse.mat.tests.parser.TestIndex1to1.class, //
+                org.eclipse.mat.tests.parser.ConcurrentObjectCacheTest.class, //
                 org.eclipse.mat.tests.snapshot.DominatorTreeTest.class, //
+                org.eclipse.mat.tests.snapshot.GCRootPathsTest.class, //
+                org.eclipse.mat.tests.snapshot.StringIndexTest.class, //
+                org.eclipse.mat.tests.snapshot.PrimitiveArrayDigestTest.class, //
                 org.eclipse.mat.tests.snapshot.TestUnreachableObjects.class, //
                 org.eclipse.mat.tests.snapshot.GeneralSnapshotTests.class, //
+                org.eclipse.mat.tests.snapshot.SnapshotImageTest.class, //
                 org.eclipse.mat.tests.snapshot.TestInstanceSizes.class, //
                 org.eclipse.mat.tests.snapshot.QueryLookupTest.class, //
                 org.eclipse.mat.tests.snapshot.QueriesTest.class, //
                 org.eclipse.mat.tests.snapshot.AllQueries.class, //
                 org.eclipse.mat.tests.snapshot.OQLTest.class, //
                 org.eclipse.mat.tests.snapshot.MultipleSnapshots.class, //
+                org.eclipse.mat.tests.snapshot.QueryServerTest.class, //
                 org.eclipse.mat.tests.acquire.AcquireDumpTest.class,
                 org.eclipse.mat.tests.collect.ExtractCollectionEntriesTest3.class, //
                 org.eclipse.mat.tests.collect.ExtractCollectionEntriesTest4.class, //
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2026 IBM Corporation
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.collect;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.inspections.collectionextract.AbstractExtractedCollection;
+import org.eclipse.mat.inspections.collectionextract.CollectionExtractionUtils;
+import org.eclipse.mat.inspections.collectionextract.ExtractedMap;
+import org.eclipse.mat.query.Bytes;
+import org.eclipse.mat.query.IResultTable;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.snapshot.query.SnapshotQuery;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * The collection queries read their objects in parallel in dump order.
+ * Check their totals against the collections extracted one at a time.
+ */
+@RunWith(value = Parameterized.class)
+@SuppressWarnings("nls")
+public class CollectionQueriesScanTest
+{
+    private static final String[] COLLECTIONS = { "java.util.HashMap", "java.util.ArrayList", "java.util.Hashtable",
+                    "java.util.HashSet", "java.util.Vector", "java.util.concurrent.ConcurrentHashMap" };
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    private final ISnapshot snapshot;
+
+    @Parameters(name = "{index}: Snapshot={0}")
+    public static Collection<Object[]> data()
+    {
+        return Arrays.asList(new Object[][] { { TestSnapshots.SUN_JDK6_18_32BIT },
+                        { TestSnapshots.ORACLE_JDK8_05_64BIT }, { TestSnapshots.OPENJDK_JDK11_04_64BIT } });
+    }
+
+    public CollectionQueriesScanTest(String snapshotFile)
+    {
+        snapshot = TestSnapshots.getSnapshot(snapshotFile, false);
+    }
+
+    @Test
+    public void collectionsBySize() throws SnapshotException
+    {
+        for (String className : COLLECTIONS)
+        {
+            Map<Integer, long[]> expected = new HashMap<Integer, long[]>();
+            for (IObject obj : instances(className))
+            {
+                AbstractExtractedCollection<?, ?> coll = CollectionExtractionUtils.extractCollection(obj);
+                if (coll != null && coll.hasSize() && coll.size() != null)
+                {
+                    long[] v = expected.computeIfAbsent(coll.size(), k -> new long[2]);
+                    v[0]++;
+                    v[1] += coll.getUsedHeapSize();
+                }
+            }
+
+            IResultTable table = run("collections_grouped_by_size " + className);
+            Map<Integer, long[]> actual = new HashMap<Integer, long[]>();
+            for (int ii = 0; ii < table.getRowCount(); ii++)
+            {
+                Object row = table.getRow(ii);
+                long[] v = actual.computeIfAbsent((Integer) table.getColumnValue(row, 0), k -> new long[2]);
+                v[0] += (Integer) table.getColumnValue(row, 1);
+                v[1] += ((Bytes) table.getColumnValue(row, 2)).getValue();
+            }
+            collector.checkThat(className + " sizes", actual.keySet(), equalTo(expected.keySet()));
+            for (Map.Entry<Integer, long[]> e : expected.entrySet())
+            {
+                long[] v = actual.get(e.getKey());
+                if (v != null)
+                    collector.checkThat(className + " size " + e.getKey(), v, equalTo(e.getValue()));
+            }
+        }
+    }
+
+    @Test
+    public void collectionFillRatio() throws SnapshotException
+    {
+        for (String className : COLLECTIONS)
+        {
+            long[] expected = new long[2];
+            for (IObject obj : instances(className))
+            {
+                AbstractExtractedCollection<?, ?> coll = CollectionExtractionUtils.extractCollection(obj);
+                if (coll != null && coll.hasCapacity() && coll.getFillRatio() != null)
+                {
+                    expected[0]++;
+                    expected[1] += coll.getUsedHeapSize();
+                }
+            }
+            collector.checkThat(className + " fill ratio", totals(run("collection_fill_ratio " + className)),
+                            equalTo(expected));
+        }
+    }
+
+    @Test
+    public void arrayFillRatio() throws SnapshotException
+    {
+        String className = "java.lang.Object[]";
+        long[] expected = new long[2];
+        for (IObject obj : instances(className))
+        {
+            AbstractExtractedCollection<?, ?> coll = CollectionExtractionUtils.extractCollection(obj);
+            if (coll != null && coll.hasCapacity() && coll.getFillRatio() != null)
+            {
+                expected[0]++;
+                expected[1] += coll.getUsedHeapSize();
+            }
+        }
+        collector.checkThat(className + " fill ratio", totals(run("array_fill_ratio " + className)),
+                        equalTo(expected));
+    }
+
+    @Test
+    public void mapCollisionRatio() throws SnapshotException
+    {
+        for (String className : COLLECTIONS)
+        {
+            long[] expected = new long[3];
+            for (IObject obj : instances(className))
+            {
+                ExtractedMap coll = CollectionExtractionUtils.extractMap(obj);
+                if (coll != null)
+                {
+                    expected[0]++;
+                    expected[1] += coll.getUsedHeapSize();
+                    Double ratio = coll.getCollisionRatio();
+                    if (ratio != null && ratio > 0.0)
+                        expected[2]++;
+                }
+            }
+            IResultTable table = run("map_collision_ratio " + className);
+            long[] actual = Arrays.copyOf(totals(table), 3);
+            for (int ii = 0; ii < table.getRowCount(); ii++)
+            {
+                Object row = table.getRow(ii);
+                if ((Double) table.getColumnValue(row, 0) > 0.0)
+                    actual[2] += (Integer) table.getColumnValue(row, 1);
+            }
+            collector.checkThat(className + " collision ratio", actual, equalTo(expected));
+        }
+    }
+
+    private IObject[] instances(String className) throws SnapshotException
+    {
+        Collection<IClass> classes = snapshot.getClassesByName(className, false);
+        assumeTrue(classes != null);
+        int count = 0;
+        for (IClass cls : classes)
+            count += cls.getNumberOfObjects();
+        IObject[] objects = new IObject[count];
+        int ii = 0;
+        for (IClass cls : classes)
+            for (int objectId : cls.getObjectIds())
+                objects[ii++] = snapshot.getObject(objectId);
+        return objects;
+    }
+
+    private IResultTable run(String command) throws SnapshotException
+    {
+        return (IResultTable) SnapshotQuery.parse(command, snapshot).execute(new VoidProgressListener());
+    }
+
+    /**
+     * Number of objects and their shallow heap over all the rows.
+     */
+    private static long[] totals(IResultTable table)
+    {
+        long[] totals = new long[2];
+        for (int ii = 0; ii < table.getRowCount(); ii++)
+        {
+            Object row = table.getRow(ii);
+            totals[0] += (Integer) table.getColumnValue(row, 1);
+            totals[1] += ((Bytes) table.getColumnValue(row, 2)).getValue();
+        }
+        return totals;
+    }
+}
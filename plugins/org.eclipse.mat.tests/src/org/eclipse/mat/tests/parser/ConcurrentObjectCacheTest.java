@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.parser;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
+import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
+import static org.hamcrest.number.OrderingComparison.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.eclipse.mat.parser.internal.snapshot.ConcurrentObjectCache;
+import org.junit.Test;
+
+public class ConcurrentObjectCacheTest
+{
+    private static final long MB = 1L << 20;
+
+    /**
+     * Caches the key as a string, with a weight per key.
+     */
+    private static class Cache extends ConcurrentObjectCache<String>
+    {
+        final AtomicIntegerArray loads;
+        final long weight;
+        final int heavyKey;
+        final long heavyWeight;
+
+        Cache(long maxWeight, int threads, int keys, long weight)
+        {
+            this(maxWeight, threads, keys, weight, -1, 0);
+        }
+
+        Cache(long maxWeight, int threads, int keys, long weight, int heavyKey, long heavyWeight)
+        {
+            super(maxWeight, threads);
+            this.loads = new AtomicIntegerArray(keys);
+            this.weight = weight;
+            this.heavyKey = heavyKey;
+            this.heavyWeight = heavyWeight;
+        }
+
+        @Override
+        protected String load(int key)
+        {
+            loads.incrementAndGet(key);
+            return Integer.toString(key);
+        }
+
+        @Override
+        protected long weigh(int key, String object)
+        {
+            return key == heavyKey ? heavyWeight : weight;
+        }
+    }
+
+    @Test
+    public void testHitsAndMisses()
+    {
+        Cache cache = new Cache(4 * MB, 4, 10, 100);
+        assertEquals("3", cache.get(3));
+        assertEquals("3", cache.get(3));
+        assertEquals("4", cache.get(4));
+        assertEquals(1, cache.loads.get(3));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+        assertEquals(200, cache.getWeight());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testWeightBound()
+    {
+        int n = 10000;
+        Cache cache = new Cache(4 * MB, 4, n, 4096);
+        for (int i = 0; i < n; i++)
+            assertEquals(Integer.toString(i), cache.get(i));
+        assertThat(cache.getWeight(), lessThanOrEqualTo(cache.getMaxWeight()));
+        assertThat(cache.getMaxWeight(), lessThanOrEqualTo(4 * MB));
+        assertThat(cache.getEvictionCount(), greaterThan(0L));
+        assertEquals(n, cache.size() + cache.getEvictionCount());
+    }
+
+    /**
+     * A small budget shared by many threads still caches large objects.
+     */
+    @Test
+    public void testLargeObjectCached()
+    {
+        Cache cache = new Cache(4 * MB, 64, 10, 100, 5, 512 * 1024);
+        assertThat(cache.getMaxObjectWeight(), greaterThanOrEqualTo(MB));
+        cache.get(5);
+        cache.get(5);
+        assertEquals(1, cache.loads.get(5));
+    }
+
+    @Test
+    public void testTooLargeObjectNotCached()
+    {
+        Cache cache = new Cache(4 * MB, 4, 10, 100, 5, 8 * MB);
+        assertEquals("5", cache.get(5));
+        assertEquals("5", cache.get(5));
+        assertEquals(2, cache.loads.get(5));
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * An object used often survives a stream of objects used once.
+     */
+    @Test
+    public void testFrequentlyUsedKept()
+    {
+        int n = 10000;
+        // a single segment
+        Cache cache = new Cache(MB, 1, n, 4096);
+        cache.get(0);
+        for (int i = 1; i < n; i++)
+        {
+            cache.get(i);
+            assertEquals("0", cache.get(0));
+        }
+        assertEquals(1, cache.loads.get(0));
+        assertThat(cache.getEvictionCount(), greaterThan(0L));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception
+    {
+        final int n = 5000;
+        final Cache cache = new Cache(2 * MB, 8, n, 1024);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < 8; t++)
+            {
+                final long seed = t;
+                futures.add(pool.submit(() -> {
+                    Random r = new Random(seed);
+                    for (int i = 0; i < 100000; i++)
+                    {
+                        // skewed so that some keys are hot
+                        int key = r.nextInt(r.nextBoolean() ? 100 : n);
+                        assertEquals(Integer.toString(key), cache.get(key));
+                    }
+                }));
+            }
+            for (Future<?> f : futures)
+                f.get();
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        assertEquals(800000, cache.getHitCount() + cache.getMissCount());
+        assertThat(cache.getWeight(), lessThanOrEqualTo(cache.getMaxWeight()));
+        assertThat(cache.getHitCount(), greaterThan(0L));
+    }
+}
@@ -12,6 +12,7 @@
  *******************************************************************************/
 package org.eclipse.mat.tests.parser;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assume.assumeTrue;
 
@@ -365,4 +366,169 @@ public class TestIndex
             assertTrue(indexFile.delete());
         }
     }
+
+    @Test
+    public void test1ToNSortedReaderDeflated() throws IOException
+    {
+        assumeTrue((long) M * N < MAXELEMENTS2);
+        int ii[][] = new int[P + 1][];
+        for (int p = 0; p < P + 1; p++)
+        {
+            int nn = N + p;
+            ii[p] = new int[nn];
+            for (int i = 0; i < nn; ++i)
+            {
+                ii[p][i] = i;
+            }
+        }
+        File indexFile = File.createTempFile("1toN", ".index");
+        IndexWriter.setPageCompression(indexFile.getAbsolutePath(), IndexWriter.COMPRESSION_DEFLATE);
+        try
+        {
+            IndexWriter.IntArray1NSortedWriter f = new IndexWriter.IntArray1NSortedWriter(M, indexFile);
+            for (int j = 0; j < M; ++j)
+            {
+                // Vary the length a little
+                int p = j % (P + 1);
+                if (verbose)
+                    System.out.println("Writing " + j + "/" + M);
+                f.log(j, ii[p]);
+            }
+            IOne2ManyIndex i2 = f.flush();
+            i2.close();
+            // Read back from the file to expand the compressed pages
+            i2 = new IndexReader.IntIndex1NSortedReader(indexFile);
+            try
+            {
+                for (int j = 0; j < M; ++j)
+                {
+                    if (verbose)
+                        System.out.println("Reading " + j + "/" + M);
+                    int i3[] = i2.get(j);
+                    int p = j % (P + 1);
+                    // Junit array comparison is too slow
+                    if (!Arrays.equals(ii[p], i3))
+                        Assert.assertArrayEquals(ii[p], i3);
+                }
+            }
+            finally
+            {
+                i2.close();
+            }
+        }
+        finally
+        {
+            IndexWriter.clearPageCompression(indexFile.getAbsolutePath());
+            assertTrue(indexFile.delete());
+        }
+    }
+
+    @Test
+    public void test1ToNDeltaReader() throws IOException
+    {
+        assumeTrue((long) M * N < MAXELEMENTS2);
+        int ii[][] = new int[P + 1][];
+        for (int p = 0; p < P + 1; p++)
+        {
+            int nn = N + p;
+            ii[p] = new int[nn];
+            for (int i = 0; i < nn; ++i)
+            {
+                // Large first value, then some gaps
+                ii[p][i] = i == 0 ? Integer.MAX_VALUE - p : i * (p + 1);
+            }
+        }
+        File indexFile = File.createTempFile("1toN", ".index");
+        try
+        {
+            IndexWriter.IntArray1NDeltaWriter f = new IndexWriter.IntArray1NDeltaWriter(M, indexFile);
+            // Leave every third entry out
+            for (int j = 0; j < M; ++j)
+            {
+                if (j % 3 == 1)
+                    continue;
+                int p = j % (P + 1);
+                if (verbose)
+                    System.out.println("Writing " + j + "/" + M);
+                f.log(j, ii[p]);
+            }
+            IOne2ManyIndex i2 = f.flush();
+            i2.close();
+            assertTrue(IndexReader.IntIndex1NDeltaReader.isDeltaIndex(indexFile));
+            i2 = new IndexReader.IntIndex1NDeltaReader(indexFile);
+            try
+            {
+                assertEquals(M, i2.size());
+                for (int j = M - 1; j >= 0; --j)
+                {
+                    if (verbose)
+                        System.out.println("Reading " + j + "/" + M);
+                    int i3[] = i2.get(j);
+                    int p = j % (P + 1);
+                    int expected[] = j % 3 == 1 ? new int[0] : ii[p];
+                    // Junit array comparison is too slow
+                    if (!Arrays.equals(expected, i3))
+                        Assert.assertArrayEquals(expected, i3);
+                }
+            }
+            finally
+            {
+                i2.close();
+            }
+        }
+        finally
+        {
+            assertTrue(indexFile.delete());
+        }
+    }
+
+    /**
+     * The page compression only applies to the index files of the selected prefix.
+     */
+    @Test
+    public void testPageCompressionPerPrefix() throws IOException
+    {
+        int ii[] = new int[100000];
+        for (int i = 0; i < ii.length; ++i)
+            ii[i] = i % 1000;
+        File deflated = File.createTempFile("deflated", ".index");
+        File plain = File.createTempFile("plain", ".index");
+        IndexWriter.setPageCompression(deflated.getAbsolutePath(), IndexWriter.COMPRESSION_DEFLATE);
+        try
+        {
+            IndexWriter.setPageCompression(plain.getAbsolutePath(), null);
+            try
+            {
+                new IndexWriter.IntIndexStreamer().writeTo(deflated, ii).close();
+                new IndexWriter.IntIndexStreamer().writeTo(plain, ii).close();
+            }
+            finally
+            {
+                IndexWriter.clearPageCompression(plain.getAbsolutePath());
+            }
+            assertTrue(deflated.length() < plain.length());
+            for (File f : new File[] { deflated, plain })
+            {
+                IndexReader.IntIndexReader reader = new IndexReader.IntIndexReader(f);
+                try
+                {
+                    for (int i = 0; i < ii.length; ++i)
+                    {
+                        if (reader.get(i) != ii[i])
+                            assertEquals(ii[i], reader.get(i));
+                    }
+                }
+                finally
+                {
+                    reader.close();
+                }
+            }
+        }
+        finally
+        {
+            IndexWriter.clearPageCompression(deflated.getAbsolutePath());
+            assertTrue(deflated.delete());
+            assertTrue(plain.delete());
+        }
+    }
 }
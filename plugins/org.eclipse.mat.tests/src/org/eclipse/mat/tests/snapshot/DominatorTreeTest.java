@@ -14,10 +14,12 @@ package org.eclipse.mat.tests.snapshot;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -27,6 +29,8 @@ import java.util.Set;
 import org.eclipse.mat.SnapshotException;
 import org.eclipse.mat.query.IResultTable;
 import org.eclipse.mat.query.IResultTree;
+import org.eclipse.mat.snapshot.DominatorsSummary;
+import org.eclipse.mat.snapshot.DominatorsSummary.ClassDominatorRecord;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.query.SnapshotQuery;
@@ -137,6 +141,18 @@ public class DominatorTreeTest
                                 + name(child, snapshot);
             }
         }
+
+        // R dominates everything else it retains
+        int[] topAncestors = snapshot.getTopAncestorsInDominatorTree(retainedSetR, new VoidProgressListener());
+        assertEquals("R should be the only top-ancestor of its retained set", 1, topAncestors.length);
+        assertEquals(rId, topAncestors[0]);
+        // duplicates of a top-ancestor are all kept, as by walking up the tree
+        int[] withDuplicate = Arrays.copyOf(retainedSetR, retainedSetR.length + 1);
+        withDuplicate[retainedSetR.length] = rId;
+        topAncestors = snapshot.getTopAncestorsInDominatorTree(withDuplicate, new VoidProgressListener());
+        assertArrayEquals(new int[] { rId, rId }, topAncestors);
+        assertEquals("Min retained size of the retained set of R", size,
+                        snapshot.getMinRetainedSize(retainedSetR, new VoidProgressListener()));
     }
 
     @Test
@@ -149,6 +165,32 @@ public class DominatorTreeTest
         assertThat("Immediate dominators char[]", t.getRowCount(), equalTo(2));
     }
     
+    @Test
+    public void testDominatorsSummarySunJdk6_32() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_32BIT, false);
+        IClass charArray = snapshot.getClassesByName("char[]", false).iterator().next();
+        int[] objectIds = charArray.getObjectIds();
+        DominatorsSummary summary = snapshot.getDominatorsOf(objectIds, null, new VoidProgressListener());
+
+        int dominated = 0;
+        for (ClassDominatorRecord record : summary.getClassDominatorRecords())
+        {
+            dominated += record.getDominatedCount();
+            Set<Integer> dominators = new HashSet<Integer>();
+            for (int dominatorId : record.getDominators())
+                dominators.add(dominatorId);
+            assertEquals(record.getClassName(), dominators.size(), record.getDominatorCount());
+            for (int objectId : record.getDominated())
+            {
+                int dominatorId = snapshot.getImmediateDominatorId(objectId);
+                assert dominators.contains(dominatorId) : "Dominator of " + objectId + " not in " + record.getClassName();
+                assertEquals(record.getClassId(), dominatorId == -1 ? -1 : snapshot.getClassOf(dominatorId).getObjectId());
+            }
+        }
+        assertEquals("All char[] are dominated", objectIds.length, dominated);
+    }
+
     @Test
     public void testShowDomTreeQuerySunJdk6_32() throws SnapshotException
     {
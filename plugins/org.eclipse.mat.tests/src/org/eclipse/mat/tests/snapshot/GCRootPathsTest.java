@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.inspections.FindLeaksQuery.SuspectRecordGroupOfObjects;
+import org.eclipse.mat.inspections.FindLeaksQuery.SuspectsResultTable;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.GCRootInfo;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.query.SnapshotQuery;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * The shortest paths from the GC roots do not depend on how they are found.
+ */
+@SuppressWarnings("nls")
+@RunWith(value = Parameterized.class)
+public class GCRootPathsTest
+{
+    @Parameters(name = "{index}: Snapshot={0}")
+    public static Collection<Object[]> data()
+    {
+        return Arrays.asList(new Object[][] {
+            { TestSnapshots.SUN_JDK6_32BIT },
+            { TestSnapshots.SUN_JDK6_18_64BIT },
+            { TestSnapshots.IBM_JDK6_32BIT_SYSTEM },
+            { TestSnapshots.ORACLE_JDK8_05_64BIT },
+        });
+    }
+
+    private final String dumpName;
+
+    public GCRootPathsTest(String dumpName)
+    {
+        this.dumpName = dumpName;
+    }
+
+    /**
+     * The parallel search finds the same parents as the single threaded search.
+     */
+    @Test
+    public void testParallelSearch() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(dumpName, false);
+        // without the index the paths are found by the parallel search
+        assumeFalse(new File(snapshot.getSnapshotInfo().getPrefix() + "gcpath.index").exists());
+        comparePaths(snapshot);
+    }
+
+    /**
+     * The paths stored at parse time are those of the search made when there is no index.
+     */
+    @Test
+    public void testIndexedPaths() throws SnapshotException
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("gc_root_paths_index", "true");
+        ISnapshot snapshot = TestSnapshots.getSnapshot(dumpName, options, true);
+        try
+        {
+            String prefix = snapshot.getSnapshotInfo().getPrefix();
+            assertTrue(new File(prefix + "gcpath.index").exists());
+            comparePaths(snapshot);
+        }
+        finally
+        {
+            // Tidy up this pristine snapshot early
+            snapshot.dispose();
+        }
+    }
+
+    /**
+     * The paths to the objects of each suspect class, found by one search for
+     * all the suspects, are those of a separate search for that class.
+     */
+    @Test
+    public void testFindLeaksPaths() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(dumpName, false);
+        SnapshotQuery query = SnapshotQuery.parse("find_leaks -threshold_percent 1 -max_paths 100000", snapshot);
+        SuspectsResultTable result = (SuspectsResultTable) query.execute(new VoidProgressListener());
+
+        // the default excludes of find_leaks
+        Map<IClass, Set<String>> excludes = new HashMap<IClass, Set<String>>();
+        for (IClass clazz : snapshot.getClassesByName(Pattern.compile("java.lang.ref.Reference"), true))
+            excludes.put(clazz, Collections.singleton("referent"));
+        for (IClass clazz : snapshot.getClassesByName(Pattern.compile("java.lang.ref.Finalizer"), true))
+            excludes.put(clazz, Collections.singleton("unfinalized"));
+        for (IClass clazz : snapshot.getClassesByName(Pattern.compile("java.lang.Runtime"), true))
+            excludes.put(clazz, Collections.singleton(
+                            "<" + GCRootInfo.getTypeAsString(GCRootInfo.Type.UNFINALIZED) + ">"));
+
+        int groups = 0;
+        for (int i = 0; i < result.getRowCount(); i++)
+        {
+            if (!(result.getRow(i) instanceof SuspectRecordGroupOfObjects))
+                continue;
+            SuspectRecordGroupOfObjects suspect = (SuspectRecordGroupOfObjects) result.getRow(i);
+            int[] objectIds = suspect.getSuspectInstances();
+            Object[] expected = snapshot.getMultiplePathsFromGCRoots(objectIds, excludes)
+                            .getAllPaths(new VoidProgressListener());
+            // with no paths outside the excludes the suspect searches again without them
+            if (expected.length == 0)
+                expected = snapshot.getMultiplePathsFromGCRoots(objectIds, new HashMap<IClass, Set<String>>())
+                                .getAllPaths(new VoidProgressListener());
+            Object[] paths = suspect.getPathsComputer().getAllPaths(new VoidProgressListener());
+
+            String name = suspect.getSuspect().getTechnicalName();
+            assertEquals(name, sortedPaths(expected), sortedPaths(paths));
+            ++groups;
+        }
+        assumeTrue("at least two suspect classes", groups >= 2);
+    }
+
+    private static List<String> sortedPaths(Object[] paths)
+    {
+        List<String> sorted = new ArrayList<String>(paths.length);
+        for (Object path : paths)
+            sorted.add(Arrays.toString((int[]) path));
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Compares the paths found without exclusions, from the index or by the parallel search,
+     * with the paths found by the single threaded search made for exclusions.
+     */
+    static void comparePaths(ISnapshot snapshot) throws SnapshotException
+    {
+        int n = snapshot.getSnapshotInfo().getNumberOfObjects();
+        int[] objectIds = new int[n];
+        for (int i = 0; i < n; i++)
+            objectIds[i] = i;
+
+        Object[] paths = snapshot.getMultiplePathsFromGCRoots(objectIds, null)
+                        .getAllPaths(new VoidProgressListener());
+        // an exclusion of nothing forces the single threaded search
+        Object[] expected = snapshot.getMultiplePathsFromGCRoots(objectIds, new HashMap<IClass, Set<String>>())
+                        .getAllPaths(new VoidProgressListener());
+
+        assertEquals(expected.length, paths.length);
+        for (int i = 0; i < expected.length; i++)
+            assertArrayEquals("path " + i, (int[]) expected[i], (int[]) paths[i]);
+    }
+}
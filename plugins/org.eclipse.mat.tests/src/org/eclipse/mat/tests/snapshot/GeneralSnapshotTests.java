@@ -28,6 +28,7 @@ import static org.hamcrest.number.OrderingComparison.greaterThan;
 import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
 import static org.hamcrest.number.OrderingComparison.lessThan;
 import static org.hamcrest.number.OrderingComparison.lessThanOrEqualTo;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -55,7 +56,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -72,6 +75,13 @@ import org.eclipse.mat.query.ISelectionProvider;
 import org.eclipse.mat.query.registry.QueryObjectLink;
 import org.eclipse.mat.query.results.CompositeResult;
 import org.eclipse.mat.query.results.DisplayFileResult;
+import org.eclipse.mat.snapshot.ClassHistogramRecord;
+import org.eclipse.mat.snapshot.ExcludedReferencesDescriptor;
+import org.eclipse.mat.snapshot.Histogram;
+import org.eclipse.mat.snapshot.IClassAccumulationIndex;
+import org.eclipse.mat.snapshot.IClassReferenceGraph;
+import org.eclipse.mat.snapshot.IReferentIndex;
+import org.eclipse.mat.snapshot.IRetainedSet;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.SnapshotFactory;
 import org.eclipse.mat.snapshot.SnapshotInfo;
@@ -80,6 +90,7 @@ import org.eclipse.mat.snapshot.model.GCRootInfo;
 import org.eclipse.mat.snapshot.model.GCRootInfo.Type;
 import org.eclipse.mat.snapshot.model.IClass;
 import org.eclipse.mat.snapshot.model.IClassLoader;
+import org.eclipse.mat.snapshot.model.IInstance;
 import org.eclipse.mat.snapshot.model.IObject;
 import org.eclipse.mat.snapshot.model.IStackFrame;
 import org.eclipse.mat.snapshot.model.IThreadStack;
@@ -324,6 +335,273 @@ public class GeneralSnapshotTests
         assertEquals("Total heap size", n, total);
     }
 
+    /**
+     * A histogram of enough objects to be built from ranges in parallel
+     * matches the histogram built from a single range.
+     */
+    @Test
+    public void histogramOfObjects() throws SnapshotException
+    {
+        int n = snapshot.getSnapshotInfo().getNumberOfObjects();
+        int[] objectIds = new int[n];
+        for (int i = 0; i < n; i++)
+            objectIds[i] = i;
+        Histogram expected = snapshot.getHistogram(objectIds, new VoidProgressListener());
+
+        // repeat the objects in descending order to pass the parallel threshold
+        int repeat = 200000 / n + 1;
+        int[] repeated = new int[n * repeat];
+        for (int i = 0; i < repeated.length; i++)
+            repeated[i] = (repeated.length - 1 - i) % n;
+        Histogram histogram = snapshot.getHistogram(repeated, new CheckedWorkProgressListener(collector));
+
+        Map<Integer, ClassHistogramRecord> expectedRecords = new HashMap<Integer, ClassHistogramRecord>();
+        for (ClassHistogramRecord r : expected.getClassHistogramRecords())
+            expectedRecords.put(r.getClassId(), r);
+        assertEquals(expectedRecords.size(), histogram.getClassHistogramRecords().size());
+        for (ClassHistogramRecord r : histogram.getClassHistogramRecords())
+        {
+            ClassHistogramRecord e = expectedRecords.get(r.getClassId());
+            assertNotNull(r.getLabel(), e);
+            assertEquals(r.getLabel(), e.getNumberOfObjects() * repeat, r.getNumberOfObjects());
+            assertEquals(r.getLabel(), e.getUsedHeapSize() * repeat, r.getUsedHeapSize());
+            // each class keeps its objects in order
+            int[] ids = r.getObjectIds();
+            for (int i = 1; i < ids.length; i++)
+                assertThat(r.getLabel(), ids[i], greaterThanOrEqualTo(ids[i - 1]));
+        }
+    }
+
+    @Test(expected = IProgressListener.OperationCanceledException.class)
+    public void histogramOfObjectsCanceled() throws SnapshotException
+    {
+        int n = snapshot.getSnapshotInfo().getNumberOfObjects();
+        int[] objectIds = new int[n];
+        for (int i = 0; i < n; i++)
+            objectIds[i] = i;
+        VoidProgressListener listener = new VoidProgressListener();
+        listener.setCanceled(true);
+        snapshot.getHistogram(objectIds, listener);
+    }
+
+    @Test
+    public void classReferenceGraph() throws SnapshotException
+    {
+        IClassReferenceGraph graph = snapshot.getSnapshotAddons(IClassReferenceGraph.class);
+        assertNotNull(graph);
+        long references = 0;
+        int edges = 0;
+        for (IClass cls : snapshot.getClasses())
+        {
+            int[] referenced = graph.getReferencedClassIds(cls.getObjectId());
+            edges += referenced.length;
+            for (int to : referenced)
+            {
+                references += graph.getReferenceCount(cls.getObjectId(), to);
+                assertThat(Arrays.binarySearch(graph.getReferringClassIds(to), cls.getObjectId()),
+                                greaterThanOrEqualTo(0));
+            }
+        }
+        assertEquals("Edges", graph.size(), edges);
+
+        long expected = 0;
+        for (int i = 0; i < snapshot.getSnapshotInfo().getNumberOfObjects(); i++)
+        {
+            // not counting the reference to the class
+            expected += snapshot.getOutboundReferentIds(i).length - 1;
+        }
+        assertEquals("References", expected, references);
+    }
+
+    /**
+     * The retained set marks give the same objects as the retained set array.
+     */
+    @Test
+    public void retainedSetOf() throws SnapshotException
+    {
+        int checked = 0;
+        for (IClass cls : snapshot.getClasses())
+        {
+            if (cls.getNumberOfObjects() < 2)
+                continue;
+            int[] objectIds = cls.getObjectIds();
+            int[] expected = snapshot.getRetainedSet(objectIds, new VoidProgressListener());
+            Arrays.sort(expected);
+            IRetainedSet retainedSet = snapshot.getRetainedSetOf(objectIds, new VoidProgressListener());
+            assertEquals(cls.getName(), expected.length, retainedSet.size());
+            assertArrayEquals(cls.getName(), expected, retainedSet.toArray());
+            for (int objectId : objectIds)
+                assertTrue(cls.getName(), retainedSet.contains(objectId));
+            assertEquals(cls.getName(), snapshot.getHeapSize(expected), retainedSet.getHeapSize());
+
+            // not following the references of the class object
+            ExcludedReferencesDescriptor[] excludes = new ExcludedReferencesDescriptor[] {
+                            new ExcludedReferencesDescriptor(new int[] { cls.getObjectId() }, (Set<String>) null) };
+            expected = snapshot.getRetainedSet(objectIds, excludes, new VoidProgressListener());
+            Arrays.sort(expected);
+            retainedSet = snapshot.getRetainedSetOf(objectIds, excludes, new VoidProgressListener());
+            assertArrayEquals(cls.getName(), expected, retainedSet.toArray());
+            if (++checked >= 5)
+                break;
+        }
+    }
+
+    /**
+     * The accumulation points of a class are top-level dominators which retain the
+     * recorded number of instances.
+     */
+    @Test
+    public void classAccumulationPoints() throws SnapshotException
+    {
+        IClassAccumulationIndex index = snapshot.getSnapshotAddons(IClassAccumulationIndex.class);
+        assumeNotNull(index);
+        int checked = 0;
+        for (IClass cls : snapshot.getClasses())
+        {
+            int[] rootIds = index.getRootIds(cls.getObjectId());
+            assertThat(cls.getName(), rootIds.length, lessThanOrEqualTo(2 * index.getLimit()));
+            if (cls.getNumberOfObjects() < 2 || rootIds.length == 0)
+                continue;
+            long total = 0;
+            long previous = Long.MAX_VALUE;
+            for (int rootId : rootIds)
+            {
+                assertEquals(cls.getName(), -1, snapshot.getImmediateDominatorId(rootId));
+                long size = index.getInstanceHeapSize(cls.getObjectId(), rootId);
+                assertThat(cls.getName(), size, lessThanOrEqualTo(previous));
+                previous = size;
+
+                long count = index.getInstanceCount(cls.getObjectId(), rootId);
+                total += count;
+                if (checked < 5)
+                {
+                    IRetainedSet retainedSet = snapshot.getRetainedSetOf(new int[] { rootId },
+                                    new VoidProgressListener());
+                    long expected = 0;
+                    for (int objectId : cls.getObjectIds())
+                    {
+                        if (retainedSet.contains(objectId))
+                            expected++;
+                    }
+                    assertEquals(cls.getName(), expected, count);
+                }
+            }
+            assertThat(cls.getName(), total, lessThanOrEqualTo((long) cls.getNumberOfObjects()));
+            checked++;
+        }
+    }
+
+    @Test
+    public void scanObjects() throws SnapshotException
+    {
+        final AtomicIntegerArray visits = new AtomicIntegerArray(snapshot.getSnapshotInfo().getNumberOfObjects());
+        snapshot.scanObjects(null, object -> {
+            visits.incrementAndGet(object.getObjectId());
+            assertEquals(snapshot.mapIdToAddress(object.getObjectId()), object.getObjectAddress());
+        }, new VoidProgressListener());
+        for (int ii = 0; ii < visits.length(); ii++)
+            assertEquals("object " + ii, 1, visits.get(ii));
+
+        Collection<IClass> classes = snapshot.getClassesByName("java.lang.String", false);
+        assumeNotNull(classes);
+        IClass stringClass = classes.iterator().next();
+        final SetInt strings = new SetInt();
+        snapshot.scanObjects(new int[] { stringClass.getObjectId() }, object -> {
+            assertEquals(stringClass.getObjectId(), object.getClazz().getObjectId());
+            synchronized (strings)
+            {
+                strings.add(object.getObjectId());
+            }
+        }, new VoidProgressListener());
+        assertEquals(stringClass.getNumberOfObjects(), strings.size());
+    }
+
+    /**
+     * Reading a chosen set of objects in dump order visits each of them once
+     * and gives the same objects as reading them one by one.
+     */
+    @Test
+    public void readObjects() throws SnapshotException
+    {
+        int n = snapshot.getSnapshotInfo().getNumberOfObjects();
+        int[] objectIds = new int[(n + 2) / 3];
+        for (int ii = 0; ii < objectIds.length; ii++)
+            objectIds[ii] = ii * 3;
+        final AtomicIntegerArray visits = new AtomicIntegerArray(n);
+        snapshot.readObjects(objectIds, object -> {
+            visits.incrementAndGet(object.getObjectId());
+            IObject expected = snapshot.getObject(object.getObjectId());
+            assertEquals(expected.getObjectAddress(), object.getObjectAddress());
+            assertEquals(expected.getClazz().getObjectId(), object.getClazz().getObjectId());
+            assertEquals(expected.getUsedHeapSize(), object.getUsedHeapSize());
+        }, new VoidProgressListener());
+        for (int ii = 0; ii < n; ii++)
+            assertEquals("object " + ii, ii % 3 == 0 ? 1 : 0, visits.get(ii));
+    }
+
+    /**
+     * The retained sets from the combined marking of the referent index are
+     * the same as those calculated separately for each kind of reference.
+     */
+    @Test
+    public void referentIndex() throws SnapshotException
+    {
+        IReferentIndex index = snapshot.getSnapshotAddons(IReferentIndex.class);
+        assumeNotNull(index);
+        for (IReferentIndex.Kind kind : IReferentIndex.Kind.values())
+        {
+            int[] referenceIds = index.getReferenceIds(kind);
+            if (referenceIds.length == 0)
+                continue;
+            for (int referenceId : referenceIds)
+            {
+                assertEquals(kind, index.getKind(referenceId));
+                IObject reference = snapshot.getObject(referenceId);
+                if (reference instanceof IInstance && ((IInstance) reference).getField("referent") != null)
+                {
+                    Object value = ((IInstance) reference).resolveValue("referent");
+                    int expected = value instanceof IObject ? ((IObject) value).getObjectId() : -1;
+                    assertEquals(reference.getTechnicalName(), expected, index.getReferentId(referenceId));
+                }
+            }
+
+            int[] expected = snapshot.getRetainedSet(referenceIds, new VoidProgressListener());
+            Arrays.sort(expected);
+            assertArrayEquals(kind.name(), expected, index.getRetainedSet(kind, new VoidProgressListener()));
+
+            IObject first = snapshot.getObject(referenceIds[0]);
+            if (first instanceof IInstance && ((IInstance) first).getField("referent") != null)
+            {
+                expected = snapshot.getRetainedSet(referenceIds, new String[] { "referent" },
+                                new VoidProgressListener());
+                Arrays.sort(expected);
+                assertArrayEquals(kind.name(), expected,
+                                index.getReferentRetainedSet(kind, new VoidProgressListener()));
+            }
+        }
+    }
+
+    /**
+     * The retained sizes of the classes are calculated when parsing, those of
+     * the class loaders on demand.
+     */
+    @Test
+    public void classLoaderRetainedSizes() throws SnapshotException
+    {
+        for (IClass cls : snapshot.getClasses())
+        {
+            long classSize = cls.getRetainedHeapSizeOfObjects(false, true, null);
+            assertThat(cls.getName(), Math.abs(classSize), greaterThanOrEqualTo(cls.getUsedHeapSize()));
+
+            IObject loader = snapshot.getObject(cls.getClassLoaderId());
+            if (loader instanceof IClassLoader)
+            {
+                long loaderSize = ((IClassLoader) loader).getRetainedHeapSizeOfObjects(true, true, null);
+                assertThat(loader.getDisplayName(), Math.abs(loaderSize), greaterThanOrEqualTo(Math.abs(classSize)));
+            }
+        }
+    }
+
     @Test
     public void objectSizes() throws SnapshotException
     {
@@ -373,6 +651,36 @@ public class GeneralSnapshotTests
         assertTrue(result != null);
     }
 
+    /**
+     * Each big drop is bigger than its biggest child by more than 1% of the heap,
+     * and is shown below a drop which dominates it.
+     */
+    @Test
+    public void bigDrops() throws SnapshotException
+    {
+        SnapshotQuery query = SnapshotQuery.lookup("big_drops_in_dominator_tree", snapshot);
+        IResultTree result = (IResultTree) query.execute(new CheckedWorkProgressListener(collector));
+        long threshold = snapshot.getSnapshotInfo().getUsedHeapSize() / 100;
+        checkBigDrops(result, result.getElements(), -1, threshold);
+    }
+
+    private void checkBigDrops(IResultTree result, List<?> rows, int parentId, long threshold) throws SnapshotException
+    {
+        for (Object row : rows)
+        {
+            int objectId = result.getContext(row).getObjectId();
+            assertNotNull(result.getColumnValue(row, 0));
+            int[] children = snapshot.getImmediateDominatedIds(objectId);
+            long childSize = children.length > 0 ? snapshot.getRetainedHeapSize(children[0]) : 0;
+            assertThat(snapshot.getRetainedHeapSize(objectId) - childSize, greaterThan(threshold));
+            int dominatorId = snapshot.getImmediateDominatorId(objectId);
+            while (dominatorId != -1 && dominatorId != parentId)
+                dominatorId = snapshot.getImmediateDominatorId(dominatorId);
+            assertEquals(parentId, dominatorId);
+            if (result.hasChildren(row))
+                checkBigDrops(result, result.getChildren(row), objectId, threshold);
+        }
+    }
 
     @Test
     public void topReferenceLeak() throws SnapshotException
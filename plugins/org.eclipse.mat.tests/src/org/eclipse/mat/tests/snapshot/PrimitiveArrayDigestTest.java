@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+import java.io.File;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.query.IResult;
+import org.eclipse.mat.snapshot.IPrimitiveArrayDigest;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.model.IPrimitiveArray;
+import org.eclipse.mat.snapshot.query.SnapshotQuery;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * The primitive array digest is only built when asked and agrees with the
+ * array contents.
+ */
+@SuppressWarnings("nls")
+@RunWith(value = Parameterized.class)
+public class PrimitiveArrayDigestTest
+{
+    @Parameters(name = "{index}: Snapshot={0}")
+    public static Collection<Object[]> data()
+    {
+        return Arrays.asList(new Object[][] {
+            { TestSnapshots.SUN_JDK6_32BIT },
+            { TestSnapshots.SUN_JDK6_18_64BIT },
+            { TestSnapshots.IBM_JDK6_32BIT_SYSTEM },
+            { TestSnapshots.ORACLE_JDK8_05_64BIT },
+        });
+    }
+
+    private final String dumpName;
+
+    public PrimitiveArrayDigestTest(String dumpName)
+    {
+        this.dumpName = dumpName;
+    }
+
+    /**
+     * Asking for the digest does not build it, and the queries still work
+     * without it.
+     */
+    @Test
+    public void testNoDigest() throws Exception
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(dumpName, false);
+        File file = new File(snapshot.getSnapshotInfo().getPrefix() + "a2digest.ids.index");
+        assumeFalse(file.exists());
+        assertNull(snapshot.getSnapshotAddons(IPrimitiveArrayDigest.class));
+        IResult result = SnapshotQuery.parse("duplicate_primitive_arrays char[]", snapshot).execute(
+                        new VoidProgressListener());
+        assertNotNull(result);
+        result = SnapshotQuery.parse("primitive_arrays_with_a_constant_value char[]", snapshot).execute(
+                        new VoidProgressListener());
+        assertNotNull(result);
+        assertFalse(file.exists());
+    }
+
+    /**
+     * The digest built at parse time agrees with the array contents, and
+     * arrays with the same contents have the same hash.
+     */
+    @Test
+    public void testDigest() throws SnapshotException
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("primitive_array_digest", "true");
+        ISnapshot snapshot = TestSnapshots.getSnapshot(dumpName, options, true);
+        try
+        {
+            assertTrue(new File(snapshot.getSnapshotInfo().getPrefix() + "a2digest.ids.index").exists());
+            IPrimitiveArrayDigest digest = snapshot.getSnapshotAddons(IPrimitiveArrayDigest.class);
+            assertNotNull(digest);
+            int[] objectIds = digest.getObjectIds();
+            Map<String, Long> hashes = new HashMap<String, Long>();
+            for (int ii = 0; ii < objectIds.length; ii += Math.max(1, objectIds.length / 500))
+            {
+                IPrimitiveArray array = (IPrimitiveArray) snapshot.getObject(objectIds[ii]);
+                String name = array.getTechnicalName();
+                assertEquals(name, array.getLength(), digest.getLength(objectIds[ii]));
+                Object values = array.getValueArray();
+                boolean constant = array.getLength() > 1;
+                for (int jj = 1; jj < array.getLength() && constant; jj++)
+                    constant = Array.get(values, jj).equals(Array.get(values, 0));
+                assertEquals(name, constant, digest.isConstant(objectIds[ii]));
+
+                String key = array.getClazz().getName() + array.getLength()
+                                + Arrays.deepToString(new Object[] { values });
+                Long previous = hashes.put(key, digest.getHash(objectIds[ii]));
+                if (previous != null)
+                    assertEquals(name, previous.longValue(), digest.getHash(objectIds[ii]));
+            }
+        }
+        finally
+        {
+            // Tidy up this pristine snapshot early
+            snapshot.dispose();
+        }
+    }
+}
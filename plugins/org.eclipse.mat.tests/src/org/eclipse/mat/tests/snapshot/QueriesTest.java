@@ -43,6 +43,8 @@ import java.util.Locale;
 
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.collect.ArrayInt;
+import org.eclipse.mat.collect.HashMapIntObject;
 import org.eclipse.mat.query.Bytes;
 import org.eclipse.mat.query.Column;
 import org.eclipse.mat.query.IContextObject;
@@ -60,6 +62,7 @@ import org.eclipse.mat.report.QuerySpec;
 import org.eclipse.mat.report.SectionSpec;
 import org.eclipse.mat.report.Spec;
 import org.eclipse.mat.snapshot.ClassHistogramRecord;
+import org.eclipse.mat.snapshot.ClassLoaderHistogramRecord;
 import org.eclipse.mat.snapshot.Histogram;
 import org.eclipse.mat.snapshot.ISnapshot;
 import org.eclipse.mat.snapshot.SnapshotFactory;
@@ -181,6 +184,94 @@ public class QueriesTest
             }
         }
     }
+
+    /**
+     * Test the class and class loader histograms of the top consumers report,
+     * built from the top dominators read in parallel, against the top
+     * dominators read one at a time.
+     * @throws SnapshotException
+     */
+    @Test
+    public void testTopConsumersHistogram() throws SnapshotException
+    {
+        HashMapIntObject<long[]> classes = new HashMapIntObject<long[]>();
+        HashMapIntObject<ArrayInt> classObjects = new HashMapIntObject<ArrayInt>();
+        HashMapIntObject<long[]> loaders = new HashMapIntObject<long[]>();
+        for (int objectId : snapshot.getImmediateDominatedIds(-1))
+        {
+            IClass clazz = snapshot.getClassOf(objectId);
+            long used = snapshot.getHeapSize(objectId);
+            long retained = snapshot.getRetainedHeapSize(objectId);
+            int loaderId;
+            if (snapshot.isClass(objectId))
+                loaderId = ((IClass) snapshot.getObject(objectId)).getClassLoaderId();
+            else if (snapshot.isClassLoader(objectId))
+                loaderId = objectId;
+            else
+                loaderId = clazz.getClassLoaderId();
+
+            long[] c = classes.get(clazz.getObjectId());
+            if (c == null)
+            {
+                c = new long[3];
+                classes.put(clazz.getObjectId(), c);
+                classObjects.put(clazz.getObjectId(), new ArrayInt());
+            }
+            c[0]++;
+            c[1] += used;
+            c[2] += retained;
+            classObjects.get(clazz.getObjectId()).add(objectId);
+
+            long[] l = loaders.get(loaderId);
+            if (l == null)
+            {
+                l = new long[3];
+                loaders.put(loaderId, l);
+            }
+            l[0]++;
+            l[1] += used;
+            l[2] += retained;
+        }
+
+        SnapshotQuery query = SnapshotQuery.parse("top_consumers_html -t 0", snapshot);
+        IResult result = query.execute(new CheckedWorkProgressListener(collector));
+        assertThat(result, instanceOf(SectionSpec.class));
+        int classRecords = 0;
+        int loaderRecords = 0;
+        for (Spec spec : ((SectionSpec) result).getChildren())
+        {
+            if (!(spec instanceof QuerySpec) || !(((QuerySpec) spec).getResult() instanceof IResultTable))
+                continue;
+            IResultTable table = (IResultTable) ((QuerySpec) spec).getResult();
+            for (int ii = 0; ii < table.getRowCount(); ii++)
+            {
+                Object row = table.getRow(ii);
+                if (row instanceof ClassLoaderHistogramRecord)
+                {
+                    ClassLoaderHistogramRecord r = (ClassLoaderHistogramRecord) row;
+                    long[] expected = loaders.get(r.getClassLoaderId());
+                    collector.checkThat(r.getLabel(), new long[] { r.getNumberOfObjects(), r.getUsedHeapSize(),
+                                    r.getRetainedHeapSize() }, equalTo(expected));
+                    ++loaderRecords;
+                }
+                else if (row instanceof ClassHistogramRecord)
+                {
+                    ClassHistogramRecord r = (ClassHistogramRecord) row;
+                    long[] expected = classes.get(r.getClassId());
+                    collector.checkThat(r.getLabel(), new long[] { r.getNumberOfObjects(), r.getUsedHeapSize(),
+                                    r.getRetainedHeapSize() }, equalTo(expected));
+                    int[] objectIds = r.getObjectIds();
+                    Arrays.sort(objectIds);
+                    int[] expectedIds = classObjects.get(r.getClassId()).toArray();
+                    Arrays.sort(expectedIds);
+                    collector.checkThat(r.getLabel() + " objects", objectIds, equalTo(expectedIds));
+                    ++classRecords;
+                }
+            }
+        }
+        assertThat("class records", classRecords, greaterThan(0));
+        assertThat("class loader records", loaderRecords, greaterThan(0));
+    }
     
     /**
      * Test for formatting of incompatible items
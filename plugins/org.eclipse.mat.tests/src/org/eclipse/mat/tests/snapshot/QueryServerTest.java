@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.IsEqual.equalTo;
+import static org.hamcrest.core.StringContains.containsString;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.internal.apps.QueryClient;
+import org.eclipse.mat.internal.apps.QueryServerApp;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("nls")
+public class QueryServerTest
+{
+    private ISnapshot snapshot;
+    private File dump;
+    private QueryServerApp server;
+    private Thread serving;
+    private int port;
+
+    @Before
+    public void startServer() throws Exception
+    {
+        snapshot = TestSnapshots.getSnapshot(TestSnapshots.SUN_JDK6_18_32BIT, false);
+        dump = new File(snapshot.getSnapshotInfo().getPath());
+        server = new QueryServerApp();
+        port = server.bind(snapshot, 0, Collections.<String, String> emptyMap());
+        serving = new Thread(() -> {
+            try
+            {
+                server.serve();
+            }
+            catch (IOException | InterruptedException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        });
+        serving.start();
+    }
+
+    @After
+    public void stopServer() throws InterruptedException
+    {
+        server.stop();
+        serving.join(60000);
+    }
+
+    @Test
+    public void testTokenFile() throws IOException
+    {
+        File tokenFile = QueryServerApp.getTokenFile(dump);
+        assertTrue(tokenFile.exists());
+        if (tokenFile.toPath().getFileSystem().supportedFileAttributeViews().contains("posix"))
+            assertThat(Files.getPosixFilePermissions(tokenFile.toPath()),
+                            equalTo(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE)));
+    }
+
+    @Test
+    public void testQueries() throws IOException, SnapshotException
+    {
+        try (QueryClient client = new QueryClient(port, QueryClient.readToken(dump)))
+        {
+            assertThat(client.getSnapshotFile().getCanonicalFile(), equalTo(dump.getCanonicalFile()));
+            assertThat(client.query("histogram"), containsString("java.lang.String"));
+            assertThat(client.queryAsCSV("histogram"), containsString("java.lang.String,"));
+            assertThat(client.oql("SELECT * FROM java.lang.Thread"), containsString("java.lang.Thread"));
+            try
+            {
+                client.query("no_such_query");
+                fail("Expected an error for an unknown query");
+            }
+            catch (SnapshotException e)
+            {
+                // the connection stays usable
+            }
+            assertThat(client.query("histogram"), containsString("java.lang.String"));
+        }
+    }
+
+    @Test
+    public void testWrongToken() throws IOException
+    {
+        try (QueryClient client = new QueryClient(port, "0123456789abcdef"))
+        {
+            fail("Expected the token to be rejected");
+        }
+        catch (SnapshotException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testShutdown() throws IOException, SnapshotException, InterruptedException
+    {
+        try (QueryClient client = new QueryClient(port, QueryClient.readToken(dump)))
+        {
+            client.shutdown();
+        }
+        serving.join(60000);
+        assertFalse(serving.isAlive());
+        assertFalse(QueryServerApp.getTokenFile(dump).exists());
+    }
+}
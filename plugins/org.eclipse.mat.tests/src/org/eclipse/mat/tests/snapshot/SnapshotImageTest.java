@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.SnapshotFactory;
+import org.eclipse.mat.snapshot.SnapshotInfo;
+import org.eclipse.mat.snapshot.model.GCRootInfo;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IClassLoader;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.snapshot.model.NamedReference;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.eclipse.mat.util.VoidProgressListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Reopen a parsed snapshot through the binary image of the master index,
+ * and check a missing, stale, corrupt or truncated image is replaced by
+ * reading the master index again, without reparsing the dump.
+ */
+@RunWith(value = Parameterized.class)
+@SuppressWarnings("nls")
+public class SnapshotImageTest
+{
+    private final String dumpName;
+
+    private File dump;
+    private File indexFile;
+    private File imageFile;
+    private long indexModified;
+    private Set<String> expected;
+
+    @Parameters(name = "{index}: Snapshot={0}")
+    public static Collection<Object[]> data()
+    {
+        return Arrays.asList(new Object[][] { { TestSnapshots.SUN_JDK6_18_32BIT },
+                        { TestSnapshots.ORACLE_JDK8_05_64BIT } });
+    }
+
+    public SnapshotImageTest(String dumpName)
+    {
+        this.dumpName = dumpName;
+    }
+
+    @Before
+    public void parse() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(dumpName, true);
+        try
+        {
+            dump = new File(snapshot.getSnapshotInfo().getPath());
+            String prefix = snapshot.getSnapshotInfo().getPrefix();
+            indexFile = new File(prefix + "index");
+            imageFile = new File(prefix + "image.index");
+            indexModified = indexFile.lastModified();
+            expected = describe(snapshot);
+        }
+        finally
+        {
+            SnapshotFactory.dispose(snapshot);
+        }
+        assertTrue(imageFile.getPath(), imageFile.isFile());
+    }
+
+    @Test
+    public void roundTrip() throws SnapshotException, IOException
+    {
+        assertStamp();
+        byte[] image = Files.readAllBytes(imageFile.toPath());
+        checkReopen();
+        // the image was used, so not written again
+        assertArrayEquals(image, Files.readAllBytes(imageFile.toPath()));
+        checkImageOnly();
+    }
+
+    @Test
+    public void missingImage() throws SnapshotException, IOException
+    {
+        assertTrue(imageFile.delete());
+        checkReopen();
+        assertStamp();
+        checkImageOnly();
+    }
+
+    @Test
+    public void staleModified() throws SnapshotException, IOException
+    {
+        // later than the dump, so the index files are still current
+        assumeTrue(indexFile.setLastModified(indexModified + 10000));
+        indexModified = indexFile.lastModified();
+        checkReopen();
+        assertStamp();
+        checkImageOnly();
+    }
+
+    @Test
+    public void staleLength() throws SnapshotException, IOException
+    {
+        // trailing bytes are not read from the master index
+        try (FileOutputStream out = new FileOutputStream(indexFile, true))
+        {
+            out.write(0);
+        }
+        assumeTrue(indexFile.setLastModified(indexModified));
+        checkReopen();
+        assertStamp();
+        checkImageOnly();
+    }
+
+    @Test
+    public void corruptImage() throws SnapshotException, IOException
+    {
+        byte[] image = Files.readAllBytes(imageFile.toPath());
+        for (int ii = image.length / 2; ii < image.length / 2 + 16; ii++)
+            image[ii] ^= 0x55;
+        Files.write(imageFile.toPath(), image);
+        checkReopen();
+        assertRewritten(image);
+        checkImageOnly();
+    }
+
+    @Test
+    public void truncatedImage() throws SnapshotException, IOException
+    {
+        byte[] image = Files.readAllBytes(imageFile.toPath());
+        for (int length : new int[] { image.length - 1, image.length / 2, 20 })
+        {
+            byte[] truncated = Arrays.copyOf(image, length);
+            Files.write(imageFile.toPath(), truncated);
+            checkReopen();
+            assertRewritten(truncated);
+        }
+        checkImageOnly();
+    }
+
+    /**
+     * Reopen the snapshot and compare it with the freshly parsed snapshot.
+     * The master index must not have been rewritten by a reparse.
+     */
+    private void checkReopen() throws SnapshotException
+    {
+        ISnapshot snapshot = SnapshotFactory.openSnapshot(dump, new VoidProgressListener());
+        try
+        {
+            assertEquals(expected, describe(snapshot));
+        }
+        finally
+        {
+            SnapshotFactory.dispose(snapshot);
+        }
+        assertEquals("master index rewritten", indexModified, indexFile.lastModified());
+    }
+
+    /**
+     * Blank out the master index, keeping its length and modification time,
+     * so reopening only succeeds from the image.
+     */
+    private void checkImageOnly() throws SnapshotException, IOException
+    {
+        Files.write(indexFile.toPath(), new byte[(int) indexFile.length()]);
+        assumeTrue(indexFile.setLastModified(indexModified));
+        checkReopen();
+    }
+
+    private void assertRewritten(byte[] old) throws IOException
+    {
+        assertTrue(imageFile.getPath(), imageFile.isFile());
+        assertFalse("image not rewritten", Arrays.equals(old, Files.readAllBytes(imageFile.toPath())));
+        assertStamp();
+    }
+
+    /**
+     * The image header holds the length and modification time of the master index.
+     */
+    private void assertStamp() throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(imageFile)))
+        {
+            in.readLong(); // magic
+            assertEquals("index length", indexFile.length(), in.readLong());
+            assertEquals("index modified", indexFile.lastModified(), in.readLong());
+        }
+    }
+
+    /**
+     * Everything held in the master index: the snapshot info, classes,
+     * class loader labels, array objects, GC roots and, via the outbound
+     * references of the threads, the GC roots per thread.
+     */
+    private static Set<String> describe(ISnapshot snapshot) throws SnapshotException
+    {
+        // the class cache and roots are hash maps, so compare independent of order
+        Set<String> result = new TreeSet<String>();
+        SnapshotInfo info = snapshot.getSnapshotInfo();
+        result.add("info " + info.getNumberOfObjects() + " " + info.getNumberOfGCRoots() + " "
+                        + info.getNumberOfClasses() + " " + info.getNumberOfClassLoaders() + " "
+                        + info.getUsedHeapSize() + " " + info.getIdentifierSize() + " " + info.getJvmInfo());
+
+        for (IClass cls : snapshot.getClasses())
+        {
+            result.add("class " + cls.getObjectId() + " " + cls.getName() + " " + cls.getClassLoaderId() + " "
+                            + cls.getNumberOfObjects() + " " + cls.getHeapSizePerInstance());
+            IObject loader = snapshot.getObject(cls.getClassLoaderId());
+            if (loader instanceof IClassLoader)
+                result.add("loader " + loader.getObjectId() + " " + loader.getClassSpecificName());
+        }
+
+        long arrays = 0;
+        for (int id = 0; id < info.getNumberOfObjects(); id++)
+        {
+            if (snapshot.isArray(id))
+                arrays += id + 1;
+        }
+        result.add("arrays " + arrays);
+
+        for (int id : snapshot.getGCRoots())
+        {
+            for (GCRootInfo root : snapshot.getGCRootInfo(id))
+            {
+                result.add("root " + id + " " + GCRootInfo.getTypeAsString(root.getType()) + " "
+                                + root.getObjectAddress() + " " + root.getContextAddress());
+            }
+            for (NamedReference ref : snapshot.getObject(id).getOutboundReferences())
+            {
+                result.add("ref " + id + " " + ref.getName() + " " + ref.getObjectAddress());
+            }
+        }
+
+        return result;
+    }
+}
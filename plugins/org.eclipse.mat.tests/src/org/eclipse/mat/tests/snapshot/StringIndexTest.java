@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Contributors to the Eclipse Foundation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.mat.tests.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.mat.SnapshotException;
+import org.eclipse.mat.snapshot.ISnapshot;
+import org.eclipse.mat.snapshot.IStringIndex;
+import org.eclipse.mat.snapshot.model.IClass;
+import org.eclipse.mat.snapshot.model.IObject;
+import org.eclipse.mat.tests.TestSnapshots;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * The string index is only built when asked and holds the same contents as
+ * reading the strings.
+ */
+@SuppressWarnings("nls")
+@RunWith(value = Parameterized.class)
+public class StringIndexTest
+{
+    @Parameters(name = "{index}: Snapshot={0}")
+    public static Collection<Object[]> data()
+    {
+        return Arrays.asList(new Object[][] {
+            { TestSnapshots.SUN_JDK6_32BIT },
+            { TestSnapshots.SUN_JDK6_18_64BIT },
+            { TestSnapshots.IBM_JDK6_32BIT_SYSTEM },
+            { TestSnapshots.ORACLE_JDK8_05_64BIT },
+        });
+    }
+
+    private final String dumpName;
+
+    public StringIndexTest(String dumpName)
+    {
+        this.dumpName = dumpName;
+    }
+
+    /**
+     * Asking for the index does not build it.
+     */
+    @Test
+    public void testNoIndex() throws SnapshotException
+    {
+        ISnapshot snapshot = TestSnapshots.getSnapshot(dumpName, false);
+        File file = new File(snapshot.getSnapshotInfo().getPrefix() + "strings.ids.index");
+        assumeFalse(file.exists());
+        assertNull(snapshot.getSnapshotAddons(IStringIndex.class));
+        assertFalse(file.exists());
+    }
+
+    /**
+     * The index built at parse time holds the contents of the strings.
+     */
+    @Test
+    public void testIndex() throws SnapshotException
+    {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("string_index", "true");
+        ISnapshot snapshot = TestSnapshots.getSnapshot(dumpName, options, true);
+        try
+        {
+            assertTrue(new File(snapshot.getSnapshotInfo().getPrefix() + "strings.ids.index").exists());
+            IStringIndex index = snapshot.getSnapshotAddons(IStringIndex.class);
+            assertNotNull(index);
+            int[] objectIds = index.getObjectIds();
+            int count = 0;
+            Collection<IClass> classes = snapshot.getClassesByName("java.lang.String", false);
+            if (classes != null)
+            {
+                for (IClass cls : classes)
+                    count += cls.getNumberOfObjects();
+            }
+            assertEquals(count, objectIds.length);
+            for (int ii = 0; ii < objectIds.length; ii += Math.max(1, objectIds.length / 500))
+            {
+                IObject string = snapshot.getObject(objectIds[ii]);
+                assertTrue(index.contains(objectIds[ii]));
+                int contentId = index.getContentId(objectIds[ii]);
+                String expected = string.getClassSpecificName();
+                assertEquals(string.getTechnicalName(), expected, contentId >= 0 ? index.getContent(contentId) : null);
+                if (expected != null && expected.length() < 1024)
+                    assertEquals(string.getTechnicalName(), expected.length(), index.getLength(objectIds[ii]));
+            }
+            assertFalse(index.contains(snapshot.getClassesByName("java.lang.String", false).iterator().next()
+                            .getObjectId()));
+        }
+        finally
+        {
+            // Tidy up this pristine snapshot early
+            snapshot.dispose();
+        }
+    }
+}